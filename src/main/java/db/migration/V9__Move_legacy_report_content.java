@@ -0,0 +1,102 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Перенос содержимого отчетов, сформированных до перехода на сжатые фрагменты.
+ * В БД, созданных до перехода на Flyway, HTML готового отчета хранится в колонке content
+ * таблицы reports, которую приложение не читает. Содержимое сжимается gzip и сохраняется
+ * фрагментами так же, как при формировании отчета (ReportJobQueueImpl.complete), поэтому
+ * такие отчеты остаются доступными под прежним ID с прежним содержимым.
+ * Колонка content не удаляется. В БД, созданных миграцией V1, колонки content нет,
+ * и миграция ничего не меняет.
+ */
+public class V9__Move_legacy_report_content extends BaseJavaMigration {
+
+    /** Размер фрагмента по умолчанию (app.report.content.chunk-size) */
+    private static final int CHUNK_SIZE = 65536;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!hasLegacyContent(connection)) {
+            return;
+        }
+
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT id, content FROM reports "
+                             + "WHERE status = 'COMPLETED' AND content IS NOT NULL AND content_size IS NULL "
+                             + "ORDER BY id");
+             PreparedStatement insertChunk = connection.prepareStatement(
+                     "INSERT INTO report_content_chunks (report_id, seq, data) VALUES (?, ?, ?)");
+             PreparedStatement updateReport = connection.prepareStatement(
+                     "UPDATE reports SET content_size = ?, content_etag = ? WHERE id = ?")) {
+            select.setFetchSize(100);
+            try (ResultSet reports = select.executeQuery()) {
+                while (reports.next()) {
+                    long reportId = reports.getLong("id");
+                    byte[] compressedContent = compress(reports.getString("content"));
+
+                    for (int offset = 0, seq = 0; offset < compressedContent.length; offset += CHUNK_SIZE, seq++) {
+                        insertChunk.setLong(1, reportId);
+                        insertChunk.setInt(2, seq);
+                        insertChunk.setBytes(3, Arrays.copyOfRange(compressedContent, offset,
+                                Math.min(offset + CHUNK_SIZE, compressedContent.length)));
+                        insertChunk.addBatch();
+                    }
+                    insertChunk.executeBatch();
+
+                    updateReport.setLong(1, compressedContent.length);
+                    updateReport.setString(2, computeEtag(compressedContent));
+                    updateReport.setLong(3, reportId);
+                    updateReport.executeUpdate();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true, если в таблице reports текущей схемы есть колонка content
+     */
+    private static boolean hasLegacyContent(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM information_schema.columns "
+                        + "WHERE table_schema = current_schema() AND table_name = 'reports' "
+                        + "AND column_name = 'content'");
+             ResultSet result = statement.executeQuery()) {
+            return result.next();
+        }
+    }
+
+    private static byte[] compress(String content) throws IOException {
+        ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressedContent), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+        return compressedContent.toByteArray();
+    }
+
+    /**
+     * Вычисляет ETag так же, как ReportJobQueueImpl: префикс SHA-256 сжатых данных
+     */
+    private static String computeEtag(byte[] content) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+        return HexFormat.of().formatHex(digest, 0, 16);
+    }
+}
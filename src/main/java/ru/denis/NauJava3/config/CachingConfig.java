@@ -0,0 +1,48 @@
+package ru.denis.NauJava3.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Конфигурация кэшей редко изменяемых сущностей.
+ * Кэши ограничены по размеру и времени жизни (spring.cache.caffeine.spec)
+ * и публикуют статистику в метриках actuator (cache.gets, cache.evictions и др.).
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CachingConfig {
+
+    /** Кэш неизменяемых сведений о категориях по ID */
+    public static final String CATEGORIES = "categories";
+
+    /** Кэш пользователей (вместе с ролями) по имени пользователя */
+    public static final String USERS_BY_USERNAME = "usersByUsername";
+
+    /**
+     * Создает менеджер кэшей Caffeine.
+     * Запись и очистка кэша выполняются после фиксации транзакции БД, поэтому
+     * в кэш не попадают данные откатанных транзакций, а параллельное чтение
+     * не может вернуть в кэш значение, устаревшее до фиксации изменения.
+     *
+     * @param cacheProperties настройки spring.cache.*
+     * @return менеджер кэшей
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(CATEGORIES, USERS_BY_USERNAME);
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            cacheManager.setCacheSpecification(spec);
+        }
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
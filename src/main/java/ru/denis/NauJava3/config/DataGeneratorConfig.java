@@ -0,0 +1,60 @@
+package ru.denis.NauJava3.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import ru.denis.NauJava3.dto.DataGenerationResultDto;
+import ru.denis.NauJava3.dto.DataGenerationSettings;
+import ru.denis.NauJava3.service.DataGeneratorService;
+
+/**
+ * Генерация синтетических данных при запуске приложения с профилем datagen.
+ * Параметры задаются свойствами app.datagen.*, например:
+ * <pre>
+ * java -jar NauJava3.jar --spring.profiles.active=datagen --spring.main.web-application-type=none \
+ *     --app.datagen.users=100000 --app.datagen.transactions=50000000 --app.datagen.end-date=2025-12-31
+ * </pre>
+ * После генерации приложение завершается.
+ */
+@Slf4j
+@Configuration
+@Profile("datagen")
+public class DataGeneratorConfig {
+
+    /**
+     * Параметры генерации из свойств app.datagen.*
+     *
+     * @return параметры генерации
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "app.datagen")
+    public DataGenerationSettings dataGenerationSettings() {
+        return new DataGenerationSettings();
+    }
+
+    /**
+     * Запускает генерацию после старта приложения и затем завершает приложение.
+     *
+     * @param dataGeneratorService сервис генерации
+     * @param settings параметры генерации
+     * @param context контекст приложения
+     * @return задача, выполняемая при запуске
+     */
+    @Bean
+    public ApplicationRunner dataGeneratorRunner(DataGeneratorService dataGeneratorService,
+                                                 DataGenerationSettings settings,
+                                                 ConfigurableApplicationContext context) {
+        return args -> {
+            log.info("Генерация синтетических данных: {}", settings);
+            long start = System.nanoTime();
+            DataGenerationResultDto result = dataGeneratorService.generate(settings);
+            log.info("Данные созданы за {} с: {}", (System.nanoTime() - start) / 1_000_000_000, result);
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package ru.denis.NauJava3.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Конфигурация пула потоков для пересборки балансов по журналу операций.
+ * Пул создается один раз на приложение и ограничен по числу потоков и длине очереди,
+ * поэтому параллельные запуски пересборки не порождают новые потоки при каждом вызове.
+ * Метрики пула публикуются через actuator автоматически с тегом name=ledgerRebuild.
+ */
+@Configuration
+public class LedgerExecutorConfig {
+
+    /**
+     * Пул потоков для порций пересборки балансов.
+     * При заполненной очереди порция выполняется в потоке, запустившем пересборку,
+     * поэтому пересборка большого числа счетов замедляется, но не отклоняется.
+     *
+     * @param parallelism число потоков пересборки
+     * @param queueCapacity максимальная длина очереди ожидающих порций
+     * @return пул потоков для пересборки балансов
+     */
+    @Bean(name = "ledgerRebuildExecutor")
+    public ThreadPoolTaskExecutor ledgerRebuildExecutor(
+            @Value("${app.ledger.rebuild.parallelism:4}") int parallelism,
+            @Value("${app.ledger.rebuild.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ledger-rebuild-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.denis.NauJava3.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация метрик времени выполнения методов.
+ * Методы классов, отмеченных {@link io.micrometer.core.annotation.Timed}, измеряются таймерами
+ * с тегами class и method и гистограммой для расчета перцентилей.
+ * Метрики доступны в /actuator/metrics и в формате Prometheus в /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /** Таймер методов сервисов */
+    public static final String SERVICE_TIMER = "service.method";
+
+    /** Таймер методов пользовательских репозиториев */
+    public static final String REPOSITORY_TIMER = "repository.method";
+
+    /**
+     * Аспект, измеряющий время выполнения методов с аннотацией {@link io.micrometer.core.annotation.Timed}.
+     *
+     * @param meterRegistry реестр метрик
+     * @return аспект таймеров
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,71 @@
+package ru.denis.NauJava3.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Конфигурация пула потоков для формирования отчетов.
+ * Пул ограничен по числу потоков и длине очереди, поэтому всплеск запросов
+ * на создание отчетов не порождает неограниченное количество потоков.
+ * Метрики пула (executor.active, executor.queued, executor.pool.size с тегом name=report)
+ * публикуются через actuator автоматически, число отклоненных задач - счетчиком
+ * report.executor.rejected.
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    /**
+     * Пул потоков для формирования отчетов.
+     * При заполненной очереди новая задача отклоняется исключением {@link TaskRejectedException}.
+     *
+     * @param corePoolSize базовое число потоков
+     * @param maxPoolSize максимальное число потоков
+     * @param queueCapacity максимальная длина очереди ожидающих отчетов
+     * @param meterRegistry реестр метрик
+     * @return пул потоков для отчетов
+     */
+    @Bean(name = "reportExecutor")
+    public ThreadPoolTaskExecutor reportExecutor(
+            @Value("${app.report.executor.core-size:2}") int corePoolSize,
+            @Value("${app.report.executor.max-size:4}") int maxPoolSize,
+            @Value("${app.report.executor.queue-capacity:50}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        Counter rejectedCounter = Counter.builder("report.executor.rejected")
+                .description("Количество задач формирования отчетов, отклоненных из-за переполнения очереди")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejectedCounter.increment();
+            throw new TaskRejectedException("Очередь формирования отчетов переполнена");
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Пул потоков приложения по умолчанию.
+     * Spring Boot не создает его сам при наличии другого пула в контексте,
+     * а он используется Spring MVC для асинхронной обработки запросов.
+     *
+     * @param builder построитель пула с настройками spring.task.execution.*
+     * @return пул потоков приложения
+     */
+    @Primary
+    @Bean(name = "applicationTaskExecutor")
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
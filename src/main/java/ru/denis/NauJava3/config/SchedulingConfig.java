@@ -0,0 +1,13 @@
+package ru.denis.NauJava3.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Конфигурация фоновых задач, выполняемых по расписанию.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+}
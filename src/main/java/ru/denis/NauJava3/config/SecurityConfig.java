@@ -31,7 +31,8 @@ public class SecurityConfig {
                         .requestMatchers("/", "/registration", "/login")
                         .permitAll()
 
-                        .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/api-docs/**", "/v3/api-docs/**", "/api/reports/**")
+                        .requestMatchers("/swagger-ui/**", "/swagger-ui.html", "/api-docs/**", "/v3/api-docs/**", "/api/reports/**",
+                                "/api/ledger/rebuild")
                         .hasRole("ADMIN")
 
                         .anyRequest().authenticated()
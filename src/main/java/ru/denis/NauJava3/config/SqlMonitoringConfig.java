@@ -0,0 +1,37 @@
+package ru.denis.NauJava3.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.denis.NauJava3.monitoring.SqlStatementCounter;
+
+import java.time.Duration;
+
+/**
+ * Конфигурация наблюдения за SQL-запросами Hibernate.
+ * Статистика Hibernate (hibernate.generate_statistics) публикуется в actuator метриками
+ * hibernate.query.executions, hibernate.entities.loads, hibernate.collections.fetches,
+ * hibernate.second.level.cache.requests и др.; количество запросов на HTTP-запрос
+ * считает {@link ru.denis.NauJava3.monitoring.SqlRequestGuardFilter}.
+ */
+@Configuration
+public class SqlMonitoringConfig {
+
+    /**
+     * Подключает счетчик SQL-запросов и журнал медленных запросов.
+     * Запросы дольше app.sql.slow-query-threshold записываются в журнал org.hibernate.SQL_SLOW.
+     *
+     * @param slowQueryThreshold порог медленного запроса
+     * @return настройка свойств Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer sqlMonitoringCustomizer(
+            @Value("${app.sql.slow-query-threshold:PT0.2S}") Duration slowQueryThreshold) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowQueryThreshold.toMillis());
+        };
+    }
+}
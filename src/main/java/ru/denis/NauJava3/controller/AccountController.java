@@ -6,16 +6,21 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ru.denis.NauJava3.dto.AccountBalanceDto;
 import ru.denis.NauJava3.entity.Account;
 import ru.denis.NauJava3.exception.BadRequestException;
 import ru.denis.NauJava3.exception.ResourceNotFoundException;
 import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.service.AccountBalanceService;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -23,6 +28,7 @@ import java.util.List;
  *
  * @see Account
  * @see AccountRepository
+ * @see AccountBalanceService
  */
 @RestController
 @RequestMapping("/api/accounts")
@@ -33,6 +39,9 @@ public class AccountController {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
     /**
      * Поиск счетов с использованием Criteria API.
      * Позволяет искать счета по email пользователя и диапазону баланса.
@@ -106,6 +115,35 @@ public class AccountController {
         return accounts;
     }
 
+    /**
+     * История баланса счета текущего пользователя.
+     * Баланс на начало периода вычисляется от ближайшей контрольной точки баланса,
+     * поэтому стоимость запроса не зависит от возраста счета.
+     *
+     * @param id ID счета
+     * @param from первый день периода
+     * @param to последний день периода (по умолчанию текущий день)
+     * @return баланс на конец каждого дня периода
+     * @throws BadRequestException если период задан некорректно или слишком длинный
+     * @throws ResourceNotFoundException если счет не найден или принадлежит другому пользователю
+     */
+    @Operation(
+            summary = "История баланса счета",
+            description = "Возвращает баланс счета текущего пользователя на конец каждого дня периода"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Балансы по дням"),
+            @ApiResponse(responseCode = "400", description = "Неверный период"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/{id}/balance-history")
+    public List<AccountBalanceDto> getBalanceHistory(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return accountBalanceService.getBalanceHistory(id, from, to != null ? to : LocalDate.now());
+    }
+
     /**
      * Проверяет корректность email и соотношения балансов.
      *
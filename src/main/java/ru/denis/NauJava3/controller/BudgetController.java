@@ -6,6 +6,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.denis.NauJava3.dto.BudgetDto;
+import ru.denis.NauJava3.dto.BudgetStatusDto;
 import ru.denis.NauJava3.entity.Budget;
 import ru.denis.NauJava3.service.BudgetService;
 
@@ -37,6 +38,12 @@ public class BudgetController {
         return ResponseEntity.ok(budgets);
     }
 
+    @GetMapping("/status")
+    public ResponseEntity<List<BudgetStatusDto>> getCurrentUserBudgetStatuses() {
+        List<BudgetStatusDto> statuses = budgetService.getCurrentUserBudgetStatuses();
+        return ResponseEntity.ok(statuses);
+    }
+
     @GetMapping("/{id}/status")
     public ResponseEntity<Map<String, Object>> getBudgetStatus(@PathVariable Long id) {
         Budget budget = budgetService.getBudgetById(id);
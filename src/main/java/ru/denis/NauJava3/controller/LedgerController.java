@@ -0,0 +1,77 @@
+package ru.denis.NauJava3.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.denis.NauJava3.dto.LedgerEntryDto;
+import ru.denis.NauJava3.dto.LedgerRebuildResultDto;
+import ru.denis.NauJava3.service.LedgerService;
+
+import java.util.List;
+
+/**
+ * REST контроллер журнала операций по счетам.
+ *
+ * @see LedgerService
+ */
+@RestController
+@RequestMapping("/api/ledger")
+@Tag(name = "Ledger Controller", description = "API журнала операций по счетам")
+@RequiredArgsConstructor
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+
+    /**
+     * Проводки счета текущего пользователя в порядке номеров.
+     * Для получения следующей страницы передается номер последней проводки предыдущей страницы.
+     *
+     * @param accountId ID счета
+     * @param afterSeq номер последней прочитанной проводки
+     * @param size размер страницы
+     * @return проводки страницы
+     */
+    @Operation(
+            summary = "Журнал операций по счету",
+            description = "Возвращает проводки счета текущего пользователя с номерами больше afterSeq"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Проводки счета"),
+            @ApiResponse(responseCode = "400", description = "Недопустимый размер страницы"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден")
+    })
+    @GetMapping("/accounts/{accountId}/entries")
+    public ResponseEntity<List<LedgerEntryDto>> getAccountEntries(
+            @PathVariable Long accountId,
+            @RequestParam(defaultValue = "0") long afterSeq,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ledgerService.getAccountEntries(accountId, afterSeq, size));
+    }
+
+    /**
+     * Пересборка балансов всех счетов по журналу операций.
+     *
+     * @return количество проверенных и исправленных счетов
+     */
+    @Operation(
+            summary = "Пересобрать балансы счетов",
+            description = "Вычисляет балансы по журналу операций параллельно порциями счетов " +
+                    "и исправляет расходящиеся балансы"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Балансы пересобраны")
+    })
+    @PostMapping("/rebuild")
+    public ResponseEntity<LedgerRebuildResultDto> rebuildBalances() {
+        return ResponseEntity.ok(ledgerService.rebuildBalances());
+    }
+}
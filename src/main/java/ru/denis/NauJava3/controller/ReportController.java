@@ -1,20 +1,29 @@
 package ru.denis.NauJava3.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import ru.denis.NauJava3.entity.Report;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.denis.NauJava3.dto.ReportStatusDto;
 import ru.denis.NauJava3.entity.enums.ReportStatus;
 import ru.denis.NauJava3.service.ReportService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -23,6 +32,7 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Создает новый отчет и запускает его асинхронное формирование
@@ -52,8 +62,16 @@ public class ReportController {
     }
 
     /**
-     * Получает содержимое отчета по ID
+     * Получает содержимое отчета по ID.
+     * Сформированный отчет передается клиенту потоком; клиенту, поддерживающему gzip,
+     * сжатое содержимое отдается без распаковки. Сформированный отчет не изменяется,
+     * поэтому ответ содержит ETag, а при совпадении If-None-Match возвращается 304.
+     * Spring MVC передает тело потоком, только если тип результата метода объявлен
+     * как {@code ResponseEntity<StreamingResponseBody>}, поэтому и статус формирования
+     * отчета отдается в этом виде - заранее сериализованным JSON.
      * @param id ID отчета
+     * @param acceptEncoding значение заголовка Accept-Encoding
+     * @param ifNoneMatch значение заголовка If-None-Match
      * @return содержимое отчета или информацию о его статусе
      */
     @Operation(
@@ -69,6 +87,11 @@ public class ReportController {
                             @Content(mediaType = "text/html")
                     }
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Отчет не изменился",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Отчет не найден",
@@ -76,24 +99,183 @@ public class ReportController {
             )
     })
     @GetMapping("/{id}")
-    public ResponseEntity<?> getReport(@PathVariable Long id) {
-        Report report = reportService.getReport(id);
+    public ResponseEntity<StreamingResponseBody> getReport(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws JsonProcessingException {
+        ReportStatusDto report = reportService.getReportStatus(id);
 
-        if (report.getStatus() == ReportStatus.CREATED) {
+        if (report.getStatus() == ReportStatus.CREATED
+                || report.getStatus() == ReportStatus.QUEUED
+                || report.getStatus() == ReportStatus.RUNNING) {
             Map<String, Object> response = new HashMap<>();
             response.put("status", report.getStatus());
             response.put("message", "Отчет находится в процессе формирования");
-            return ResponseEntity.ok(response);
+            return statusResponse(response);
         } else if (report.getStatus() == ReportStatus.ERROR) {
             Map<String, Object> response = new HashMap<>();
             response.put("status", report.getStatus());
             response.put("message", "При формировании отчета произошла ошибка");
-            response.put("error", report.getContent());
-            return ResponseEntity.ok(response);
+            response.put("error", report.getErrorMessage());
+            return statusResponse(response);
+        } else if (report.getStatus() == ReportStatus.CANCELLED) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", report.getStatus());
+            response.put("message", "Формирование отчета отменено");
+            return statusResponse(response);
         }
 
+        boolean gzipAccepted = gzipAccepted(acceptEncoding);
+        String etag = gzipAccepted ? report.getContentEtag() + "-gzip" : report.getContentEtag();
+        CacheControl cacheControl = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
+        String matchedEtag = report.getContentEtag() != null
+                ? matchedEtag(ifNoneMatch, report.getContentEtag(), etag)
+                : null;
+        if (matchedEtag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(matchedEtag)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        StreamingResponseBody body = out -> reportService.writeReportContent(report, out, !gzipAccepted);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (report.getContentEtag() != null) {
+            response.eTag(etag);
+        }
+        if (gzipAccepted) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            if (report.getContentSize() != null) {
+                response.contentLength(report.getContentSize());
+            }
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Отменяет формирование отчета
+     * @param id ID отчета
+     * @return сообщение об отмене
+     */
+    @Operation(
+            summary = "Отменить формирование отчета",
+            description = "Отменяет формирование отчета, ожидающего в очереди или формируемого в данный момент"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Отмена принята",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Отчет не находится в процессе формирования",
+                    content = @Content
+            )
+    })
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<Map<String, Object>> cancelReport(@PathVariable Long id) {
+        reportService.cancelReport(id);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", id);
+        response.put("message", "Формирование отчета отменено");
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Формирует ответ со статусом отчета в JSON.
+     * @param status описание статуса отчета
+     * @return ответ с сериализованным статусом
+     */
+    private ResponseEntity<StreamingResponseBody> statusResponse(Map<String, Object> status)
+            throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(status);
         return ResponseEntity.ok()
-                .contentType(MediaType.TEXT_HTML)
-                .body(report.getContent());
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(json.length)
+                .body(out -> out.write(json));
+    }
+
+    /**
+     * Проверяет, принимает ли клиент содержимое, сжатое gzip.
+     * Учитываются коды gzip, x-gzip и *, а также их веса: кодирование с весом q=0
+     * клиент не принимает. Явно указанный gzip имеет приоритет над *.
+     * @param acceptEncoding значение заголовка Accept-Encoding
+     * @return true, если gzip допустим
+     */
+    private boolean gzipAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = qualityOf(parts) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == Boolean.TRUE || accepted;
+            } else if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return gzip != null ? gzip : wildcard;
+    }
+
+    /**
+     * @param parts кодирование и параметры элемента заголовка Accept-Encoding
+     * @return вес кодирования; 1, если вес не указан, и 0, если вес некорректен
+     */
+    private double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Находит в заголовке If-None-Match ETag, совпадающий с ETag отчета.
+     * Сжатое и несжатое представления имеют одно и то же содержимое, поэтому
+     * принимаются ETag обоих представлений, а в ответе 304 возвращается совпавший ETag,
+     * чтобы клиент сопоставил ответ со своей сохраненной копией.
+     * @param ifNoneMatch значение заголовка If-None-Match
+     * @param contentEtag ETag содержимого отчета
+     * @param currentEtag ETag представления, выбранного по Accept-Encoding
+     * @return совпавший ETag или null, если содержимое у клиента неактуально
+     */
+    private String matchedEtag(String ifNoneMatch, String contentEtag, String currentEtag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return currentEtag;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            tag = tag.replace("\"", "");
+            if (tag.equals(contentEtag) || tag.equals(contentEtag + "-gzip")) {
+                return tag;
+            }
+        }
+        return null;
     }
 }
@@ -0,0 +1,201 @@
+package ru.denis.NauJava3.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.denis.NauJava3.dto.TransactionDto;
+import ru.denis.NauJava3.dto.TransactionImportResultDto;
+import ru.denis.NauJava3.dto.TransactionPageDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.dto.TransferDto;
+import ru.denis.NauJava3.dto.TransferRequest;
+import ru.denis.NauJava3.service.IdempotencyService;
+import ru.denis.NauJava3.service.TransactionImportService;
+import ru.denis.NauJava3.service.TransactionService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * REST контроллер для работы с финансовыми транзакциями.
+ * Запросы, создающие транзакции, принимают заголовок {@value IdempotencyService#HEADER}:
+ * повтор запроса с тем же ключом возвращает результат первого выполнения.
+ *
+ * @see TransactionService
+ * @see TransactionImportService
+ * @see IdempotencyService
+ */
+@RestController
+@RequestMapping("/api/transactions")
+@Tag(name = "Transaction Controller", description = "API для работы с транзакциями")
+@RequiredArgsConstructor
+public class TransactionController {
+
+    private final TransactionImportService transactionImportService;
+    private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * Постраничный просмотр транзакций текущего пользователя, от новых к старым.
+     * Для получения следующей страницы передается курсор из ответа на предыдущий запрос.
+     *
+     * @param cursor курсор следующей страницы (не указывается для первой страницы)
+     * @param size размер страницы
+     * @return транзакции страницы и курсор следующей страницы
+     */
+    @Operation(
+            summary = "Транзакции текущего пользователя по курсору",
+            description = "Возвращает страницу транзакций, упорядоченных по дате и ID по убыванию, " +
+                    "и курсор nextCursor для запроса следующей страницы"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница транзакций"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы")
+    })
+    @GetMapping
+    public ResponseEntity<TransactionPageDto> getTransactions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(transactionService.getCurrentUserTransactions(cursor, size));
+    }
+
+    /**
+     * Создание транзакции по счету текущего пользователя.
+     *
+     * @param idempotencyKey ключ идемпотентности запроса
+     * @param request счет, категория, сумма, тип и описание транзакции; дата не используется
+     * @return созданная транзакция
+     */
+    @Operation(
+            summary = "Создание транзакции",
+            description = "Изменяет баланс счета и сохраняет транзакцию; повтор с тем же Idempotency-Key " +
+                    "возвращает ранее созданную транзакцию"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Транзакция создана"),
+            @ApiResponse(responseCode = "400", description = "Некорректный запрос или ключ идемпотентности"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом еще выполняется " +
+                    "или результат групповой записи неизвестен")
+    })
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createTransaction(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransactionRequest request) {
+        return idempotencyService.execute(idempotencyKey, "transactions.create", request, () -> {
+            TransactionDto transaction = transactionService.createCurrentUserTransaction(request);
+            return new ResponseEntity<>(transaction, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * Перевод между счетами текущего пользователя.
+     *
+     * @param idempotencyKey ключ идемпотентности запроса
+     * @param request счета и сумма перевода
+     * @return проведенный перевод
+     */
+    @Operation(
+            summary = "Перевод между своими счетами",
+            description = "Списывает сумму с одного счета и зачисляет на другой в одной транзакции БД"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Перевод проведен"),
+            @ApiResponse(responseCode = "400", description = "Некорректный запрос или недостаточно средств на счете"),
+            @ApiResponse(responseCode = "404", description = "Счет не найден"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом идемпотентности еще выполняется")
+    })
+    @PostMapping("/transfers")
+    public ResponseEntity<?> createTransfer(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferRequest request) {
+        return idempotencyService.execute(idempotencyKey, "transactions.transfer", request, () -> {
+            TransferDto transfer = transactionService.createTransfer(request.getFromAccountId(),
+                    request.getToAccountId(), request.getAmount(), request.getDescription());
+            return new ResponseEntity<>(transfer, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * Импорт транзакций из CSV с заголовком
+     * (accountId, categoryId, amount, type, date, description).
+     *
+     * Для запроса с ключом идемпотентности содержимое читается в память целиком,
+     * чтобы сравнить его с содержимым первого запроса, а строки сохраняются
+     * одной транзакцией БД вместе с ответом: такой импорт сохраняется целиком или не сохраняется.
+     *
+     * @param idempotencyKey ключ идемпотентности запроса
+     * @param csv тело запроса с содержимым CSV
+     * @return итог импорта
+     * @throws IOException при ошибке чтения тела запроса
+     */
+    @Operation(
+            summary = "Импорт транзакций из CSV",
+            description = "Проверяет все строки, затем сохраняет транзакции порциями с пакетной вставкой"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Транзакции импортированы"),
+            @ApiResponse(responseCode = "400", description = "Некорректная строка или недостаточно средств на счете"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом идемпотентности еще выполняется")
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<?> importCsv(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            InputStream csv) throws IOException {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(transactionImportService.importCsv(csv));
+        }
+
+        byte[] content = csv.readAllBytes();
+        return idempotencyService.execute(idempotencyKey, "transactions.import.csv", content, () -> {
+            try {
+                TransactionImportResultDto result =
+                        transactionImportService.importCsv(new ByteArrayInputStream(content));
+                return ResponseEntity.ok(result);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Импорт транзакций из JSON-массива.
+     * Импорт с ключом идемпотентности сохраняется целиком или не сохраняется, как и импорт CSV.
+     *
+     * @param idempotencyKey ключ идемпотентности запроса
+     * @param requests строки для импорта
+     * @return итог импорта
+     */
+    @Operation(
+            summary = "Импорт транзакций из JSON",
+            description = "Проверяет все строки, затем сохраняет транзакции порциями с пакетной вставкой"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Транзакции импортированы"),
+            @ApiResponse(responseCode = "400", description = "Некорректная строка или недостаточно средств на счете"),
+            @ApiResponse(responseCode = "409", description = "Запрос с этим ключом идемпотентности еще выполняется")
+    })
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importJson(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody List<TransactionRequest> requests) {
+        return idempotencyService.execute(idempotencyKey, "transactions.import.json", requests,
+                () -> ResponseEntity.ok(transactionImportService.importTransactions(requests)));
+    }
+}
@@ -1,36 +1,54 @@
 package ru.denis.NauJava3.dao;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.config.MetricsConfig;
 import ru.denis.NauJava3.entity.Account;
 import ru.denis.NauJava3.entity.User;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Реализация пользовательских методов поиска счетов с использованием Criteria API.
  * Предоставляет гибкие возможности построения динамических запросов к базе данных.
+ * Запрос для каждой комбинации заданных условий строится один раз и затем переиспользуется
+ * с новыми значениями параметров.
  */
 @Repository
+@Timed(value = MetricsConfig.REPOSITORY_TIMER, histogram = true)
 public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
 
+    /** Признаки заданных условий поиска, из которых составляется номер запроса */
+    private static final int USER_EMAIL = 1;
+    private static final int MIN_BALANCE = 1 << 1;
+    private static final int MAX_BALANCE = 1 << 2;
+
     /** Менеджер сущностей для работы с базой данных */
     @PersistenceContext
     private EntityManager entityManager;
 
+    /** Построенные запросы по номеру комбинации условий */
+    private final AtomicReferenceArray<CriteriaQuery<Account>> queries =
+            new AtomicReferenceArray<>((USER_EMAIL | MIN_BALANCE | MAX_BALANCE) + 1);
+
     /**
      * {@inheritDoc}
      *
-     * Метод строит динамический запрос с следующей логикой:
-     * 1. Создает базовый запрос для сущности Account
-     * 2. Выполняет соединение с таблицей пользователей
-     * 3. Добавляет условие фильтрации по email пользователя (если указан)
-     * 4. Добавляет условия фильтрации по диапазону баланса (если указаны)
-     * 5. Комбинирует все условия через логическое И (AND)
+     * Метод выполняет запрос со следующей логикой:
+     * 1. Определяет, какие из условий заданы
+     * 2. Берет построенный ранее запрос для этой комбинации условий или строит его
+     * 3. Разрешает Hibernate кэшировать план запроса: для Criteria API это
+     *    выполняется только по явному указанию, так как ключом служит сам объект запроса
+     *    (поэтому копирование дерева запроса отключено параметром hibernate.criteria.copy_tree)
+     * 4. Передает значения заданных условий как параметры запроса
      */
     @Override
     public List<Account> findUserAccountsByEmailAndBalanceRangeCriteria(
@@ -38,6 +56,57 @@ public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
             BigDecimal minBalance,
             BigDecimal maxBalance) {
 
+        boolean hasUserEmail = userEmail != null && !userEmail.isEmpty();
+
+        int conditions = (hasUserEmail ? USER_EMAIL : 0)
+                | (minBalance != null ? MIN_BALANCE : 0)
+                | (maxBalance != null ? MAX_BALANCE : 0);
+
+        TypedQuery<Account> query = entityManager.createQuery(getQuery(conditions))
+                .setHint(HibernateHints.HINT_QUERY_PLAN_CACHEABLE, true);
+
+        if (hasUserEmail) {
+            query.setParameter("userEmail", userEmail);
+        }
+
+        if (minBalance != null) {
+            query.setParameter("minBalance", minBalance);
+        }
+
+        if (maxBalance != null) {
+            query.setParameter("maxBalance", maxBalance);
+        }
+
+        return query.getResultList();
+    }
+
+    /**
+     * Возвращает запрос для комбинации условий, при первом обращении строит его.
+     *
+     * @param conditions номер комбинации заданных условий
+     * @return запрос с параметрами для заданных условий
+     */
+    private CriteriaQuery<Account> getQuery(int conditions) {
+        CriteriaQuery<Account> query = queries.get(conditions);
+        if (query == null) {
+            queries.compareAndSet(conditions, null, buildQuery(conditions));
+            query = queries.get(conditions);
+        }
+        return query;
+    }
+
+    /**
+     * Строит запрос по следующей логике:
+     * 1. Создает базовый запрос для сущности Account
+     * 2. Выполняет соединение с таблицей пользователей
+     * 3. Добавляет условие фильтрации по email пользователя (если задано)
+     * 4. Добавляет условия фильтрации по диапазону баланса (если заданы)
+     * 5. Комбинирует все условия через логическое И (AND)
+     *
+     * @param conditions номер комбинации заданных условий
+     * @return запрос с именованными параметрами userEmail, minBalance и maxBalance
+     */
+    private CriteriaQuery<Account> buildQuery(int conditions) {
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
 
         CriteriaQuery<Account> criteriaQuery = criteriaBuilder.createQuery(Account.class);
@@ -48,20 +117,32 @@ public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
 
         List<Predicate> predicates = new ArrayList<>();
 
-        if (userEmail != null && !userEmail.isEmpty()) {
-            predicates.add(criteriaBuilder.equal(userJoin.get("email"), userEmail));
+        if ((conditions & USER_EMAIL) != 0) {
+            predicates.add(criteriaBuilder.equal(
+                    userJoin.get("email"),
+                    criteriaBuilder.parameter(String.class, "userEmail")
+            ));
         }
 
-        if (minBalance != null && maxBalance != null) {
+        boolean hasMinBalance = (conditions & MIN_BALANCE) != 0;
+        boolean hasMaxBalance = (conditions & MAX_BALANCE) != 0;
+
+        if (hasMinBalance && hasMaxBalance) {
             predicates.add(criteriaBuilder.between(
                     account.get("balance"),
-                    minBalance,
-                    maxBalance
+                    criteriaBuilder.parameter(BigDecimal.class, "minBalance"),
+                    criteriaBuilder.parameter(BigDecimal.class, "maxBalance")
+            ));
+        } else if (hasMinBalance) {
+            predicates.add(criteriaBuilder.ge(
+                    account.get("balance"),
+                    criteriaBuilder.parameter(BigDecimal.class, "minBalance")
+            ));
+        } else if (hasMaxBalance) {
+            predicates.add(criteriaBuilder.le(
+                    account.get("balance"),
+                    criteriaBuilder.parameter(BigDecimal.class, "maxBalance")
             ));
-        } else if (minBalance != null) {
-            predicates.add(criteriaBuilder.ge(account.get("balance"), minBalance));
-        } else if (maxBalance != null) {
-            predicates.add(criteriaBuilder.le(account.get("balance"), maxBalance));
         }
 
         if (!predicates.isEmpty()) {
@@ -70,6 +151,6 @@ public class AccountRepositoryCustomImpl implements AccountRepositoryCustom {
             );
         }
 
-        return entityManager.createQuery(criteriaQuery).getResultList();
+        return criteriaQuery;
     }
 }
@@ -1,38 +1,60 @@
 package ru.denis.NauJava3.dao;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.config.MetricsConfig;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.enums.OperationType;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Реализация пользовательских методов поиска категорий с использованием Criteria API.
  * Обеспечивает гибкий поиск категорий с динамическим построением условий запроса.
+ * Запрос для каждой комбинации заданных условий строится один раз и затем переиспользуется:
+ * значения передаются параметрами, поэтому Hibernate берет SQL из кэша планов,
+ * а PostgreSQL получает ограниченный набор текстов запросов.
  */
 @Repository
+@Timed(value = MetricsConfig.REPOSITORY_TIMER, histogram = true)
 public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
 
+    /** Символ экранирования спецсимволов шаблона LIKE */
+    private static final char LIKE_ESCAPE_CHARACTER = '\\';
+
+    /** Признаки заданных условий поиска, из которых составляется номер запроса */
+    private static final int TYPE = 1;
+    private static final int COLOR_CODE = 1 << 1;
+    private static final int NAME_PART = 1 << 2;
+
     /** Менеджер сущностей для работы с базой данных */
     @PersistenceContext
     private EntityManager entityManager;
 
+    /** Построенные запросы по номеру комбинации условий */
+    private final AtomicReferenceArray<CriteriaQuery<Category>> queries =
+            new AtomicReferenceArray<>((TYPE | COLOR_CODE | NAME_PART) + 1);
+
     /**
      * {@inheritDoc}
      *
-     * Метод строит динамический запрос с следующей логикой:
-     * 1. Создает базовый запрос для сущности Category
-     * 2. Добавляет условие для типа операции (если указан)
-     * 3. Добавляет условие для цветового кода (если указан)
-     * 4. Добавляет условие частичного совпадения названия (если указано)
-     * 5. Комбинирует все условия через логическое И (AND)
+     * Метод выполняет запрос со следующей логикой:
+     * 1. Определяет, какие из условий заданы
+     * 2. Берет построенный ранее запрос для этой комбинации условий или строит его
+     * 3. Разрешает Hibernate кэшировать план запроса: для Criteria API это
+     *    выполняется только по явному указанию, так как ключом служит сам объект запроса
+     *    (поэтому копирование дерева запроса отключено параметром hibernate.criteria.copy_tree)
+     * 4. Передает значения заданных условий как параметры запроса
      */
     @Override
     public List<Category> findByTypeAndColorCodeAndNameContainingCriteria(
@@ -40,6 +62,61 @@ public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
             String colorCode,
             String namePart) {
 
+        boolean hasColorCode = colorCode != null && !colorCode.isEmpty();
+        boolean hasNamePart = namePart != null && !namePart.isEmpty();
+
+        int conditions = (type != null ? TYPE : 0)
+                | (hasColorCode ? COLOR_CODE : 0)
+                | (hasNamePart ? NAME_PART : 0);
+
+        TypedQuery<Category> query = entityManager.createQuery(getQuery(conditions))
+                .setHint(HibernateHints.HINT_QUERY_PLAN_CACHEABLE, true);
+
+        if (type != null) {
+            query.setParameter("type", type);
+        }
+
+        if (hasColorCode) {
+            query.setParameter("colorCode", colorCode);
+        }
+
+        if (hasNamePart) {
+            query.setParameter("namePattern", "%" + escapeLikePattern(namePart) + "%");
+        }
+
+        return query.getResultList();
+    }
+
+    /**
+     * Возвращает запрос для комбинации условий, при первом обращении строит его.
+     *
+     * @param conditions номер комбинации заданных условий
+     * @return запрос с параметрами для заданных условий
+     */
+    private CriteriaQuery<Category> getQuery(int conditions) {
+        CriteriaQuery<Category> query = queries.get(conditions);
+        if (query == null) {
+            queries.compareAndSet(conditions, null, buildQuery(conditions));
+            query = queries.get(conditions);
+        }
+        return query;
+    }
+
+    /**
+     * Строит запрос по следующей логике:
+     * 1. Создает базовый запрос для сущности Category
+     * 2. Добавляет условие для типа операции (если задано)
+     * 3. Добавляет условие для цветового кода (если задано)
+     * 4. Добавляет условие частичного совпадения названия без учета регистра (если задано);
+     *    условие lower(name) LIKE использует триграммный индекс idx_categories_name_trgm;
+     *    шаблон приводится к нижнему регистру той же функцией lower() БД, поэтому результат
+     *    не зависит от локали JVM
+     * 5. Комбинирует все условия через логическое И (AND)
+     *
+     * @param conditions номер комбинации заданных условий
+     * @return запрос с именованными параметрами type, colorCode и namePattern
+     */
+    private CriteriaQuery<Category> buildQuery(int conditions) {
         CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
 
         CriteriaQuery<Category> criteriaQuery = criteriaBuilder.createQuery(Category.class);
@@ -48,18 +125,25 @@ public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
 
         List<Predicate> predicates = new ArrayList<>();
 
-        if (type != null) {
-            predicates.add(criteriaBuilder.equal(category.get("type"), type));
+        if ((conditions & TYPE) != 0) {
+            predicates.add(criteriaBuilder.equal(
+                    category.get("type"),
+                    criteriaBuilder.parameter(OperationType.class, "type")
+            ));
         }
 
-        if (colorCode != null && !colorCode.isEmpty()) {
-            predicates.add(criteriaBuilder.equal(category.get("colorCode"), colorCode));
+        if ((conditions & COLOR_CODE) != 0) {
+            predicates.add(criteriaBuilder.equal(
+                    category.get("colorCode"),
+                    criteriaBuilder.parameter(String.class, "colorCode")
+            ));
         }
 
-        if (namePart != null && !namePart.isEmpty()) {
+        if ((conditions & NAME_PART) != 0) {
             predicates.add(criteriaBuilder.like(
-                    category.get("name"),
-                    "%" + namePart + "%"
+                    criteriaBuilder.lower(category.get("name")),
+                    criteriaBuilder.lower(criteriaBuilder.parameter(String.class, "namePattern")),
+                    LIKE_ESCAPE_CHARACTER
             ));
         }
 
@@ -69,6 +153,19 @@ public class CategoryRepositoryCustomImpl implements CategoryRepositoryCustom {
             );
         }
 
-        return entityManager.createQuery(criteriaQuery).getResultList();
+        return criteriaQuery;
+    }
+
+    /**
+     * Экранирует спецсимволы шаблона LIKE, чтобы часть названия искалась буквально.
+     *
+     * @param value часть названия
+     * @return строка с экранированными символами %, _ и символом экранирования
+     */
+    private static String escapeLikePattern(String value) {
+        return value
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
     }
 }
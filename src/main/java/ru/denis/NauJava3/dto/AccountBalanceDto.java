@@ -0,0 +1,24 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * DTO с балансом счета на конец дня
+ */
+@Data
+@AllArgsConstructor
+public class AccountBalanceDto {
+    /**
+     * День
+     */
+    private LocalDate date;
+
+    /**
+     * Баланс счета на конец дня
+     */
+    private BigDecimal balance;
+}
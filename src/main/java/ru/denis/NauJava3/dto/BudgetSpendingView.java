@@ -0,0 +1,18 @@
+package ru.denis.NauJava3.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Проекция суммы транзакций, относящихся к бюджету за период его действия.
+ */
+public interface BudgetSpendingView {
+    /**
+     * @return ID бюджета
+     */
+    Long getBudgetId();
+
+    /**
+     * @return сумма транзакций по категории бюджета за период
+     */
+    BigDecimal getSpentAmount();
+}
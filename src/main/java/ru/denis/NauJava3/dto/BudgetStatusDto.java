@@ -0,0 +1,34 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.denis.NauJava3.entity.Budget;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO с состоянием исполнения бюджета
+ */
+@Data
+@AllArgsConstructor
+public class BudgetStatusDto {
+    /**
+     * Бюджет
+     */
+    private Budget budget;
+
+    /**
+     * Сумма транзакций по категории бюджета за период
+     */
+    private BigDecimal spentAmount;
+
+    /**
+     * Остаток лимита (отрицательный, если бюджет превышен)
+     */
+    private BigDecimal remainingAmount;
+
+    /**
+     * Признак превышения бюджета
+     */
+    private boolean exceeded;
+}
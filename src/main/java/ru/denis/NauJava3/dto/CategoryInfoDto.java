@@ -0,0 +1,27 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.Value;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+/**
+ * Неизменяемые сведения о категории, достаточные для проверки транзакции.
+ * Хранятся в кэше категорий вместо сущности, поэтому изменение, не сохраненное
+ * в БД, не может попасть в кэш и стать видимым другим потокам.
+ */
+@Value
+public class CategoryInfoDto {
+    /**
+     * Уникальный идентификатор категории
+     */
+    Long id;
+
+    /**
+     * Название категории
+     */
+    String name;
+
+    /**
+     * Тип операции (доход/расход)
+     */
+    OperationType type;
+}
@@ -0,0 +1,19 @@
+package ru.denis.NauJava3.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Проекция изменения баланса счета за один день.
+ */
+public interface DailyBalanceChangeView {
+    /**
+     * @return день
+     */
+    LocalDate getDay();
+
+    /**
+     * @return сумма доходов за день за вычетом расходов
+     */
+    BigDecimal getAmount();
+}
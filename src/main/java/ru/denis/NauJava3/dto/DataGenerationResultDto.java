@@ -0,0 +1,36 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO с итогом генерации синтетических данных
+ */
+@Data
+@AllArgsConstructor
+public class DataGenerationResultDto {
+    /**
+     * Количество созданных пользователей
+     */
+    private int users;
+
+    /**
+     * Количество созданных счетов
+     */
+    private int accounts;
+
+    /**
+     * Количество созданных категорий
+     */
+    private int categories;
+
+    /**
+     * Количество созданных транзакций
+     */
+    private long transactions;
+
+    /**
+     * Количество созданных бюджетов
+     */
+    private int budgets;
+}
@@ -0,0 +1,72 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Параметры генерации синтетических данных.
+ * При одинаковых параметрах (включая seed и endDate) в пустой базе
+ * формируется один и тот же набор данных.
+ */
+@Data
+public class DataGenerationSettings {
+    /**
+     * Начальное значение генератора случайных чисел
+     */
+    private long seed = 42;
+
+    /**
+     * Количество пользователей
+     */
+    private int users = 10_000;
+
+    /**
+     * Максимальное количество счетов пользователя (у каждого не меньше одного)
+     */
+    private int maxAccountsPerUser = 3;
+
+    /**
+     * Количество категорий; пятая часть категорий - доходы
+     */
+    private int categories = 100;
+
+    /**
+     * Количество транзакций
+     */
+    private long transactions = 1_000_000;
+
+    /**
+     * Количество бюджетов каждого пользователя
+     */
+    private int budgetsPerUser = 1;
+
+    /**
+     * Показатель степенного распределения транзакций по пользователям и категориям:
+     * чем больше значение, тем сильнее транзакции сосредоточены у первых пользователей
+     */
+    private double skew = 1.1;
+
+    /**
+     * Количество дней, за которые формируются транзакции
+     */
+    private int days = 730;
+
+    /**
+     * Последний день периода транзакций (по умолчанию текущая дата)
+     */
+    private LocalDate endDate;
+
+    /**
+     * Префикс имен пользователей, по которому отличаются сгенерированные данные
+     */
+    private String usernamePrefix = "gen_user_";
+
+    /**
+     * Пароль всех сгенерированных пользователей; не выводится в toString(),
+     * поэтому не попадает в журнал вместе с параметрами генерации
+     */
+    @ToString.Exclude
+    private String password = "password";
+}
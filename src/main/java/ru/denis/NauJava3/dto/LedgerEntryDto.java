@@ -0,0 +1,45 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.denis.NauJava3.entity.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO проводки журнала операций по счету
+ */
+@Data
+@AllArgsConstructor
+public class LedgerEntryDto {
+    /**
+     * Порядковый номер проводки внутри счета
+     */
+    private Long seq;
+
+    /**
+     * Направление проводки
+     */
+    private LedgerEntryType entryType;
+
+    /**
+     * Сумма проводки
+     */
+    private BigDecimal amount;
+
+    /**
+     * ID транзакции; null для начального баланса счета
+     */
+    private Long transactionId;
+
+    /**
+     * ID сторнируемой проводки; null для обычной проводки
+     */
+    private Long reversalOf;
+
+    /**
+     * Время записи проводки
+     */
+    private LocalDateTime createdAt;
+}
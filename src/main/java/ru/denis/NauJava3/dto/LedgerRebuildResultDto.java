@@ -0,0 +1,21 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO с итогом пересборки балансов счетов по журналу операций
+ */
+@Data
+@AllArgsConstructor
+public class LedgerRebuildResultDto {
+    /**
+     * Количество проверенных счетов
+     */
+    private int accounts;
+
+    /**
+     * Количество счетов, баланс которых расходился с журналом и был исправлен
+     */
+    private int corrected;
+}
@@ -0,0 +1,38 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.denis.NauJava3.entity.enums.ReportStatus;
+
+/**
+ * DTO с состоянием отчета без его содержимого.
+ * Используется при опросе статуса формирования отчета.
+ */
+@Data
+@AllArgsConstructor
+public class ReportStatusDto {
+    /**
+     * Идентификатор отчета
+     */
+    private Long id;
+
+    /**
+     * Статус отчета
+     */
+    private ReportStatus status;
+
+    /**
+     * Сообщение об ошибке или причине отмены
+     */
+    private String errorMessage;
+
+    /**
+     * Размер сжатого содержимого отчета в байтах
+     */
+    private Long contentSize;
+
+    /**
+     * Хэш сжатого содержимого отчета, используемый как ETag
+     */
+    private String contentEtag;
+}
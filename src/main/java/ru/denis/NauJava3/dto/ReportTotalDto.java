@@ -0,0 +1,59 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO строки отчета с итогами по транзакциям в разрезе категории, счета или месяца
+ */
+@Data
+public class ReportTotalDto {
+    /**
+     * Название группы (категория, счет или месяц в формате YYYY-MM)
+     */
+    private String label;
+
+    /**
+     * Количество транзакций в группе
+     */
+    private Long transactionCount;
+
+    /**
+     * Сумма доходов в группе
+     */
+    private BigDecimal income;
+
+    /**
+     * Сумма расходов в группе
+     */
+    private BigDecimal expense;
+
+    /**
+     * Создает строку отчета для группы с текстовым названием
+     *
+     * @param label название группы
+     * @param transactionCount количество транзакций
+     * @param income сумма доходов
+     * @param expense сумма расходов
+     */
+    public ReportTotalDto(String label, Long transactionCount, BigDecimal income, BigDecimal expense) {
+        this.label = label;
+        this.transactionCount = transactionCount;
+        this.income = income;
+        this.expense = expense;
+    }
+
+    /**
+     * Создает строку отчета для месяца
+     *
+     * @param year год
+     * @param month номер месяца
+     * @param transactionCount количество транзакций
+     * @param income сумма доходов
+     * @param expense сумма расходов
+     */
+    public ReportTotalDto(Integer year, Integer month, Long transactionCount, BigDecimal income, BigDecimal expense) {
+        this(String.format("%04d-%02d", year, month), transactionCount, income, expense);
+    }
+}
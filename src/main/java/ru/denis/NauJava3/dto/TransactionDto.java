@@ -0,0 +1,57 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO транзакции для постраничного просмотра.
+ * Содержит ID связанных сущностей вместо самих сущностей, поэтому
+ * формируется одним запросом без загрузки счетов и категорий.
+ */
+@Data
+@AllArgsConstructor
+public class TransactionDto {
+    /**
+     * Идентификатор транзакции
+     */
+    private Long id;
+
+    /**
+     * Сумма транзакции
+     */
+    private BigDecimal amount;
+
+    /**
+     * Дата и время транзакции
+     */
+    private LocalDateTime date;
+
+    /**
+     * Описание транзакции
+     */
+    private String description;
+
+    /**
+     * Тип операции (доход/расход)
+     */
+    private OperationType type;
+
+    /**
+     * ID счета
+     */
+    private Long accountId;
+
+    /**
+     * ID категории; null для операций перевода
+     */
+    private Long categoryId;
+
+    /**
+     * ID перевода, частью которого является транзакция
+     */
+    private Long transferId;
+}
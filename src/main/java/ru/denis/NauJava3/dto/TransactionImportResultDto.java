@@ -0,0 +1,31 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO с итогом пакетного импорта транзакций
+ */
+@Data
+@AllArgsConstructor
+public class TransactionImportResultDto {
+    /**
+     * Количество строк во входных данных
+     */
+    private int received;
+
+    /**
+     * Количество сохраненных транзакций
+     */
+    private int imported;
+
+    /**
+     * Количество зафиксированных порций
+     */
+    private int chunks;
+
+    /**
+     * Количество счетов, баланс которых изменен
+     */
+    private int accounts;
+}
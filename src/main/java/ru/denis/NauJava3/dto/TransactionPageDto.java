@@ -0,0 +1,23 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO страницы транзакций при постраничном просмотре по курсору
+ */
+@Data
+@AllArgsConstructor
+public class TransactionPageDto {
+    /**
+     * Транзакции страницы, от новых к старым
+     */
+    private List<TransactionDto> items;
+
+    /**
+     * Курсор следующей страницы; null, если страница последняя
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,56 @@
+package ru.denis.NauJava3.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO для создания транзакции.
+ * Используется при пакетном импорте из CSV и JSON; порядок свойств
+ * задает порядок колонок CSV-файла.
+ */
+@Data
+@JsonPropertyOrder({"accountId", "categoryId", "amount", "type", "date", "description"})
+public class TransactionRequest {
+    /**
+     * ID счета, по которому проводится транзакция
+     */
+    @NotNull(message = "ID счета должен быть указан")
+    private Long accountId;
+
+    /**
+     * ID категории транзакции
+     */
+    @NotNull(message = "ID категории должен быть указан")
+    private Long categoryId;
+
+    /**
+     * Сумма транзакции
+     */
+    @NotNull(message = "Сумма транзакции должна быть указана")
+    @DecimalMin(value = "0.01", message = "Сумма транзакции должна быть положительным числом")
+    private BigDecimal amount;
+
+    /**
+     * Тип операции (доход/расход)
+     */
+    @NotNull(message = "Тип операции должен быть указан")
+    private OperationType type;
+
+    /**
+     * Дата и время транзакции; если не указаны, используется время импорта
+     */
+    private LocalDateTime date;
+
+    /**
+     * Описание транзакции
+     */
+    @Size(max = 255, message = "Описание должно быть не длиннее 255 символов")
+    private String description;
+}
@@ -0,0 +1,44 @@
+package ru.denis.NauJava3.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO проведенного перевода между счетами.
+ */
+@Data
+@AllArgsConstructor
+public class TransferDto {
+    /**
+     * Идентификатор перевода
+     */
+    private Long id;
+
+    /**
+     * ID счета списания
+     */
+    private Long fromAccountId;
+
+    /**
+     * ID счета зачисления
+     */
+    private Long toAccountId;
+
+    /**
+     * Сумма перевода
+     */
+    private BigDecimal amount;
+
+    /**
+     * Дата и время перевода
+     */
+    private LocalDateTime date;
+
+    /**
+     * Описание перевода
+     */
+    private String description;
+}
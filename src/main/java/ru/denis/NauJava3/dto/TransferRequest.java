@@ -0,0 +1,39 @@
+package ru.denis.NauJava3.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO для перевода между счетами текущего пользователя.
+ */
+@Data
+public class TransferRequest {
+    /**
+     * ID счета списания
+     */
+    @NotNull(message = "ID счета списания должен быть указан")
+    private Long fromAccountId;
+
+    /**
+     * ID счета зачисления
+     */
+    @NotNull(message = "ID счета зачисления должен быть указан")
+    private Long toAccountId;
+
+    /**
+     * Сумма перевода
+     */
+    @NotNull(message = "Сумма перевода должна быть указана")
+    @DecimalMin(value = "0.01", message = "Сумма перевода должна быть положительным числом")
+    private BigDecimal amount;
+
+    /**
+     * Описание перевода
+     */
+    @Size(max = 255, message = "Описание должно быть не длиннее 255 символов")
+    private String description;
+}
@@ -0,0 +1,43 @@
+package ru.denis.NauJava3.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Контрольная точка баланса счета на конец дня.
+ * Записывается фоновой задачей для дней, в которые по счету были транзакции,
+ * и корректируется сервисом транзакций при записи и удалении транзакций задним числом.
+ * Позволяет вычислять баланс на прошлую дату без суммирования всей истории счета.
+ */
+@Entity
+@Table(name = "account_balance_snapshots",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_account_balance_snapshots_account_date",
+                columnNames = {"account_id", "snapshot_date"}))
+@Getter
+@Setter
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class AccountBalanceSnapshot {
+    /** Уникальный идентификатор контрольной точки */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Счет */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    /** День, на конец которого зафиксирован баланс */
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    /** Баланс счета на конец дня */
+    @Column(nullable = false)
+    private BigDecimal balance;
+}
@@ -0,0 +1,47 @@
+package ru.denis.NauJava3.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Агрегат суммы транзакций пользователя по категории за один день.
+ * Поддерживается сервисом транзакций в той же транзакции БД, что и сами операции,
+ * и позволяет проверять бюджеты без загрузки всех транзакций периода.
+ */
+@Entity
+@Table(name = "daily_spendings",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_daily_spendings_user_category_date",
+                columnNames = {"user_id", "category_id", "spending_date"}))
+@Getter
+@Setter
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class DailySpending {
+    /** Уникальный идентификатор агрегата */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Пользователь, которому принадлежат транзакции */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    /** Категория транзакций */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    private Category category;
+
+    /** День, за который накоплена сумма */
+    @Column(name = "spending_date", nullable = false)
+    private LocalDate spendingDate;
+
+    /** Сумма транзакций за день */
+    @Column(nullable = false)
+    private BigDecimal amount;
+}
@@ -0,0 +1,44 @@
+package ru.denis.NauJava3.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ключ идемпотентности запроса, создающего транзакции.
+ * Записывается до выполнения запроса, после успешного выполнения дополняется ответом,
+ * который возвращается на повторы запроса с тем же ключом до истечения срока хранения.
+ * Изменяется только запросами репозитория, поэтому сущность используется лишь для чтения.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+public class IdempotencyKey {
+    /** Пользователь и значение ключа */
+    @EmbeddedId
+    private IdempotencyKeyId id;
+
+    /** SHA-256 операции и тела запроса в шестнадцатеричном виде */
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    /** HTTP-статус сохраненного ответа; null, пока запрос выполняется */
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    /** Тело сохраненного ответа в JSON */
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    /** Время резерва ключа первым выполнением запроса */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /** Время, после которого ключ считается просроченным: окончание аренды резерва или срока хранения ответа */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,26 @@
+package ru.denis.NauJava3.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Первичный ключ {@link IdempotencyKey}: ключи идемпотентности уникальны в пределах пользователя.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKeyId implements Serializable {
+    /** ID пользователя, отправившего запрос */
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /** Значение заголовка Idempotency-Key */
+    @Column(name = "idempotency_key", nullable = false)
+    private String key;
+}
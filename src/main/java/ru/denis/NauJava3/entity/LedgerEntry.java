@@ -0,0 +1,61 @@
+package ru.denis.NauJava3.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+import ru.denis.NauJava3.entity.enums.LedgerEntryType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Проводка в журнале операций по счету.
+ * Журнал только дополняется: проводки не изменяются и не удаляются (это запрещено
+ * триггером БД), удаление транзакции отражается сторнирующей проводкой.
+ * Баланс счета {@link Account#getBalance()} является проекцией журнала.
+ */
+@Entity
+@Immutable
+@Table(name = "ledger_entries",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_ledger_entries_account_seq",
+                columnNames = {"account_id", "seq"}))
+@Getter
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class LedgerEntry {
+    /** Уникальный идентификатор проводки */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Счет */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    /** Порядковый номер проводки внутри счета, начиная с 1, без пропусков */
+    @Column(nullable = false)
+    private Long seq;
+
+    /** Направление проводки */
+    @Column(name = "entry_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private LedgerEntryType entryType;
+
+    /** Сумма проводки (неотрицательная) */
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    /** ID транзакции, по которой сделана проводка; null для начального баланса счета */
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    /** ID сторнируемой проводки; null для обычной проводки */
+    @Column(name = "reversal_of")
+    private Long reversalOf;
+
+    /** Время записи проводки */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -5,6 +5,8 @@ import lombok.Getter;
 import lombok.Setter;
 import ru.denis.NauJava3.entity.enums.ReportStatus;
 
+import java.time.LocalDateTime;
+
 /**
  * Сущность отчета для хранения статистики.
  */
@@ -22,7 +24,7 @@ public class Report {
     private Long id;
 
     /**
-     * Статус отчета (создан, завершен, ошибка)
+     * Статус отчета (создан, в очереди, формируется, завершен, ошибка, отменен)
      * По умолчанию имеет значение "создан"
      */
     @Enumerated(EnumType.STRING)
@@ -30,15 +32,52 @@ public class Report {
     private ReportStatus status = ReportStatus.CREATED;
 
     /**
-     * Содержимое отчета в формате HTML
-     * Хранится в виде текстового поля для обеспечения достаточного размера
+     * Сообщение об ошибке формирования или причине отмены отчета.
+     * Содержимое сформированного отчета хранится отдельно в сжатых фрагментах
+     * {@link ReportContentChunk}.
+     */
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    /**
+     * Размер сжатого содержимого отчета в байтах
+     */
+    @Column(name = "content_size")
+    private Long contentSize;
+
+    /**
+     * Хэш сжатого содержимого отчета, используемый как ETag
      */
-    @Column(columnDefinition = "TEXT")
-    private String content;
+    @Column(name = "content_etag")
+    private String contentEtag;
 
     /**
      * Время, затраченное на формирование отчета (в миллисекундах)
      */
     @Column(name = "creation_time")
     private Long creationTime;
+
+    /**
+     * Количество предпринятых попыток формирования отчета
+     */
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private int attempts;
+
+    /**
+     * Время, раньше которого отчет не будет повторно взят в работу после ошибки
+     */
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * Идентификатор экземпляра приложения, формирующего отчет
+     */
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    /**
+     * Время окончания аренды задания; после него отчет может взять другой экземпляр
+     */
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
 }
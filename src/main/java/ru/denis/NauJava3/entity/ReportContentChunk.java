@@ -0,0 +1,37 @@
+package ru.denis.NauJava3.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Фрагмент сжатого gzip содержимого отчета.
+ * Содержимое отчета хранится последовательностью фрагментов ограниченного размера,
+ * что позволяет отдавать его клиенту потоком, не загружая целиком в память.
+ */
+@Entity
+@Table(name = "report_content_chunks",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_report_content_chunks_report_seq",
+                columnNames = {"report_id", "seq"}))
+@Getter
+@Setter
+public class ReportContentChunk {
+    /** Уникальный идентификатор фрагмента */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Отчет, которому принадлежит фрагмент */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "report_id", nullable = false)
+    private Report report;
+
+    /** Порядковый номер фрагмента в содержимом отчета */
+    @Column(nullable = false)
+    private int seq;
+
+    /** Сжатые данные фрагмента */
+    @Column(nullable = false)
+    private byte[] data;
+}
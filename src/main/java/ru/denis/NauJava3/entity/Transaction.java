@@ -21,9 +21,14 @@
     @Setter
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     public class Transaction {
-        /** Уникальный идентификатор транзакции */
+        /**
+         * Уникальный идентификатор транзакции.
+         * Выдается последовательностью блоками по 50 значений, что позволяет
+         * Hibernate объединять вставки в JDBC-пакеты (с IDENTITY пакетирование отключается).
+         */
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+        @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
         private Long id;
 
         /** Сумма транзакции */
@@ -55,10 +60,16 @@
         @JsonIgnoreProperties("transactions")
         private Account account;
 
-        /** Категория транзакции */
+        /** Категория транзакции; не указывается для операций перевода */
         @ManyToOne(fetch = FetchType.LAZY)
-        @JoinColumn(name = "category_id", nullable = false)
+        @JoinColumn(name = "category_id")
         @JsonIgnoreProperties("transactions")
         private Category category;
 
+        /** Перевод, частью которого является транзакция; null для обычных доходов и расходов */
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "transfer_id")
+        @JsonIgnoreProperties({"fromAccount", "toAccount", "user"})
+        private Transfer transfer;
+
     }
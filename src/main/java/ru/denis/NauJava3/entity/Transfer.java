@@ -0,0 +1,53 @@
+package ru.denis.NauJava3.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Перевод между двумя счетами одного пользователя.
+ * Движение средств по счетам отражается двумя транзакциями, ссылающимися на перевод:
+ * расходом со счета списания и доходом на счет зачисления.
+ */
+@Entity
+@Table(name = "transfers")
+@Getter
+@Setter
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class Transfer {
+    /** Уникальный идентификатор перевода */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Сумма перевода */
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    /** Дата и время перевода */
+    @Column(nullable = false)
+    private LocalDateTime date;
+
+    /** Описание или комментарий к переводу */
+    @Column
+    private String description;
+
+    /** Владелец обоих счетов */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    /** Счет списания */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "from_account_id", nullable = false)
+    private Account fromAccount;
+
+    /** Счет зачисления */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "to_account_id", nullable = false)
+    private Account toAccount;
+}
@@ -0,0 +1,11 @@
+package ru.denis.NauJava3.entity.enums;
+
+/**
+ * Перечисление направлений проводки по счету.
+ */
+public enum LedgerEntryType {
+    /** Списание (уменьшает баланс счета) */
+    DEBIT,
+    /** Зачисление (увеличивает баланс счета) */
+    CREDIT
+}
@@ -5,6 +5,9 @@ package ru.denis.NauJava3.entity.enums;
  */
 public enum ReportStatus {
     CREATED,     // Отчет создан
+    QUEUED,      // Отчет ожидает формирования в очереди
+    RUNNING,     // Отчет формируется одним из экземпляров приложения
     COMPLETED,   // Отчет успешно сформирован
-    ERROR        // При формировании отчета произошла ошибка
+    ERROR,       // При формировании отчета произошла ошибка
+    CANCELLED    // Формирование отчета отменено
 }
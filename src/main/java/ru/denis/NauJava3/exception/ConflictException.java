@@ -0,0 +1,16 @@
+package ru.denis.NauJava3.exception;
+
+/**
+ * Исключение, выбрасываемое когда запрос конфликтует с текущим состоянием ресурса,
+ * например при повторе запроса, первое выполнение которого еще не завершено.
+ */
+public class ConflictException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке.
+     *
+     * @param message сообщение об ошибке
+     */
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -60,6 +60,48 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(apiException, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Обрабатывает исключения типа ConflictException.
+     * Возвращает ответ с HTTP статусом 409 (Conflict).
+     *
+     * @param ex исключение
+     * @param request HTTP запрос
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(ConflictException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<ApiException> handleConflictException(
+            ConflictException ex,
+            HttpServletRequest request) {
+        ApiException apiException = ApiException.create(ex);
+        apiException.setStatus(HttpStatus.CONFLICT.value());
+        apiException.setPath(request.getRequestURI());
+        apiException.setDetails("Запрос конфликтует с текущим состоянием ресурса");
+        return new ResponseEntity<>(apiException, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Обрабатывает исключения типа ServiceUnavailableException.
+     * Возвращает ответ с HTTP статусом 503 (Service Unavailable).
+     *
+     * @param ex исключение
+     * @param request HTTP запрос
+     * @return ResponseEntity с информацией об ошибке
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseBody
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ApiException> handleServiceUnavailableException(
+            ServiceUnavailableException ex,
+            HttpServletRequest request) {
+        ApiException apiException = ApiException.create(ex);
+        apiException.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        apiException.setPath(request.getRequestURI());
+        apiException.setDetails("Сервис временно недоступен, повторите запрос позже");
+        return new ResponseEntity<>(apiException, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Обрабатывает все остальные исключения.
      * Возвращает ответ с HTTP статусом 500 (Internal Server Error).
@@ -0,0 +1,16 @@
+package ru.denis.NauJava3.exception;
+
+/**
+ * Исключение, выбрасываемое когда сервис временно не может принять запрос,
+ * например при переполнении очереди фоновых задач.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+    /**
+     * Создает новое исключение с указанным сообщением об ошибке.
+     *
+     * @param message сообщение об ошибке
+     */
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.denis.NauJava3.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Контроль количества SQL-запросов на один HTTP-запрос.
+ * Количество запросов публикуется метрикой http.server.requests.queries с тегами method и uri.
+ * Если запрос выполнил больше app.sql.request.max-queries SQL-запросов или повторил один
+ * и тот же SQL больше app.sql.request.max-repeated раз (признак проблемы N+1),
+ * в журнал записывается предупреждение с самым частым запросом.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlRequestGuardFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    /** Допустимое количество SQL-запросов на один HTTP-запрос */
+    private final int maxQueries;
+
+    /** Допустимое количество повторений одного SQL-запроса в HTTP-запросе */
+    private final int maxRepeated;
+
+    @Autowired
+    public SqlRequestGuardFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.sql.request.max-queries:30}") int maxQueries,
+            @Value("${app.sql.request.max-repeated:10}") int maxRepeated) {
+        this.meterRegistry = meterRegistry;
+        this.maxQueries = maxQueries;
+        this.maxRepeated = maxRepeated;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Scope scope = SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            check(request, scope);
+        }
+    }
+
+    /**
+     * Публикует количество SQL-запросов и проверяет пороги.
+     */
+    private void check(HttpServletRequest request, SqlStatementCounter.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.queries")
+                .description("Количество SQL-запросов, выполненных при обработке HTTP-запроса")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(scope.getCount());
+
+        Map.Entry<String, Integer> mostRepeated = scope.getMostRepeated();
+        if (scope.getCount() > maxQueries) {
+            log.warn("{} {} выполнил {} SQL-запросов (допустимо {}), чаще всего {} раз: {}",
+                    request.getMethod(), request.getRequestURI(), scope.getCount(), maxQueries,
+                    mostRepeated.getValue(), mostRepeated.getKey());
+        } else if (mostRepeated != null && mostRepeated.getValue() > maxRepeated) {
+            log.warn("{} {} повторил SQL-запрос {} раз (допустимо {}), возможна проблема N+1: {}",
+                    request.getMethod(), request.getRequestURI(), mostRepeated.getValue(), maxRepeated,
+                    mostRepeated.getKey());
+        }
+    }
+}
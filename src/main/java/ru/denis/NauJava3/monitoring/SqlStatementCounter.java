@@ -0,0 +1,90 @@
+package ru.denis.NauJava3.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Счетчик SQL-запросов, выполняемых Hibernate в текущем потоке.
+ * Подключается к Hibernate как {@link StatementInspector} и учитывает каждый подготовленный
+ * оператор во всех открытых в потоке областях подсчета ({@link #start()}).
+ * Области могут быть вложенными: например, область HTTP-запроса и область проверки в тесте.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Открывает область подсчета в текущем потоке.
+     * Область нужно закрыть в том же потоке, лучше всего через try-with-resources.
+     *
+     * @return область подсчета
+     */
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+            scope.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Область подсчета: количество SQL-запросов и число выполнений каждого текста запроса.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final Map<String, Integer> statements = new LinkedHashMap<>();
+        private int count;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void add(String sql) {
+            count++;
+            statements.merge(sql, 1, Integer::sum);
+        }
+
+        /** @return количество SQL-запросов, выполненных в области */
+        public int getCount() {
+            return count;
+        }
+
+        /** @return количество выполнений каждого текста запроса в порядке первого выполнения */
+        public Map<String, Integer> getStatements() {
+            return statements;
+        }
+
+        /**
+         * Возвращает запрос, выполненный больше всего раз.
+         * Многократное повторение одного текста запроса обычно означает проблему N+1.
+         *
+         * @return текст запроса и количество его выполнений или null, если запросов не было
+         */
+        public Map.Entry<String, Integer> getMostRepeated() {
+            return statements.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(null);
+        }
+
+        @Override
+        public void close() {
+            if (CURRENT.get() != this) {
+                return;
+            }
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.denis.NauJava3.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.entity.AccountBalanceSnapshot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий для работы с контрольными точками баланса счетов.
+ * Не экспортируется через REST: контрольные точки изменяются только сервисом балансов.
+ */
+@RepositoryRestResource(exported = false)
+public interface AccountBalanceSnapshotRepository extends CrudRepository<AccountBalanceSnapshot, Long> {
+
+    /**
+     * Последняя контрольная точка счета не позже указанного дня.
+     *
+     * @param accountId ID счета
+     * @param date день
+     * @return контрольная точка, если есть
+     */
+    Optional<AccountBalanceSnapshot> findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+            Long accountId, LocalDate date);
+
+    /**
+     * Первая контрольная точка счета после указанного дня.
+     *
+     * @param accountId ID счета
+     * @param date день
+     * @return контрольная точка, если есть
+     */
+    Optional<AccountBalanceSnapshot> findFirstByAccountIdAndSnapshotDateGreaterThanOrderBySnapshotDateAsc(
+            Long accountId, LocalDate date);
+
+    /**
+     * @return день самой поздней контрольной точки или null, если их нет
+     */
+    @Query("SELECT MAX(s.snapshotDate) FROM AccountBalanceSnapshot s")
+    LocalDate findLatestSnapshotDate();
+
+    /**
+     * Атомарно изменяет баланс всех контрольных точек счета начиная с указанного дня.
+     * Вызывается при записи или удалении транзакции с этой датой.
+     *
+     * @param accountId ID счета
+     * @param fromDate день транзакции
+     * @param amount сумма изменения (может быть отрицательной)
+     * @return количество измененных контрольных точек
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE account_balance_snapshots SET balance = balance + :amount
+            WHERE account_id = :accountId AND snapshot_date >= :fromDate
+            """, nativeQuery = true)
+    int addAmount(@Param("accountId") Long accountId,
+                  @Param("fromDate") LocalDate fromDate,
+                  @Param("amount") BigDecimal amount);
+
+    /**
+     * Блокирует на чтение счета, по которым были транзакции за период, в порядке возрастания ID.
+     * Пока блокировка удерживается, транзакции по этим счетам не могут быть записаны,
+     * поэтому последующее вычисление контрольных точек видит согласованные баланс и транзакции.
+     *
+     * @param from начало периода включительно
+     * @param to конец периода, не включая
+     * @return ID заблокированных счетов
+     */
+    @Query(value = """
+            SELECT a.id FROM accounts a
+            WHERE EXISTS (SELECT 1 FROM transactions t
+                          WHERE t.account_id = a.id AND t.date >= :from AND t.date < :to)
+            ORDER BY a.id
+            FOR SHARE
+            """, nativeQuery = true)
+    List<Long> lockAccountsWithTransactions(@Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
+
+    /**
+     * Записывает контрольные точки счетов на конец каждого дня периода, в который были транзакции.
+     * Баланс на конец дня вычисляется от текущего баланса счета вычитанием транзакций,
+     * совершенных после этого дня. Существующие контрольные точки перезаписываются.
+     *
+     * @param accountIds ID счетов, заблокированных {@link #lockAccountsWithTransactions}
+     * @param from начало первого дня периода
+     * @param to начало дня, следующего за последним днем периода
+     * @return количество записанных контрольных точек
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO account_balance_snapshots (account_id, snapshot_date, balance)
+            SELECT d.account_id, d.day,
+                   a.balance - COALESCE(l.amount, 0)
+                       - COALESCE(SUM(d.amount) OVER (PARTITION BY d.account_id ORDER BY d.day DESC
+                                                      ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)
+            FROM (SELECT t.account_id, CAST(t.date AS date) AS day,
+                         SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END) AS amount
+                  FROM transactions t
+                  WHERE t.account_id IN (:accountIds) AND t.date >= :from AND t.date < :to
+                  GROUP BY t.account_id, CAST(t.date AS date)) d
+            JOIN accounts a ON a.id = d.account_id
+            LEFT JOIN (SELECT t.account_id,
+                              SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END) AS amount
+                       FROM transactions t
+                       WHERE t.account_id IN (:accountIds) AND t.date >= :to
+                       GROUP BY t.account_id) l ON l.account_id = d.account_id
+            ON CONFLICT (account_id, snapshot_date)
+            DO UPDATE SET balance = EXCLUDED.balance
+            """, nativeQuery = true)
+    int insertSnapshots(@Param("accountIds") Collection<Long> accountIds,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to);
+}
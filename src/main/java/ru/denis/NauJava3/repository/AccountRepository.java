@@ -1,14 +1,20 @@
 package ru.denis.NauJava3.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 import ru.denis.NauJava3.dao.AccountRepositoryCustom;
 import ru.denis.NauJava3.entity.Account;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,6 +23,7 @@ import java.util.List;
  */
 @RepositoryRestResource(path = "accounts")
 public interface AccountRepository extends CrudRepository<Account, Long>,
+                                            PagingAndSortingRepository<Account, Long>,
                                             AccountRepositoryCustom {
 
     /**
@@ -33,4 +40,54 @@ public interface AccountRepository extends CrudRepository<Account, Long>,
             @Param("minBalance") BigDecimal minBalance,
             @Param("maxBalance") BigDecimal maxBalance
     );
+
+    /**
+     * Атомарно списывает сумму со счета, если на нем достаточно средств.
+     * Проверка и изменение баланса выполняются одним оператором UPDATE,
+     * поэтому параллельные списания не теряют обновлений и не уводят баланс в минус.
+     * Загруженный ранее экземпляр счета после вызова нужно обновить из БД.
+     *
+     * @param id ID счета
+     * @param amount списываемая сумма
+     * @return 1, если сумма списана, 0 - если счет не найден или средств недостаточно
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount WHERE a.id = :id AND a.balance >= :amount")
+    int withdraw(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Атомарно изменяет баланс счета на указанную сумму.
+     *
+     * @param id ID счета
+     * @param amount сумма изменения (может быть отрицательной)
+     * @return 1, если баланс изменен, 0 - если счет не найден
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount WHERE a.id = :id")
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Возвращает счета пользователя с указанными ID; чужие и несуществующие счета пропускаются.
+     *
+     * @param ids ID счетов
+     * @param userId ID владельца счетов
+     * @return найденные счета пользователя
+     */
+    @RestResource(exported = false)
+    List<Account> findAllByIdInAndUserId(Collection<Long> ids, Long userId);
+
+    /**
+     * Блокирует счета на запись в порядке возрастания ID, как и остальные операции
+     * с несколькими счетами, и возвращает их с текущими балансами.
+     * Блокировки удерживаются до конца транзакции БД.
+     *
+     * @param ids ID счетов
+     * @return найденные счета в порядке возрастания ID
+     */
+    @RestResource(exported = false)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> lockAllById(@Param("ids") Collection<Long> ids);
 }
@@ -1,7 +1,12 @@
 package ru.denis.NauJava3.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 import ru.denis.NauJava3.entity.Budget;
 import ru.denis.NauJava3.entity.User;
@@ -14,6 +19,27 @@ import java.util.List;
  * Позволяет выполнять основные операции по созданию, чтению, обновлению и удалению бюджетов.
  */
 @RepositoryRestResource(path = "budgets")
-public interface BudgetRepository extends CrudRepository<Budget, Long> {
+public interface BudgetRepository extends CrudRepository<Budget, Long>,
+                                            PagingAndSortingRepository<Budget, Long> {
+    /**
+     * Поиск всех бюджетов пользователя вместе с категориями и владельцем.
+     * Связи загружаются одним запросом, поэтому сериализация списка в JSON
+     * не выполняет отдельный запрос на каждый бюджет.
+     *
+     * @param currentUser владелец бюджетов
+     * @return бюджеты пользователя
+     */
+    @RestResource(exported = false)
+    @EntityGraph(attributePaths = {"user", "category"})
     List<Budget> findByUser(User currentUser);
+
+    /**
+     * Ограниченный вариант поиска бюджетов пользователя.
+     * Экспортируется через REST вместо неограниченного списка.
+     *
+     * @param user владелец бюджетов
+     * @param pageable номер и размер порции
+     * @return порция бюджетов без подсчета общего количества
+     */
+    Slice<Budget> findByUser(User user, Pageable pageable);
 }
@@ -1,30 +1,89 @@
 package ru.denis.NauJava3.repository;
 
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.config.CachingConfig;
 import ru.denis.NauJava3.dao.CategoryRepositoryCustom;
+import ru.denis.NauJava3.dto.CategoryInfoDto;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.enums.OperationType;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Репозиторий для работы с категориями.
  * Предоставляет методы для выполнения операций с сущностью {@link Category} в базе данных.
  * Расширяет функциональность с помощью пользовательских методов поиска.
+ * Кэшируются неизменяемые сведения о категории ({@link CategoryInfoDto}), а не сущность:
+ * REST-запросы PUT/PATCH изменяют загруженную сущность до сохранения, и закэшированная
+ * сущность могла бы хранить несохраненные изменения. Методы изменения очищают кэш,
+ * в том числе при изменениях через REST.
  */
 @RepositoryRestResource(path = "categories")
+@CacheConfig(cacheNames = CachingConfig.CATEGORIES)
 public interface CategoryRepository extends CrudRepository<Category, Long>,
+                                            PagingAndSortingRepository<Category, Long>,
                                             CategoryRepositoryCustom {
     /**
-     * Поиск категорий по типу операции, цветовому коду и части названия.
+     * Возвращает сведения о категории по ID.
+     *
+     * @param id ID категории
+     * @return сведения о категории
+     */
+    @RestResource(exported = false)
+    @Cacheable(unless = "#result == null")
+    @Query("SELECT new ru.denis.NauJava3.dto.CategoryInfoDto(c.id, c.name, c.type) FROM Category c WHERE c.id = :id")
+    Optional<CategoryInfoDto> findInfoById(@Param("id") Long id);
+
+    @Override
+    @CacheEvict(key = "#result.id")
+    <S extends Category> S save(S entity);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    <S extends Category> Iterable<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @CacheEvict(key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(key = "#p0.id")
+    void delete(Category entity);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAllById(Iterable<? extends Long> ids);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAll(Iterable<? extends Category> entities);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAll();
+
+    /**
+     * Поиск категорий по типу операции, цветовому коду и части названия без учета регистра.
+     * Условие по названию записано как {@code lower(name) LIKE}, чтобы использовался
+     * триграммный индекс idx_categories_name_trgm; спецсимволы шаблона в части названия экранируются.
      *
      * @param type тип операции (доход/расход)
      * @param colorCode цветовой код категории
      * @param namePart часть названия категории для поиска
      * @return список категорий, удовлетворяющих условиям поиска
      */
+    @Query("SELECT c FROM Category c WHERE c.type = ?1 AND c.colorCode = ?2 " +
+            "AND lower(c.name) LIKE lower(concat('%', ?#{escape([2])}, '%')) ESCAPE ?#{escapeCharacter()}")
     List<Category> findByTypeAndColorCodeAndNameContaining(
             OperationType type,
             String colorCode,
@@ -0,0 +1,110 @@
+package ru.denis.NauJava3.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.dto.BudgetSpendingView;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.DailySpending;
+import ru.denis.NauJava3.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий для работы с дневными агрегатами транзакций.
+ * Не экспортируется через REST: агрегаты изменяются только сервисом транзакций.
+ */
+@RepositoryRestResource(exported = false)
+public interface DailySpendingRepository extends CrudRepository<DailySpending, Long> {
+
+    /**
+     * Атомарно прибавляет сумму к агрегату за день, создавая его при отсутствии.
+     *
+     * @param userId ID пользователя
+     * @param categoryId ID категории
+     * @param spendingDate день транзакции
+     * @param amount прибавляемая сумма (может быть отрицательной)
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO daily_spendings (user_id, category_id, spending_date, amount)
+            VALUES (:userId, :categoryId, :spendingDate, :amount)
+            ON CONFLICT (user_id, category_id, spending_date)
+            DO UPDATE SET amount = daily_spendings.amount + EXCLUDED.amount
+            """, nativeQuery = true)
+    void addAmount(@Param("userId") Long userId,
+                   @Param("categoryId") Long categoryId,
+                   @Param("spendingDate") LocalDate spendingDate,
+                   @Param("amount") BigDecimal amount);
+
+    /**
+     * Суммирует агрегаты пользователя по категории за период включительно.
+     *
+     * @param user пользователь
+     * @param category категория
+     * @param startDate первый день периода
+     * @param endDate последний день периода
+     * @return сумма транзакций за период, 0 если транзакций нет
+     */
+    @Query("SELECT COALESCE(SUM(s.amount), 0) FROM DailySpending s " +
+            "WHERE s.user = :user AND s.category = :category " +
+            "AND s.spendingDate BETWEEN :startDate AND :endDate")
+    BigDecimal sumAmount(@Param("user") User user,
+                         @Param("category") Category category,
+                         @Param("startDate") LocalDate startDate,
+                         @Param("endDate") LocalDate endDate);
+
+    /**
+     * Вычисляет потраченные суммы сразу для всех бюджетов пользователя одним запросом.
+     * Для бюджетов без транзакций за период возвращается 0.
+     *
+     * @param user владелец бюджетов
+     * @return суммы по каждому бюджету пользователя
+     */
+    @Query("SELECT b.id AS budgetId, COALESCE(SUM(s.amount), 0) AS spentAmount " +
+            "FROM Budget b LEFT JOIN DailySpending s " +
+            "ON s.user = b.user AND s.category = b.category " +
+            "AND s.spendingDate BETWEEN b.periodStart AND b.periodEnd " +
+            "WHERE b.user = :user GROUP BY b.id")
+    List<BudgetSpendingView> sumAmountByBudget(@Param("user") User user);
+
+    /**
+     * Блокирует таблицу агрегатов до конца транзакции перед полной пересборкой.
+     * Режим SHARE ROW EXCLUSIVE ожидает завершения транзакций, уже изменивших агрегаты,
+     * и не допускает новых изменений до фиксации пересборки: такие транзакции применят
+     * свои изменения к пересобранным агрегатам, а пересборка увидит все транзакции,
+     * агрегаты которых были изменены до нее.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE daily_spendings IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockAggregates();
+
+    /**
+     * Удаляет все агрегаты перед полной пересборкой.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM daily_spendings", nativeQuery = true)
+    int deleteAllAggregates();
+
+    /**
+     * Пересобирает агрегаты по таблице транзакций. Операции переводов не имеют категории
+     * и в агрегаты не входят.
+     * Выполняется после {@link #lockAggregates()} и {@link #deleteAllAggregates()},
+     * поэтому конфликтов с агрегатами параллельных транзакций нет.
+     *
+     * @return количество записанных агрегатов
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO daily_spendings (user_id, category_id, spending_date, amount)
+            SELECT t.user_id, t.category_id, CAST(t.date AS date), SUM(t.amount)
+            FROM transactions t
+            WHERE t.category_id IS NOT NULL
+            GROUP BY t.user_id, t.category_id, CAST(t.date AS date)
+            """, nativeQuery = true)
+    int insertAggregatesFromTransactions();
+}
@@ -0,0 +1,113 @@
+package ru.denis.NauJava3.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.entity.IdempotencyKey;
+import ru.denis.NauJava3.entity.IdempotencyKeyId;
+
+import java.time.LocalDateTime;
+
+/**
+ * Репозиторий для работы с ключами идемпотентности.
+ * Не экспортируется через REST: ключи записываются только сервисом идемпотентности.
+ * Все запросы, кроме удаления просроченных ключей, обращаются к строке по первичному ключу.
+ */
+@RepositoryRestResource(exported = false)
+public interface IdempotencyKeyRepository extends CrudRepository<IdempotencyKey, IdempotencyKeyId> {
+
+    /**
+     * Атомарно резервирует ключ за выполняемым запросом.
+     * Просроченный ключ, в том числе резерв запроса, не завершенного до истечения срока аренды,
+     * резервируется заново; действующий ключ не изменяется.
+     * Время резерва становится значением created_at и отличает резерв от следующих резервов того же ключа.
+     *
+     * @param userId ID пользователя
+     * @param key значение ключа
+     * @param requestHash хеш операции и тела запроса
+     * @param now время резерва
+     * @param expiresAt время истечения срока аренды резерва
+     * @return 1, если ключ зарезервирован, 0 - если действующий ключ уже существует
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at)
+            VALUES (:userId, :key, :requestHash, :now, :expiresAt)
+            ON CONFLICT (user_id, idempotency_key) DO UPDATE
+            SET request_hash = EXCLUDED.request_hash,
+                response_status = NULL,
+                response_body = NULL,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE idempotency_keys.expires_at <= EXCLUDED.created_at
+            """, nativeQuery = true)
+    int reserve(@Param("userId") Long userId,
+                @Param("key") String key,
+                @Param("requestHash") String requestHash,
+                @Param("now") LocalDateTime now,
+                @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Сохраняет ответ выполненного запроса, если ключ все еще зарезервирован за этим запросом.
+     * Вызывается в транзакции БД, в которой выполнялся запрос, поэтому ответ фиксируется
+     * вместе с изменениями запроса.
+     *
+     * @param userId ID пользователя
+     * @param key значение ключа
+     * @param reservedAt время резерва ключа
+     * @param status HTTP-статус ответа
+     * @param body тело ответа в JSON
+     * @param expiresAt время истечения срока хранения ответа
+     * @return 1, если ответ сохранен, 0 - если резерв истек и ключ зарезервирован другим запросом
+     */
+    @Modifying
+    @Query(value = "UPDATE idempotency_keys " +
+            "SET response_status = :status, response_body = :body, expires_at = :expiresAt " +
+            "WHERE user_id = :userId AND idempotency_key = :key AND created_at = :reservedAt " +
+            "AND response_status IS NULL", nativeQuery = true)
+    int complete(@Param("userId") Long userId,
+                 @Param("key") String key,
+                 @Param("reservedAt") LocalDateTime reservedAt,
+                 @Param("status") int status,
+                 @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Снимает резерв с ключа запроса, завершившегося ошибкой, чтобы запрос можно было повторить.
+     * Резерв, полученный другим запросом после истечения аренды, не снимается.
+     *
+     * @param userId ID пользователя
+     * @param key значение ключа
+     * @param reservedAt время резерва ключа
+     * @return количество удаленных ключей
+     */
+    @Modifying
+    @Query(value = "DELETE FROM idempotency_keys " +
+            "WHERE user_id = :userId AND idempotency_key = :key AND created_at = :reservedAt " +
+            "AND response_status IS NULL", nativeQuery = true)
+    int release(@Param("userId") Long userId,
+                @Param("key") String key,
+                @Param("reservedAt") LocalDateTime reservedAt);
+
+    /**
+     * Удаляет порцию просроченных ключей.
+     * Порция выбирается по индексу срока хранения, поэтому одна транзакция
+     * удаляет и блокирует не больше заданного количества строк.
+     *
+     * @param now текущее время
+     * @param limit максимальное количество удаляемых ключей
+     * @return количество удаленных ключей
+     */
+    @Modifying
+    @Query(value = """
+            DELETE FROM idempotency_keys
+            WHERE (user_id, idempotency_key) IN (
+                SELECT user_id, idempotency_key FROM idempotency_keys
+                WHERE expires_at <= :now
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            """, nativeQuery = true)
+    int deleteExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
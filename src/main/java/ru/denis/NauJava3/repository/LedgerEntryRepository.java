@@ -0,0 +1,144 @@
+package ru.denis.NauJava3.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.dto.LedgerEntryDto;
+import ru.denis.NauJava3.entity.LedgerEntry;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Репозиторий журнала операций по счетам.
+ * Не экспортируется через REST и не содержит методов изменения и удаления:
+ * проводки только добавляются.
+ * Номер новой проводки вычисляется как следующий за последним номером счета,
+ * поэтому методы добавления должны вызываться под блокировкой строки счета
+ * (после изменения его баланса в той же транзакции БД).
+ */
+@RepositoryRestResource(exported = false)
+public interface LedgerEntryRepository extends Repository<LedgerEntry, Long> {
+
+    /**
+     * Добавляет проводки по сохраненным транзакциям: зачисление для дохода, списание для расхода.
+     * Проводки одного счета нумеруются в порядке даты и ID транзакций.
+     *
+     * @param transactionIds ID транзакций
+     * @return количество добавленных проводок
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO ledger_entries (account_id, seq, entry_type, amount, transaction_id)
+            SELECT t.account_id,
+                   COALESCE((SELECT MAX(e.seq) FROM ledger_entries e WHERE e.account_id = t.account_id), 0)
+                       + ROW_NUMBER() OVER (PARTITION BY t.account_id ORDER BY t.date, t.id),
+                   CASE WHEN t.type = 'INCOME' THEN 'CREDIT' ELSE 'DEBIT' END,
+                   t.amount,
+                   t.id
+            FROM transactions t
+            WHERE t.id IN (:transactionIds)
+            """, nativeQuery = true)
+    int appendTransactions(@Param("transactionIds") Collection<Long> transactionIds);
+
+    /**
+     * Добавляет сторнирующие проводки для еще не сторнированных проводок транзакции.
+     *
+     * @param transactionId ID транзакции
+     * @return количество добавленных проводок
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO ledger_entries (account_id, seq, entry_type, amount, transaction_id, reversal_of)
+            SELECT e.account_id,
+                   (SELECT MAX(m.seq) FROM ledger_entries m WHERE m.account_id = e.account_id) + 1,
+                   CASE WHEN e.entry_type = 'CREDIT' THEN 'DEBIT' ELSE 'CREDIT' END,
+                   e.amount,
+                   e.transaction_id,
+                   e.id
+            FROM ledger_entries e
+            WHERE e.transaction_id = :transactionId AND e.reversal_of IS NULL
+              AND NOT EXISTS (SELECT 1 FROM ledger_entries r WHERE r.reversal_of = e.id)
+            """, nativeQuery = true)
+    int appendReversals(@Param("transactionId") Long transactionId);
+
+    /**
+     * Проводки счета с номерами больше указанного, в порядке номеров.
+     *
+     * @param accountId ID счета
+     * @param afterSeq номер последней прочитанной проводки (0 для чтения с начала)
+     * @param pageable размер страницы (номер страницы должен быть 0)
+     * @return проводки страницы
+     */
+    @Query("SELECT new ru.denis.NauJava3.dto.LedgerEntryDto(e.seq, e.entryType, e.amount, " +
+            "e.transactionId, e.reversalOf, e.createdAt) " +
+            "FROM LedgerEntry e WHERE e.account.id = :accountId AND e.seq > :afterSeq " +
+            "ORDER BY e.seq")
+    List<LedgerEntryDto> findPage(@Param("accountId") Long accountId,
+                                  @Param("afterSeq") long afterSeq,
+                                  Pageable pageable);
+
+    /**
+     * Продвигает снимки проекции до последней проводки каждого счета.
+     * Новый снимок равен предыдущему плюс проводки после него, поэтому читаются
+     * только новые проводки. Блокировки не нужны: зафиксированные проводки счета
+     * всегда образуют непрерывный префикс номеров.
+     *
+     * @return количество обновленных снимков
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO account_ledger_snapshots (account_id, seq, balance)
+            SELECT a.id, d.seq, COALESCE(s.balance, 0) + d.amount
+            FROM accounts a
+            LEFT JOIN account_ledger_snapshots s ON s.account_id = a.id
+            JOIN LATERAL (SELECT MAX(e.seq) AS seq,
+                                 SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END) AS amount
+                          FROM ledger_entries e
+                          WHERE e.account_id = a.id AND e.seq > COALESCE(s.seq, 0)) d ON d.seq IS NOT NULL
+            ON CONFLICT (account_id) DO UPDATE
+                SET seq = EXCLUDED.seq, balance = EXCLUDED.balance, created_at = LOCALTIMESTAMP
+                WHERE account_ledger_snapshots.seq < EXCLUDED.seq
+            """, nativeQuery = true)
+    int advanceSnapshots();
+
+    /**
+     * @return ID всех счетов в порядке возрастания
+     */
+    @Query(value = "SELECT id FROM accounts ORDER BY id", nativeQuery = true)
+    List<Long> findAllAccountIds();
+
+    /**
+     * Блокирует счета на запись в порядке возрастания ID.
+     * Пока блокировка удерживается, проводки по этим счетам не могут быть добавлены.
+     *
+     * @param accountIds ID счетов
+     * @return ID заблокированных счетов
+     */
+    @Query(value = "SELECT id FROM accounts WHERE id IN (:accountIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAccounts(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Записывает в баланс счетов значение проекции журнала: снимок плюс проводки после него.
+     * Должен вызываться после {@link #lockAccounts} в той же транзакции БД.
+     *
+     * @param accountIds ID счетов
+     * @return количество счетов, баланс которых расходился с журналом
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE accounts a SET balance = p.balance
+            FROM (SELECT x.id AS account_id, COALESCE(s.balance, 0) + COALESCE(d.amount, 0) AS balance
+                  FROM accounts x
+                  LEFT JOIN account_ledger_snapshots s ON s.account_id = x.id
+                  LEFT JOIN LATERAL (SELECT SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END) AS amount
+                                     FROM ledger_entries e
+                                     WHERE e.account_id = x.id AND e.seq > COALESCE(s.seq, 0)) d ON true
+                  WHERE x.id IN (:accountIds)) p
+            WHERE a.id = p.account_id AND a.balance <> p.balance
+            """, nativeQuery = true)
+    int projectBalances(@Param("accountIds") Collection<Long> accountIds);
+}
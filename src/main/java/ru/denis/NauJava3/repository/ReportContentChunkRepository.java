@@ -0,0 +1,42 @@
+package ru.denis.NauJava3.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.entity.ReportContentChunk;
+
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий для работы с фрагментами содержимого отчетов.
+ * Не экспортируется через REST: содержимое отдается контроллером отчетов.
+ */
+@RepositoryRestResource(exported = false)
+public interface ReportContentChunkRepository extends CrudRepository<ReportContentChunk, Long> {
+
+    /**
+     * Возвращает данные фрагментов отчета по порядку. Фрагменты читаются из БД
+     * по одному, поэтому поток должен потребляться внутри транзакции.
+     *
+     * @param reportId ID отчета
+     * @return поток сжатых данных фрагментов
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1"))
+    @Query("SELECT c.data FROM ReportContentChunk c WHERE c.report.id = :reportId ORDER BY c.seq")
+    Stream<byte[]> streamData(@Param("reportId") Long reportId);
+
+    /**
+     * Удаляет все фрагменты отчета.
+     *
+     * @param reportId ID отчета
+     * @return количество удаленных фрагментов
+     */
+    @Modifying
+    @Query("DELETE FROM ReportContentChunk c WHERE c.report.id = :reportId")
+    int deleteByReportId(@Param("reportId") Long reportId);
+}
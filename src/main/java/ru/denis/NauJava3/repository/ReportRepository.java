@@ -1,9 +1,187 @@
 package ru.denis.NauJava3.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.dto.ReportStatusDto;
 import ru.denis.NauJava3.entity.Report;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface ReportRepository extends JpaRepository<Report, Long> {
+
+    /**
+     * Возвращает состояние отчета без загрузки его содержимого.
+     *
+     * @param id идентификатор отчета
+     * @return состояние отчета
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.ReportStatusDto(r.id, r.status, r.errorMessage, r.contentSize, r.contentEtag)"
+            + " FROM Report r WHERE r.id = :id")
+    Optional<ReportStatusDto> findStatusById(@Param("id") Long id);
+
+    /**
+     * Условие готовности отчета к формированию: отчет ожидает в очереди и время
+     * повторной попытки наступило, либо аренда формирующего его экземпляра истекла
+     * и попытки еще не исчерпаны.
+     * Время берется из БД, чтобы расхождение часов экземпляров не влияло на аренду.
+     */
+    String CLAIMABLE_CONDITION = "((r.status IN ('CREATED', 'QUEUED')"
+            + " AND (r.next_attempt_at IS NULL OR r.next_attempt_at <= now()))"
+            + " OR (r.status = 'RUNNING' AND r.lease_expires_at < now() AND r.attempts < :maxAttempts))";
+
+    /**
+     * Блокирует готовые к формированию отчеты, пропуская строки, заблокированные
+     * другими экземплярами приложения.
+     *
+     * @param limit максимальное количество отчетов
+     * @param maxAttempts максимальное число попыток
+     * @return идентификаторы заблокированных отчетов
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT r.id FROM reports r WHERE " + CLAIMABLE_CONDITION
+            + " ORDER BY r.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockClaimableIds(@Param("limit") int limit, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Блокирует указанный отчет, если он готов к формированию и не заблокирован
+     * другим экземпляром приложения.
+     *
+     * @param id идентификатор отчета
+     * @param maxAttempts максимальное число попыток
+     * @return идентификатор заблокированного отчета
+     */
+    @RestResource(exported = false)
+    @Query(value = "SELECT r.id FROM reports r WHERE r.id = :id AND " + CLAIMABLE_CONDITION
+            + " FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<Long> lockClaimableId(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Переводит отчеты в статус RUNNING и выдает аренду указанному экземпляру.
+     *
+     * @param ids идентификаторы отчетов
+     * @param owner идентификатор экземпляра приложения
+     * @param leaseSeconds длительность аренды в секундах
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = 'RUNNING', lease_owner = :owner,"
+            + " lease_expires_at = now() + make_interval(secs => :leaseSeconds), attempts = attempts + 1"
+            + " WHERE id IN (:ids)", nativeQuery = true)
+    int markRunning(@Param("ids") Collection<Long> ids,
+                    @Param("owner") String owner,
+                    @Param("leaseSeconds") double leaseSeconds);
+
+    /**
+     * Продлевает аренду отчета, если она все еще принадлежит указанному экземпляру.
+     *
+     * @param id идентификатор отчета
+     * @param owner идентификатор экземпляра приложения
+     * @param leaseSeconds длительность аренды в секундах
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET lease_expires_at = now() + make_interval(secs => :leaseSeconds)"
+            + " WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner", nativeQuery = true)
+    int renewLease(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("leaseSeconds") double leaseSeconds);
+
+    /**
+     * Отмечает отчет сформированным, если аренда принадлежит указанному экземпляру.
+     *
+     * @param id идентификатор отчета
+     * @param owner идентификатор экземпляра приложения
+     * @param contentSize размер сжатого содержимого отчета в байтах
+     * @param contentEtag хэш сжатого содержимого отчета
+     * @param creationTime время формирования отчета в миллисекундах
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = 'COMPLETED', content_size = :contentSize, content_etag = :contentEtag, error_message = NULL, creation_time = :creationTime,"
+            + " lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner", nativeQuery = true)
+    int markCompleted(@Param("id") Long id,
+                      @Param("owner") String owner,
+                      @Param("contentSize") long contentSize,
+                      @Param("contentEtag") String contentEtag,
+                      @Param("creationTime") long creationTime);
+
+    /**
+     * Фиксирует неудачную попытку формирования отчета. Пока число попыток меньше
+     * максимального, отчет возвращается в очередь с экспоненциально растущей задержкой,
+     * иначе получает статус ERROR.
+     *
+     * @param id идентификатор отчета
+     * @param owner идентификатор экземпляра приложения
+     * @param message сообщение об ошибке
+     * @param maxAttempts максимальное число попыток
+     * @param backoffSeconds задержка перед первой повторной попыткой в секундах
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = CASE WHEN attempts >= :maxAttempts THEN 'ERROR' ELSE 'QUEUED' END,"
+            + " next_attempt_at = now() + make_interval(secs => :backoffSeconds * power(2, attempts - 1)),"
+            + " error_message = :message, lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner", nativeQuery = true)
+    int markFailed(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("message") String message,
+                   @Param("maxAttempts") int maxAttempts,
+                   @Param("backoffSeconds") double backoffSeconds);
+
+    /**
+     * Переводит в статус ERROR отчеты с истекшей арендой, исчерпавшие попытки.
+     * Такие отчеты, как правило, прерывали работу формирующего их экземпляра,
+     * поэтому повторно в аренду не выдаются.
+     *
+     * @param message сообщение об ошибке
+     * @param maxAttempts максимальное число попыток
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = 'ERROR', error_message = :message,"
+            + " lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE status = 'RUNNING' AND lease_expires_at < now() AND attempts >= :maxAttempts", nativeQuery = true)
+    int markAbandoned(@Param("message") String message, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Возвращает отчет в очередь без учета попытки, если он не был запущен.
+     *
+     * @param id идентификатор отчета
+     * @param owner идентификатор экземпляра приложения
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = 'QUEUED', attempts = attempts - 1,"
+            + " lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner", nativeQuery = true)
+    int release(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Отменяет формирование отчета, ожидающего в очереди или формируемого в данный момент.
+     *
+     * @param id идентификатор отчета
+     * @param message сообщение, сохраняемое в отчете
+     * @return количество обновленных отчетов
+     */
+    @RestResource(exported = false)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE reports SET status = 'CANCELLED', error_message = :message,"
+            + " lease_owner = NULL, lease_expires_at = NULL"
+            + " WHERE id = :id AND status IN ('CREATED', 'QUEUED', 'RUNNING')", nativeQuery = true)
+    int markCancelled(@Param("id") Long id, @Param("message") String message);
 }
@@ -1,26 +1,179 @@
 package ru.denis.NauJava3.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.dto.DailyBalanceChangeView;
+import ru.denis.NauJava3.dto.ReportTotalDto;
+import ru.denis.NauJava3.dto.TransactionDto;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.Transaction;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import ru.denis.NauJava3.entity.User;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 /**
  * Репозиторий для работы с транзакциями.
- * Предоставляет базовые операции CRUD для сущности {@link Transaction}.
+ * Предоставляет базовые операции CRUD для сущности {@link Transaction}
+ * и постраничный просмотр по курсору (date, id).
  */
 @RepositoryRestResource(path = "transactions")
-public interface TransactionRepository extends CrudRepository<Transaction, Long> {
+public interface TransactionRepository extends CrudRepository<Transaction, Long>,
+                                            PagingAndSortingRepository<Transaction, Long> {
+    @RestResource(exported = false)
     List<Transaction> findByUserAndCategoryAndDateBetween(
             User user,
             Category category,
             LocalDateTime startDateTime,
             LocalDateTime endDateTime
     );
-}
\ No newline at end of file
+
+    /**
+     * Ограниченный вариант поиска транзакций пользователя по категории за период.
+     * Экспортируется через REST вместо неограниченного списка.
+     *
+     * @param pageable номер и размер порции
+     * @return порция транзакций без подсчета общего количества
+     */
+    Slice<Transaction> findByUserAndCategoryAndDateBetween(
+            User user,
+            Category category,
+            LocalDateTime startDateTime,
+            LocalDateTime endDateTime,
+            Pageable pageable
+    );
+
+    /**
+     * Первая страница транзакций пользователя, от новых к старым.
+     *
+     * @param userId ID пользователя
+     * @param pageable размер страницы (номер страницы должен быть 0)
+     * @return транзакции страницы
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.TransactionDto(t.id, t.amount, t.date, t.description, t.type, " +
+            "t.account.id, t.category.id, t.transfer.id) " +
+            "FROM Transaction t WHERE t.user.id = :userId " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findPageByUser(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Страница транзакций пользователя, следующих за курсором (date, id), от новых к старым.
+     * Условие сравнения кортежей позволяет БД начать чтение индекса (user_id, date, id)
+     * сразу с позиции курсора, поэтому стоимость не зависит от глубины страницы, в отличие от OFFSET.
+     *
+     * @param userId ID пользователя
+     * @param date дата последней транзакции предыдущей страницы
+     * @param id ID последней транзакции предыдущей страницы
+     * @param pageable размер страницы (номер страницы должен быть 0)
+     * @return транзакции страницы
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.TransactionDto(t.id, t.amount, t.date, t.description, t.type, " +
+            "t.account.id, t.category.id, t.transfer.id) " +
+            "FROM Transaction t WHERE t.user.id = :userId AND (t.date, t.id) < (:date, :id) " +
+            "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findPageByUserAfter(@Param("userId") Long userId,
+                                             @Param("date") LocalDateTime date,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    /**
+     * Изменение баланса счета транзакциями за период: доходы за вычетом расходов.
+     *
+     * @param accountId ID счета
+     * @param from начало периода включительно
+     * @param to конец периода, не включая
+     * @return изменение баланса, 0 если транзакций нет
+     */
+    @RestResource(exported = false)
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME " +
+            "THEN t.amount ELSE -t.amount END), 0) " +
+            "FROM Transaction t WHERE t.account.id = :accountId AND t.date >= :from AND t.date < :to")
+    BigDecimal sumBalanceChange(@Param("accountId") Long accountId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    /**
+     * Изменение баланса счета транзакциями, совершенными начиная с указанного момента.
+     *
+     * @param accountId ID счета
+     * @param from начало периода включительно
+     * @return изменение баланса, 0 если транзакций нет
+     */
+    @RestResource(exported = false)
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME " +
+            "THEN t.amount ELSE -t.amount END), 0) " +
+            "FROM Transaction t WHERE t.account.id = :accountId AND t.date >= :from")
+    BigDecimal sumBalanceChangeSince(@Param("accountId") Long accountId,
+                                     @Param("from") LocalDateTime from);
+
+    /**
+     * Изменения баланса счета по дням периода. Дни без транзакций не возвращаются.
+     *
+     * @param accountId ID счета
+     * @param from начало периода включительно
+     * @param to конец периода, не включая
+     * @return изменения баланса по дням
+     */
+    @RestResource(exported = false)
+    @Query("SELECT CAST(t.date AS LocalDate) AS day, " +
+            "SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME " +
+            "THEN t.amount ELSE -t.amount END) AS amount " +
+            "FROM Transaction t WHERE t.account.id = :accountId AND t.date >= :from AND t.date < :to " +
+            "GROUP BY CAST(t.date AS LocalDate)")
+    List<DailyBalanceChangeView> sumBalanceChangeByDay(@Param("accountId") Long accountId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to);
+
+    /**
+     * Итоги по транзакциям в разрезе категорий.
+     * Агрегация выполняется в БД, размер результата ограничен числом категорий.
+     *
+     * @return итоги по каждой категории, упорядоченные по названию
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.ReportTotalDto(c.name, COUNT(t), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME THEN t.amount END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.EXPENSE THEN t.amount END), 0)) " +
+            "FROM Transaction t JOIN t.category c " +
+            "GROUP BY c.id, c.name ORDER BY c.name")
+    List<ReportTotalDto> sumByCategory();
+
+    /**
+     * Итоги по транзакциям в разрезе счетов с наибольшим оборотом.
+     * Операции переводов между счетами не являются доходами и расходами и не учитываются.
+     *
+     * @param pageable ограничение количества счетов в результате
+     * @return итоги по счетам, упорядоченные по убыванию оборота
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.ReportTotalDto(CONCAT(a.name, ' #', CAST(a.id AS String)), COUNT(t), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME THEN t.amount END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.EXPENSE THEN t.amount END), 0)) " +
+            "FROM Transaction t JOIN t.account a WHERE t.transfer IS NULL " +
+            "GROUP BY a.id, a.name ORDER BY SUM(t.amount) DESC, a.id")
+    List<ReportTotalDto> sumByAccount(Pageable pageable);
+
+    /**
+     * Итоги по транзакциям в разрезе месяцев, без операций переводов между счетами.
+     *
+     * @return итоги по каждому месяцу, упорядоченные по времени
+     */
+    @RestResource(exported = false)
+    @Query("SELECT new ru.denis.NauJava3.dto.ReportTotalDto(YEAR(t.date), MONTH(t.date), COUNT(t), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.INCOME THEN t.amount END), 0), " +
+            "COALESCE(SUM(CASE WHEN t.type = ru.denis.NauJava3.entity.enums.OperationType.EXPENSE THEN t.amount END), 0)) " +
+            "FROM Transaction t WHERE t.transfer IS NULL " +
+            "GROUP BY YEAR(t.date), MONTH(t.date) ORDER BY YEAR(t.date), MONTH(t.date)")
+    List<ReportTotalDto> sumByMonth();
+}
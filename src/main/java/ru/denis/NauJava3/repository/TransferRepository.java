@@ -0,0 +1,14 @@
+package ru.denis.NauJava3.repository;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import ru.denis.NauJava3.entity.Transfer;
+
+/**
+ * Репозиторий для работы с переводами между счетами.
+ * Не экспортируется через REST: переводы создаются только сервисом транзакций,
+ * который одновременно изменяет балансы обоих счетов.
+ */
+@RepositoryRestResource(exported = false)
+public interface TransferRepository extends CrudRepository<Transfer, Long> {
+}
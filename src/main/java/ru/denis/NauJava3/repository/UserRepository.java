@@ -1,8 +1,13 @@
 package ru.denis.NauJava3.repository;
 
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.stereotype.Repository;
+import ru.denis.NauJava3.config.CachingConfig;
 import ru.denis.NauJava3.entity.User;
 
 import java.util.Optional;
@@ -10,9 +15,44 @@ import java.util.Optional;
 /**
  * Репозиторий для работы с пользователями.
  * Предоставляет базовые операции CRUD для сущности User.
+ * Поиск по имени пользователя, выполняемый при каждом запросе, кэшируется
+ * вместе с ролями; любое изменение пользователей очищает кэш целиком,
+ * так как имя пользователя может измениться.
  */
 @RepositoryRestResource(path = "users")
-public interface UserRepository extends CrudRepository<User, Long> {
+@CacheConfig(cacheNames = CachingConfig.USERS_BY_USERNAME)
+public interface UserRepository extends CrudRepository<User, Long>,
+                                            PagingAndSortingRepository<User, Long> {
+    @Cacheable(unless = "#result == null")
     Optional<User> findByUsername(String username);
+
     Optional<User> findByEmail(String email);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    <S extends User> S save(S entity);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    <S extends User> Iterable<S> saveAll(Iterable<S> entities);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void delete(User entity);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAllById(Iterable<? extends Long> ids);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAll(Iterable<? extends User> entities);
+
+    @Override
+    @CacheEvict(allEntries = true)
+    void deleteAll();
 }
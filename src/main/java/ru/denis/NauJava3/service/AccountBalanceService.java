@@ -0,0 +1,61 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.dto.AccountBalanceDto;
+import ru.denis.NauJava3.entity.Transaction;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сервис контрольных точек баланса счетов и истории баланса.
+ */
+public interface AccountBalanceService {
+    /**
+     * Учитывает транзакцию в контрольных точках начиная с её дня.
+     * Должен вызываться в той же транзакции БД, что и сохранение транзакции,
+     * после изменения баланса счета.
+     * @param transaction сохраненная транзакция
+     */
+    void addTransaction(Transaction transaction);
+
+    /**
+     * Учитывает набор транзакций, выполняя одно изменение на каждый затронутый счет и день.
+     * Должен вызываться в той же транзакции БД, что и сохранение транзакций,
+     * после изменения балансов счетов.
+     * @param transactions сохраненные транзакции
+     */
+    void addTransactions(Collection<Transaction> transactions);
+
+    /**
+     * Исключает транзакцию из контрольных точек начиная с её дня.
+     * Должен вызываться в той же транзакции БД, что и удаление транзакции,
+     * после изменения баланса счета.
+     * @param transaction удаляемая транзакция
+     */
+    void removeTransaction(Transaction transaction);
+
+    /**
+     * Записывает контрольные точки на конец каждого дня периода для счетов,
+     * по которым в этот день были транзакции
+     * @param from первый день периода
+     * @param to последний день периода
+     * @return количество записанных контрольных точек
+     */
+    int createSnapshots(LocalDate from, LocalDate to);
+
+    /**
+     * Записывает контрольные точки за дни после последней записанной контрольной точки по вчерашний день
+     * @return количество записанных контрольных точек
+     */
+    int createMissingSnapshots();
+
+    /**
+     * Возвращает баланс счета текущего пользователя на конец каждого дня периода
+     * @param accountId ID счета
+     * @param from первый день периода
+     * @param to последний день периода
+     * @return балансы по дням в порядке возрастания даты
+     */
+    List<AccountBalanceDto> getBalanceHistory(Long accountId, LocalDate from, LocalDate to);
+}
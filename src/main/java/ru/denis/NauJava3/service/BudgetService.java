@@ -1,6 +1,7 @@
 package ru.denis.NauJava3.service;
 
 import ru.denis.NauJava3.dto.BudgetDto;
+import ru.denis.NauJava3.dto.BudgetStatusDto;
 import ru.denis.NauJava3.entity.Budget;
 
 import java.util.List;
@@ -34,4 +35,11 @@ public interface BudgetService {
      * @throws ru.denis.NauJava3.exception.ResourceNotFoundException если бюджет не найден
      */
     boolean isBudgetExceeded(Long budgetId);
+
+    /**
+     * Вычисляет состояние всех бюджетов текущего авторизованного пользователя.
+     * Потраченные суммы по всем бюджетам вычисляются одним агрегирующим запросом
+     * @return Список состояний бюджетов
+     */
+    List<BudgetStatusDto> getCurrentUserBudgetStatuses();
 }
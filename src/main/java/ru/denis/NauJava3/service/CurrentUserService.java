@@ -0,0 +1,17 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.entity.User;
+
+/**
+ * Сервис для получения текущего аутентифицированного пользователя.
+ */
+public interface CurrentUserService {
+    /**
+     * Возвращает текущего пользователя.
+     * Если принципал аутентификации уже является {@link User}, он возвращается без обращения к БД;
+     * иначе пользователь загружается по имени не более одного раза за HTTP-запрос.
+     * @return текущий пользователь
+     * @throws ru.denis.NauJava3.exception.ResourceNotFoundException если пользователь не аутентифицирован или не найден
+     */
+    User getCurrentUser();
+}
@@ -0,0 +1,18 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.dto.DataGenerationResultDto;
+import ru.denis.NauJava3.dto.DataGenerationSettings;
+
+/**
+ * Сервис генерации синтетических данных для нагрузочного тестирования:
+ * пользователей, счетов, категорий, бюджетов и транзакций.
+ */
+public interface DataGeneratorService {
+    /**
+     * Создает набор данных с заданными размерами и распределениями.
+     * @param settings параметры генерации
+     * @return количество созданных записей
+     * @throws IllegalStateException если данные с тем же префиксом имен пользователей уже созданы
+     */
+    DataGenerationResultDto generate(DataGenerationSettings settings);
+}
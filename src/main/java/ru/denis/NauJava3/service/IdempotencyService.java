@@ -0,0 +1,40 @@
+package ru.denis.NauJava3.service;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+/**
+ * Сервис идемпотентного выполнения запросов, создающих транзакции.
+ * Клиент передает ключ в заголовке {@value #HEADER}; повтор запроса с тем же ключом
+ * возвращает ответ первого выполнения вместо повторной записи.
+ */
+public interface IdempotencyService {
+    /** Заголовок запроса с ключом идемпотентности */
+    String HEADER = "Idempotency-Key";
+
+    /** Заголовок ответа, отмечающий ответ, возвращенный из хранилища ключей */
+    String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    /**
+     * Выполняет запрос не больше одного раза для ключа текущего пользователя.
+     * Запрос выполняется в одной транзакции БД с сохранением ответа, поэтому его изменения
+     * фиксируются только вместе с ответом. Сохраняется только успешный ответ; после ошибки
+     * изменения запроса откатываются, и запрос с тем же ключом можно повторить
+     * @param key ключ идемпотентности или null, если клиент его не передал
+     * @param operation название операции, к которой относится ключ
+     * @param request тело запроса: JSON-объект или байты исходного содержимого
+     * @param action выполнение запроса
+     * @return ответ выполнения или сохраненный ответ первого выполнения
+     * @throws ru.denis.NauJava3.exception.BadRequestException если ключ некорректен
+     *         или уже использован для другого запроса
+     * @throws ru.denis.NauJava3.exception.ConflictException если запрос с этим ключом еще выполняется
+     */
+    ResponseEntity<?> execute(String key, String operation, Object request, Supplier<ResponseEntity<?>> action);
+
+    /**
+     * Удаляет просроченные ключи порциями
+     * @return количество удаленных ключей
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,52 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.dto.LedgerEntryDto;
+import ru.denis.NauJava3.dto.LedgerRebuildResultDto;
+import ru.denis.NauJava3.entity.Transaction;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сервис журнала операций по счетам.
+ * Журнал только дополняется; баланс счета является его проекцией,
+ * которая поддерживается при записи и может быть пересобрана по журналу.
+ */
+public interface LedgerService {
+    /**
+     * Добавляет в журнал проводки по сохраненным транзакциям.
+     * Должен вызываться в той же транзакции БД, что и сохранение транзакций,
+     * после изменения балансов их счетов.
+     * @param transactions сохраненные транзакции
+     */
+    void recordTransactions(Collection<Transaction> transactions);
+
+    /**
+     * Добавляет в журнал сторнирующие проводки по транзакции.
+     * Должен вызываться в той же транзакции БД, что и удаление транзакции,
+     * после изменения баланса счета.
+     * @param transactionId ID удаляемой транзакции
+     */
+    void reverseTransaction(Long transactionId);
+
+    /**
+     * Возвращает проводки счета текущего пользователя в порядке номеров
+     * @param accountId ID счета
+     * @param afterSeq номер последней прочитанной проводки (0 для чтения с начала)
+     * @param size размер страницы
+     * @return проводки страницы
+     */
+    List<LedgerEntryDto> getAccountEntries(Long accountId, long afterSeq, int size);
+
+    /**
+     * Продвигает снимки проекции балансов до последних проводок
+     * @return количество обновленных снимков
+     */
+    int createSnapshots();
+
+    /**
+     * Пересобирает балансы всех счетов по журналу
+     * @return количество проверенных и исправленных счетов
+     */
+    LedgerRebuildResultDto rebuildBalances();
+}
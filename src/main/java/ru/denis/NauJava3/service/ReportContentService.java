@@ -0,0 +1,26 @@
+package ru.denis.NauJava3.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Сервис хранения содержимого отчетов в виде сжатых gzip фрагментов.
+ */
+public interface ReportContentService {
+
+    /**
+     * Сохранить содержимое отчета, заменив ранее сохраненное
+     * @param reportId ID отчета
+     * @param compressedContent содержимое, сжатое gzip
+     */
+    void saveContent(Long reportId, byte[] compressedContent);
+
+    /**
+     * Записать содержимое отчета в поток
+     * @param reportId ID отчета
+     * @param out поток для записи
+     * @param decompress true - записать распакованное содержимое, false - сжатое gzip как есть
+     * @throws IOException при ошибке записи в поток
+     */
+    void writeContent(Long reportId, OutputStream out, boolean decompress) throws IOException;
+}
@@ -0,0 +1,71 @@
+package ru.denis.NauJava3.service;
+
+import java.util.List;
+
+/**
+ * Очередь заданий на формирование отчетов, хранящаяся в таблице отчетов.
+ * Задания выдаются экземплярам приложения в аренду; аренда продлевается,
+ * пока отчет формируется, а задания с истекшей арендой берет другой экземпляр.
+ */
+public interface ReportJobQueue {
+
+    /**
+     * Взять в работу указанный отчет
+     * @param reportId ID отчета
+     * @return true, если аренда получена этим экземпляром
+     */
+    boolean claim(Long reportId);
+
+    /**
+     * Взять в работу готовые к формированию отчеты.
+     * Отчеты с истекшей арендой, исчерпавшие попытки, получают статус ERROR
+     * @param limit максимальное количество отчетов
+     * @return ID отчетов, аренда которых получена этим экземпляром
+     */
+    List<Long> claimBatch(int limit);
+
+    /**
+     * Продлить аренду формируемого отчета
+     * @param reportId ID отчета
+     * @return false, если аренда больше не принадлежит этому экземпляру
+     */
+    boolean renewLease(Long reportId);
+
+    /**
+     * Сохранить сформированный отчет
+     * @param reportId ID отчета
+     * @param compressedContent содержимое отчета, сжатое gzip
+     * @param creationTime время формирования в миллисекундах
+     * @return false, если аренда больше не принадлежит этому экземпляру
+     */
+    boolean complete(Long reportId, byte[] compressedContent, long creationTime);
+
+    /**
+     * Зафиксировать неудачную попытку формирования отчета
+     * @param reportId ID отчета
+     * @param message сообщение об ошибке
+     */
+    void fail(Long reportId, String message);
+
+    /**
+     * Завершить формирование отчета ошибкой без повторных попыток
+     * (например, при превышении времени формирования, которое повторится и при следующей попытке)
+     * @param reportId ID отчета
+     * @param message сообщение об ошибке
+     */
+    void abort(Long reportId, String message);
+
+    /**
+     * Вернуть в очередь отчет, который этот экземпляр не смог запустить
+     * @param reportId ID отчета
+     */
+    void release(Long reportId);
+
+    /**
+     * Отменить формирование отчета
+     * @param reportId ID отчета
+     * @param message сообщение, сохраняемое в отчете
+     * @return false, если отчет уже сформирован, завершился ошибкой или отменен
+     */
+    boolean cancel(Long reportId, String message);
+}
@@ -1,6 +1,10 @@
 package ru.denis.NauJava3.service;
 
+import ru.denis.NauJava3.dto.ReportStatusDto;
 import ru.denis.NauJava3.entity.Report;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.CompletableFuture;
 
 public interface ReportService {
@@ -12,6 +16,22 @@ public interface ReportService {
      */
     Report getReport(Long id);
 
+    /**
+     * Получить состояние отчета без его содержимого
+     * @param id ID отчета
+     * @return состояние отчета
+     */
+    ReportStatusDto getReportStatus(Long id);
+
+    /**
+     * Записать содержимое сформированного отчета в поток
+     * @param report состояние сформированного отчета
+     * @param out поток для записи
+     * @param decompress true - записать HTML, false - записать HTML, сжатый gzip
+     * @throws IOException при ошибке записи в поток
+     */
+    void writeReportContent(ReportStatusDto report, OutputStream out, boolean decompress) throws IOException;
+
     /**
      * Создать новый отчет
      * @return ID созданного отчета
@@ -24,4 +44,10 @@ public interface ReportService {
      * @return CompletableFuture<Void>
      */
     CompletableFuture<Void> generateReportAsync(Long reportId);
+
+    /**
+     * Отменить формирование отчета
+     * @param reportId ID отчета
+     */
+    void cancelReport(Long reportId);
 }
@@ -0,0 +1,60 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.entity.Budget;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Сервис для поддержки дневных агрегатов транзакций по категориям.
+ */
+public interface SpendingAggregateService {
+    /**
+     * Учитывает транзакцию в агрегате за её день.
+     * Должен вызываться в той же транзакции БД, что и сохранение транзакции.
+     * @param transaction сохраненная транзакция
+     */
+    void addTransaction(Transaction transaction);
+
+    /**
+     * Учитывает набор транзакций, выполняя один upsert на каждый затронутый агрегат.
+     * Должен вызываться в той же транзакции БД, что и сохранение транзакций.
+     * @param transactions сохраненные транзакции
+     */
+    void addTransactions(Collection<Transaction> transactions);
+
+    /**
+     * Исключает транзакцию из агрегата за её день.
+     * Должен вызываться в той же транзакции БД, что и удаление транзакции.
+     * @param transaction удаляемая транзакция
+     */
+    void removeTransaction(Transaction transaction);
+
+    /**
+     * Возвращает сумму транзакций пользователя по категории за период
+     * @param user пользователь
+     * @param category категория
+     * @param startDate первый день периода
+     * @param endDate последний день периода
+     * @return сумма транзакций за период
+     */
+    BigDecimal getSpentAmount(User user, Category category, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Возвращает потраченные суммы по всем бюджетам пользователя, вычисленные одним запросом
+     * @param user владелец бюджетов
+     * @return отображение ID бюджета {@link Budget} на потраченную сумму
+     */
+    Map<Long, BigDecimal> getSpentAmountsByBudget(User user);
+
+    /**
+     * Пересобирает все агрегаты по таблице транзакций
+     * @return количество записанных агрегатов
+     */
+    int rebuildAggregates();
+}
@@ -0,0 +1,34 @@
+package ru.denis.NauJava3.service;
+
+import ru.denis.NauJava3.dto.TransactionImportResultDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Сервис пакетного импорта транзакций (например, банковской выписки)
+ * по счетам текущего пользователя.
+ * Все строки проверяются до начала записи, после чего транзакции
+ * сохраняются порциями, каждая порция фиксируется отдельной транзакцией БД.
+ * Импорт, вызванный в существующей транзакции БД, сохраняется целиком в ней.
+ */
+public interface TransactionImportService {
+    /**
+     * Импортирует транзакции из CSV с заголовком.
+     * Названия колонок совпадают со свойствами {@link TransactionRequest}:
+     * accountId, categoryId, amount, type, date (необязательно), description (необязательно)
+     * @param csv поток с содержимым CSV в кодировке UTF-8
+     * @return итог импорта
+     * @throws IOException при ошибке чтения потока
+     */
+    TransactionImportResultDto importCsv(InputStream csv) throws IOException;
+
+    /**
+     * Импортирует транзакции из списка
+     * @param requests строки для импорта
+     * @return итог импорта
+     */
+    TransactionImportResultDto importTransactions(List<TransactionRequest> requests);
+}
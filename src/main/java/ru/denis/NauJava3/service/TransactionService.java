@@ -1,5 +1,9 @@
 package ru.denis.NauJava3.service;
 
+import ru.denis.NauJava3.dto.TransactionDto;
+import ru.denis.NauJava3.dto.TransactionPageDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.dto.TransferDto;
 import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.enums.OperationType;
 import java.math.BigDecimal;
@@ -16,6 +20,9 @@ public interface TransactionService {
      * @param description описание транзакции
      * @param type тип транзакции (доход/расход)
      * @return созданная транзакция
+     * @throws ru.denis.NauJava3.exception.ResourceNotFoundException если счет не найден
+     * @throws ru.denis.NauJava3.exception.BadRequestException если категория не найдена или не соответствует
+     *         типу операции либо на счете недостаточно средств
      */
     Transaction createTransaction(
             Long accountId,
@@ -26,8 +33,41 @@ public interface TransactionService {
     );
 
     /**
-     * Удаляет транзакцию и восстанавливает баланс счета
+     * Создает транзакцию по счету текущего пользователя; датой транзакции
+     * становится время создания
+     * @param request счет, категория, сумма, тип и описание транзакции
+     * @return созданная транзакция
+     */
+    TransactionDto createCurrentUserTransaction(TransactionRequest request);
+
+    /**
+     * Переводит сумму между двумя счетами текущего пользователя: балансы обоих счетов
+     * изменяются в одной транзакции БД
+     * @param fromAccountId ID счета списания
+     * @param toAccountId ID счета зачисления
+     * @param amount сумма перевода
+     * @param description описание перевода
+     * @return проведенный перевод
+     */
+    TransferDto createTransfer(
+            Long fromAccountId,
+            Long toAccountId,
+            BigDecimal amount,
+            String description
+    );
+
+    /**
+     * Удаляет транзакцию и восстанавливает баланс счета.
+     * Операции перевода отдельно не удаляются
      * @param transactionId ID транзакции
      */
     void deleteTransaction(Long transactionId);
+
+    /**
+     * Возвращает страницу транзакций текущего пользователя, от новых к старым
+     * @param cursor курсор из предыдущей страницы или null для первой страницы
+     * @param size размер страницы
+     * @return транзакции страницы и курсор следующей страницы
+     */
+    TransactionPageDto getCurrentUserTransactions(String cursor, int size);
 }
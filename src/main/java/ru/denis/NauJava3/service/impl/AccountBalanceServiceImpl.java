@@ -0,0 +1,220 @@
+package ru.denis.NauJava3.service.impl;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.config.MetricsConfig;
+import ru.denis.NauJava3.dto.AccountBalanceDto;
+import ru.denis.NauJava3.dto.DailyBalanceChangeView;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.AccountBalanceSnapshot;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
+import ru.denis.NauJava3.repository.AccountBalanceSnapshotRepository;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.TransactionRepository;
+import ru.denis.NauJava3.service.AccountBalanceService;
+import ru.denis.NauJava3.service.CurrentUserService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация сервиса контрольных точек баланса счетов.
+ * Баланс на конец дня вычисляется от ближайшей контрольной точки
+ * с досуммированием транзакций между ними, поэтому стоимость запроса
+ * определяется числом транзакций после контрольной точки, а не возрастом счета.
+ */
+@Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+public class AccountBalanceServiceImpl implements AccountBalanceService {
+
+    /** Количество счетов, контрольные точки которых записываются одним запросом */
+    private static final int SNAPSHOT_CHUNK_SIZE = 1000;
+
+    private final AccountBalanceSnapshotRepository snapshotRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final CurrentUserService currentUserService;
+
+    /** Максимальная длина запрашиваемого периода истории баланса в днях */
+    private final int maxHistoryDays;
+
+    @Autowired
+    public AccountBalanceServiceImpl(
+            AccountBalanceSnapshotRepository snapshotRepository,
+            AccountRepository accountRepository,
+            TransactionRepository transactionRepository,
+            CurrentUserService currentUserService,
+            @Value("${app.balance.history.max-days:366}") int maxHistoryDays) {
+        this.snapshotRepository = snapshotRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.currentUserService = currentUserService;
+        this.maxHistoryDays = maxHistoryDays;
+    }
+
+    @Override
+    @Transactional
+    public void addTransaction(Transaction transaction) {
+        snapshotRepository.addAmount(transaction.getAccount().getId(),
+                transaction.getDate().toLocalDate(), balanceChange(transaction));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Изменения группируются по счету и дню в памяти; счета обрабатываются
+     * в порядке возрастания ID, как и при изменении их балансов.
+     */
+    @Override
+    @Transactional
+    public void addTransactions(Collection<Transaction> transactions) {
+        Map<Long, Map<LocalDate, BigDecimal>> deltas = new TreeMap<>();
+        for (Transaction transaction : transactions) {
+            deltas.computeIfAbsent(transaction.getAccount().getId(), id -> new TreeMap<>())
+                    .merge(transaction.getDate().toLocalDate(), balanceChange(transaction), BigDecimal::add);
+        }
+        deltas.forEach((accountId, days) -> days.forEach((day, amount) -> {
+            if (amount.signum() != 0) {
+                snapshotRepository.addAmount(accountId, day, amount);
+            }
+        }));
+    }
+
+    @Override
+    @Transactional
+    public void removeTransaction(Transaction transaction) {
+        snapshotRepository.addAmount(transaction.getAccount().getId(),
+                transaction.getDate().toLocalDate(), balanceChange(transaction).negate());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Счета с транзакциями за период сначала блокируются на чтение: запись транзакции
+     * по такому счету ждет завершения задачи, а задача ждет завершения уже начатых записей.
+     * Поэтому контрольные точки не пропускают корректировку параллельной записью задним числом.
+     */
+    @Override
+    @Transactional
+    public int createSnapshots(LocalDate from, LocalDate to) {
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        List<Long> accountIds = snapshotRepository.lockAccountsWithTransactions(start, end);
+
+        int written = 0;
+        for (int i = 0; i < accountIds.size(); i += SNAPSHOT_CHUNK_SIZE) {
+            List<Long> chunk = accountIds.subList(i, Math.min(i + SNAPSHOT_CHUNK_SIZE, accountIds.size()));
+            written += snapshotRepository.insertSnapshots(chunk, start, end);
+        }
+        return written;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Выполняется по расписанию после начала нового дня; если задача не выполнялась
+     * несколько дней, пропущенные дни записываются одним проходом.
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${app.balance.snapshot-cron:0 15 0 * * *}")
+    public int createMissingSnapshots() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate latest = snapshotRepository.findLatestSnapshotDate();
+        LocalDate from = latest != null ? latest.plusDays(1) : yesterday;
+        if (from.isAfter(yesterday)) {
+            return 0;
+        }
+        return createSnapshots(from, yesterday);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Все чтения выполняются в одном снимке БД, чтобы баланс счета, контрольная точка
+     * и транзакции были согласованы при параллельной записи.
+     */
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public List<AccountBalanceDto> getBalanceHistory(Long accountId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Начало периода не может быть позже конца");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxHistoryDays) {
+            throw new BadRequestException("Период не может быть длиннее " + maxHistoryDays + " дней");
+        }
+
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Счет не найден с id: " + accountId));
+        if (!account.getUser().getId().equals(currentUserService.getCurrentUser().getId())) {
+            throw new ResourceNotFoundException("Счет не найден с id: " + accountId);
+        }
+
+        BigDecimal balance = getBalance(account, from);
+        Map<LocalDate, BigDecimal> changes = transactionRepository.sumBalanceChangeByDay(
+                        accountId, from.plusDays(1).atStartOfDay(), to.plusDays(1).atStartOfDay()).stream()
+                .collect(Collectors.toMap(DailyBalanceChangeView::getDay, DailyBalanceChangeView::getAmount));
+
+        List<AccountBalanceDto> history = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            balance = balance.add(changes.getOrDefault(day, BigDecimal.ZERO));
+            history.add(new AccountBalanceDto(day, balance));
+        }
+        return history;
+    }
+
+    /**
+     * Вычисляет баланс счета на конец дня.
+     * Используется последняя контрольная точка не позже дня; если ее нет - первая
+     * контрольная точка после дня, а при отсутствии контрольных точек - текущий баланс.
+     *
+     * @param account счет
+     * @param date день
+     * @return баланс на конец дня
+     */
+    private BigDecimal getBalance(Account account, LocalDate date) {
+        LocalDateTime endOfDay = date.plusDays(1).atStartOfDay();
+
+        Optional<AccountBalanceSnapshot> before = snapshotRepository
+                .findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(account.getId(), date);
+        if (before.isPresent()) {
+            return before.get().getBalance().add(transactionRepository.sumBalanceChange(account.getId(),
+                    before.get().getSnapshotDate().plusDays(1).atStartOfDay(), endOfDay));
+        }
+
+        Optional<AccountBalanceSnapshot> after = snapshotRepository
+                .findFirstByAccountIdAndSnapshotDateGreaterThanOrderBySnapshotDateAsc(account.getId(), date);
+        if (after.isPresent()) {
+            return after.get().getBalance().subtract(transactionRepository.sumBalanceChange(account.getId(),
+                    endOfDay, after.get().getSnapshotDate().plusDays(1).atStartOfDay()));
+        }
+
+        return account.getBalance().subtract(transactionRepository.sumBalanceChangeSince(account.getId(), endOfDay));
+    }
+
+    /**
+     * @return изменение баланса счета транзакцией
+     */
+    private BigDecimal balanceChange(Transaction transaction) {
+        return transaction.getType() == OperationType.INCOME
+                ? transaction.getAmount()
+                : transaction.getAmount().negate();
+    }
+}
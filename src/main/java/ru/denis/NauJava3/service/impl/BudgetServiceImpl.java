@@ -1,37 +1,58 @@
 package ru.denis.NauJava3.service.impl;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import ru.denis.NauJava3.config.MetricsConfig;
 import ru.denis.NauJava3.dto.BudgetDto;
+import ru.denis.NauJava3.dto.BudgetStatusDto;
 import ru.denis.NauJava3.entity.Budget;
 import ru.denis.NauJava3.entity.Category;
-import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.User;
 import ru.denis.NauJava3.exception.ResourceNotFoundException;
 import ru.denis.NauJava3.repository.BudgetRepository;
 import ru.denis.NauJava3.repository.CategoryRepository;
-import ru.denis.NauJava3.repository.TransactionRepository;
-import ru.denis.NauJava3.repository.UserRepository;
 import ru.denis.NauJava3.service.BudgetService;
+import ru.denis.NauJava3.service.CurrentUserService;
+import ru.denis.NauJava3.service.SpendingAggregateService;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class BudgetServiceImpl implements BudgetService {
 
     private final BudgetRepository budgetRepository;
-    private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
+    private final CurrentUserService currentUserService;
     private final CategoryRepository categoryRepository;
+    private final SpendingAggregateService spendingAggregateService;
+
+    /** Количество проверок бюджета, показавших превышение лимита */
+    private final Counter budgetExceeded;
+
+    @Autowired
+    public BudgetServiceImpl(
+            BudgetRepository budgetRepository,
+            CurrentUserService currentUserService,
+            CategoryRepository categoryRepository,
+            SpendingAggregateService spendingAggregateService,
+            MeterRegistry meterRegistry) {
+        this.budgetRepository = budgetRepository;
+        this.currentUserService = currentUserService;
+        this.categoryRepository = categoryRepository;
+        this.spendingAggregateService = spendingAggregateService;
+        this.budgetExceeded = Counter.builder("budget.exceeded")
+                .description("Количество проверок бюджета, показавших превышение лимита")
+                .register(meterRegistry);
+    }
 
     @Override
     public Budget createBudget(BudgetDto budgetDto) {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserService.getCurrentUser();
 
         Category category = categoryRepository.findById(budgetDto.getCategoryId())
                 .orElseThrow(() -> new ResourceNotFoundException("Категория не найдена с id: " + budgetDto.getCategoryId()));
@@ -52,7 +73,7 @@ public class BudgetServiceImpl implements BudgetService {
         Budget budget = budgetRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Бюджет не найден с id: " + id));
 
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserService.getCurrentUser();
         if (!budget.getUser().getId().equals(currentUser.getId())) {
             throw new ResourceNotFoundException("Бюджет не найден с id: " + id);
         }
@@ -62,7 +83,7 @@ public class BudgetServiceImpl implements BudgetService {
 
     @Override
     public List<Budget> getCurrentUserBudgets() {
-        User currentUser = getCurrentUser();
+        User currentUser = currentUserService.getCurrentUser();
         return budgetRepository.findByUser(currentUser);
     }
 
@@ -70,35 +91,54 @@ public class BudgetServiceImpl implements BudgetService {
     public boolean isBudgetExceeded(Long budgetId) {
         Budget budget = getBudgetById(budgetId);
         BigDecimal spentAmount = calculateSpentAmount(budget);
-        return spentAmount.compareTo(budget.getAmountLimit()) > 0;
+        return checkExceeded(budget, spentAmount);
     }
 
-    private BigDecimal calculateSpentAmount(Budget budget) {
-        LocalDateTime startDateTime = budget.getPeriodStart().atStartOfDay();
-        LocalDateTime endDateTime = budget.getPeriodEnd().atTime(23, 59, 59);
-
-        List<Transaction> transactions = transactionRepository.findByUserAndCategoryAndDateBetween(
-                budget.getUser(),
-                budget.getCategory(),
-                startDateTime,
-                endDateTime
-        );
-
-        return transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    @Override
+    public List<BudgetStatusDto> getCurrentUserBudgetStatuses() {
+        User currentUser = currentUserService.getCurrentUser();
+        List<Budget> budgets = budgetRepository.findByUser(currentUser);
+        Map<Long, BigDecimal> spentAmounts = spendingAggregateService.getSpentAmountsByBudget(currentUser);
+
+        return budgets.stream()
+                .map(budget -> {
+                    BigDecimal spentAmount = spentAmounts.getOrDefault(budget.getId(), BigDecimal.ZERO);
+                    return new BudgetStatusDto(
+                            budget,
+                            spentAmount,
+                            budget.getAmountLimit().subtract(spentAmount),
+                            checkExceeded(budget, spentAmount)
+                    );
+                })
+                .toList();
     }
 
     /**
-     * Получает текущего аутентифицированного пользователя из контекста безопасности
-     * @return Объект текущего пользователя
-     * @throws ResourceNotFoundException если пользователь не найден
+     * Проверяет превышение лимита бюджета и учитывает превышение в метрике budget.exceeded.
+     * @param budget бюджет
+     * @param spentAmount потраченная сумма
+     * @return true, если потраченная сумма больше лимита
      */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+    private boolean checkExceeded(Budget budget, BigDecimal spentAmount) {
+        boolean exceeded = spentAmount.compareTo(budget.getAmountLimit()) > 0;
+        if (exceeded) {
+            budgetExceeded.increment();
+        }
+        return exceeded;
+    }
 
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден: " + username));
+    /**
+     * Вычисляет сумму транзакций по категории бюджета за период его действия.
+     * Использует дневные агрегаты, поэтому стоимость не зависит от числа транзакций.
+     * @param budget бюджет
+     * @return потраченная сумма
+     */
+    private BigDecimal calculateSpentAmount(Budget budget) {
+        return spendingAggregateService.getSpentAmount(
+                budget.getUser(),
+                budget.getCategory(),
+                budget.getPeriodStart(),
+                budget.getPeriodEnd()
+        );
     }
 }
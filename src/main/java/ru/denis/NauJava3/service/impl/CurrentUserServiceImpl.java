@@ -0,0 +1,55 @@
+package ru.denis.NauJava3.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
+import ru.denis.NauJava3.repository.UserRepository;
+import ru.denis.NauJava3.service.CurrentUserService;
+
+/**
+ * Реализация сервиса текущего пользователя.
+ * При входе через форму принципалом является сущность {@link User}, загруженная
+ * {@link ru.denis.NauJava3.service.CustomUserDetailsService}, и она используется повторно.
+ * Для остальных видов аутентификации пользователь загружается по имени
+ * и сохраняется в атрибуте HTTP-запроса, общем для всех сервисов.
+ */
+@Service
+@RequiredArgsConstructor
+public class CurrentUserServiceImpl implements CurrentUserService {
+
+    /** Атрибут запроса с загруженным текущим пользователем */
+    static final String CURRENT_USER_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".currentUser";
+
+    private final UserRepository userRepository;
+
+    @Override
+    public User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new ResourceNotFoundException("Пользователь не аутентифицирован");
+        }
+        if (authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+
+        String username = authentication.getName();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes != null
+                && requestAttributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof User user
+                && user.getUsername().equals(username)) {
+            return user;
+        }
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("Пользователь не найден: " + username));
+        if (requestAttributes != null) {
+            requestAttributes.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,385 @@
+package ru.denis.NauJava3.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.DataGenerationResultDto;
+import ru.denis.NauJava3.dto.DataGenerationSettings;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.service.DataGeneratorService;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Реализация сервиса генерации синтетических данных.
+ * Записи загружаются командой COPY, поэтому загрузка десятков миллионов транзакций
+ * занимает минуты. Распределения:
+ * <ul>
+ *     <li>транзакции распределены по пользователям и категориям по степенному закону (закон Ципфа);</li>
+ *     <li>даты учитывают сезонность (пик в декабре), выходные дни и дни зарплаты в начале месяца;</li>
+ *     <li>суммы распределены логнормально, доходы на порядок крупнее расходов.</li>
+ * </ul>
+ * Идентификаторы транзакций резервируются в последовательности transactions_seq,
+ * поэтому транзакции, создаваемые приложением после генерации, не пересекаются с ними.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataGeneratorServiceImpl implements DataGeneratorService {
+
+    /** Доля категорий доходов */
+    private static final int INCOME_CATEGORY_RATIO = 5;
+
+    /** Доля транзакций доходов в процентах */
+    private static final int INCOME_TRANSACTION_PERCENT = 15;
+
+    private static final String[] COLOR_CODES = {
+            "#E53935", "#8E24AA", "#3949AB", "#039BE5", "#00897B", "#7CB342", "#FDD835", "#FB8C00"
+    };
+
+    private static final Account.AccountType[] ACCOUNT_TYPES = Account.AccountType.values();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+
+    @Override
+    @Transactional
+    public DataGenerationResultDto generate(DataGenerationSettings settings) {
+        String usernamePattern = settings.getUsernamePrefix().replace("_", "\\_") + "%";
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE username LIKE ?", Integer.class, usernamePattern);
+        if (existing != null && existing > 0) {
+            throw new IllegalStateException("Пользователи с префиксом " + settings.getUsernamePrefix()
+                    + " уже созданы: " + existing);
+        }
+
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        LocalDate endDate = settings.getEndDate() != null ? settings.getEndDate() : LocalDate.now();
+
+        long[] userIds = insertUsers(settings, endDate, usernamePattern);
+        int[] accountOffsets = new int[userIds.length + 1];
+        long[] accountIds = insertAccounts(settings, random, userIds, accountOffsets);
+        long[] expenseCategoryIds = insertCategories(settings, OperationType.EXPENSE);
+        long[] incomeCategoryIds = insertCategories(settings, OperationType.INCOME);
+        int budgets = insertBudgets(settings, random, endDate, userIds, expenseCategoryIds);
+        long firstTransactionId = insertTransactions(settings, random, endDate, userIds, accountIds, accountOffsets,
+                expenseCategoryIds, incomeCategoryIds);
+
+        // Агрегаты считаются только по созданным транзакциям: у новых пользователей их еще нет
+        log.info("Расчет дневных агрегатов по созданным транзакциям");
+        jdbcTemplate.update("INSERT INTO daily_spendings (user_id, category_id, spending_date, amount) " +
+                "SELECT user_id, category_id, CAST(date AS date), SUM(amount) FROM transactions " +
+                "WHERE id BETWEEN ? AND ? GROUP BY user_id, category_id, CAST(date AS date)",
+                firstTransactionId, firstTransactionId + settings.getTransactions() - 1);
+
+        // Сгенерированный баланс счета становится начальной проводкой журнала (ее записывает триггер),
+        // к которой добавляются проводки созданных транзакций; баланс приводится к проекции журнала
+        log.info("Запись журнала операций по созданным транзакциям");
+        jdbcTemplate.update("INSERT INTO ledger_entries (account_id, seq, entry_type, amount, transaction_id) " +
+                "SELECT account_id, " +
+                "COALESCE((SELECT MAX(e.seq) FROM ledger_entries e WHERE e.account_id = t.account_id), 0) " +
+                "+ ROW_NUMBER() OVER (PARTITION BY account_id ORDER BY date, id), " +
+                "CASE WHEN type = 'INCOME' THEN 'CREDIT' ELSE 'DEBIT' END, amount, id " +
+                "FROM transactions t WHERE id BETWEEN ? AND ?",
+                firstTransactionId, firstTransactionId + settings.getTransactions() - 1);
+        jdbcTemplate.update("UPDATE accounts a SET balance = a.balance + d.amount " +
+                "FROM (SELECT account_id, SUM(CASE WHEN type = 'INCOME' THEN amount ELSE -amount END) AS amount " +
+                "FROM transactions WHERE id BETWEEN ? AND ? GROUP BY account_id) d WHERE a.id = d.account_id",
+                firstTransactionId, firstTransactionId + settings.getTransactions() - 1);
+        jdbcTemplate.execute("ANALYZE users, user_roles, accounts, categories, budgets, transactions, " +
+                "daily_spendings, ledger_entries");
+
+        return new DataGenerationResultDto(userIds.length, accountIds.length,
+                expenseCategoryIds.length + incomeCategoryIds.length, settings.getTransactions(), budgets);
+    }
+
+    private long[] insertUsers(DataGenerationSettings settings, LocalDate endDate, String usernamePattern) {
+        String password = passwordEncoder.encode(settings.getPassword());
+        LocalDateTime registrationStart = endDate.minusDays(settings.getDays()).atStartOfDay();
+
+        copy("COPY users (username, email, password, registration_date) FROM STDIN", rows -> {
+            for (int i = 0; i < settings.getUsers(); i++) {
+                String username = settings.getUsernamePrefix() + i;
+                rows.value(username).value(username + "@example.com").value(password)
+                        .value(registrationStart.plusMinutes(i)).endRow();
+            }
+        });
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, roles) " +
+                "SELECT id, 'USER' FROM users WHERE username LIKE ?", usernamePattern);
+
+        return ids("SELECT id FROM users WHERE username LIKE ? ORDER BY id", usernamePattern);
+    }
+
+    /**
+     * Создает от одного до maxAccountsPerUser счетов каждому пользователю.
+     * Счета пользователя i занимают в результате позиции с accountOffsets[i] по accountOffsets[i + 1].
+     */
+    private long[] insertAccounts(DataGenerationSettings settings, SplittableRandom random,
+                                  long[] userIds, int[] accountOffsets) {
+        for (int i = 0; i < userIds.length; i++) {
+            accountOffsets[i + 1] = accountOffsets[i] + 1 + random.nextInt(settings.getMaxAccountsPerUser());
+        }
+        long firstAccountId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM accounts", Long.class);
+
+        copy("COPY accounts (name, balance, currency, account_type, user_id) FROM STDIN", rows -> {
+            for (int i = 0; i < userIds.length; i++) {
+                for (int a = accountOffsets[i]; a < accountOffsets[i + 1]; a++) {
+                    Account.AccountType type = ACCOUNT_TYPES[random.nextInt(ACCOUNT_TYPES.length)];
+                    rows.value("Account " + (a - accountOffsets[i] + 1))
+                            .value(logNormalAmount(random, 10.0, 1.0))
+                            .value("RUB")
+                            .value(type.name())
+                            .value(userIds[i])
+                            .endRow();
+                }
+            }
+        });
+
+        return ids("SELECT id FROM accounts WHERE id > ? ORDER BY id", firstAccountId);
+    }
+
+    private long[] insertCategories(DataGenerationSettings settings, OperationType type) {
+        int incomeCategories = Math.max(1, settings.getCategories() / INCOME_CATEGORY_RATIO);
+        int count = type == OperationType.INCOME
+                ? incomeCategories
+                : Math.max(1, settings.getCategories() - incomeCategories);
+        String prefix = "Gen " + type.name().toLowerCase() + " ";
+        long firstCategoryId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM categories", Long.class);
+
+        copy("COPY categories (name, type, color_code) FROM STDIN", rows -> {
+            for (int i = 0; i < count; i++) {
+                rows.value(prefix + i).value(type.name()).value(COLOR_CODES[i % COLOR_CODES.length]).endRow();
+            }
+        });
+
+        return ids("SELECT id FROM categories WHERE id > ? ORDER BY id", firstCategoryId);
+    }
+
+    /**
+     * Бюджеты на месяц последнего дня периода по популярным категориям расходов.
+     */
+    private int insertBudgets(DataGenerationSettings settings, SplittableRandom random, LocalDate endDate,
+                              long[] userIds, long[] expenseCategoryIds) {
+        WeightedSampler categories = WeightedSampler.zipf(expenseCategoryIds.length, settings.getSkew());
+        LocalDate periodStart = endDate.withDayOfMonth(1);
+        LocalDate periodEnd = endDate.withDayOfMonth(endDate.lengthOfMonth());
+
+        copy("COPY budgets (name, amount_limit, period_start, period_end, user_id, category_id) FROM STDIN", rows -> {
+            for (long userId : userIds) {
+                for (int b = 0; b < settings.getBudgetsPerUser(); b++) {
+                    rows.value("Budget " + (b + 1))
+                            .value(logNormalAmount(random, 9.0, 0.7))
+                            .value(periodStart)
+                            .value(periodEnd)
+                            .value(userId)
+                            .value(expenseCategoryIds[categories.sample(random)])
+                            .endRow();
+                }
+            }
+        });
+
+        return userIds.length * settings.getBudgetsPerUser();
+    }
+
+    /**
+     * @return идентификатор первой созданной транзакции; идентификаторы идут подряд
+     */
+    private long insertTransactions(DataGenerationSettings settings, SplittableRandom random, LocalDate endDate,
+                                    long[] userIds, long[] accountIds, int[] accountOffsets,
+                                    long[] expenseCategoryIds, long[] incomeCategoryIds) {
+        long count = settings.getTransactions();
+        WeightedSampler users = WeightedSampler.zipf(userIds.length, settings.getSkew());
+        WeightedSampler expenseCategories = WeightedSampler.zipf(expenseCategoryIds.length, settings.getSkew());
+        WeightedSampler incomeCategories = WeightedSampler.zipf(incomeCategoryIds.length, settings.getSkew());
+        LocalDate startDate = endDate.minusDays(settings.getDays() - 1L);
+        WeightedSampler days = WeightedSampler.seasonal(startDate, settings.getDays());
+
+        // Резервирует count идентификаторов: следующий блок, выданный Hibernate, начнется после них
+        long firstId = jdbcTemplate.queryForObject("SELECT nextval('transactions_seq')", Long.class);
+        jdbcTemplate.queryForObject("SELECT setval('transactions_seq', ?)", Long.class, firstId + count);
+
+        copy("COPY transactions (id, amount, date, type, user_id, account_id, category_id) FROM STDIN", rows -> {
+            for (long i = 0; i < count; i++) {
+                int user = users.sample(random);
+                int account = accountOffsets[user] + random.nextInt(accountOffsets[user + 1] - accountOffsets[user]);
+                boolean income = random.nextInt(100) < INCOME_TRANSACTION_PERCENT;
+                long categoryId = income
+                        ? incomeCategoryIds[incomeCategories.sample(random)]
+                        : expenseCategoryIds[expenseCategories.sample(random)];
+
+                rows.value(firstId + i)
+                        .value(income ? logNormalAmount(random, 10.5, 0.5) : logNormalAmount(random, 6.5, 1.0))
+                        .value(startDate.plusDays(days.sample(random)).atStartOfDay().plusSeconds(secondOfDay(random)))
+                        .value(income ? OperationType.INCOME.name() : OperationType.EXPENSE.name())
+                        .value(userIds[user])
+                        .value(accountIds[account])
+                        .value(categoryId)
+                        .endRow();
+
+                if ((i + 1) % 1_000_000 == 0) {
+                    log.info("Сгенерировано транзакций: {} из {}", i + 1, count);
+                }
+            }
+        });
+
+        return firstId;
+    }
+
+    /**
+     * Время операции: в основном с 8 до 22 часов.
+     */
+    private static int secondOfDay(SplittableRandom random) {
+        return random.nextInt(10) == 0
+                ? random.nextInt(24 * 3600)
+                : 8 * 3600 + random.nextInt(14 * 3600);
+    }
+
+    /**
+     * Сумма с логнормальным распределением, округленная до копеек и не меньше 1.
+     */
+    private static String logNormalAmount(SplittableRandom random, double mu, double sigma) {
+        long cents = Math.round(Math.exp(mu + sigma * random.nextGaussian()) * 100);
+        cents = Math.max(cents, 100);
+        return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+
+    private long[] ids(String sql, Object... args) {
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, args);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Загружает строки командой COPY в текстовом формате через соединение текущей транзакции.
+     */
+    private void copy(String sql, RowProducer producer) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                CopyRows rows = new CopyRows(copyIn);
+                producer.produce(rows);
+                rows.flush();
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface RowProducer {
+        void produce(CopyRows rows) throws SQLException;
+    }
+
+    /**
+     * Буфер строк COPY в текстовом формате; значения разделяются табуляцией.
+     * Генерируемые значения не содержат табуляций, переводов строк и обратной косой черты,
+     * поэтому экранирование не требуется.
+     */
+    private static final class CopyRows {
+
+        private static final int FLUSH_SIZE = 1 << 20;
+
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 4096);
+        private boolean rowStart = true;
+
+        private CopyRows(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        CopyRows value(Object value) {
+            if (!rowStart) {
+                buffer.append('\t');
+            }
+            buffer.append(value);
+            rowStart = false;
+            return this;
+        }
+
+        void endRow() throws SQLException {
+            buffer.append('\n');
+            rowStart = true;
+            if (buffer.length() >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Выбор индекса с заданными весами по накопленным суммам весов.
+     */
+    private static final class WeightedSampler {
+
+        private final double[] cumulative;
+
+        private WeightedSampler(double[] weights) {
+            cumulative = new double[weights.length];
+            double sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        /**
+         * Закон Ципфа: вес элемента с рангом k пропорционален 1 / k^skew.
+         */
+        static WeightedSampler zipf(int size, double skew) {
+            double[] weights = new double[size];
+            for (int k = 0; k < size; k++) {
+                weights[k] = 1.0 / Math.pow(k + 1, skew);
+            }
+            return new WeightedSampler(weights);
+        }
+
+        /**
+         * Веса дней периода: сезонный рост к концу декабря, выходные и первые дни месяца.
+         */
+        static WeightedSampler seasonal(LocalDate startDate, int days) {
+            double[] weights = new double[days];
+            for (int d = 0; d < days; d++) {
+                LocalDate date = startDate.plusDays(d);
+                double weight = 1 + 0.3 * Math.cos(2 * Math.PI * (date.getDayOfYear() - 358) / 365.25);
+                if (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                    weight += 0.3;
+                }
+                if (date.getDayOfMonth() <= 3) {
+                    weight += 0.2;
+                }
+                weights[d] = weight;
+            }
+            return new WeightedSampler(weights);
+        }
+
+        int sample(SplittableRandom random) {
+            double value = random.nextDouble() * cumulative[cumulative.length - 1];
+            int index = Arrays.binarySearch(cumulative, value);
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package ru.denis.NauJava3.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.denis.NauJava3.config.MetricsConfig;
+import ru.denis.NauJava3.entity.IdempotencyKey;
+import ru.denis.NauJava3.entity.IdempotencyKeyId;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ConflictException;
+import ru.denis.NauJava3.repository.IdempotencyKeyRepository;
+import ru.denis.NauJava3.service.CurrentUserService;
+import ru.denis.NauJava3.service.IdempotencyService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Реализация сервиса идемпотентного выполнения запросов.
+ * Ключ резервируется атомарным upsert до выполнения запроса, поэтому из параллельных
+ * повторов выполняется только один, а остальные получают конфликт. Резерв фиксируется
+ * отдельной короткой транзакцией и не удерживает блокировок, пока выполняется сам запрос.
+ * Запрос выполняется в одной транзакции БД, в которой сохраняется и его ответ, поэтому
+ * изменения запроса фиксируются только вместе с ответом: запросы, фиксирующие изменения
+ * порциями, в этой транзакции сохраняются целиком или не сохраняются совсем.
+ * Резерв действует в течение срока аренды: если выполнявший запрос экземпляр приложения
+ * остановился, ключ можно использовать повторно после истечения аренды, не дожидаясь
+ * срока хранения ключа.
+ */
+@Slf4j
+@Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    /** Максимальная длина ключа идемпотентности */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final CurrentUserService currentUserService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Срок хранения ключа */
+    private final Duration ttl;
+
+    /** Срок аренды резерва ключа выполняемым запросом */
+    private final Duration lease;
+
+    /** Количество ключей, удаляемых одной транзакцией */
+    private final int purgeBatchSize;
+
+    /** Количество повторов запросов, получивших сохраненный ответ */
+    private final Counter replays;
+
+    @Autowired
+    public IdempotencyServiceImpl(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            CurrentUserService currentUserService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${app.idempotency.lease:PT5M}") Duration lease,
+            @Value("${app.idempotency.purge-batch-size:1000}") int purgeBatchSize) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.currentUserService = currentUserService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.lease = lease;
+        this.purgeBatchSize = purgeBatchSize;
+        this.replays = Counter.builder("idempotency.replays")
+                .description("Количество повторов запросов, получивших сохраненный ответ")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ResponseEntity<?> execute(String key, String operation, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Ключ идемпотентности должен содержать от 1 до "
+                    + MAX_KEY_LENGTH + " символов");
+        }
+
+        Long userId = currentUserService.getCurrentUser().getId();
+        String requestHash = hash(operation, request);
+        // Время резерва сохраняется с точностью колонки, чтобы по нему находить свой резерв
+        LocalDateTime reservedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Integer reserved = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.reserve(userId, key, requestHash, reservedAt, reservedAt.plus(lease)));
+        if (reserved == null || reserved == 0) {
+            return replay(userId, key, requestHash);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                ResponseEntity<?> result = action.get();
+                if (result.getStatusCode().is2xxSuccessful()) {
+                    complete(userId, key, reservedAt, result);
+                } else {
+                    status.setRollbackOnly();
+                }
+                return result;
+            });
+        } catch (RuntimeException | Error e) {
+            release(userId, key, reservedAt);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            release(userId, key, reservedAt);
+        }
+        return response;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Выполняется по расписанию; каждая порция удаляется отдельной транзакцией,
+     * поэтому удаление большого количества ключей не удерживает долгих блокировок.
+     */
+    @Override
+    @Scheduled(cron = "${app.idempotency.purge-cron:0 0 * * * *}")
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        int deleted;
+        do {
+            Integer batch = transactionTemplate.execute(status ->
+                    idempotencyKeyRepository.deleteExpired(now, purgeBatchSize));
+            deleted = batch != null ? batch : 0;
+            purged += deleted;
+        } while (deleted == purgeBatchSize);
+
+        if (purged > 0) {
+            log.info("Удалено просроченных ключей идемпотентности: {}", purged);
+        }
+        return purged;
+    }
+
+    /**
+     * Возвращает сохраненный ответ на повтор запроса. Тело возвращается в том виде,
+     * в котором было сохранено, поэтому совпадает с ответом первого выполнения
+     * @param userId ID пользователя
+     * @param key ключ идемпотентности
+     * @param requestHash хеш повторного запроса
+     * @return ответ первого выполнения
+     */
+    private ResponseEntity<?> replay(Long userId, String key, String requestHash) {
+        IdempotencyKey stored = idempotencyKeyRepository.findById(new IdempotencyKeyId(userId, key))
+                .orElseThrow(() -> new ConflictException("Запрос с этим ключом идемпотентности еще выполняется"));
+        if (stored.getResponseStatus() == null) {
+            throw new ConflictException("Запрос с этим ключом идемпотентности еще выполняется");
+        }
+        if (!stored.getRequestHash().equals(requestHash)) {
+            throw new BadRequestException("Ключ идемпотентности уже использован для другого запроса");
+        }
+
+        replays.increment();
+        return ResponseEntity.status(stored.getResponseStatus())
+                .header(REPLAYED_HEADER, "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(stored.getResponseBody());
+    }
+
+    /**
+     * Сохраняет успешный ответ в транзакции БД запроса
+     * @param userId ID пользователя
+     * @param key ключ идемпотентности
+     * @param reservedAt время резерва ключа
+     * @param response ответ запроса
+     * @throws ConflictException если аренда резерва истекла и ключ зарезервирован другим запросом;
+     *         изменения запроса при этом откатываются
+     */
+    private void complete(Long userId, String key, LocalDateTime reservedAt, ResponseEntity<?> response) {
+        String body = toJson(response.getBody());
+        int completed = idempotencyKeyRepository.complete(userId, key, reservedAt,
+                response.getStatusCode().value(), body, LocalDateTime.now().plus(ttl));
+        if (completed == 0) {
+            throw new ConflictException("Резерв ключа идемпотентности истек до завершения запроса");
+        }
+    }
+
+    private void release(Long userId, String key, LocalDateTime reservedAt) {
+        transactionTemplate.executeWithoutResult(status -> idempotencyKeyRepository.release(userId, key, reservedAt));
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ запроса", e);
+        }
+    }
+
+    /**
+     * Вычисляет SHA-256 операции и тела запроса
+     * @param operation название операции
+     * @param request JSON-объект или байты исходного содержимого запроса
+     * @return хеш в шестнадцатеричном виде
+     */
+    private String hash(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request instanceof byte[] bytes ? bytes : objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Некорректное тело запроса");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.denis.NauJava3.service.impl;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.denis.NauJava3.config.MetricsConfig;
+import ru.denis.NauJava3.dto.LedgerEntryDto;
+import ru.denis.NauJava3.dto.LedgerRebuildResultDto;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.LedgerEntryRepository;
+import ru.denis.NauJava3.service.CurrentUserService;
+import ru.denis.NauJava3.service.LedgerService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Реализация сервиса журнала операций.
+ * Проводки добавляются в той же транзакции БД, что и изменение баланса счета,
+ * поэтому баланс всегда совпадает с проекцией зафиксированного журнала.
+ * Пересборка выполняется параллельно порциями счетов, каждая порция - в отдельной транзакции.
+ */
+@Slf4j
+@Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
+public class LedgerServiceImpl implements LedgerService {
+
+    /** Количество транзакций, проводки по которым добавляются одним запросом */
+    private static final int APPEND_CHUNK_SIZE = 1000;
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final AccountRepository accountRepository;
+    private final CurrentUserService currentUserService;
+
+    /** Транзакции порций пересборки, выполняемых в отдельных потоках */
+    private final TransactionTemplate transactionTemplate;
+
+    /** Максимальный размер страницы при просмотре проводок */
+    private final int maxPageSize;
+
+    /** Пул потоков для порций пересборки */
+    private final ThreadPoolTaskExecutor rebuildExecutor;
+
+    /** Количество счетов в одной порции пересборки */
+    private final int rebuildChunkSize;
+
+    @Autowired
+    public LedgerServiceImpl(
+            LedgerEntryRepository ledgerEntryRepository,
+            AccountRepository accountRepository,
+            CurrentUserService currentUserService,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("ledgerRebuildExecutor") ThreadPoolTaskExecutor rebuildExecutor,
+            @Value("${app.ledger.page.max-size:100}") int maxPageSize,
+            @Value("${app.ledger.rebuild.chunk-size:500}") int rebuildChunkSize) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.accountRepository = accountRepository;
+        this.currentUserService = currentUserService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildExecutor = rebuildExecutor;
+        this.maxPageSize = maxPageSize;
+        this.rebuildChunkSize = rebuildChunkSize;
+    }
+
+    @Override
+    @Transactional
+    public void recordTransactions(Collection<Transaction> transactions) {
+        List<Long> ids = transactions.stream().map(Transaction::getId).toList();
+        for (int i = 0; i < ids.size(); i += APPEND_CHUNK_SIZE) {
+            ledgerEntryRepository.appendTransactions(ids.subList(i, Math.min(i + APPEND_CHUNK_SIZE, ids.size())));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void reverseTransaction(Long transactionId) {
+        ledgerEntryRepository.appendReversals(transactionId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<LedgerEntryDto> getAccountEntries(Long accountId, long afterSeq, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Счет не найден с id: " + accountId));
+        if (!account.getUser().getId().equals(currentUserService.getCurrentUser().getId())) {
+            throw new ResourceNotFoundException("Счет не найден с id: " + accountId);
+        }
+
+        return ledgerEntryRepository.findPage(accountId, afterSeq, PageRequest.of(0, size));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Выполняется по расписанию, чтобы пересборка применяла к снимкам
+     * только проводки, добавленные после последнего запуска.
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${app.ledger.snapshot-cron:0 45 0 * * *}")
+    public int createSnapshots() {
+        return ledgerEntryRepository.advanceSnapshots();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Счета делятся на порции, которые обрабатываются параллельно в отдельных транзакциях.
+     * Порция сначала блокирует свои счета, поэтому проекция не упускает проводки,
+     * добавляемые параллельно, а запись по счетам других порций не останавливается.
+     * Порции выполняются общим пулом ledgerRebuildExecutor; при ошибке одной порции
+     * еще не начатые порции отменяются.
+     */
+    @Override
+    public LedgerRebuildResultDto rebuildBalances() {
+        List<Long> accountIds = ledgerEntryRepository.findAllAccountIds();
+
+        List<Future<Integer>> chunks = new ArrayList<>();
+        try {
+            for (int i = 0; i < accountIds.size(); i += rebuildChunkSize) {
+                List<Long> chunk = accountIds.subList(i, Math.min(i + rebuildChunkSize, accountIds.size()));
+                chunks.add(rebuildExecutor.submit(() -> transactionTemplate.execute(status -> {
+                    ledgerEntryRepository.lockAccounts(chunk);
+                    return ledgerEntryRepository.projectBalances(chunk);
+                })));
+            }
+
+            int corrected = 0;
+            for (Future<Integer> chunk : chunks) {
+                corrected += chunk.get();
+            }
+            if (corrected > 0) {
+                log.warn("Баланс {} из {} счетов расходился с журналом операций и был исправлен",
+                        corrected, accountIds.size());
+            }
+            return new LedgerRebuildResultDto(accountIds.size(), corrected);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Пересборка балансов прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка при пересборке балансов: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            chunks.forEach(chunk -> chunk.cancel(false));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ru.denis.NauJava3.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Ограниченный кэш содержимого сформированных отчетов.
+ * Сформированный отчет не изменяется, поэтому его сжатое содержимое и ETag можно
+ * хранить в памяти без инвалидации. Вытеснение выполняется по давности использования
+ * при превышении количества записей или суммарного размера содержимого.
+ * Счетчики попаданий, промахов и вытеснений публикуются как report.cache.*.
+ */
+@Component
+public class ReportContentCache {
+
+    /** Записи кэша в порядке давности использования */
+    private final LinkedHashMap<Long, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Максимальное количество записей */
+    private final int maxEntries;
+
+    /** Максимальный суммарный размер содержимого в байтах */
+    private final long maxBytes;
+
+    /** Максимальный размер содержимого одного отчета, помещаемого в кэш */
+    private final long maxEntryBytes;
+
+    /** Текущий суммарный размер содержимого в байтах */
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public ReportContentCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.report.cache.max-entries:100}") int maxEntries,
+            @Value("${app.report.cache.max-size:32MB}") DataSize maxSize,
+            @Value("${app.report.cache.max-entry-size:2MB}") DataSize maxEntrySize) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.hits = Counter.builder("report.cache.hits")
+                .description("Количество запросов отчетов, обслуженных из кэша")
+                .register(meterRegistry);
+        this.misses = Counter.builder("report.cache.misses")
+                .description("Количество запросов отчетов, отсутствующих в кэше")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("report.cache.evictions")
+                .description("Количество отчетов, вытесненных из кэша")
+                .register(meterRegistry);
+        Gauge.builder("report.cache.size", this, ReportContentCache::size)
+                .description("Количество отчетов в кэше")
+                .register(meterRegistry);
+        Gauge.builder("report.cache.bytes", this, ReportContentCache::bytes)
+                .description("Суммарный размер содержимого отчетов в кэше")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает отчет из кэша с учетом попадания или промаха в счетчиках.
+     *
+     * @param reportId ID отчета
+     * @return закэшированный отчет
+     */
+    public synchronized Optional<CachedReport> get(Long reportId) {
+        CachedReport report = entries.get(reportId);
+        if (report == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return Optional.ofNullable(report);
+    }
+
+    /**
+     * Возвращает отчет из кэша без изменения счетчиков.
+     *
+     * @param reportId ID отчета
+     * @return закэшированный отчет
+     */
+    public synchronized Optional<CachedReport> peek(Long reportId) {
+        return Optional.ofNullable(entries.get(reportId));
+    }
+
+    /**
+     * Проверяет, может ли отчет указанного размера быть помещен в кэш.
+     *
+     * @param size размер сжатого содержимого в байтах
+     * @return true, если размер не превышает ограничение на одну запись
+     */
+    public boolean accepts(long size) {
+        return size <= maxEntryBytes && size <= maxBytes;
+    }
+
+    /**
+     * Помещает отчет в кэш, вытесняя давно не использованные отчеты при превышении ограничений.
+     *
+     * @param reportId ID отчета
+     * @param etag ETag содержимого отчета
+     * @param content содержимое отчета, сжатое gzip
+     */
+    public synchronized void put(Long reportId, String etag, byte[] content) {
+        if (!accepts(content.length)) {
+            return;
+        }
+        CachedReport previous = entries.put(reportId, new CachedReport(etag, content));
+        if (previous != null) {
+            totalBytes -= previous.getContent().length;
+        }
+        totalBytes += content.length;
+
+        Iterator<Map.Entry<Long, CachedReport>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+            Map.Entry<Long, CachedReport> entry = eldest.next();
+            if (entry.getKey().equals(reportId)) {
+                continue;
+            }
+            totalBytes -= entry.getValue().getContent().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /** @return количество отчетов в кэше */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return суммарный размер содержимого отчетов в кэше */
+    public synchronized long bytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Закэшированный сформированный отчет.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CachedReport {
+        /** ETag содержимого отчета */
+        private final String etag;
+
+        /** Содержимое отчета, сжатое gzip */
+        private final byte[] content;
+    }
+}
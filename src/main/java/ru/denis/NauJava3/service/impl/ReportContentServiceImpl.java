@@ -0,0 +1,94 @@
+package ru.denis.NauJava3.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.entity.ReportContentChunk;
+import ru.denis.NauJava3.repository.ReportContentChunkRepository;
+import ru.denis.NauJava3.repository.ReportRepository;
+import ru.denis.NauJava3.service.ReportContentService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Реализация сервиса хранения содержимого отчетов.
+ * Сжатое содержимое делится на фрагменты фиксированного размера; при чтении
+ * фрагменты загружаются из БД по одному и сразу записываются в поток ответа.
+ */
+@Service
+public class ReportContentServiceImpl implements ReportContentService {
+
+    private final ReportContentChunkRepository chunkRepository;
+    private final ReportRepository reportRepository;
+
+    /** Максимальный размер одного фрагмента в байтах */
+    private final int chunkSize;
+
+    @Autowired
+    public ReportContentServiceImpl(
+            ReportContentChunkRepository chunkRepository,
+            ReportRepository reportRepository,
+            @Value("${app.report.content.chunk-size:65536}") int chunkSize) {
+        this.chunkRepository = chunkRepository;
+        this.reportRepository = reportRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    @Transactional
+    public void saveContent(Long reportId, byte[] compressedContent) {
+        chunkRepository.deleteByReportId(reportId);
+
+        List<ReportContentChunk> chunks = new ArrayList<>();
+        for (int offset = 0, seq = 0; offset < compressedContent.length; offset += chunkSize, seq++) {
+            ReportContentChunk chunk = new ReportContentChunk();
+            chunk.setReport(reportRepository.getReferenceById(reportId));
+            chunk.setSeq(seq);
+            chunk.setData(Arrays.copyOfRange(compressedContent, offset,
+                    Math.min(offset + chunkSize, compressedContent.length)));
+            chunks.add(chunk);
+        }
+        chunkRepository.saveAll(chunks);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void writeContent(Long reportId, OutputStream out, boolean decompress) throws IOException {
+        try (Stream<byte[]> chunks = chunkRepository.streamData(reportId)) {
+            Iterator<byte[]> iterator = chunks.iterator();
+            if (!decompress) {
+                while (iterator.hasNext()) {
+                    out.write(iterator.next());
+                }
+                return;
+            }
+
+            Enumeration<InputStream> inputs = new Enumeration<>() {
+                @Override
+                public boolean hasMoreElements() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public InputStream nextElement() {
+                    return new ByteArrayInputStream(iterator.next());
+                }
+            };
+            try (InputStream in = new GZIPInputStream(new SequenceInputStream(inputs))) {
+                in.transferTo(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ru.denis.NauJava3.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.repository.ReportRepository;
+import ru.denis.NauJava3.service.ReportContentService;
+import ru.denis.NauJava3.service.ReportJobQueue;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Реализация очереди заданий на формирование отчетов.
+ * Задания блокируются запросом SELECT ... FOR UPDATE SKIP LOCKED, поэтому несколько
+ * экземпляров приложения разбирают очередь, не мешая друг другу. Все изменения
+ * статуса выполняются только владельцем аренды; содержимое отчета сохраняется
+ * в той же транзакции, что и статус COMPLETED.
+ */
+@Service
+public class ReportJobQueueImpl implements ReportJobQueue {
+
+    private final ReportRepository reportRepository;
+    private final ReportContentService reportContentService;
+
+    /** Идентификатор текущего экземпляра приложения */
+    private final String workerId = UUID.randomUUID().toString();
+
+    /** Длительность аренды задания */
+    private final Duration leaseDuration;
+
+    /** Максимальное число попыток формирования отчета */
+    private final int maxAttempts;
+
+    /** Задержка перед первой повторной попыткой, далее удваивается */
+    private final Duration retryBackoff;
+
+    @Autowired
+    public ReportJobQueueImpl(
+            ReportRepository reportRepository,
+            ReportContentService reportContentService,
+            @Value("${app.report.queue.lease-duration:PT2M}") Duration leaseDuration,
+            @Value("${app.report.queue.max-attempts:3}") int maxAttempts,
+            @Value("${app.report.queue.retry-backoff:PT30S}") Duration retryBackoff) {
+        this.reportRepository = reportRepository;
+        this.reportContentService = reportContentService;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+    }
+
+    @Override
+    @Transactional
+    public boolean claim(Long reportId) {
+        return reportRepository.lockClaimableId(reportId, maxAttempts)
+                .map(id -> reportRepository.markRunning(List.of(id), workerId, leaseSeconds()) > 0)
+                .orElse(false);
+    }
+
+    @Override
+    @Transactional
+    public List<Long> claimBatch(int limit) {
+        reportRepository.markAbandoned("Формирование отчета прервано: превышено число попыток", maxAttempts);
+        List<Long> ids = reportRepository.lockClaimableIds(limit, maxAttempts);
+        if (!ids.isEmpty()) {
+            reportRepository.markRunning(ids, workerId, leaseSeconds());
+        }
+        return ids;
+    }
+
+    @Override
+    @Transactional
+    public boolean renewLease(Long reportId) {
+        return reportRepository.renewLease(reportId, workerId, leaseSeconds()) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean complete(Long reportId, byte[] compressedContent, long creationTime) {
+        String contentEtag = computeEtag(compressedContent);
+        if (reportRepository.markCompleted(reportId, workerId, compressedContent.length, contentEtag, creationTime) == 0) {
+            return false;
+        }
+        reportContentService.saveContent(reportId, compressedContent);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void fail(Long reportId, String message) {
+        reportRepository.markFailed(reportId, workerId, message, maxAttempts, retryBackoff.toMillis() / 1000.0);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Попытка фиксируется как последняя: при нулевом максимуме попыток отчет сразу получает статус ERROR.
+     */
+    @Override
+    @Transactional
+    public void abort(Long reportId, String message) {
+        reportRepository.markFailed(reportId, workerId, message, 0, 0);
+    }
+
+    @Override
+    @Transactional
+    public void release(Long reportId) {
+        reportRepository.release(reportId, workerId);
+    }
+
+    @Override
+    @Transactional
+    public boolean cancel(Long reportId, String message) {
+        return reportRepository.markCancelled(reportId, message) > 0;
+    }
+
+    /**
+     * Вычисляет ETag содержимого отчета как префикс SHA-256 сжатых данных.
+     *
+     * @param content содержимое отчета, сжатое gzip
+     * @return ETag в шестнадцатеричном виде
+     */
+    private static String computeEtag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Алгоритм SHA-256 недоступен", e);
+        }
+    }
+
+    private double leaseSeconds() {
+        return leaseDuration.toMillis() / 1000.0;
+    }
+}
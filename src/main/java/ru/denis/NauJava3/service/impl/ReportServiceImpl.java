@@ -1,35 +1,139 @@
 package ru.denis.NauJava3.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import ru.denis.NauJava3.config.MetricsConfig;
+import ru.denis.NauJava3.dto.ReportStatusDto;
+import ru.denis.NauJava3.dto.ReportTotalDto;
 import ru.denis.NauJava3.entity.Report;
-import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.enums.ReportStatus;
+import ru.denis.NauJava3.exception.BadRequestException;
 import ru.denis.NauJava3.repository.ReportRepository;
 import ru.denis.NauJava3.repository.TransactionRepository;
 import ru.denis.NauJava3.repository.UserRepository;
+import ru.denis.NauJava3.service.ReportContentService;
+import ru.denis.NauJava3.service.ReportJobQueue;
 import ru.denis.NauJava3.service.ReportService;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Реализация сервиса для работы с отчетами.
- * Предоставляет методы для создания, получения и асинхронного формирования отчетов
- * с использованием многопоточной обработки.
+ * Предоставляет методы для создания, получения и асинхронного формирования отчетов.
+ * Созданные отчеты хранятся в персистентной очереди {@link ReportJobQueue}: экземпляр
+ * приложения берет отчет в аренду, формирует его в выделенном ограниченном пуле потоков
+ * и периодически продлевает аренду. Отчеты, оставшиеся без владельца после остановки
+ * экземпляра, подбираются периодическим опросом очереди.
  */
 @Service
-@RequiredArgsConstructor
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class ReportServiceImpl implements ReportService {
 
     private final ReportRepository reportRepository;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
     private final TemplateEngine templateEngine;
+    private final ReportJobQueue reportJobQueue;
+    private final ReportContentService reportContentService;
+    private final ReportContentCache reportContentCache;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Пул потоков для формирования отчетов */
+    private final Executor reportExecutor;
+
+    /** Максимальное время формирования одного отчета */
+    private final Duration reportTimeout;
+
+    /** Количество счетов с наибольшим оборотом, попадающих в отчет */
+    private final int topAccountsLimit;
+
+    /** Максимальное количество отчетов, одновременно взятых в работу этим экземпляром */
+    private final int claimLimit;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Количество отчетов, формирование которых завершилось ошибкой */
+    private final Counter reportFailures;
+
+    /** Количество отчетов, не сформированных за отведенное время */
+    private final Counter reportTimeouts;
+
+    /** Отчеты, взятые в работу этим экземпляром */
+    private final Map<Long, ReportTask> activeReports = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReportServiceImpl(
+            ReportRepository reportRepository,
+            UserRepository userRepository,
+            TransactionRepository transactionRepository,
+            TemplateEngine templateEngine,
+            ReportJobQueue reportJobQueue,
+            ReportContentService reportContentService,
+            ReportContentCache reportContentCache,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("reportExecutor") Executor reportExecutor,
+            @Value("${app.report.timeout:PT5M}") Duration reportTimeout,
+            @Value("${app.report.top-accounts:20}") int topAccountsLimit,
+            @Value("${app.report.queue.claim-limit:4}") int claimLimit) {
+        this.reportRepository = reportRepository;
+        this.userRepository = userRepository;
+        this.transactionRepository = transactionRepository;
+        this.templateEngine = templateEngine;
+        this.reportJobQueue = reportJobQueue;
+        this.reportContentService = reportContentService;
+        this.reportContentCache = reportContentCache;
+        this.transactionManager = transactionManager;
+        this.reportExecutor = reportExecutor;
+        this.reportTimeout = reportTimeout;
+        this.topAccountsLimit = topAccountsLimit;
+        this.claimLimit = claimLimit;
+        this.meterRegistry = meterRegistry;
+        this.reportFailures = Counter.builder("report.errors")
+                .description("Количество отчетов, формирование которых завершилось ошибкой")
+                .tag("reason", "error")
+                .register(meterRegistry);
+        this.reportTimeouts = Counter.builder("report.errors")
+                .description("Количество отчетов, формирование которых завершилось ошибкой")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
 
     /**
      * Получает отчет по его идентификатору.
@@ -45,79 +149,288 @@ public class ReportServiceImpl implements ReportService {
     }
 
     /**
-     * Создает новый отчет со статусом "создан".
+     * Получает состояние отчета без загрузки его содержимого.
+     * Состояние отчета, находящегося в кэше, возвращается без обращения к БД.
+     *
+     * @param id идентификатор отчета
+     * @return состояние отчета
+     * @throws EntityNotFoundException если отчет с указанным идентификатором не найден
+     */
+    @Override
+    public ReportStatusDto getReportStatus(Long id) {
+        Optional<ReportContentCache.CachedReport> cached = reportContentCache.get(id);
+        if (cached.isPresent()) {
+            return new ReportStatusDto(id, ReportStatus.COMPLETED, null,
+                    (long) cached.get().getContent().length, cached.get().getEtag());
+        }
+        return reportRepository.findStatusById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Отчет с ID " + id + " не найден"));
+    }
+
+    /**
+     * Записывает содержимое отчета в поток.
+     * Отчет из кэша записывается из памяти; небольшой отчет загружается из БД и
+     * помещается в кэш, а крупный передается потоком, читая сжатые фрагменты по одному.
+     *
+     * @param report состояние сформированного отчета
+     * @param out поток для записи
+     * @param decompress true - записать HTML, false - записать HTML, сжатый gzip
+     * @throws IOException при ошибке записи в поток
+     */
+    @Override
+    public void writeReportContent(ReportStatusDto report, OutputStream out, boolean decompress) throws IOException {
+        Optional<ReportContentCache.CachedReport> cached = reportContentCache.peek(report.getId());
+        if (cached.isEmpty() && report.getContentSize() != null && report.getContentEtag() != null
+                && reportContentCache.accepts(report.getContentSize())) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(report.getContentSize().intValue());
+            reportContentService.writeContent(report.getId(), buffer, false);
+            byte[] content = buffer.toByteArray();
+            reportContentCache.put(report.getId(), report.getContentEtag(), content);
+            cached = Optional.of(new ReportContentCache.CachedReport(report.getContentEtag(), content));
+        }
+
+        if (cached.isEmpty()) {
+            reportContentService.writeContent(report.getId(), out, decompress);
+        } else if (decompress) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.get().getContent()))) {
+                in.transferTo(out);
+            }
+        } else {
+            out.write(cached.get().getContent());
+        }
+    }
+
+    /**
+     * Создает новый отчет и помещает его в очередь формирования.
      *
      * @return идентификатор созданного отчета
      */
     @Override
     public Long createReport() {
         Report report = new Report();
-        report.setStatus(ReportStatus.CREATED);
+        report.setStatus(ReportStatus.QUEUED);
         Report savedReport = reportRepository.save(report);
         return savedReport.getId();
     }
 
     /**
-     * Асинхронно формирует отчет в отдельных потоках.
-     * Метод вычисляет количество пользователей и получает список транзакций в отдельных потоках,
-     * а затем объединяет результаты в HTML-отчет с использованием Thymeleaf шаблона.
+     * Берет отчет в аренду и ставит его формирование в очередь пула потоков отчетов.
+     * Если отчет уже взят другим экземпляром или пул переполнен, отчет остается
+     * в персистентной очереди и будет сформирован позже.
      *
      * @param reportId идентификатор отчета для формирования
-     * @return объект CompletableFuture для асинхронного выполнения
+     * @return объект CompletableFuture, завершающийся после окончания попытки формирования
      */
     @Override
     public CompletableFuture<Void> generateReportAsync(Long reportId) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                Report report = getReport(reportId);
-
-                long startTotalTime = System.currentTimeMillis();
-                AtomicLong userCountTime = new AtomicLong();
-                AtomicLong transactionsTime = new AtomicLong();
-                AtomicLong userCount = new AtomicLong();
-
-                // Поток подсчета пользователей
-                Thread userCountThread = new Thread(() -> {
-                    long startTime = System.currentTimeMillis();
-                    userCount.set(userRepository.count());
-                    userCountTime.set(System.currentTimeMillis() - startTime);
-                });
-
-                // Поток списка транзакций
-                AtomicLong transactionCount = new AtomicLong();
-                Thread transactionsThread = new Thread(() -> {
-                    long startTime = System.currentTimeMillis();
-                    List<Transaction> transactions = (List<Transaction>) transactionRepository.findAll();
-                    transactionCount.set(transactions.size());
-                    transactionsTime.set(System.currentTimeMillis() - startTime);
-                });
-
-                userCountThread.start();
-                transactionsThread.start();
-                userCountThread.join();
-                transactionsThread.join();
-
-                long totalTime = System.currentTimeMillis() - startTotalTime;
-
-                Context context = new Context();
-                context.setVariable("userCount", userCount.get());
-                context.setVariable("userCountTime", userCountTime.get());
-                context.setVariable("transactionCount", transactionCount.get());
-                context.setVariable("transactionsTime", transactionsTime.get());
-                context.setVariable("totalTime", totalTime);
-                String htmlContent = templateEngine.process("report-template", context);
-
-                report.setContent(htmlContent);
-                report.setStatus(ReportStatus.COMPLETED);
-                report.setCreationTime(totalTime);
-                reportRepository.save(report);
-
-            } catch (Exception e) {
-                Report report = getReport(reportId);
-                report.setStatus(ReportStatus.ERROR);
-                report.setContent("Ошибка при формировании отчета: " + e.getMessage());
-                reportRepository.save(report);
+        if (!reportJobQueue.claim(reportId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return submit(reportId);
+    }
+
+    /**
+     * Отменяет формирование отчета.
+     * Отчет, ожидающий в очереди, отменяется сразу; у формируемого отчета отмена
+     * применяется после завершения текущего этапа.
+     *
+     * @param reportId идентификатор отчета
+     * @throws BadRequestException если отчет не находится в процессе формирования
+     */
+    @Override
+    public void cancelReport(Long reportId) {
+        if (!reportJobQueue.cancel(reportId, "Формирование отчета отменено")) {
+            throw new BadRequestException("Отчет с ID " + reportId + " не находится в процессе формирования");
+        }
+        ReportTask task = activeReports.get(reportId);
+        if (task != null) {
+            task.stop("Формирование отчета отменено");
+        }
+    }
+
+    /**
+     * Периодически забирает из очереди готовые к формированию отчеты: новые, ожидающие
+     * повторной попытки и оставшиеся без владельца после остановки другого экземпляра.
+     */
+    @Scheduled(fixedDelayString = "${app.report.queue.poll-interval:PT10S}")
+    public void pollQueue() {
+        int capacity = claimLimit - activeReports.size();
+        if (capacity <= 0) {
+            return;
+        }
+        for (Long reportId : reportJobQueue.claimBatch(capacity)) {
+            submit(reportId);
+        }
+    }
+
+    /**
+     * Продлевает аренду отчетов, взятых в работу этим экземпляром.
+     * Если аренда утрачена, формирование отчета прекращается.
+     */
+    @Scheduled(fixedDelayString = "${app.report.queue.heartbeat-interval:PT30S}")
+    public void renewLeases() {
+        activeReports.forEach((reportId, task) -> {
+            if (!reportJobQueue.renewLease(reportId)) {
+                task.stop("Аренда отчета утрачена");
             }
         });
     }
+
+    /**
+     * Передает взятый в аренду отчет в пул потоков.
+     * При переполнении пула аренда возвращается, и отчет остается в очереди.
+     *
+     * @param reportId идентификатор отчета
+     * @return объект CompletableFuture, завершающийся после окончания попытки формирования
+     */
+    private CompletableFuture<Void> submit(Long reportId) {
+        ReportTask task = new ReportTask();
+        ReportTask existing = activeReports.putIfAbsent(reportId, task);
+        if (existing != null) {
+            return existing.future;
+        }
+
+        try {
+            reportExecutor.execute(() -> runTask(reportId, task));
+        } catch (RejectedExecutionException e) {
+            activeReports.remove(reportId, task);
+            reportJobQueue.release(reportId);
+            task.future.complete(null);
+        }
+        return task.future;
+    }
+
+    /**
+     * Формирует отчет в потоке пула.
+     * Количество пользователей и статистика транзакций вычисляются запросами в БД,
+     * затем объединяются в HTML-отчет с использованием Thymeleaf шаблона.
+     * HTML записывается сразу в gzip-поток, поэтому в памяти хранится только сжатое содержимое.
+     * Между этапами проверяется, не был ли отчет отменен и не истекло ли время формирования.
+     * Запросы этапов выполняются в одной транзакции только для чтения с таймаутом, равным
+     * оставшемуся времени формирования: каждый запрос получает оставшееся время как таймаут
+     * запроса, поэтому медленный запрос прерывается по истечении времени, а не удерживает
+     * поток и соединение до своего завершения.
+     * Превышение времени завершает отчет ошибкой без повторных попыток: следующая попытка
+     * выполнила бы те же запросы по тем же данным.
+     * Время формирования учитывается таймером report.generation с тегом outcome,
+     * ошибки и превышения времени - счетчиком report.errors.
+     *
+     * @param reportId идентификатор отчета
+     * @param task состояние формирования отчета
+     */
+    private void runTask(Long reportId, ReportTask task) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "completed";
+        try {
+            task.start(reportTimeout);
+            task.checkStopped();
+
+            long startTotalTime = System.currentTimeMillis();
+
+            DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+            definition.setReadOnly(true);
+            definition.setTimeout(task.remainingSeconds());
+            TransactionStatus status = transactionManager.getTransaction(definition);
+            long userCount;
+            long userCountTime;
+            long transactionCount;
+            List<ReportTotalDto> categoryTotals;
+            List<ReportTotalDto> accountTotals;
+            List<ReportTotalDto> monthTotals;
+            long transactionsTime;
+            try {
+                long startTime = System.currentTimeMillis();
+                userCount = userRepository.count();
+                userCountTime = System.currentTimeMillis() - startTime;
+                task.checkStopped();
+
+                startTime = System.currentTimeMillis();
+                transactionCount = transactionRepository.count();
+                task.checkStopped();
+                categoryTotals = transactionRepository.sumByCategory();
+                task.checkStopped();
+                accountTotals = transactionRepository.sumByAccount(PageRequest.of(0, topAccountsLimit));
+                task.checkStopped();
+                monthTotals = transactionRepository.sumByMonth();
+                transactionsTime = System.currentTimeMillis() - startTime;
+                task.checkStopped();
+            } finally {
+                // Транзакция только читает данные, поэтому всегда завершается откатом
+                transactionManager.rollback(status);
+            }
+
+            long totalTime = System.currentTimeMillis() - startTotalTime;
+
+            Context context = new Context();
+            context.setVariable("userCount", userCount);
+            context.setVariable("userCountTime", userCountTime);
+            context.setVariable("transactionCount", transactionCount);
+            context.setVariable("transactionsTime", transactionsTime);
+            context.setVariable("categoryTotals", categoryTotals);
+            context.setVariable("accountTotals", accountTotals);
+            context.setVariable("monthTotals", monthTotals);
+            context.setVariable("totalTime", totalTime);
+            ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressedContent), StandardCharsets.UTF_8)) {
+                templateEngine.process("report-template", context, writer);
+            }
+            task.checkStopped();
+
+            reportJobQueue.complete(reportId, compressedContent.toByteArray(), totalTime);
+
+        } catch (CancellationException e) {
+            // Отчет отменен или передан другому экземпляру, статус уже записан в БД
+            outcome = "cancelled";
+        } catch (TimeoutException | QueryTimeoutException | TransactionTimedOutException e) {
+            outcome = "timeout";
+            reportTimeouts.increment();
+            reportJobQueue.abort(reportId, "Ошибка при формировании отчета: превышено время формирования " + reportTimeout);
+        } catch (Exception e) {
+            outcome = "error";
+            reportFailures.increment();
+            reportJobQueue.fail(reportId, "Ошибка при формировании отчета: " + e.getMessage());
+        } finally {
+            sample.stop(Timer.builder("report.generation")
+                    .description("Время формирования отчета")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            activeReports.remove(reportId, task);
+            task.future.complete(null);
+        }
+    }
+
+    /**
+     * Состояние формирования одного отчета на этом экземпляре.
+     */
+    private static final class ReportTask {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        volatile long deadline;
+        volatile String stopReason;
+
+        void start(Duration timeout) {
+            deadline = System.nanoTime() + timeout.toNanos();
+        }
+
+        /**
+         * @return оставшееся время формирования в секундах, округленное вверх, не меньше секунды
+         */
+        int remainingSeconds() {
+            long remaining = deadline - System.nanoTime();
+            return (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+
+        void stop(String reason) {
+            stopReason = reason;
+        }
+
+        void checkStopped() throws TimeoutException {
+            if (stopReason != null) {
+                throw new CancellationException(stopReason);
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new TimeoutException();
+            }
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package ru.denis.NauJava3.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.BudgetSpendingView;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.repository.DailySpendingRepository;
+import ru.denis.NauJava3.service.SpendingAggregateService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация сервиса дневных агрегатов транзакций.
+ * Изменения агрегатов выполняются атомарным upsert-запросом, поэтому
+ * параллельные транзакции по одной категории не теряют обновления.
+ */
+@Service
+@RequiredArgsConstructor
+public class SpendingAggregateServiceImpl implements SpendingAggregateService {
+
+    private final DailySpendingRepository dailySpendingRepository;
+
+    @Override
+    @Transactional
+    public void addTransaction(Transaction transaction) {
+        applyDelta(transaction, transaction.getAmount());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Суммы группируются по пользователю, категории и дню в памяти,
+     * поэтому число запросов не зависит от количества транзакций в наборе.
+     */
+    @Override
+    @Transactional
+    public void addTransactions(Collection<Transaction> transactions) {
+        Map<AggregateKey, BigDecimal> deltas = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            AggregateKey key = new AggregateKey(
+                    transaction.getUser().getId(),
+                    transaction.getCategory().getId(),
+                    transaction.getDate().toLocalDate());
+            deltas.merge(key, transaction.getAmount(), BigDecimal::add);
+        }
+        deltas.forEach((key, amount) -> dailySpendingRepository.addAmount(
+                key.userId(), key.categoryId(), key.spendingDate(), amount));
+    }
+
+    @Override
+    @Transactional
+    public void removeTransaction(Transaction transaction) {
+        applyDelta(transaction, transaction.getAmount().negate());
+    }
+
+    @Override
+    public BigDecimal getSpentAmount(User user, Category category, LocalDate startDate, LocalDate endDate) {
+        return dailySpendingRepository.sumAmount(user, category, startDate, endDate);
+    }
+
+    @Override
+    public Map<Long, BigDecimal> getSpentAmountsByBudget(User user) {
+        return dailySpendingRepository.sumAmountByBudget(user).stream()
+                .collect(Collectors.toMap(BudgetSpendingView::getBudgetId, BudgetSpendingView::getSpentAmount));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Выполняется по расписанию для устранения возможных расхождений
+     * агрегатов с таблицей транзакций (например, после ручных правок данных).
+     * На время пересборки таблица агрегатов блокируется, поэтому изменения агрегатов
+     * параллельными транзакциями не теряются: они ожидают пересборку и применяются после нее.
+     */
+    @Override
+    @Transactional
+    @Scheduled(cron = "${app.spending.reconcile-cron:0 30 3 * * *}")
+    public int rebuildAggregates() {
+        dailySpendingRepository.lockAggregates();
+        dailySpendingRepository.deleteAllAggregates();
+        return dailySpendingRepository.insertAggregatesFromTransactions();
+    }
+
+    private void applyDelta(Transaction transaction, BigDecimal delta) {
+        dailySpendingRepository.addAmount(
+                transaction.getUser().getId(),
+                transaction.getCategory().getId(),
+                transaction.getDate().toLocalDate(),
+                delta
+        );
+    }
+
+    /**
+     * Ключ дневного агрегата
+     */
+    private record AggregateKey(Long userId, Long categoryId, LocalDate spendingDate) {
+    }
+}
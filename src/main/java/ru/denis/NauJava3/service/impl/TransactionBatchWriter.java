@@ -0,0 +1,251 @@
+package ru.denis.NauJava3.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.service.AccountBalanceService;
+import ru.denis.NauJava3.service.LedgerService;
+import ru.denis.NauJava3.service.SpendingAggregateService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Запись набора транзакций за одну транзакцию БД.
+ * Счета и категории загружаются по одному запросу на набор, транзакции
+ * вставляются JDBC-пакетами, баланс каждого счета изменяется одним
+ * оператором UPDATE на чистую сумму изменений, дневные агрегаты -
+ * одним upsert на каждый затронутый день и категорию, контрольные точки
+ * баланса - одним UPDATE на каждый затронутый счет и день, а проводки
+ * журнала операций - одним INSERT на порцию.
+ */
+@Component
+public class TransactionBatchWriter {
+
+    private final AccountRepository accountRepository;
+    private final CategoryRepository categoryRepository;
+    private final SpendingAggregateService spendingAggregateService;
+    private final AccountBalanceService accountBalanceService;
+    private final LedgerService ledgerService;
+    private final EntityManager entityManager;
+
+    /** Количество вставок, после которого контекст персистентности сбрасывается и очищается */
+    private final int batchSize;
+
+    @Autowired
+    public TransactionBatchWriter(
+            AccountRepository accountRepository,
+            CategoryRepository categoryRepository,
+            SpendingAggregateService spendingAggregateService,
+            AccountBalanceService accountBalanceService,
+            LedgerService ledgerService,
+            EntityManager entityManager,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.accountRepository = accountRepository;
+        this.categoryRepository = categoryRepository;
+        this.spendingAggregateService = spendingAggregateService;
+        this.accountBalanceService = accountBalanceService;
+        this.ledgerService = ledgerService;
+        this.entityManager = entityManager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Проверяет, что все счета набора существуют и принадлежат пользователю, категории
+     * существуют и тип операции каждой строки соответствует категории. Не изменяет данные.
+     *
+     * @param requests проверяемые строки
+     * @param userId ID владельца счетов; чужие счета считаются не найденными
+     * @throws BadRequestException с номером первой некорректной строки (начиная с 1)
+     */
+    public void validate(List<TransactionRequest> requests, Long userId) {
+        resolve(requests, userId);
+    }
+
+    /**
+     * Сохраняет набор транзакций по счетам пользователя. Должен вызываться внутри
+     * транзакции БД, при исключении ее необходимо откатить.
+     * Контекст персистентности очищается в процессе записи, поэтому
+     * ранее загруженные вызывающим кодом сущности становятся отсоединенными.
+     *
+     * @param requests строки для сохранения
+     * @param userId ID владельца счетов; чужие счета считаются не найденными
+     * @return сохраненные транзакции в порядке строк набора
+     * @throws BadRequestException если строка некорректна или на счете недостаточно средств
+     */
+    public List<Transaction> write(List<TransactionRequest> requests, Long userId) {
+        return save(requests, resolve(requests, userId));
+    }
+
+    /**
+     * Сохраняет набор транзакций по счетам любых пользователей, так же как
+     * {@link #write(List, Long)}. Используется, когда владельцы счетов уже проверены
+     * вызывающим кодом.
+     *
+     * @param requests строки для сохранения
+     * @return сохраненные транзакции в порядке строк набора
+     * @throws BadRequestException если строка некорректна или на счете недостаточно средств
+     */
+    public List<Transaction> write(List<TransactionRequest> requests) {
+        return save(requests, resolve(requests, null));
+    }
+
+    /**
+     * Изменяет балансы и сохраняет транзакции набора, ссылки которого уже проверены.
+     *
+     * @param userIds ID владельца для каждого счета набора
+     */
+    private List<Transaction> save(List<TransactionRequest> requests, Map<Long, Long> userIds) {
+        applyBalanceDeltas(requests);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Transaction> saved = new ArrayList<>(requests.size());
+        for (TransactionRequest request : requests) {
+            Transaction transaction = new Transaction();
+            transaction.setAccount(entityManager.getReference(Account.class, request.getAccountId()));
+            transaction.setCategory(entityManager.getReference(Category.class, request.getCategoryId()));
+            transaction.setUser(entityManager.getReference(User.class,
+                    userIds.get(request.getAccountId())));
+            transaction.setAmount(request.getAmount());
+            transaction.setDescription(request.getDescription());
+            transaction.setDate(request.getDate() != null ? request.getDate() : now);
+            transaction.setType(request.getType());
+
+            entityManager.persist(transaction);
+            saved.add(transaction);
+            if (saved.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        spendingAggregateService.addTransactions(saved);
+        accountBalanceService.addTransactions(saved);
+        ledgerService.recordTransactions(saved);
+        return saved;
+    }
+
+    /**
+     * Изменяет балансы счетов на чистую сумму изменений по каждому счету.
+     * Счета обрабатываются в порядке возрастания ID, чтобы параллельные
+     * записи блокировали строки в одном порядке и не приводили к взаимоблокировкам.
+     * Счет с нулевым чистым изменением тоже блокируется: номера проводок журнала
+     * выдаются под блокировкой счета.
+     */
+    private void applyBalanceDeltas(List<TransactionRequest> requests) {
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        for (TransactionRequest request : requests) {
+            BigDecimal amount = request.getType() == OperationType.INCOME
+                    ? request.getAmount()
+                    : request.getAmount().negate();
+            deltas.merge(request.getAccountId(), amount, BigDecimal::add);
+        }
+
+        deltas.forEach((accountId, delta) -> {
+            int sign = delta.signum();
+            if (sign >= 0) {
+                accountRepository.addToBalance(accountId, delta);
+            } else if (sign < 0 && accountRepository.withdraw(accountId, delta.negate()) == 0) {
+                throw new BadRequestException("Недостаточно средств на счете " + accountId);
+            }
+        });
+    }
+
+    /**
+     * Проверяет каждую строку набора отдельно от остальных: счет и категория существуют,
+     * тип операции соответствует категории. Не изменяет данные.
+     *
+     * @param requests проверяемые строки
+     * @return описания ошибок в порядке строк набора; null для корректных строк
+     */
+    public List<String> findErrors(List<TransactionRequest> requests) {
+        References references = load(requests, null);
+        return requests.stream().map(references::check).toList();
+    }
+
+    /**
+     * Загружает счета и категории набора и проверяет ссылки каждой строки.
+     *
+     * @param userId ID владельца счетов или null, если владелец не проверяется
+     * @return ID владельца для каждого счета набора
+     */
+    private Map<Long, Long> resolve(List<TransactionRequest> requests, Long userId) {
+        References references = load(requests, userId);
+        for (int i = 0; i < requests.size(); i++) {
+            String error = references.check(requests.get(i));
+            if (error != null) {
+                throw new BadRequestException("Строка " + (i + 1) + ": " + error);
+            }
+        }
+        return references.userIds();
+    }
+
+    /**
+     * Загружает счета и категории набора одним запросом на каждую таблицу.
+     *
+     * @param userId ID владельца счетов или null, если владелец не проверяется
+     */
+    private References load(List<TransactionRequest> requests, Long userId) {
+        Set<Long> accountIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        for (TransactionRequest request : requests) {
+            accountIds.add(request.getAccountId());
+            categoryIds.add(request.getCategoryId());
+        }
+
+        Map<Long, Long> userIds = new HashMap<>();
+        Iterable<Account> accounts = userId != null
+                ? accountRepository.findAllByIdInAndUserId(accountIds, userId)
+                : accountRepository.findAllById(accountIds);
+        accounts.forEach(account -> userIds.put(account.getId(), account.getUser().getId()));
+        Map<Long, OperationType> categoryTypes = new HashMap<>();
+        categoryRepository.findAllById(categoryIds)
+                .forEach(category -> categoryTypes.put(category.getId(), category.getType()));
+        return new References(userIds, categoryTypes);
+    }
+
+    /**
+     * Счета и категории, на которые ссылается набор
+     *
+     * @param userIds ID владельца для каждого найденного счета
+     * @param categoryTypes тип операции для каждой найденной категории
+     */
+    private record References(Map<Long, Long> userIds, Map<Long, OperationType> categoryTypes) {
+
+        /**
+         * @return описание ошибки строки или null, если строка корректна
+         */
+        String check(TransactionRequest request) {
+            if (!userIds.containsKey(request.getAccountId())) {
+                return "счет не найден";
+            }
+            OperationType categoryType = categoryTypes.get(request.getCategoryId());
+            if (categoryType == null) {
+                return "категория не найдена";
+            }
+            if (categoryType != request.getType()) {
+                return "тип операции не соответствует категории";
+            }
+            return null;
+        }
+    }
+}
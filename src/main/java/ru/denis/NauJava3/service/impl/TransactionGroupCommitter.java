@@ -0,0 +1,361 @@
+package ru.denis.NauJava3.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ConflictException;
+import ru.denis.NauJava3.exception.ServiceUnavailableException;
+import ru.denis.NauJava3.repository.AccountRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Групповая запись одиночных транзакций.
+ * Параллельные запросы на создание транзакции ставятся в очередь, и отдельный поток
+ * записывает накопленную группу одной транзакцией БД через {@link TransactionBatchWriter}:
+ * пакетной вставкой и одним изменением баланса на счет. Поэтому одна фиксация
+ * (и одна синхронизация журнала БД) приходится на группу, а не на каждый запрос.
+ * Группа ограничена размером и временем ожидания после первого запроса.
+ * Каждый запрос получает собственный результат: строки с ошибками и расходы
+ * без достаточных средств отклоняются по отдельности, не затрагивая остальные.
+ * Включается настройкой app.transactions.group-commit.enabled.
+ */
+@Slf4j
+@Component
+public class TransactionGroupCommitter {
+
+    private final TransactionBatchWriter batchWriter;
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Включена ли групповая запись */
+    private final boolean enabled;
+
+    /** Максимальное количество транзакций в группе */
+    private final int maxBatchSize;
+
+    /** Максимальное время ожидания группы после первого запроса */
+    private final long maxDelayNanos;
+
+    /** Максимальное время ожидания записи запроса вызывающим потоком */
+    private final long timeoutNanos;
+
+    /** Запросы, ожидающие записи */
+    private final BlockingQueue<PendingTransaction> queue;
+
+    /** Количество расходов, отклоненных из-за недостатка средств на счете */
+    private final Counter insufficientFunds;
+
+    /** Размеры записанных групп */
+    private final DistributionSummary batchSizes;
+
+    /** Поток записи групп */
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @Autowired
+    public TransactionGroupCommitter(
+            TransactionBatchWriter batchWriter,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.transactions.group-commit.enabled:false}") boolean enabled,
+            @Value("${app.transactions.group-commit.max-batch-size:200}") int maxBatchSize,
+            @Value("${app.transactions.group-commit.max-delay:PT0.0005S}") Duration maxDelay,
+            @Value("${app.transactions.group-commit.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.transactions.group-commit.timeout:PT30S}") Duration timeout) {
+        this.batchWriter = batchWriter;
+        this.accountRepository = accountRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Транзакция группы не дольше времени ожидания: запрос, который уже записывается,
+        // ожидается после истечения времени ожидания не бесконечно
+        this.transactionTemplate.setTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.insufficientFunds = Counter.builder("transaction.insufficient.funds")
+                .description("Количество расходов и переводов, отклоненных из-за недостатка средств на счете")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("transaction.group.commit.size")
+                .description("Количество транзакций, записанных одной транзакцией БД")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Запускает поток записи, если групповая запись включена.
+     */
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            running = true;
+            writer = Thread.ofPlatform().name("transaction-group-commit").daemon().start(this::run);
+        }
+    }
+
+    /**
+     * Останавливает поток записи; запросы, не попавшие в запись, завершаются ошибкой.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+
+        failQueued();
+    }
+
+    /**
+     * @return true, если транзакции записываются группами
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ставит транзакцию в очередь на запись и ожидает фиксации ее группы
+     * не дольше app.transactions.group-commit.timeout.
+     * Если за это время запрос не взят в запись, он убирается из очереди и не будет записан.
+     * Если запрос уже записывается, его результат ожидается еще раз столько же:
+     * транзакция БД группы ограничена тем же временем. Если результат так и не получен,
+     * он неизвестен, и повторять запрос без проверки нельзя.
+     *
+     * @param request транзакция с заполненной датой
+     * @return сохраненная транзакция со ссылками на счет и категорию без загруженных данных
+     * @throws ExecutionException с ошибкой этого запроса, если транзакция не записана
+     * @throws InterruptedException если ожидание прервано
+     * @throws ServiceUnavailableException если очередь заполнена, запись остановлена
+     *         или запрос не взят в запись за время ожидания
+     * @throws ConflictException если результат записи неизвестен
+     */
+    public Transaction submitAndWait(TransactionRequest request) throws ExecutionException, InterruptedException {
+        PendingTransaction pending = submit(request);
+        try {
+            return pending.result().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new ServiceUnavailableException("Транзакция не записана: истекло время ожидания записи, "
+                        + "повторите запрос позже");
+            }
+        }
+        try {
+            return pending.result().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ConflictException("Результат записи транзакции неизвестен: транзакция может быть "
+                    + "записана позже, проверьте транзакции счета перед повтором запроса");
+        }
+    }
+
+    /**
+     * Ставит транзакцию в очередь на запись.
+     * Результат завершается после фиксации группы: сохраненной транзакцией или ошибкой этого запроса.
+     * Если запись остановлена, пока запрос ставился в очередь, запрос убирается из очереди:
+     * остановка могла уже завершить запросы очереди, и результат этого запроса не завершился бы.
+     *
+     * @param request транзакция с заполненной датой
+     * @return запрос, ожидающий записи
+     * @throws ServiceUnavailableException если очередь заполнена или запись остановлена
+     */
+    private PendingTransaction submit(TransactionRequest request) {
+        PendingTransaction pending = new PendingTransaction(request, new CompletableFuture<>());
+        if (!running) {
+            throw stopping();
+        }
+        if (!queue.offer(pending)) {
+            throw new ServiceUnavailableException("Очередь записи транзакций заполнена, повторите запрос позже");
+        }
+        if (!running && queue.remove(pending)) {
+            throw stopping();
+        }
+        return pending;
+    }
+
+    /**
+     * Собирает группы из очереди и записывает их, пока запись не остановлена.
+     * Ошибка записи группы, в том числе {@link Error}, завершает запросы группы и не останавливает поток.
+     * Когда поток завершается, запросы текущей группы и очереди завершаются ошибкой,
+     * а новые запросы не принимаются.
+     */
+    private void run() {
+        List<PendingTransaction> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long deadline = System.nanoTime() + maxDelayNanos;
+                    while (batch.size() < maxBatchSize) {
+                        PendingTransaction next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
+                    log.error("Ошибка групповой записи транзакций", e);
+                    batch.forEach(pending -> pending.result().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } finally {
+            running = false;
+            batch.forEach(pending -> pending.result().completeExceptionally(stopping()));
+            failQueued();
+        }
+    }
+
+    /**
+     * Завершает ошибкой запросы, оставшиеся в очереди после остановки записи.
+     */
+    private void failQueued() {
+        List<PendingTransaction> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        rest.forEach(pending -> pending.result().completeExceptionally(stopping()));
+    }
+
+    private static ServiceUnavailableException stopping() {
+        return new ServiceUnavailableException("Приложение останавливается, повторите запрос позже");
+    }
+
+    /**
+     * Записывает группу одной транзакцией БД и завершает результаты запросов после фиксации.
+     * Если транзакция БД группы не зафиксирована, запросы группы записываются по одному,
+     * чтобы ошибка одного запроса не отклоняла остальные.
+     *
+     * @param batch запросы группы в порядке поступления
+     */
+    private void commit(List<PendingTransaction> batch) {
+        List<Outcome> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> write(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.getFirst().result().completeExceptionally(e);
+            } else {
+                log.warn("Группа из {} транзакций не записана, запись по одной: {}", batch.size(), e.getMessage());
+                batch.forEach(pending -> commit(List.of(pending)));
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome outcome = outcomes.get(i);
+            if (outcome.error() != null) {
+                batch.get(i).result().completeExceptionally(outcome.error());
+            } else {
+                batch.get(i).result().complete(outcome.transaction());
+            }
+        }
+    }
+
+    /**
+     * Проверяет запросы группы и сохраняет корректные.
+     * Счета блокируются до проверки достаточности средств, поэтому расходы проверяются
+     * в порядке поступления по балансу, который не изменится до фиксации группы.
+     *
+     * @param batch запросы группы в порядке поступления
+     * @return результаты запросов в том же порядке
+     */
+    private List<Outcome> write(List<PendingTransaction> batch) {
+        List<TransactionRequest> requests = batch.stream().map(PendingTransaction::request).toList();
+        List<String> errors = batchWriter.findErrors(requests);
+        Outcome[] outcomes = new Outcome[batch.size()];
+
+        TreeSet<Long> accountIds = new TreeSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (errors.get(i) == null) {
+                accountIds.add(requests.get(i).getAccountId());
+            }
+        }
+        Map<Long, BigDecimal> balances = accountRepository.lockAllById(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Account::getBalance));
+
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            TransactionRequest request = requests.get(i);
+            String error = errors.get(i);
+            if (error == null && (request.getAmount() == null || request.getAmount().signum() <= 0)) {
+                error = "сумма транзакции должна быть положительным числом";
+            }
+            if (error != null) {
+                outcomes[i] = Outcome.rejected(StringUtils.capitalize(error));
+                continue;
+            }
+
+            BigDecimal balance = balances.get(request.getAccountId());
+            BigDecimal updated = request.getType() == OperationType.INCOME
+                    ? balance.add(request.getAmount())
+                    : balance.subtract(request.getAmount());
+            if (updated.signum() < 0) {
+                insufficientFunds.increment();
+                outcomes[i] = Outcome.rejected("Недостаточно средств на счете");
+                continue;
+            }
+            balances.put(request.getAccountId(), updated);
+            accepted.add(i);
+        }
+
+        if (!accepted.isEmpty()) {
+            List<Transaction> saved = batchWriter.write(accepted.stream().map(requests::get).toList());
+            for (int i = 0; i < accepted.size(); i++) {
+                outcomes[accepted.get(i)] = new Outcome(saved.get(i), null);
+            }
+            batchSizes.record(accepted.size());
+        }
+        return List.of(outcomes);
+    }
+
+    /**
+     * Запрос, ожидающий записи
+     *
+     * @param request транзакция
+     * @param result результат, который ожидает вызывающий поток
+     */
+    private record PendingTransaction(TransactionRequest request, CompletableFuture<Transaction> result) {
+    }
+
+    /**
+     * Результат запроса группы: сохраненная транзакция или ошибка
+     */
+    private record Outcome(Transaction transaction, RuntimeException error) {
+
+        static Outcome rejected(String message) {
+            return new Outcome(null, new BadRequestException(message));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ru.denis.NauJava3.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import ru.denis.NauJava3.dto.TransactionImportResultDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.service.CurrentUserService;
+import ru.denis.NauJava3.service.TransactionImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Реализация сервиса пакетного импорта транзакций.
+ * Запись порций выполняется {@link TransactionBatchWriter}; размер порции
+ * задается свойством app.transactions.import.chunk-size. Если порция не может
+ * быть записана (например, из-за нехватки средств), она откатывается целиком,
+ * а ранее зафиксированные порции остаются сохраненными. Если импорт вызван
+ * в существующей транзакции БД, порции записываются в ней и ошибка порции
+ * отменяет весь импорт.
+ */
+@Slf4j
+@Service
+public class TransactionImportServiceImpl implements TransactionImportService {
+
+    private final TransactionBatchWriter transactionBatchWriter;
+    private final Validator validator;
+    private final CurrentUserService currentUserService;
+
+    /** Менеджер транзакций для фиксации каждой порции отдельно */
+    private final PlatformTransactionManager transactionManager;
+
+    /** Читатель CSV с заголовком в строки импорта */
+    private final ObjectReader csvReader;
+
+    /** Количество строк, фиксируемых одной транзакцией БД */
+    private final int chunkSize;
+
+    /** Максимальное количество строк в одном импорте */
+    private final int maxRows;
+
+    @Autowired
+    public TransactionImportServiceImpl(
+            TransactionBatchWriter transactionBatchWriter,
+            Validator validator,
+            CurrentUserService currentUserService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.transactions.import.chunk-size:1000}") int chunkSize,
+            @Value("${app.transactions.import.max-rows:100000}") int maxRows) {
+        this.transactionBatchWriter = transactionBatchWriter;
+        this.validator = validator;
+        this.currentUserService = currentUserService;
+        this.transactionManager = transactionManager;
+        this.chunkSize = chunkSize;
+        this.maxRows = maxRows;
+
+        CsvMapper csvMapper = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+                .build();
+        this.csvReader = csvMapper.readerFor(TransactionRequest.class)
+                .with(CsvSchema.emptySchema().withHeader());
+    }
+
+    @Override
+    public TransactionImportResultDto importCsv(InputStream csv) throws IOException {
+        List<TransactionRequest> requests = new ArrayList<>();
+        try (MappingIterator<TransactionRequest> rows = csvReader.readValues(csv)) {
+            while (rows.hasNextValue()) {
+                checkRowLimit(requests.size() + 1);
+                requests.add(rows.nextValue());
+            }
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Строка " + (requests.size() + 1) + ": некорректный формат CSV - "
+                    + e.getOriginalMessage());
+        }
+        return importTransactions(requests);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Метод выполняет следующие шаги:
+     * 1. Проверяет все строки: ограничения DTO, существование счетов текущего пользователя
+     *    и категорий и соответствие типа операции категории (один запрос на счета
+     *    и один на категории); чужой счет считается не найденным
+     * 2. Разбивает строки на порции и записывает каждую в отдельной транзакции БД
+     */
+    @Override
+    public TransactionImportResultDto importTransactions(List<TransactionRequest> requests) {
+        checkRowLimit(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Set<ConstraintViolation<TransactionRequest>> violations = validator.validate(requests.get(i));
+            if (!violations.isEmpty()) {
+                throw new BadRequestException("Строка " + (i + 1) + ": "
+                        + violations.iterator().next().getMessage());
+            }
+        }
+        Long userId = currentUserService.getCurrentUser().getId();
+        transactionBatchWriter.validate(requests, userId);
+
+        int imported = 0;
+        int chunks = 0;
+        Set<Long> accounts = new HashSet<>();
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            List<TransactionRequest> chunk = requests.subList(from, Math.min(from + chunkSize, requests.size()));
+            writeChunk(chunk, userId, chunks + 1, imported, requests.size());
+
+            imported += chunk.size();
+            chunks++;
+            chunk.forEach(request -> accounts.add(request.getAccountId()));
+            log.info("Импорт транзакций: сохранено {} из {} строк", imported, requests.size());
+        }
+
+        return new TransactionImportResultDto(requests.size(), imported, chunks, accounts.size());
+    }
+
+    private void writeChunk(List<TransactionRequest> chunk, Long userId, int number, int imported, int total) {
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            transactionBatchWriter.write(chunk, userId);
+            transactionManager.commit(status);
+        } catch (BadRequestException e) {
+            transactionManager.rollback(status);
+            String saved = status.isNewTransaction()
+                    ? ". Сохранено строк: " + imported + " из " + total
+                    : ". Импорт отменен, строки не сохранены";
+            throw new BadRequestException("Порция " + number + " не сохранена: " + e.getMessage() + saved);
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+    }
+
+    private void checkRowLimit(int rows) {
+        if (rows > maxRows) {
+            throw new BadRequestException("Превышено максимальное количество строк в импорте: " + maxRows);
+        }
+    }
+}
@@ -1,21 +1,49 @@
 package ru.denis.NauJava3.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.denis.NauJava3.config.MetricsConfig;
+import ru.denis.NauJava3.dto.CategoryInfoDto;
+import ru.denis.NauJava3.dto.TransactionDto;
+import ru.denis.NauJava3.dto.TransactionPageDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.dto.TransferDto;
 import ru.denis.NauJava3.entity.Account;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.Transfer;
 import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
 import ru.denis.NauJava3.repository.AccountRepository;
 import ru.denis.NauJava3.repository.CategoryRepository;
 import ru.denis.NauJava3.repository.TransactionRepository;
+import ru.denis.NauJava3.repository.TransferRepository;
+import ru.denis.NauJava3.service.AccountBalanceService;
+import ru.denis.NauJava3.service.CurrentUserService;
+import ru.denis.NauJava3.service.LedgerService;
+import ru.denis.NauJava3.service.SpendingAggregateService;
 import ru.denis.NauJava3.service.TransactionService;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Реализация сервиса управления транзакциями.
@@ -23,37 +51,88 @@ import java.time.LocalDateTime;
  * с использованием программного управления транзакциями.
  */
 @Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class TransactionServiceImpl implements TransactionService {
 
+    /** Разделитель даты и ID в курсоре страницы */
+    private static final String CURSOR_SEPARATOR = ",";
+
     private final AccountRepository accountRepository;
     private final CategoryRepository categoryRepository;
     private final TransactionRepository transactionRepository;
+    private final TransferRepository transferRepository;
+    private final SpendingAggregateService spendingAggregateService;
+    private final AccountBalanceService accountBalanceService;
+    private final LedgerService ledgerService;
 
     /** Менеджер транзакций для обеспечения атомарности операций */
     private final PlatformTransactionManager transactionManager;
 
+    /** Контекст персистентности для обновления счета после атомарного изменения баланса */
+    private final EntityManager entityManager;
+
+    private final CurrentUserService currentUserService;
+
+    /** Групповая запись одиночных транзакций, если она включена */
+    private final TransactionGroupCommitter groupCommitter;
+
+    /** Максимальный размер страницы при просмотре транзакций */
+    private final int maxPageSize;
+
+    /** Количество расходов и переводов, отклоненных из-за недостатка средств на счете */
+    private final Counter insufficientFunds;
+
     @Autowired
     public TransactionServiceImpl(
             AccountRepository accountRepository,
             CategoryRepository categoryRepository,
             TransactionRepository transactionRepository,
-            PlatformTransactionManager transactionManager) {
+            TransferRepository transferRepository,
+            SpendingAggregateService spendingAggregateService,
+            AccountBalanceService accountBalanceService,
+            LedgerService ledgerService,
+            PlatformTransactionManager transactionManager,
+            EntityManager entityManager,
+            CurrentUserService currentUserService,
+            TransactionGroupCommitter groupCommitter,
+            MeterRegistry meterRegistry,
+            @Value("${app.transactions.page.max-size:100}") int maxPageSize) {
         this.accountRepository = accountRepository;
         this.categoryRepository = categoryRepository;
         this.transactionRepository = transactionRepository;
+        this.transferRepository = transferRepository;
+        this.spendingAggregateService = spendingAggregateService;
+        this.accountBalanceService = accountBalanceService;
+        this.ledgerService = ledgerService;
         this.transactionManager = transactionManager;
+        this.entityManager = entityManager;
+        this.currentUserService = currentUserService;
+        this.groupCommitter = groupCommitter;
+        this.maxPageSize = maxPageSize;
+        this.insufficientFunds = Counter.builder("transaction.insufficient.funds")
+                .description("Количество расходов и переводов, отклоненных из-за недостатка средств на счете")
+                .register(meterRegistry);
     }
 
     /**
      * {@inheritDoc}
      *
      * Метод выполняет следующие шаги:
-     * 1. Проверяет существование счета и категории
-     * 2. Проверяет соответствие типа операции категории
-     * 3. Проверяет достаточность средств при расходной операции
-     * 4. Создает новую транзакцию
-     * 5. Обновляет баланс счета
-     * 6. Сохраняет изменения в базе данных
+     * 1. Проверяет существование категории и соответствие типа операции категории
+     *    по закэшированным сведениям о категории; транзакция ссылается на категорию по ID
+     * 2. Атомарно изменяет баланс счета одним оператором UPDATE; расход списывается
+     *    только при достаточности средств, поэтому параллельные операции не теряют обновлений
+     * 3. Создает новую транзакцию
+     * 4. Сохраняет изменения в базе данных
+     * 5. Обновляет дневной агрегат транзакций по категории и контрольные точки баланса счета
+     * 6. Добавляет проводку в журнал операций по счету
+     *
+     * Если включена групповая запись и метод вызван вне транзакции БД, транзакция передается
+     * {@link TransactionGroupCommitter} и записывается вместе с параллельными запросами одной
+     * транзакцией БД. Внутри транзакции БД (например, запроса с ключом идемпотентности)
+     * транзакция записывается в ней, чтобы фиксироваться вместе с остальными изменениями.
+     * В этом случае возвращается отсоединенная транзакция, у которой счет и категория
+     * доступны только по ID.
      */
     @Override
     public Transaction createTransaction(
@@ -63,63 +142,196 @@ public class TransactionServiceImpl implements TransactionService {
             String description,
             OperationType type) {
 
+        if (groupCommitter.isEnabled() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return createTransactionInGroup(accountId, categoryId, amount, description, type);
+        }
+
         TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
         Transaction savedTransaction = null;
 
         try {
-            Account account = accountRepository.findById(accountId)
-                    .orElseThrow(() -> new RuntimeException("Счет не найден"));
-
-            Category category = categoryRepository.findById(categoryId)
-                    .orElseThrow(() -> new RuntimeException("Категория не найдена"));
+            CategoryInfoDto category = categoryRepository.findInfoById(categoryId)
+                    .orElseThrow(() -> new BadRequestException("Категория не найдена"));
 
             if (category.getType() != type) {
-                throw new RuntimeException("Тип операции не соответствует категории");
+                throw new BadRequestException("Тип операции не соответствует категории");
             }
 
-            if (type == OperationType.EXPENSE) {
-                if (account.getBalance().compareTo(amount) < 0) {
-                    throw new RuntimeException("Недостаточно средств на счете");
+            int updated = type == OperationType.EXPENSE
+                    ? accountRepository.withdraw(accountId, amount)
+                    : accountRepository.addToBalance(accountId, amount);
+            if (updated == 0) {
+                if (!accountRepository.existsById(accountId)) {
+                    throw new ResourceNotFoundException("Счет не найден с id: " + accountId);
                 }
+                insufficientFunds.increment();
+                throw new BadRequestException("Недостаточно средств на счете");
             }
 
+            Account account = accountRepository.findById(accountId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Счет не найден с id: " + accountId));
+            entityManager.refresh(account);
+
             Transaction transaction = new Transaction();
             transaction.setAccount(account);
-            transaction.setCategory(category);
+            transaction.setCategory(entityManager.getReference(Category.class, category.getId()));
             transaction.setUser(account.getUser());
             transaction.setAmount(amount);
             transaction.setDescription(description);
             transaction.setDate(LocalDateTime.now());
             transaction.setType(type);
 
-            if (type == OperationType.INCOME) {
-                account.setBalance(account.getBalance().add(amount));
-            } else {
-                account.setBalance(account.getBalance().subtract(amount));
-            }
-
             savedTransaction = transactionRepository.save(transaction);
-            accountRepository.save(account);
+            spendingAggregateService.addTransaction(savedTransaction);
+            accountBalanceService.addTransaction(savedTransaction);
+            ledgerService.recordTransactions(List.of(savedTransaction));
 
             transactionManager.commit(status);
 
             return savedTransaction;
 
+        } catch (BadRequestException | ResourceNotFoundException e) {
+            transactionManager.rollback(status);
+            throw e;
         } catch (Exception e) {
             transactionManager.rollback(status);
             throw new RuntimeException("Ошибка при создании транзакции: " + e.getMessage());
         }
     }
 
+    /**
+     * Ставит транзакцию в очередь групповой записи и ожидает фиксации ее группы.
+     */
+    private Transaction createTransactionInGroup(
+            Long accountId,
+            Long categoryId,
+            BigDecimal amount,
+            String description,
+            OperationType type) {
+
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountId(accountId);
+        request.setCategoryId(categoryId);
+        request.setAmount(amount);
+        request.setDescription(description);
+        request.setType(type);
+        request.setDate(LocalDateTime.now());
+
+        try {
+            return groupCommitter.submitAndWait(request);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Ошибка при создании транзакции: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Ошибка при создании транзакции: ожидание записи прервано");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Проверяет, что счет принадлежит текущему пользователю, и создает транзакцию
+     * так же, как {@link #createTransaction}.
+     */
+    @Override
+    public TransactionDto createCurrentUserTransaction(TransactionRequest request) {
+        findOwnAccount(request.getAccountId(), currentUserService.getCurrentUser().getId());
+
+        Transaction transaction = createTransaction(request.getAccountId(), request.getCategoryId(),
+                request.getAmount(), request.getDescription(), request.getType());
+        return new TransactionDto(transaction.getId(), transaction.getAmount(), transaction.getDate(),
+                transaction.getDescription(), transaction.getType(), request.getAccountId(),
+                request.getCategoryId(), null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Метод выполняет следующие шаги:
+     * 1. Проверяет, что оба счета существуют и принадлежат текущему пользователю
+     * 2. Изменяет балансы счетов в порядке возрастания их ID: со счета списания сумма
+     *    списывается только при достаточности средств, на счет зачисления - добавляется.
+     *    Все операции с балансами блокируют строки счетов в одном порядке, поэтому встречные
+     *    переводы ждут друг друга, а не приводят к взаимоблокировке
+     * 3. Сохраняет перевод и две его операции без категории: расход со счета списания
+     *    и доход на счет зачисления
+     * 4. Обновляет контрольные точки баланса и добавляет проводки в журнал операций обоих счетов
+     */
+    @Override
+    public TransferDto createTransfer(
+            Long fromAccountId,
+            Long toAccountId,
+            BigDecimal amount,
+            String description) {
+
+        if (fromAccountId.equals(toAccountId)) {
+            throw new BadRequestException("Счета списания и зачисления должны различаться");
+        }
+        if (amount == null || amount.signum() <= 0) {
+            throw new BadRequestException("Сумма перевода должна быть положительным числом");
+        }
+
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+
+        try {
+            Long userId = currentUserService.getCurrentUser().getId();
+            Account from = findOwnAccount(fromAccountId, userId);
+            Account to = findOwnAccount(toAccountId, userId);
+
+            for (Long accountId : new TreeSet<>(List.of(fromAccountId, toAccountId))) {
+                if (accountId.equals(toAccountId)) {
+                    accountRepository.addToBalance(accountId, amount);
+                } else if (accountRepository.withdraw(accountId, amount) == 0) {
+                    insufficientFunds.increment();
+                    throw new BadRequestException("Недостаточно средств на счете " + accountId);
+                }
+            }
+            entityManager.refresh(from);
+            entityManager.refresh(to);
+
+            Transfer transfer = new Transfer();
+            transfer.setUser(from.getUser());
+            transfer.setFromAccount(from);
+            transfer.setToAccount(to);
+            transfer.setAmount(amount);
+            transfer.setDescription(description);
+            transfer.setDate(LocalDateTime.now());
+            transfer = transferRepository.save(transfer);
+
+            List<Transaction> legs = List.of(
+                    transferLeg(transfer, from, OperationType.EXPENSE),
+                    transferLeg(transfer, to, OperationType.INCOME));
+            transactionRepository.saveAll(legs);
+            accountBalanceService.addTransactions(legs);
+            ledgerService.recordTransactions(legs);
+
+            transactionManager.commit(status);
+
+            return new TransferDto(transfer.getId(), fromAccountId, toAccountId,
+                    transfer.getAmount(), transfer.getDate(), transfer.getDescription());
+
+        } catch (BadRequestException | ResourceNotFoundException e) {
+            transactionManager.rollback(status);
+            throw e;
+        } catch (Exception e) {
+            transactionManager.rollback(status);
+            throw new RuntimeException("Ошибка при создании перевода: " + e.getMessage());
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
      * Метод выполняет следующие шаги:
-     * 1. Находит транзакцию по ID
-     * 2. Получает связанный счет
-     * 3. Восстанавливает баланс счета (отменяет влияние удаляемой транзакции)
-     * 4. Удаляет транзакцию
-     * 5. Сохраняет обновленный баланс счета
+     * 1. Находит транзакцию по ID; операция перевода отдельно не удаляется
+     * 2. Удаляет транзакцию
+     * 3. Атомарно восстанавливает баланс счета (отменяет влияние удаляемой транзакции)
+     * 4. Исключает транзакцию из дневного агрегата по категории и из контрольных точек баланса
+     *    начиная с дня транзакции
+     * 5. Добавляет в журнал операций сторнирующую проводку; сам журнал не изменяется
      */
     @Override
     public void deleteTransaction(Long transactionId) {
@@ -128,17 +340,20 @@ public class TransactionServiceImpl implements TransactionService {
         try {
             Transaction transaction = transactionRepository.findById(transactionId)
                     .orElseThrow(() -> new RuntimeException("Транзакция не найдена"));
-
-            Account account = transaction.getAccount();
-
-            if (transaction.getType() == OperationType.INCOME) {
-                account.setBalance(account.getBalance().subtract(transaction.getAmount()));
-            } else {
-                account.setBalance(account.getBalance().add(transaction.getAmount()));
+            if (transaction.getTransfer() != null) {
+                throw new RuntimeException("Операция перевода не может быть удалена отдельно");
             }
 
+            BigDecimal delta = transaction.getType() == OperationType.INCOME
+                    ? transaction.getAmount().negate()
+                    : transaction.getAmount();
+
             transactionRepository.delete(transaction);
-            accountRepository.save(account);
+            accountRepository.addToBalance(transaction.getAccount().getId(), delta);
+            entityManager.refresh(transaction.getAccount());
+            spendingAggregateService.removeTransaction(transaction);
+            accountBalanceService.removeTransaction(transaction);
+            ledgerService.reverseTransaction(transaction.getId());
 
             transactionManager.commit(status);
 
@@ -147,4 +362,104 @@ public class TransactionServiceImpl implements TransactionService {
             throw new RuntimeException("Ошибка при удалении транзакции: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * {@inheritDoc}
+     *
+     * Используется постраничный просмотр по ключу: курсор содержит (date, id) последней
+     * транзакции страницы, и следующая страница читается по индексу с этой позиции,
+     * поэтому глубокие страницы не требуют сканирования пропускаемых строк.
+     */
+    @Override
+    public TransactionPageDto getCurrentUserTransactions(String cursor, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new BadRequestException("Размер страницы должен быть от 1 до " + maxPageSize);
+        }
+
+        Long userId = currentUserService.getCurrentUser().getId();
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionDto> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = transactionRepository.findPageByUser(userId, limit);
+        } else {
+            CursorPosition position = decodeCursor(cursor);
+            items = transactionRepository.findPageByUserAfter(userId, position.date(), position.id(), limit);
+        }
+
+        if (items.size() <= size) {
+            return new TransactionPageDto(items, null);
+        }
+        items = items.subList(0, size);
+        return new TransactionPageDto(items, encodeCursor(items.getLast()));
+    }
+
+    /**
+     * Загружает счет, принадлежащий пользователю
+     * @param accountId ID счета
+     * @param userId ID пользователя
+     * @return счет
+     * @throws ResourceNotFoundException если счет не найден или принадлежит другому пользователю
+     */
+    private Account findOwnAccount(Long accountId, Long userId) {
+        Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new ResourceNotFoundException("Счет не найден с id: " + accountId));
+        if (!account.getUser().getId().equals(userId)) {
+            throw new ResourceNotFoundException("Счет не найден с id: " + accountId);
+        }
+        return account;
+    }
+
+    /**
+     * Создает операцию перевода по одному из его счетов
+     * @param transfer перевод
+     * @param account счет операции
+     * @param type расход для счета списания, доход для счета зачисления
+     * @return несохраненная операция
+     */
+    private Transaction transferLeg(Transfer transfer, Account account, OperationType type) {
+        Transaction transaction = new Transaction();
+        transaction.setTransfer(transfer);
+        transaction.setAccount(account);
+        transaction.setUser(transfer.getUser());
+        transaction.setAmount(transfer.getAmount());
+        transaction.setDescription(transfer.getDescription());
+        transaction.setDate(transfer.getDate());
+        transaction.setType(type);
+        return transaction;
+    }
+
+    /**
+     * Формирует курсор из позиции последней транзакции страницы
+     * @param last последняя транзакция страницы
+     * @return непрозрачный для клиента курсор
+     */
+    private String encodeCursor(TransactionDto last) {
+        String position = last.getDate() + CURSOR_SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор
+     * @param cursor курсор из предыдущей страницы
+     * @return позиция последней транзакции предыдущей страницы
+     * @throws BadRequestException если курсор поврежден
+     */
+    private CursorPosition decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(CURSOR_SEPARATOR);
+            if (position.length != 2) {
+                throw new IllegalArgumentException(cursor);
+            }
+            return new CursorPosition(LocalDateTime.parse(position[0]), Long.parseLong(position[1]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Некорректный курсор страницы");
+        }
+    }
+
+    /**
+     * Позиция транзакции в порядке просмотра (date DESC, id DESC)
+     */
+    private record CursorPosition(LocalDateTime date, Long id) {
+    }
+}
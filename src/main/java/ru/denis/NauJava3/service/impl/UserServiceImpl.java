@@ -1,9 +1,11 @@
 package ru.denis.NauJava3.service.impl;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.config.MetricsConfig;
 import ru.denis.NauJava3.dto.UserRequest;
 import ru.denis.NauJava3.entity.User;
 import ru.denis.NauJava3.entity.enums.Role;
@@ -16,6 +18,7 @@ import java.time.LocalDateTime;
  * Реализация сервиса для управления пользователями в системе.
  */
 @Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class UserServiceImpl implements UserService {
 
     @Autowired
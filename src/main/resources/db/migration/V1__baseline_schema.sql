@@ -0,0 +1,105 @@
+-- Базовая схема, ранее создаваемая Hibernate (spring.jpa.hibernate.ddl-auto=update).
+-- Для существующих БД эта миграция не выполняется: они отмечаются версией 1
+-- (spring.flyway.baseline-on-migrate), и применяются только последующие миграции.
+
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY,
+    registration_date timestamp(6) NOT NULL,
+    email             varchar(255) NOT NULL UNIQUE,
+    password          varchar(255) NOT NULL,
+    username          varchar(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user_roles (
+    user_id bigint NOT NULL,
+    roles   varchar(255) CHECK (roles IN ('USER', 'ADMIN')),
+    CONSTRAINT fk_user_roles_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE categories (
+    id          bigint GENERATED BY DEFAULT AS IDENTITY,
+    color_code  varchar(255),
+    description varchar(255),
+    name        varchar(255) NOT NULL,
+    type        varchar(255) NOT NULL CHECK (type IN ('INCOME', 'EXPENSE')),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE accounts (
+    balance      numeric(38, 2) NOT NULL,
+    id           bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id      bigint NOT NULL,
+    account_type varchar(255) NOT NULL CHECK (account_type IN ('CASH', 'CARD', 'DEPOSIT')),
+    currency     varchar(255) NOT NULL,
+    name         varchar(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_accounts_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE budgets (
+    amount_limit numeric(38, 2) NOT NULL,
+    period_end   date NOT NULL,
+    period_start date NOT NULL,
+    category_id  bigint NOT NULL,
+    id           bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id      bigint NOT NULL,
+    name         varchar(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_budgets_category FOREIGN KEY (category_id) REFERENCES categories,
+    CONSTRAINT fk_budgets_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE transactions (
+    amount      numeric(38, 2) NOT NULL,
+    account_id  bigint NOT NULL,
+    category_id bigint NOT NULL,
+    date        timestamp(6) NOT NULL,
+    id          bigint NOT NULL,
+    user_id     bigint NOT NULL,
+    description varchar(255),
+    type        varchar(255) NOT NULL CHECK (type IN ('INCOME', 'EXPENSE')),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_account FOREIGN KEY (account_id) REFERENCES accounts,
+    CONSTRAINT fk_transactions_category FOREIGN KEY (category_id) REFERENCES categories,
+    CONSTRAINT fk_transactions_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE daily_spendings (
+    amount        numeric(38, 2) NOT NULL,
+    spending_date date NOT NULL,
+    category_id   bigint NOT NULL,
+    id            bigint GENERATED BY DEFAULT AS IDENTITY,
+    user_id       bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_daily_spendings_user_category_date UNIQUE (user_id, category_id, spending_date),
+    CONSTRAINT fk_daily_spendings_category FOREIGN KEY (category_id) REFERENCES categories,
+    CONSTRAINT fk_daily_spendings_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+CREATE TABLE reports (
+    attempts         integer DEFAULT 0 NOT NULL,
+    content_size     bigint,
+    creation_time    bigint,
+    id               bigint GENERATED BY DEFAULT AS IDENTITY,
+    lease_expires_at timestamp(6),
+    next_attempt_at  timestamp(6),
+    content_etag     varchar(255),
+    error_message    text,
+    lease_owner      varchar(255),
+    status           varchar(255) NOT NULL
+        CHECK (status IN ('CREATED', 'QUEUED', 'RUNNING', 'COMPLETED', 'ERROR', 'CANCELLED')),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE report_content_chunks (
+    seq       integer NOT NULL,
+    id        bigint GENERATED BY DEFAULT AS IDENTITY,
+    report_id bigint NOT NULL,
+    data      bytea NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_report_content_chunks_report_seq UNIQUE (report_id, seq),
+    CONSTRAINT fk_report_content_chunks_report FOREIGN KEY (report_id) REFERENCES reports
+);
@@ -0,0 +1,41 @@
+-- Индексы для основных запросов. IF NOT EXISTS: часть индексов могла быть
+-- создана Hibernate в БД, схема которых формировалась через ddl-auto=update.
+
+-- Поиск транзакций пользователя по категории за период (findByUserAndCategoryAndDateBetween);
+-- сумма включена в индекс, чтобы суммирование за период выполнялось без чтения таблицы.
+CREATE INDEX IF NOT EXISTS idx_transactions_user_category_date
+    ON transactions (user_id, category_id, date) INCLUDE (amount);
+
+-- Просмотр транзакций пользователя по курсору (date, id).
+CREATE INDEX IF NOT EXISTS idx_transactions_user_date_id
+    ON transactions (user_id, date, id);
+
+-- Внешние ключи, по которым выполняется соединение при формировании отчетов.
+CREATE INDEX IF NOT EXISTS idx_transactions_account
+    ON transactions (account_id);
+
+-- Поиск счетов пользователя по диапазону баланса.
+CREATE INDEX IF NOT EXISTS idx_accounts_user_balance
+    ON accounts (user_id, balance);
+
+-- Загрузка пользователя по имени при аутентификации.
+CREATE INDEX IF NOT EXISTS idx_users_username
+    ON users (username);
+
+-- Поиск категорий по типу, цвету и названию.
+CREATE INDEX IF NOT EXISTS idx_categories_type_color_name
+    ON categories (type, color_code, name);
+
+-- Бюджеты пользователя.
+CREATE INDEX IF NOT EXISTS idx_budgets_user
+    ON budgets (user_id);
+
+-- Роли пользователя загружаются вместе с пользователем.
+CREATE INDEX IF NOT EXISTS idx_user_roles_user
+    ON user_roles (user_id);
+
+-- Идентификаторы транзакций выдаются последовательностью блоками по 50 (пул Hibernate).
+-- В БД, где идентификаторы ранее выдавались столбцом IDENTITY, последовательность
+-- сдвигается за максимальный существующий идентификатор.
+CREATE SEQUENCE IF NOT EXISTS transactions_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('transactions_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM transactions));
@@ -0,0 +1,7 @@
+-- Поиск категорий по части названия без учета регистра (lower(name) LIKE '%...%').
+-- B-tree индекс не применим к условию с ведущим шаблоном; триграммный GIN-индекс
+-- позволяет выбирать подходящие строки по индексу независимо от размера таблицы.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_categories_name_trgm
+    ON categories USING gin (lower(name) gin_trgm_ops);
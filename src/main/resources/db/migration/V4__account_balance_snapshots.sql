@@ -0,0 +1,48 @@
+-- Контрольные точки баланса счетов: баланс на конец дня snapshot_date.
+-- Баланс на произвольную дату вычисляется от ближайшей контрольной точки
+-- с досуммированием транзакций между ними, а не по всей истории счета.
+CREATE TABLE account_balance_snapshots (
+    balance       numeric(38, 2) NOT NULL,
+    snapshot_date date NOT NULL,
+    account_id    bigint NOT NULL,
+    id            bigint GENERATED BY DEFAULT AS IDENTITY,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_account_balance_snapshots_account_date UNIQUE (account_id, snapshot_date),
+    CONSTRAINT fk_account_balance_snapshots_account FOREIGN KEY (account_id) REFERENCES accounts ON DELETE CASCADE
+);
+
+-- Суммирование транзакций счета за период между контрольной точкой и датой запроса
+-- выполняется только по индексу. Индекс заменяет idx_transactions_account.
+CREATE INDEX IF NOT EXISTS idx_transactions_account_date
+    ON transactions (account_id, date) INCLUDE (amount, type);
+
+DROP INDEX IF EXISTS idx_transactions_account;
+
+-- Начальные контрольные точки на конец каждого месяца с транзакциями (для текущего
+-- месяца - на вчерашний день). Баланс восстанавливается от текущего баланса счета
+-- вычитанием транзакций, совершенных после контрольной точки.
+WITH monthly AS (
+    SELECT t.account_id,
+           LEAST(CAST(date_trunc('month', t.date) + interval '1 month' - interval '1 day' AS date),
+                 CURRENT_DATE - 1) AS snapshot_date,
+           SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END) AS amount
+    FROM transactions t
+    WHERE t.date < CURRENT_DATE
+    GROUP BY 1, 2
+),
+recent AS (
+    SELECT t.account_id,
+           SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END) AS amount
+    FROM transactions t
+    WHERE t.date >= CURRENT_DATE
+    GROUP BY t.account_id
+)
+INSERT INTO account_balance_snapshots (account_id, snapshot_date, balance)
+SELECT m.account_id,
+       m.snapshot_date,
+       a.balance - COALESCE(r.amount, 0)
+           - COALESCE(SUM(m.amount) OVER (PARTITION BY m.account_id ORDER BY m.snapshot_date DESC
+                                          ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)
+FROM monthly m
+JOIN accounts a ON a.id = m.account_id
+LEFT JOIN recent r ON r.account_id = m.account_id;
@@ -0,0 +1,97 @@
+-- Журнал проводок по счетам. Записи только добавляются: удаление транзакции
+-- отражается сторнирующей проводкой, а баланс счета является проекцией журнала.
+-- seq - порядковый номер проводки внутри счета без пропусков; номер выдается
+-- под блокировкой строки счета, поэтому зафиксированные проводки счета всегда
+-- образуют непрерывный префикс 1..n.
+CREATE TABLE ledger_entries (
+    amount         numeric(38, 2) NOT NULL CHECK (amount >= 0),
+    account_id     bigint NOT NULL,
+    created_at     timestamp(6) NOT NULL DEFAULT LOCALTIMESTAMP,
+    id             bigint GENERATED BY DEFAULT AS IDENTITY,
+    reversal_of    bigint,
+    seq            bigint NOT NULL,
+    transaction_id bigint,
+    entry_type     varchar(255) NOT NULL CHECK (entry_type IN ('DEBIT', 'CREDIT')),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_ledger_entries_account_seq UNIQUE (account_id, seq),
+    CONSTRAINT uk_ledger_entries_reversal_of UNIQUE (reversal_of),
+    CONSTRAINT fk_ledger_entries_account FOREIGN KEY (account_id) REFERENCES accounts ON DELETE CASCADE,
+    CONSTRAINT fk_ledger_entries_reversal_of FOREIGN KEY (reversal_of) REFERENCES ledger_entries ON DELETE CASCADE
+);
+
+-- Поиск проводки транзакции при сторнировании.
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_transaction
+    ON ledger_entries (transaction_id);
+
+-- Проводки нельзя изменять и удалять; удаляются они только вместе со счетом.
+CREATE FUNCTION ledger_entries_append_only() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' AND NOT EXISTS (SELECT 1 FROM accounts WHERE id = OLD.account_id) THEN
+        RETURN OLD;
+    END IF;
+    RAISE EXCEPTION 'ledger_entries is append-only';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ledger_entries_append_only
+    BEFORE UPDATE OR DELETE ON ledger_entries
+    FOR EACH ROW EXECUTE FUNCTION ledger_entries_append_only();
+
+-- Начальный баланс нового счета записывается первой проводкой независимо от того,
+-- как создан счет (REST, генератор данных через COPY).
+CREATE FUNCTION ledger_entries_open_account() RETURNS trigger AS $$
+BEGIN
+    IF NEW.balance <> 0 THEN
+        INSERT INTO ledger_entries (account_id, seq, entry_type, amount)
+        VALUES (NEW.id, 1, CASE WHEN NEW.balance > 0 THEN 'CREDIT' ELSE 'DEBIT' END, abs(NEW.balance));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_accounts_open_ledger
+    AFTER INSERT ON accounts
+    FOR EACH ROW EXECUTE FUNCTION ledger_entries_open_account();
+
+-- Снимок проекции: баланс счета после применения проводок с номерами 1..seq.
+-- Пересборка баланса применяет к снимку только более поздние проводки.
+CREATE TABLE account_ledger_snapshots (
+    balance    numeric(38, 2) NOT NULL,
+    account_id bigint NOT NULL,
+    created_at timestamp(6) NOT NULL DEFAULT LOCALTIMESTAMP,
+    seq        bigint NOT NULL,
+    PRIMARY KEY (account_id),
+    CONSTRAINT fk_account_ledger_snapshots_account FOREIGN KEY (account_id) REFERENCES accounts ON DELETE CASCADE
+);
+
+-- Журнал существующих данных: начальный баланс (текущий баланс за вычетом
+-- всех транзакций) и проводки транзакций в порядке их дат.
+WITH transaction_totals AS (
+    SELECT t.account_id,
+           SUM(CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END) AS amount
+    FROM transactions t
+    GROUP BY t.account_id
+),
+entries AS (
+    SELECT a.id AS account_id, 0 AS kind, CAST(NULL AS timestamp) AS date, CAST(NULL AS bigint) AS transaction_id,
+           a.balance - COALESCE(tt.amount, 0) AS amount
+    FROM accounts a
+    LEFT JOIN transaction_totals tt ON tt.account_id = a.id
+    UNION ALL
+    SELECT t.account_id, 1, t.date, t.id,
+           CASE WHEN t.type = 'INCOME' THEN t.amount ELSE -t.amount END
+    FROM transactions t
+)
+INSERT INTO ledger_entries (account_id, seq, entry_type, amount, transaction_id)
+SELECT e.account_id,
+       ROW_NUMBER() OVER (PARTITION BY e.account_id ORDER BY e.kind, e.date, e.transaction_id),
+       CASE WHEN e.amount >= 0 THEN 'CREDIT' ELSE 'DEBIT' END,
+       abs(e.amount),
+       e.transaction_id
+FROM entries e
+WHERE e.transaction_id IS NOT NULL OR e.amount <> 0;
+
+INSERT INTO account_ledger_snapshots (account_id, seq, balance)
+SELECT e.account_id, MAX(e.seq), SUM(CASE WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END)
+FROM ledger_entries e
+GROUP BY e.account_id;
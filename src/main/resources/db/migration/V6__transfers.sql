@@ -0,0 +1,28 @@
+-- Переводы между счетами одного пользователя.
+-- Перевод проводится двумя транзакциями без категории: расходом со счета списания
+-- и доходом на счет зачисления. Поэтому балансы, контрольные точки и журнал операций
+-- учитывают переводы так же, как обычные транзакции.
+
+CREATE TABLE transfers (
+    amount          numeric(38, 2) NOT NULL CHECK (amount > 0),
+    date            timestamp(6) NOT NULL,
+    from_account_id bigint NOT NULL,
+    id              bigint GENERATED BY DEFAULT AS IDENTITY,
+    to_account_id   bigint NOT NULL,
+    user_id         bigint NOT NULL,
+    description     varchar(255),
+    PRIMARY KEY (id),
+    CONSTRAINT chk_transfers_accounts CHECK (from_account_id <> to_account_id),
+    CONSTRAINT fk_transfers_from_account FOREIGN KEY (from_account_id) REFERENCES accounts,
+    CONSTRAINT fk_transfers_to_account FOREIGN KEY (to_account_id) REFERENCES accounts,
+    CONSTRAINT fk_transfers_user FOREIGN KEY (user_id) REFERENCES users
+);
+
+-- Категория указывается у всех транзакций, кроме операций перевода
+ALTER TABLE transactions
+    ADD COLUMN transfer_id bigint,
+    ALTER COLUMN category_id DROP NOT NULL,
+    ADD CONSTRAINT fk_transactions_transfer FOREIGN KEY (transfer_id) REFERENCES transfers,
+    ADD CONSTRAINT chk_transactions_category CHECK ((category_id IS NULL) = (transfer_id IS NOT NULL));
+
+CREATE INDEX idx_transactions_transfer ON transactions (transfer_id) WHERE transfer_id IS NOT NULL;
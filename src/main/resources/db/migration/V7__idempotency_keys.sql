@@ -0,0 +1,20 @@
+-- Ключи идемпотентности запросов, создающих транзакции.
+-- Повтор запроса с тем же ключом возвращает сохраненный результат первого выполнения.
+-- Ключ ищется по первичному ключу (user_id, idempotency_key); просроченные ключи
+-- удаляются фоновой задачей порциями по индексу срока хранения.
+
+CREATE TABLE idempotency_keys (
+    response_status integer,
+    created_at      timestamp(6) NOT NULL,
+    expires_at      timestamp(6) NOT NULL,
+    user_id         bigint NOT NULL,
+    idempotency_key varchar(255) NOT NULL,
+    -- SHA-256 операции и тела запроса: повтор ключа с другим запросом отклоняется
+    request_hash    varchar(64) NOT NULL,
+    -- JSON успешного ответа; NULL, пока запрос выполняется
+    response_body   text,
+    PRIMARY KEY (user_id, idempotency_key),
+    CONSTRAINT fk_idempotency_keys_user FOREIGN KEY (user_id) REFERENCES users ON DELETE CASCADE
+);
+
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
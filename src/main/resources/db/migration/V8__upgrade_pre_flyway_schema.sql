@@ -0,0 +1,78 @@
+-- Приведение к базовой схеме V1 БД, созданных до перехода на Flyway.
+-- Такие БД отмечаются версией 1 (spring.flyway.baseline-on-migrate), но их схема
+-- сформирована Hibernate (ddl-auto=update) по сущностям более ранних версий:
+-- в ней нет таблиц daily_spendings и report_content_chunks и колонок очереди отчетов,
+-- а ограничение статуса отчета допускает только CREATED, COMPLETED и ERROR
+-- (ddl-auto=update не изменяет ограничения CHECK).
+-- Все изменения условные, поэтому для БД, созданных миграцией V1, миграция ничего не меняет.
+
+-- Дневные агрегаты транзакций. Для БД без агрегатов они заполняются по всем транзакциям
+-- так же, как при перестроении агрегатов (DailySpendingRepository.insertAggregatesFromTransactions).
+DO $$
+BEGIN
+    IF to_regclass(quote_ident(current_schema()) || '.daily_spendings') IS NULL THEN
+        CREATE TABLE daily_spendings (
+            amount        numeric(38, 2) NOT NULL,
+            spending_date date NOT NULL,
+            category_id   bigint NOT NULL,
+            id            bigint GENERATED BY DEFAULT AS IDENTITY,
+            user_id       bigint NOT NULL,
+            PRIMARY KEY (id),
+            CONSTRAINT uk_daily_spendings_user_category_date UNIQUE (user_id, category_id, spending_date),
+            CONSTRAINT fk_daily_spendings_category FOREIGN KEY (category_id) REFERENCES categories,
+            CONSTRAINT fk_daily_spendings_user FOREIGN KEY (user_id) REFERENCES users
+        );
+
+        INSERT INTO daily_spendings (user_id, category_id, spending_date, amount)
+        SELECT t.user_id, t.category_id, CAST(t.date AS date), SUM(t.amount)
+        FROM transactions t
+        WHERE t.category_id IS NOT NULL
+        GROUP BY t.user_id, t.category_id, CAST(t.date AS date);
+    END IF;
+END $$;
+
+-- Колонки очереди отчетов, сжатого содержимого и ETag.
+ALTER TABLE reports
+    ADD COLUMN IF NOT EXISTS attempts integer DEFAULT 0 NOT NULL,
+    ADD COLUMN IF NOT EXISTS content_size bigint,
+    ADD COLUMN IF NOT EXISTS lease_expires_at timestamp(6),
+    ADD COLUMN IF NOT EXISTS next_attempt_at timestamp(6),
+    ADD COLUMN IF NOT EXISTS content_etag varchar(255),
+    ADD COLUMN IF NOT EXISTS error_message text,
+    ADD COLUMN IF NOT EXISTS lease_owner varchar(255);
+
+-- Ограничение статуса отчета заменяется ограничением со всеми статусами очереди.
+-- Имя ограничения, созданного Hibernate, заранее неизвестно, поэтому удаляются
+-- все ограничения CHECK по колонке status.
+DO $$
+DECLARE
+    check_name text;
+BEGIN
+    FOR check_name IN
+        SELECT c.conname
+        FROM pg_constraint c
+        WHERE c.conrelid = 'reports'::regclass
+          AND c.contype = 'c'
+          AND pg_get_constraintdef(c.oid) LIKE '%status%'
+    LOOP
+        EXECUTE format('ALTER TABLE reports DROP CONSTRAINT %I', check_name);
+    END LOOP;
+END $$;
+
+ALTER TABLE reports ADD CONSTRAINT reports_status_check
+    CHECK (status IN ('CREATED', 'QUEUED', 'RUNNING', 'COMPLETED', 'ERROR', 'CANCELLED'));
+
+-- Сжатое содержимое отчетов, разбитое на фрагменты.
+CREATE TABLE IF NOT EXISTS report_content_chunks (
+    seq       integer NOT NULL,
+    id        bigint GENERATED BY DEFAULT AS IDENTITY,
+    report_id bigint NOT NULL,
+    data      bytea NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_report_content_chunks_report_seq UNIQUE (report_id, seq),
+    CONSTRAINT fk_report_content_chunks_report FOREIGN KEY (report_id) REFERENCES reports
+);
+
+-- Идентификаторы транзакций выдаются последовательностью transactions_seq (V2);
+-- столбец IDENTITY, созданный Hibernate, больше не используется.
+ALTER TABLE transactions ALTER COLUMN id DROP IDENTITY IF EXISTS;
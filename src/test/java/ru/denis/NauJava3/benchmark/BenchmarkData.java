@@ -0,0 +1,110 @@
+package ru.denis.NauJava3.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.denis.NauJava3.NauJava3Application;
+import ru.denis.NauJava3.service.SpendingAggregateService;
+
+import java.util.List;
+
+/**
+ * Общее состояние бенчмарков: контекст приложения с тестовыми настройками
+ * и синтетический набор данных заданного размера.
+ * При запуске база данных очищается и заново создается миграциями,
+ * затем заполняется пользователями, счетами, категориями, бюджетами и транзакциями.
+ * Размер набора задается параметрами JMH, например {@code -p transactions=1000000}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+    /** Количество транзакций в наборе данных */
+    @Param("10000")
+    public int transactions;
+
+    /** Количество пользователей; у каждого пользователя два счета и один бюджет */
+    @Param("1000")
+    public int users;
+
+    /** Количество категорий каждого типа */
+    @Param("50")
+    public int categories;
+
+    private ConfigurableApplicationContext context;
+
+    long[] accountIds;
+    long[] expenseCategoryIds;
+    long[] incomeCategoryIds;
+    long[] budgetIds;
+    long[] budgetUserIds;
+    String[] userEmails;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(NauJava3Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false")
+                .run();
+
+        JdbcTemplate jdbcTemplate = getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO users (username, email, password, registration_date) " +
+                "SELECT 'bench_user_' || g, 'bench_user_' || g || '@test.com', 'password', now() " +
+                "FROM generate_series(1, ?) g", users);
+        jdbcTemplate.update("INSERT INTO accounts (name, balance, currency, account_type, user_id) " +
+                "SELECT 'Bench', (u.id * 37 + g * 1000) % 10000, 'RUB', 'CARD', u.id " +
+                "FROM users u CROSS JOIN generate_series(1, 2) g");
+        jdbcTemplate.update("INSERT INTO categories (name, type, color_code) " +
+                "SELECT 'Bench category ' || g, CASE WHEN g % 2 = 0 THEN 'INCOME' ELSE 'EXPENSE' END, " +
+                "'#00000' || (g % 10) FROM generate_series(1, ?) g", categories * 2);
+
+        accountIds = ids(jdbcTemplate, "SELECT id FROM accounts ORDER BY id");
+        expenseCategoryIds = ids(jdbcTemplate, "SELECT id FROM categories WHERE type = 'EXPENSE' ORDER BY id");
+        incomeCategoryIds = ids(jdbcTemplate, "SELECT id FROM categories WHERE type = 'INCOME' ORDER BY id");
+        userEmails = jdbcTemplate.queryForList("SELECT email FROM users ORDER BY id", String.class)
+                .toArray(String[]::new);
+
+        jdbcTemplate.update("INSERT INTO transactions (id, amount, date, type, user_id, account_id, category_id) " +
+                "SELECT -g, 1 + g % 500, now() - (g % 365) * interval '1 day', 'EXPENSE', a.user_id, a.id, c.id " +
+                "FROM generate_series(1, ?) g " +
+                "JOIN (SELECT id, user_id, row_number() OVER (ORDER BY id) - 1 AS n FROM accounts) a " +
+                "  ON a.n = g % ? " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM categories " +
+                "      WHERE type = 'EXPENSE') c ON c.n = g % ?",
+                transactions, accountIds.length, expenseCategoryIds.length);
+        jdbcTemplate.update("INSERT INTO budgets (name, amount_limit, period_start, period_end, user_id, category_id) " +
+                "SELECT 'Bench budget', 5000, current_date - 365, current_date, u.id, c.id " +
+                "FROM (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM users) u " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n FROM categories " +
+                "      WHERE type = 'EXPENSE') c ON c.n = u.n % ?", expenseCategoryIds.length);
+        budgetIds = ids(jdbcTemplate, "SELECT id FROM budgets ORDER BY id");
+        budgetUserIds = ids(jdbcTemplate, "SELECT user_id FROM budgets ORDER BY id");
+
+        getBean(SpendingAggregateService.class).rebuildAggregates();
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T getBean(String name, Class<T> type) {
+        return context.getBean(name, type);
+    }
+
+    private static long[] ids(JdbcTemplate jdbcTemplate, String sql) {
+        List<Long> ids = jdbcTemplate.queryForList(sql, Long.class);
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
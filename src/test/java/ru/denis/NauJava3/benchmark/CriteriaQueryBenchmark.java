@@ -0,0 +1,169 @@
+package ru.denis.NauJava3.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import ru.denis.NauJava3.dao.AccountRepositoryCustom;
+import ru.denis.NauJava3.dao.CategoryRepositoryCustom;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение поиска через Criteria API с построением запроса при каждом вызове
+ * и с переиспользованием запросов, построенных для каждой комбинации условий
+ * ({@link ru.denis.NauJava3.dao.AccountRepositoryCustomImpl},
+ * {@link ru.denis.NauJava3.dao.CategoryRepositoryCustomImpl}).
+ * Выполняется на наборе данных {@link BenchmarkData}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CriteriaQueryBenchmark {
+
+    private EntityManager entityManager;
+    private AccountRepositoryCustom accountRepository;
+    private CategoryRepositoryCustom categoryRepository;
+    private int users;
+    private int categories;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                data.getBean(EntityManagerFactory.class));
+        accountRepository = data.getBean("accountRepositoryCustomImpl", AccountRepositoryCustom.class);
+        categoryRepository = data.getBean("categoryRepositoryCustomImpl", CategoryRepositoryCustom.class);
+        users = data.users;
+        categories = data.categories * 2;
+    }
+
+    @Benchmark
+    public List<Account> accountsPerCallCriteria() {
+        int i = invocation++;
+        return buildAccountsQuery(email(i), minBalance(i), maxBalance(i));
+    }
+
+    @Benchmark
+    public List<Account> accountsCachedCriteria() {
+        int i = invocation++;
+        return accountRepository.findUserAccountsByEmailAndBalanceRangeCriteria(email(i), minBalance(i), maxBalance(i));
+    }
+
+    @Benchmark
+    public List<Category> categoriesPerCallCriteria() {
+        int i = invocation++;
+        return buildCategoriesQuery(type(i), colorCode(i), namePart(i));
+    }
+
+    @Benchmark
+    public List<Category> categoriesCachedCriteria() {
+        int i = invocation++;
+        return categoryRepository.findByTypeAndColorCodeAndNameContainingCriteria(type(i), colorCode(i), namePart(i));
+    }
+
+    /**
+     * Значения условий перебирают все комбинации заданных и пропущенных условий.
+     */
+    private String email(int i) {
+        return i % 2 == 0 ? "bench_user_" + (i % users + 1) + "@test.com" : null;
+    }
+
+    private BigDecimal minBalance(int i) {
+        return (i >> 1) % 2 == 0 ? BigDecimal.valueOf(i % 5000) : null;
+    }
+
+    private BigDecimal maxBalance(int i) {
+        return (i >> 2) % 2 == 0 ? BigDecimal.valueOf(5000 + i % 5000) : null;
+    }
+
+    private OperationType type(int i) {
+        return i % 2 == 0 ? OperationType.values()[(i >> 3) % 2] : null;
+    }
+
+    private String colorCode(int i) {
+        return (i >> 1) % 2 == 0 ? "#00000" + i % 10 : null;
+    }
+
+    private String namePart(int i) {
+        return (i >> 2) % 2 == 0 ? "category " + (i % categories + 1) : null;
+    }
+
+    /**
+     * Построение запроса счетов при каждом вызове, как до переиспользования запросов.
+     */
+    private List<Account> buildAccountsQuery(String userEmail, BigDecimal minBalance, BigDecimal maxBalance) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Account> criteriaQuery = criteriaBuilder.createQuery(Account.class);
+        Root<Account> account = criteriaQuery.from(Account.class);
+        Join<Account, User> userJoin = account.join("user");
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (userEmail != null) {
+            predicates.add(criteriaBuilder.equal(userJoin.get("email"), userEmail));
+        }
+        if (minBalance != null && maxBalance != null) {
+            predicates.add(criteriaBuilder.between(account.get("balance"), minBalance, maxBalance));
+        } else if (minBalance != null) {
+            predicates.add(criteriaBuilder.ge(account.get("balance"), minBalance));
+        } else if (maxBalance != null) {
+            predicates.add(criteriaBuilder.le(account.get("balance"), maxBalance));
+        }
+        if (!predicates.isEmpty()) {
+            criteriaQuery.where(criteriaBuilder.and(predicates.toArray(new Predicate[0])));
+        }
+
+        return entityManager.createQuery(criteriaQuery).getResultList();
+    }
+
+    /**
+     * Построение запроса категорий при каждом вызове, как до переиспользования запросов.
+     */
+    private List<Category> buildCategoriesQuery(OperationType type, String colorCode, String namePart) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Category> criteriaQuery = criteriaBuilder.createQuery(Category.class);
+        Root<Category> category = criteriaQuery.from(Category.class);
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (type != null) {
+            predicates.add(criteriaBuilder.equal(category.get("type"), type));
+        }
+        if (colorCode != null) {
+            predicates.add(criteriaBuilder.equal(category.get("colorCode"), colorCode));
+        }
+        if (namePart != null) {
+            predicates.add(criteriaBuilder.like(
+                    criteriaBuilder.lower(category.get("name")), "%" + namePart.toLowerCase() + "%"));
+        }
+        if (!predicates.isEmpty()) {
+            criteriaQuery.where(criteriaBuilder.and(predicates.toArray(new Predicate[0])));
+        }
+
+        return entityManager.createQuery(criteriaQuery).getResultList();
+    }
+}
@@ -0,0 +1,76 @@
+package ru.denis.NauJava3.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки поиска счетов и категорий: запросы репозиториев
+ * и запросы, построенные через Criteria API, с одинаковыми условиями.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositorySearchBenchmark {
+
+    private static final BigDecimal MIN_BALANCE = new BigDecimal("1000");
+    private static final BigDecimal MAX_BALANCE = new BigDecimal("8000");
+
+    private int invocation;
+
+    @Benchmark
+    public List<Account> accountsByEmailAndBalanceRange(BenchmarkData data) {
+        return data.getBean(AccountRepository.class).findUserAccountsByEmailAndBalanceRange(
+                nextEmail(data), MIN_BALANCE, MAX_BALANCE);
+    }
+
+    @Benchmark
+    public List<Account> accountsByEmailAndBalanceRangeCriteria(BenchmarkData data) {
+        return data.getBean(AccountRepository.class).findUserAccountsByEmailAndBalanceRangeCriteria(
+                nextEmail(data), MIN_BALANCE, MAX_BALANCE);
+    }
+
+    @Benchmark
+    public List<Category> categoriesByTypeColorAndName(BenchmarkData data) {
+        int i = invocation++;
+        return data.getBean(CategoryRepository.class).findByTypeAndColorCodeAndNameContaining(
+                OperationType.EXPENSE, colorCode(i), namePart(i));
+    }
+
+    @Benchmark
+    public List<Category> categoriesByTypeColorAndNameCriteria(BenchmarkData data) {
+        int i = invocation++;
+        return data.getBean(CategoryRepository.class).findByTypeAndColorCodeAndNameContainingCriteria(
+                OperationType.EXPENSE, colorCode(i), namePart(i));
+    }
+
+    private String nextEmail(BenchmarkData data) {
+        return data.userEmails[invocation++ % data.userEmails.length];
+    }
+
+    private String colorCode(int i) {
+        return "#00000" + i % 10;
+    }
+
+    private String namePart(int i) {
+        return "category " + (i % 100 + 1);
+    }
+}
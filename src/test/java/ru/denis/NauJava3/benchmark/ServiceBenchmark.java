@@ -0,0 +1,79 @@
+package ru.denis.NauJava3.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.service.BudgetService;
+import ru.denis.NauJava3.service.TransactionService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки операций сервисов: создание транзакции
+ * ({@link ru.denis.NauJava3.service.impl.TransactionServiceImpl#createTransaction})
+ * и проверка превышения бюджета
+ * ({@link ru.denis.NauJava3.service.impl.BudgetServiceImpl#isBudgetExceeded}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private Authentication[] budgetOwners;
+    private int invocation;
+
+    /**
+     * Бюджет доступен только владельцу, поэтому для каждого бюджета
+     * заранее готовится аутентификация его владельца.
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkData data) {
+        budgetOwners = new Authentication[data.budgetUserIds.length];
+        for (int i = 0; i < budgetOwners.length; i++) {
+            User owner = new User();
+            owner.setId(data.budgetUserIds[i]);
+            budgetOwners[i] = new UsernamePasswordAuthenticationToken(owner, null, List.of());
+        }
+    }
+
+    /**
+     * Создание дохода: операция не зависит от текущего баланса счета,
+     * поэтому все вызовы выполняют полный путь записи.
+     */
+    @Benchmark
+    public Transaction createTransaction(BenchmarkData data) {
+        int i = invocation++;
+        return data.getBean(TransactionService.class).createTransaction(
+                data.accountIds[i % data.accountIds.length],
+                data.incomeCategoryIds[i % data.incomeCategoryIds.length],
+                BigDecimal.TEN,
+                "Benchmark",
+                OperationType.INCOME);
+    }
+
+    @Benchmark
+    public boolean isBudgetExceeded(BenchmarkData data) {
+        int i = invocation++ % data.budgetIds.length;
+        SecurityContextHolder.getContext().setAuthentication(budgetOwners[i]);
+        return data.getBean(BudgetService.class).isBudgetExceeded(data.budgetIds[i]);
+    }
+}
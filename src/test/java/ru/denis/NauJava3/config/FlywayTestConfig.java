@@ -0,0 +1,33 @@
+package ru.denis.NauJava3.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Конфигурация миграций для тестов.
+ * При запуске первого тестового контекста схема тестовой БД очищается
+ * и создается миграциями заново, поэтому тесты выполняются на той же схеме,
+ * что и приложение, а Hibernate проверяет ее соответствие сущностям (ddl-auto=validate).
+ * Следующие контексты только применяют миграции: Spring сохраняет созданные контексты
+ * вместе с их кэшами, и повторная очистка схемы выдала бы новым строкам ID,
+ * под которыми в кэшах сохраненных контекстов остались удаленные строки.
+ */
+@Configuration
+public class FlywayTestConfig {
+
+    /** Очищена ли схема тестовой БД в этом запуске тестов */
+    private static final AtomicBoolean CLEANED = new AtomicBoolean();
+
+    @Bean
+    public FlywayMigrationStrategy cleanMigrateStrategy() {
+        return flyway -> {
+            if (CLEANED.compareAndSet(false, true)) {
+                flyway.clean();
+            }
+            flyway.migrate();
+        };
+    }
+}
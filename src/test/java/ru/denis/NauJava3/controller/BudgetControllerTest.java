@@ -12,6 +12,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import ru.denis.NauJava3.dto.BudgetDto;
+import ru.denis.NauJava3.dto.BudgetStatusDto;
 import ru.denis.NauJava3.entity.Budget;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.User;
@@ -85,6 +86,8 @@ public class BudgetControllerTest {
         when(budgetService.getBudgetById(999L)).thenThrow(new ResourceNotFoundException("Budget not found with id: 999"));
         when(budgetService.getCurrentUserBudgets()).thenReturn(List.of(testBudget));
         when(budgetService.isBudgetExceeded(1L)).thenReturn(false);
+        when(budgetService.getCurrentUserBudgetStatuses()).thenReturn(List.of(
+                new BudgetStatusDto(testBudget, new BigDecimal("600.00"), new BigDecimal("-100.00"), true)));
     }
 
     /**
@@ -225,6 +228,25 @@ public class BudgetControllerTest {
                 .body("isExceeded", equalTo(true));
     }
 
+    /**
+     * Проверяет получение состояния всех бюджетов пользователя одним запросом.
+     * Ожидаемый результат: HTTP 200 OK и состояние каждого бюджета в ответе.
+     */
+    @Test
+    void getCurrentUserBudgetStatuses_Returns200OkWithStatuses() {
+        given()
+                .auth().with(user("testuser").roles("USER"))
+                .when()
+                .get("/status")
+                .then()
+                .statusCode(200)
+                .body("size()", equalTo(1))
+                .body("[0].budget.id", equalTo(1))
+                .body("[0].spentAmount", comparesEqualTo(600.00f))
+                .body("[0].remainingAmount", comparesEqualTo(-100.00f))
+                .body("[0].exceeded", equalTo(true));
+    }
+
     /**
      * Проверяет обработку запроса статуса для несуществующего бюджета.
      * Ожидаемый результат: HTTP 404 Not Found.
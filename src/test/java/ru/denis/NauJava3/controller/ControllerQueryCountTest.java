@@ -0,0 +1,179 @@
+package ru.denis.NauJava3.controller;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Budget;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.denis.NauJava3.monitoring.SqlQueryAssertions.assertMaxQueries;
+import static ru.denis.NauJava3.monitoring.SqlQueryAssertions.assertQueryCount;
+
+/**
+ * Интеграционные тесты количества SQL-запросов эндпоинтов REST API.
+ * Учитываются и запросы при сериализации ответа в JSON, поэтому тесты
+ * обнаруживают проблему N+1 при загрузке ленивых связей.
+ * У пользователя несколько счетов, бюджетов и транзакций с разными категориями.
+ */
+@SpringBootTest
+@Transactional
+class ControllerQueryCountTest {
+
+    private static final int ITEMS = 10;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+    private User owner;
+    private List<Budget> budgets;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        String uniqueId = UUID.randomUUID().toString();
+        owner = new User();
+        owner.setUsername("queries_" + uniqueId);
+        owner.setEmail("queries_" + uniqueId + "@test.com");
+        owner.setPassword("password");
+        owner.setRegistrationDate(LocalDateTime.now());
+        entityManager.persist(owner);
+
+        budgets = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            Account account = new Account();
+            account.setName("Queries account " + i);
+            account.setBalance(new BigDecimal("1000.00"));
+            account.setCurrency("RUB");
+            account.setAccountType(Account.AccountType.CARD);
+            account.setUser(owner);
+            entityManager.persist(account);
+
+            Category category = new Category();
+            category.setName("Queries category " + i);
+            category.setType(OperationType.EXPENSE);
+            category.setColorCode("#00FF00");
+            entityManager.persist(category);
+
+            Budget budget = new Budget();
+            budget.setName("Queries budget " + i);
+            budget.setAmountLimit(new BigDecimal("500.00"));
+            budget.setPeriodStart(LocalDate.now().minusDays(30));
+            budget.setPeriodEnd(LocalDate.now());
+            budget.setUser(owner);
+            budget.setCategory(category);
+            entityManager.persist(budget);
+            budgets.add(budget);
+
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.TEN);
+            transaction.setDate(LocalDateTime.now().minusHours(i));
+            transaction.setType(OperationType.EXPENSE);
+            transaction.setUser(owner);
+            transaction.setAccount(account);
+            transaction.setCategory(category);
+            entityManager.persist(transaction);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Проверяет, что список бюджетов загружается вместе с категориями и владельцем одним запросом;
+     * второй запрос загружает роли владельца.
+     */
+    @Test
+    void getBudgets_LoadsAssociationsInOneQuery() {
+        assertQueryCount(2, () -> perform(get("/api/budgets")));
+    }
+
+    /**
+     * Проверяет, что статусы бюджетов не загружают категории по одной.
+     */
+    @Test
+    void getBudgetStatuses_DoesNotLoadCategoriesOneByOne() {
+        assertQueryCount(3, () -> perform(get("/api/budgets/status")));
+    }
+
+    /**
+     * Проверяет количество запросов при получении статуса одного бюджета.
+     */
+    @Test
+    void getBudgetStatus_QueryCount() {
+        assertMaxQueries(4, () -> perform(get("/api/budgets/{id}/status", budgets.getFirst().getId())));
+    }
+
+    /**
+     * Проверяет, что страница транзакций формируется одним запросом без загрузки связей.
+     */
+    @Test
+    void getTransactions_SingleQuery() {
+        assertQueryCount(1, () -> perform(get("/api/transactions").param("size", String.valueOf(ITEMS))));
+    }
+
+    /**
+     * Проверяет, что поиск счетов загружает владельца один раз для всех счетов.
+     */
+    @Test
+    void searchAccounts_QueryCountDoesNotDependOnResultSize() {
+        assertQueryCount(2, () -> perform(get("/api/accounts/search/byEmailAndBalance")
+                .param("userEmail", owner.getEmail())
+                .param("minBalance", "0")
+                .param("maxBalance", "5000")));
+        assertQueryCount(2, () -> perform(get("/api/accounts/search/byEmailAndBalanceUsedCriteria")
+                .param("userEmail", owner.getEmail())));
+    }
+
+    /**
+     * Проверяет, что поиск категорий выполняется одним запросом.
+     */
+    @Test
+    void searchCategories_SingleQuery() {
+        assertQueryCount(1, () -> perform(get("/api/categories/search/byTypeAndColorAndName")
+                .param("type", "EXPENSE")
+                .param("colorCode", "#00FF00")
+                .param("namePart", "Queries")));
+        assertQueryCount(1, () -> perform(get("/api/categories/search/byTypeAndColorAndNameUsedCriteria")
+                .param("colorCode", "#00FF00")));
+    }
+
+    /**
+     * Выполняет запрос от имени владельца данных с пустым контекстом персистентности,
+     * чтобы учитывались все загрузки связей.
+     */
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        entityManager.clear();
+        mockMvc.perform(request.with(user(owner))).andExpect(status().isOk());
+    }
+}
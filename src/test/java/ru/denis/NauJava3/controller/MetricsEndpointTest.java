@@ -0,0 +1,100 @@
+package ru.denis.NauJava3.controller;
+
+import io.restassured.module.mockmvc.RestAssuredMockMvc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.service.UserService;
+
+import java.math.BigDecimal;
+
+import static io.restassured.module.mockmvc.RestAssuredMockMvc.given;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+
+/**
+ * Интеграционные тесты метрик сервисов и репозиториев с использованием RestAssured с MockMvc.
+ * Проверяет, что таймеры методов с гистограммами и бизнес-счетчики
+ * публикуются в /actuator/metrics и в формате Prometheus.
+ */
+@SpringBootTest
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        MockMvc mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        RestAssuredMockMvc.mockMvc(mockMvc);
+        RestAssuredMockMvc.basePath = "/actuator";
+    }
+
+    /**
+     * Проверяет публикацию таймеров методов сервисов и репозиториев в формате Prometheus.
+     * Ожидаемый результат: гистограммы с тегами class и method, в том числе для вызова с ошибкой.
+     */
+    @Test
+    void prometheus_ContainsMethodTimerHistograms() {
+        assertThrows(RuntimeException.class, () -> userService.findByUsername("metrics_missing_user"));
+        accountRepository.findUserAccountsByEmailAndBalanceRangeCriteria("metrics@test.com", null, BigDecimal.TEN);
+        categoryRepository.findByTypeAndColorCodeAndNameContainingCriteria(OperationType.EXPENSE, null, "metrics");
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .when()
+                .get("/prometheus")
+                .then()
+                .statusCode(200)
+                .body(allOf(
+                        containsString("service_method_seconds_bucket{class=\"ru.denis.NauJava3.service.impl.UserServiceImpl\""),
+                        containsString("method=\"findByUsername\""),
+                        containsString("exception=\"EntityNotFoundException\""),
+                        containsString("repository_method_seconds_bucket{class=\"ru.denis.NauJava3.dao.AccountRepositoryCustomImpl\""),
+                        containsString("method=\"findByTypeAndColorCodeAndNameContainingCriteria\""),
+                        containsString("transaction_insufficient_funds_total"),
+                        containsString("budget_exceeded_total"),
+                        containsString("report_errors_total{")));
+    }
+
+    /**
+     * Проверяет, что таймер сервисов доступен в /actuator/metrics.
+     * Ожидаемый результат: HTTP 200 OK и тег method среди доступных тегов.
+     */
+    @Test
+    void metrics_ContainsServiceTimer() {
+        assertThrows(RuntimeException.class, () -> userService.findByUsername("metrics_missing_user"));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .when()
+                .get("/metrics/service.method")
+                .then()
+                .statusCode(200)
+                .body("availableTags.tag", hasItems("class", "method", "exception"));
+    }
+}
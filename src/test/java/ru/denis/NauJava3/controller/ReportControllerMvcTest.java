@@ -0,0 +1,186 @@
+package ru.denis.NauJava3.controller;
+
+import io.restassured.module.mockmvc.RestAssuredMockMvc;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import ru.denis.NauJava3.dto.ReportStatusDto;
+import ru.denis.NauJava3.entity.enums.ReportStatus;
+import ru.denis.NauJava3.service.ReportService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static io.restassured.module.mockmvc.RestAssuredMockMvc.given;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+
+/**
+ * Интеграционные тесты для {@link ReportController} с использованием RestAssured с MockMvc.
+ * Проверяет, что ответы контроллера проходят обработку Spring MVC: содержимое готового
+ * отчета передается потоком, а статус формирующегося отчета - в JSON.
+ * Тело ответа записывается асинхронно, поэтому запросы с телом ожидают завершения записи.
+ */
+@SpringBootTest
+class ReportControllerMvcTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @MockBean
+    private ReportService reportService;
+
+    @BeforeEach
+    void setUp() {
+        MockMvc mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        RestAssuredMockMvc.mockMvc(mockMvc);
+        RestAssuredMockMvc.basePath = "/api/reports";
+    }
+
+    /**
+     * Проверяет получение содержимого готового отчета.
+     * Ожидаемый результат: HTTP 200 OK, HTML-содержимое и ETag.
+     */
+    @Test
+    void getReport_Completed_Returns200WithContent() throws IOException {
+        ReportStatusDto report = new ReportStatusDto(1L, ReportStatus.COMPLETED, null, 64L, "abc123");
+        when(reportService.getReportStatus(1L)).thenReturn(report);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("<html>Отчет</html>".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(reportService).writeReportContent(eq(report), any(OutputStream.class), eq(true));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .when().async()
+                .get("/{id}", "1")
+                .then()
+                .statusCode(200)
+                .contentType(containsString("text/html"))
+                .header("ETag", equalTo("\"abc123\""))
+                .body(equalTo("<html>Отчет</html>"));
+    }
+
+    /**
+     * Проверяет получение готового отчета клиентом, поддерживающим gzip.
+     * Ожидаемый результат: HTTP 200 OK, сжатое содержимое без распаковки и ETag сжатого представления.
+     */
+    @Test
+    void getReport_CompletedWithGzip_Returns200WithCompressedContent() throws IOException {
+        ReportStatusDto report = new ReportStatusDto(3L, ReportStatus.COMPLETED, null, 4L, "def456");
+        when(reportService.getReportStatus(3L)).thenReturn(report);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(new byte[]{0x1f, (byte) 0x8b, 0x08, 0x00});
+            return null;
+        }).when(reportService).writeReportContent(eq(report), any(OutputStream.class), eq(false));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .header("Accept-Encoding", "gzip")
+                .when().async()
+                .get("/{id}", "3")
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", equalTo("gzip"))
+                .header("Content-Length", equalTo("4"))
+                .header("ETag", equalTo("\"def456-gzip\""));
+    }
+
+    /**
+     * Проверяет ответ на условный запрос готового отчета с актуальным ETag.
+     * Ожидаемый результат: HTTP 304 Not Modified без содержимого.
+     */
+    @Test
+    void getReport_MatchingIfNoneMatch_Returns304() {
+        when(reportService.getReportStatus(4L))
+                .thenReturn(new ReportStatusDto(4L, ReportStatus.COMPLETED, null, 4L, "abc123"));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .header("If-None-Match", "\"abc123\"")
+                .when()
+                .get("/{id}", "4")
+                .then()
+                .statusCode(304)
+                .body(emptyString());
+    }
+
+    /**
+     * Проверяет, что gzip с весом q=0 не считается поддерживаемым.
+     * Ожидаемый результат: HTTP 200 OK, распакованное содержимое и ETag несжатого представления.
+     */
+    @Test
+    void getReport_GzipWithZeroQuality_Returns200WithPlainContent() throws IOException {
+        ReportStatusDto report = new ReportStatusDto(5L, ReportStatus.COMPLETED, null, 4L, "abc123");
+        when(reportService.getReportStatus(5L)).thenReturn(report);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("<html>Report</html>".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(reportService).writeReportContent(eq(report), any(OutputStream.class), eq(true));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .header("Accept-Encoding", "gzip;q=0, *;q=0.5")
+                .when().async()
+                .get("/{id}", "5")
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", nullValue())
+                .header("ETag", equalTo("\"abc123\""))
+                .body(equalTo("<html>Report</html>"));
+    }
+
+    /**
+     * Проверяет, что ответ 304 содержит совпавший ETag, а не ETag представления,
+     * выбранного по Accept-Encoding.
+     * Ожидаемый результат: HTTP 304 Not Modified с ETag несжатого представления.
+     */
+    @Test
+    void getReport_MatchingPlainEtagWithGzip_Returns304WithMatchedEtag() {
+        when(reportService.getReportStatus(6L))
+                .thenReturn(new ReportStatusDto(6L, ReportStatus.COMPLETED, null, 4L, "abc123"));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", "\"abc123\"")
+                .when()
+                .get("/{id}", "6")
+                .then()
+                .statusCode(304)
+                .header("ETag", equalTo("\"abc123\""));
+    }
+
+    /**
+     * Проверяет получение статуса формирующегося отчета.
+     * Ожидаемый результат: HTTP 200 OK и статус в JSON.
+     */
+    @Test
+    void getReport_Queued_Returns200WithStatus() {
+        when(reportService.getReportStatus(2L))
+                .thenReturn(new ReportStatusDto(2L, ReportStatus.QUEUED, null, null, null));
+
+        given()
+                .auth().with(user("admin").roles("ADMIN"))
+                .when().async()
+                .get("/{id}", "2")
+                .then()
+                .statusCode(200)
+                .body("status", equalTo("QUEUED"));
+    }
+}
@@ -1,21 +1,31 @@
 package ru.denis.NauJava3.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.denis.NauJava3.dto.ReportStatusDto;
 import ru.denis.NauJava3.entity.Report;
 import ru.denis.NauJava3.entity.enums.ReportStatus;
 import ru.denis.NauJava3.service.ReportService;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -33,12 +43,15 @@ class ReportControllerTest {
     @Mock
     private ReportService reportService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private ReportController reportController;
 
-    private Report completedReport;
-    private Report inProgressReport;
-    private Report errorReport;
+    private ReportStatusDto completedReport;
+    private ReportStatusDto inProgressReport;
+    private ReportStatusDto errorReport;
 
     /**
      * Настройка тестовых данных перед каждым тестом.
@@ -46,19 +59,9 @@ class ReportControllerTest {
      */
     @BeforeEach
     void setUp() {
-        completedReport = new Report();
-        completedReport.setId(1L);
-        completedReport.setStatus(ReportStatus.COMPLETED);
-        completedReport.setContent("<html><body>Отчет готов</body></html>");
-
-        inProgressReport = new Report();
-        inProgressReport.setId(2L);
-        inProgressReport.setStatus(ReportStatus.CREATED);
-
-        errorReport = new Report();
-        errorReport.setId(3L);
-        errorReport.setStatus(ReportStatus.ERROR);
-        errorReport.setContent("Database connection failed");
+        completedReport = new ReportStatusDto(1L, ReportStatus.COMPLETED, null, 64L, "abc123");
+        inProgressReport = new ReportStatusDto(2L, ReportStatus.QUEUED, null, null, null);
+        errorReport = new ReportStatusDto(3L, ReportStatus.ERROR, "Database connection failed", null, null);
     }
 
     /**
@@ -88,22 +91,74 @@ class ReportControllerTest {
 
     /**
      * Проверяет корректность обработки запроса для готового отчета.
-     * Готовый отчет должен возвращаться в виде HTML-содержимого.
+     * Готовый отчет должен передаваться потоком в виде распакованного HTML-содержимого.
+     */
+    @Test
+    void getReport_CompletedReport_ShouldStreamHtmlContent() throws IOException {
+        // Arrange
+        when(reportService.getReportStatus(1L)).thenReturn(completedReport);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("<html><body>Отчет готов</body></html>".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(reportService).writeReportContent(eq(completedReport), any(OutputStream.class), eq(true));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = reportController.getReport(1L, null, null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(MediaType.TEXT_HTML.isCompatibleWith(response.getHeaders().getContentType()));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"abc123\"", response.getHeaders().getETag());
+        assertTrue(response.getHeaders().getCacheControl().contains("immutable"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        assertEquals("<html><body>Отчет готов</body></html>", out.toString(StandardCharsets.UTF_8));
+
+        verify(reportService).getReportStatus(1L);
+        verify(reportService, never()).getReport(anyLong());
+    }
+
+    /**
+     * Проверяет, что клиенту, поддерживающему gzip, сжатое содержимое отчета
+     * передается без распаковки с заголовками Content-Encoding и Content-Length.
      */
     @Test
-    void getReport_CompletedReport_ShouldReturnHtmlContent() {
+    void getReport_CompletedReportWithGzip_ShouldPassCompressedContentThrough() throws IOException {
         // Arrange
-        when(reportService.getReport(1L)).thenReturn(completedReport);
+        when(reportService.getReportStatus(1L)).thenReturn(completedReport);
 
         // Act
-        ResponseEntity<?> response = reportController.getReport(1L);
+        ResponseEntity<StreamingResponseBody> response = reportController.getReport(1L, "gzip, deflate, br", null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(MediaType.TEXT_HTML, response.getHeaders().getContentType());
-        assertEquals("<html><body>Отчет готов</body></html>", response.getBody());
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(64L, response.getHeaders().getContentLength());
+        assertEquals("\"abc123-gzip\"", response.getHeaders().getETag());
 
-        verify(reportService).getReport(1L);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+        verify(reportService).writeReportContent(eq(completedReport), any(OutputStream.class), eq(false));
+    }
+
+    /**
+     * Проверяет, что при совпадении If-None-Match с ETag отчета возвращается 304
+     * без передачи содержимого.
+     */
+    @Test
+    void getReport_MatchingIfNoneMatch_ShouldReturnNotModified() throws IOException {
+        // Arrange
+        when(reportService.getReportStatus(1L)).thenReturn(completedReport);
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = reportController.getReport(1L, "gzip", "\"other\", \"abc123-gzip\"");
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"abc123-gzip\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(reportService, never()).writeReportContent(any(), any(), anyBoolean());
     }
 
     /**
@@ -111,24 +166,24 @@ class ReportControllerTest {
      * Должно возвращаться информационное сообщение о статусе отчета.
      */
     @Test
-    void getReport_InProgressReport_ShouldReturnStatusMessage() {
+    void getReport_InProgressReport_ShouldReturnStatusMessage() throws IOException {
         // Arrange
-        when(reportService.getReport(2L)).thenReturn(inProgressReport);
+        when(reportService.getReportStatus(2L)).thenReturn(inProgressReport);
 
         // Act
-        ResponseEntity<?> response = reportController.getReport(2L);
+        ResponseEntity<StreamingResponseBody> response = reportController.getReport(2L, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(response.getHeaders().getContentType()));
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
+        Map<String, Object> responseBody = readJson(response);
 
         assertNotNull(responseBody);
-        assertEquals(ReportStatus.CREATED.toString(), responseBody.get("status").toString());
+        assertEquals(ReportStatus.QUEUED.toString(), responseBody.get("status").toString());
         assertEquals("Отчет находится в процессе формирования", responseBody.get("message"));
 
-        verify(reportService).getReport(2L);
+        verify(reportService).getReportStatus(2L);
     }
 
     /**
@@ -136,25 +191,24 @@ class ReportControllerTest {
      * Должно возвращаться сообщение об ошибке и информация о причине ошибки.
      */
     @Test
-    void getReport_ErrorReport_ShouldReturnErrorMessage() {
+    void getReport_ErrorReport_ShouldReturnErrorMessage() throws IOException {
         // Arrange
-        when(reportService.getReport(3L)).thenReturn(errorReport);
+        when(reportService.getReportStatus(3L)).thenReturn(errorReport);
 
         // Act
-        ResponseEntity<?> response = reportController.getReport(3L);
+        ResponseEntity<StreamingResponseBody> response = reportController.getReport(3L, null, null);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> responseBody = (Map<String, Object>) response.getBody();
+        Map<String, Object> responseBody = readJson(response);
 
         assertNotNull(responseBody);
         assertEquals(ReportStatus.ERROR.toString(), responseBody.get("status").toString());
         assertEquals("При формировании отчета произошла ошибка", responseBody.get("message"));
         assertEquals("Database connection failed", responseBody.get("error"));
 
-        verify(reportService).getReport(3L);
+        verify(reportService).getReportStatus(3L);
     }
 
     /**
@@ -164,14 +218,36 @@ class ReportControllerTest {
     @Test
     void getReport_NonExistentReport_ShouldThrowException() {
         // Arrange
-        when(reportService.getReport(999L)).thenThrow(new RuntimeException("Отчет не найден"));
+        when(reportService.getReportStatus(999L)).thenThrow(new RuntimeException("Отчет не найден"));
 
         // Act & Assert
         Exception exception = assertThrows(RuntimeException.class, () -> {
-            reportController.getReport(999L);
+            reportController.getReport(999L, null, null);
         });
 
         assertEquals("Отчет не найден", exception.getMessage());
-        verify(reportService).getReport(999L);
+        verify(reportService).getReportStatus(999L);
+    }
+
+    /**
+     * Проверяет, что запрос на отмену передается сервису и возвращает подтверждение.
+     */
+    @Test
+    void cancelReport_ShouldDelegateToService() {
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.cancelReport(4L);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(4L, response.getBody().get("id"));
+        verify(reportService).cancelReport(4L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readJson(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return objectMapper.readValue(out.toByteArray(), Map.class);
     }
-}
\ No newline at end of file
+}
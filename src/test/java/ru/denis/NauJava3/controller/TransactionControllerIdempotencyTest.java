@@ -0,0 +1,259 @@
+package ru.denis.NauJava3.controller;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.service.IdempotencyService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Интеграционные тесты ключей идемпотентности запросов, создающих транзакции.
+ * Повтор запроса с тем же ключом должен возвращать ответ первого выполнения
+ * без повторного изменения баланса.
+ */
+@SpringBootTest
+@Transactional
+class TransactionControllerIdempotencyTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+    private User owner;
+    private Account account;
+    private Account savings;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        String uniqueId = UUID.randomUUID().toString();
+        owner = new User();
+        owner.setUsername("idempotency_" + uniqueId);
+        owner.setEmail("idempotency_" + uniqueId + "@test.com");
+        owner.setPassword("password");
+        owner.setRegistrationDate(LocalDateTime.now());
+        entityManager.persist(owner);
+
+        account = createAccount("Idempotency account");
+        savings = createAccount("Idempotency savings");
+
+        category = new Category();
+        category.setName("Idempotency expense");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#00FF00");
+        entityManager.persist(category);
+        entityManager.flush();
+    }
+
+    /**
+     * Проверяет, что повтор создания транзакции с тем же ключом возвращает
+     * ранее созданную транзакцию и не списывает сумму повторно.
+     */
+    @Test
+    void createTransaction_ReplayReturnsOriginalResult() throws Exception {
+        String body = transactionJson("100.00");
+
+        String first = createTransaction("key-1", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+        String replayed = createTransaction("key-1", body)
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, replayed, "Replay should return the original response");
+        assertEquals(1, countTransactions(account));
+        assertEquals(0, new BigDecimal("900.00").compareTo(balance(account)));
+
+        createTransaction("key-2", body).andExpect(status().isCreated());
+        assertEquals(2, countTransactions(account), "Another key should create another transaction");
+    }
+
+    /**
+     * Проверяет отклонение повтора ключа с другим телом запроса и запроса,
+     * первое выполнение которого еще не завершено.
+     */
+    @Test
+    void createTransaction_RejectsKeyReuseAndInProgressKey() throws Exception {
+        createTransaction("key-1", transactionJson("100.00")).andExpect(status().isCreated());
+        createTransaction("key-1", transactionJson("200.00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Ключ идемпотентности уже использован для другого запроса"));
+
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at) "
+                + "VALUES (?, 'in-progress', 'hash', LOCALTIMESTAMP, LOCALTIMESTAMP + INTERVAL '1 hour')", owner.getId());
+        createTransaction("in-progress", transactionJson("100.00")).andExpect(status().isConflict());
+
+        assertEquals(1, countTransactions(account));
+    }
+
+    /**
+     * Проверяет, что ошибки запроса создания транзакции (нехватка средств и несоответствие
+     * типа операции категории) возвращают 400, а ключ запроса освобождается.
+     */
+    @Test
+    void createTransaction_BusinessErrorsReturn400() throws Exception {
+        createTransaction("overdraft", transactionJson("5000.00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Недостаточно средств на счете"));
+
+        String income = "{\"accountId\":" + account.getId() + ",\"categoryId\":" + category.getId()
+                + ",\"amount\":10.00,\"type\":\"INCOME\"}";
+        createTransaction("mismatch", income)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Тип операции не соответствует категории"));
+
+        assertEquals(0, countTransactions(account));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(balance(account)));
+        assertEquals(0, countKeys("overdraft"));
+        assertEquals(0, countKeys("mismatch"));
+    }
+
+    /**
+     * Проверяет, что ключ запроса, завершившегося ошибкой, освобождается
+     * и запрос с тем же ключом можно повторить.
+     */
+    @Test
+    void importJson_FailedRequestReleasesKey() throws Exception {
+        String invalid = "[{\"accountId\":" + account.getId() + ",\"categoryId\":" + category.getId()
+                + ",\"amount\":5000.00,\"type\":\"EXPENSE\"}]";
+        String valid = "[{\"accountId\":" + account.getId() + ",\"categoryId\":" + category.getId()
+                + ",\"amount\":50.00,\"type\":\"EXPENSE\"}]";
+
+        importJson("import-1", invalid).andExpect(status().isBadRequest());
+        importJson("import-1", valid).andExpect(status().isOk()).andExpect(jsonPath("$.imported").value(1));
+        importJson("import-1", valid)
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.imported").value(1));
+
+        assertEquals(1, countTransactions(account));
+    }
+
+    /**
+     * Проверяет идемпотентность перевода между счетами.
+     */
+    @Test
+    void createTransfer_ReplayDoesNotMoveMoneyTwice() throws Exception {
+        String body = "{\"fromAccountId\":" + account.getId() + ",\"toAccountId\":" + savings.getId()
+                + ",\"amount\":300.00}";
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/transactions/transfers")
+                            .with(user(owner))
+                            .header(IdempotencyService.HEADER, "transfer-1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isCreated());
+        }
+
+        assertEquals(0, new BigDecimal("700.00").compareTo(balance(account)));
+        assertEquals(0, new BigDecimal("1300.00").compareTo(balance(savings)));
+    }
+
+    /**
+     * Проверяет, что очистка удаляет только просроченные ключи, а просроченный ключ
+     * можно использовать для нового запроса.
+     */
+    @Test
+    void purgeExpired_DeletesOnlyExpiredKeys() throws Exception {
+        createTransaction("live", transactionJson("10.00")).andExpect(status().isCreated());
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, "
+                + "response_status, response_body, created_at, expires_at) "
+                + "VALUES (?, 'expired', 'hash', 201, '{}', LOCALTIMESTAMP - INTERVAL '2 days', "
+                + "LOCALTIMESTAMP - INTERVAL '1 day')", owner.getId());
+
+        assertTrue(idempotencyService.purgeExpired() >= 1);
+
+        assertEquals(1, countKeys("live"));
+        assertEquals(0, countKeys("expired"));
+    }
+
+    private ResultActions createTransaction(String key, String body) throws Exception {
+        return mockMvc.perform(post("/api/transactions")
+                .with(user(owner))
+                .header(IdempotencyService.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private ResultActions importJson(String key, String body) throws Exception {
+        return mockMvc.perform(post("/api/transactions/import")
+                .with(user(owner))
+                .header(IdempotencyService.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private String transactionJson(String amount) {
+        return "{\"accountId\":" + account.getId() + ",\"categoryId\":" + category.getId()
+                + ",\"amount\":" + amount + ",\"type\":\"EXPENSE\",\"description\":\"Coffee\"}";
+    }
+
+    private Account createAccount(String name) {
+        Account created = new Account();
+        created.setName(name);
+        created.setBalance(new BigDecimal("1000.00"));
+        created.setCurrency("RUB");
+        created.setAccountType(Account.AccountType.CARD);
+        created.setUser(owner);
+        entityManager.persist(created);
+        return created;
+    }
+
+    private BigDecimal balance(Account target) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?",
+                BigDecimal.class, target.getId());
+    }
+
+    private int countTransactions(Account target) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE account_id = ?",
+                Integer.class, target.getId());
+    }
+
+    private int countKeys(String key) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_keys "
+                + "WHERE user_id = ? AND idempotency_key = ?", Integer.class, owner.getId(), key);
+    }
+}
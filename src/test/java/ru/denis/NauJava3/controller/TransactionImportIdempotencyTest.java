@@ -0,0 +1,230 @@
+package ru.denis.NauJava3.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.ConflictException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+import ru.denis.NauJava3.service.IdempotencyService;
+import ru.denis.NauJava3.service.TransactionService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты фиксации запросов с ключом идемпотентности, изменения которых
+ * записываются несколькими транзакциями БД или не успевают завершиться за срок аренды ключа.
+ * Тест проверяет зафиксированное состояние БД, поэтому он не транзакционный
+ * и сам удаляет созданные данные.
+ */
+@SpringBootTest(properties = "app.transactions.import.chunk-size=2")
+class TransactionImportIdempotencyTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+    private User owner;
+    private Account account;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders
+                .webAppContextSetup(context)
+                .apply(SecurityMockMvcConfigurers.springSecurity())
+                .build();
+
+        String uniqueId = UUID.randomUUID().toString();
+        owner = new User();
+        owner.setUsername("importIdempotency_" + uniqueId);
+        owner.setEmail("import_idempotency_" + uniqueId + "@test.com");
+        owner.setPassword("password");
+        owner.setRegistrationDate(LocalDateTime.now());
+        owner = userRepository.save(owner);
+
+        account = new Account();
+        account.setName("Import idempotency account");
+        account.setBalance(new BigDecimal("100.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(owner);
+        account = accountRepository.save(account);
+
+        category = new Category();
+        category.setName("Import idempotency expense");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#00FF00");
+        category = categoryRepository.save(category);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM daily_spendings WHERE user_id = ?", owner.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_id = ?", owner.getId());
+        jdbcTemplate.update("DELETE FROM accounts WHERE user_id = ?", owner.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id = ?", category.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", owner.getId());
+    }
+
+    /**
+     * Проверяет, что импорт с ключом, вторая порция которого не сохраняется из-за нехватки средств,
+     * не сохраняет и первую порцию, а повтор с тем же ключом не создает дублей.
+     */
+    @Test
+    void importJson_PartialFailureThenRetryDoesNotDuplicate() throws Exception {
+        String overdraft = importBody("30.00", "30.00", "30.00", "30.00");
+        String affordable = importBody("30.00", "30.00", "10.00", "10.00");
+
+        importJson("partial-1", overdraft)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("Импорт отменен")));
+        assertEquals(0, countTransactions(), "Keyed import should not keep the committed chunks");
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance()));
+
+        importJson("partial-1", overdraft).andExpect(status().isBadRequest());
+        assertEquals(0, countTransactions());
+
+        importJson("partial-1", affordable)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(4))
+                .andExpect(jsonPath("$.chunks").value(2));
+        importJson("partial-1", affordable)
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"));
+
+        assertEquals(4, countTransactions());
+        assertEquals(0, new BigDecimal("20.00").compareTo(balance()));
+    }
+
+    /**
+     * Проверяет, что резерв ключа, аренда которого истекла без сохраненного ответа
+     * (например, после остановки приложения), можно занять новым запросом.
+     */
+    @Test
+    void importJson_ExpiredReservationIsReclaimed() throws Exception {
+        jdbcTemplate.update("INSERT INTO idempotency_keys (user_id, idempotency_key, request_hash, created_at, expires_at) "
+                + "VALUES (?, 'stale', 'hash', LOCALTIMESTAMP - INTERVAL '1 hour', "
+                + "LOCALTIMESTAMP - INTERVAL '1 minute')", owner.getId());
+
+        importJson("stale", importBody("10.00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+
+        assertEquals(1, countTransactions());
+        assertEquals(200, jdbcTemplate.queryForObject("SELECT response_status FROM idempotency_keys "
+                + "WHERE user_id = ? AND idempotency_key = 'stale'", Integer.class, owner.getId()));
+    }
+
+    /**
+     * Проверяет, что запрос, резерв которого после истечения аренды занят другим запросом,
+     * не фиксирует свои изменения и не перезаписывает ключ.
+     */
+    @Test
+    void execute_ReservationTakenOverRollsBackWrite() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(owner, null, List.of()));
+        TransactionTemplate otherRequest = new TransactionTemplate(transactionManager);
+        otherRequest.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThrows(ConflictException.class, () -> idempotencyService.execute("taken-over", "test", "request", () -> {
+            transactionService.createTransaction(account.getId(), category.getId(), new BigDecimal("10.00"),
+                    "Slow request", OperationType.EXPENSE);
+            otherRequest.executeWithoutResult(status -> jdbcTemplate.update("UPDATE idempotency_keys "
+                    + "SET created_at = created_at + INTERVAL '1 second' "
+                    + "WHERE user_id = ? AND idempotency_key = 'taken-over'", owner.getId()));
+            return new ResponseEntity<>("done", HttpStatus.CREATED);
+        }));
+
+        assertEquals(0, countTransactions());
+        assertEquals(0, new BigDecimal("100.00").compareTo(balance()));
+        assertNull(jdbcTemplate.queryForObject("SELECT response_status FROM idempotency_keys "
+                + "WHERE user_id = ? AND idempotency_key = 'taken-over'", Integer.class, owner.getId()));
+    }
+
+    private ResultActions importJson(String key, String body) throws Exception {
+        return mockMvc.perform(post("/api/transactions/import")
+                .with(user(owner))
+                .header(IdempotencyService.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private String importBody(String... amounts) {
+        StringBuilder body = new StringBuilder("[");
+        for (String amount : amounts) {
+            if (body.length() > 1) {
+                body.append(',');
+            }
+            body.append("{\"accountId\":").append(account.getId())
+                    .append(",\"categoryId\":").append(category.getId())
+                    .append(",\"amount\":").append(amount)
+                    .append(",\"type\":\"EXPENSE\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private BigDecimal balance() {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?",
+                BigDecimal.class, account.getId());
+    }
+
+    private int countTransactions() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM transactions WHERE account_id = ?",
+                Integer.class, account.getId());
+    }
+}
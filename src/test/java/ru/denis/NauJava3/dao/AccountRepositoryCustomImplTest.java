@@ -1,5 +1,8 @@
 package ru.denis.NauJava3.dao;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -20,7 +23,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * Интеграционные тесты для пользовательской реализации репозитория счетов.
  * Проверяет функциональность поиска счетов с использованием Criteria API.
  */
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 @Transactional
 class AccountRepositoryCustomImplTest {
 
@@ -30,6 +33,9 @@ class AccountRepositoryCustomImplTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     /**
      * Тестирует поиск счетов по email пользователя и диапазону баланса.
      * Проверяет различные сценарии поиска:
@@ -96,6 +102,29 @@ class AccountRepositoryCustomImplTest {
         assertTrue(accounts.isEmpty());
     }
 
+    /**
+     * Тестирует, что запрос для одной комбинации условий строится один раз:
+     * повторный поиск с другими значениями берет план из кэша Hibernate.
+     */
+    @Test
+    void testQueryPlanReusedForSameConditions() {
+        User user = createTestUser();
+        createTestAccount(user, "Account 1", new BigDecimal("1000.00"));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        accountRepository.findUserAccountsByEmailAndBalanceRangeCriteria(
+                user.getEmail(), new BigDecimal("500.00"), null);
+        long hitsBefore = statistics.getQueryPlanCacheHitCount();
+
+        List<Account> accounts = accountRepository.findUserAccountsByEmailAndBalanceRangeCriteria(
+                user.getEmail(), new BigDecimal("900.00"), null);
+
+        assertEquals(1, accounts.size());
+        assertEquals(hitsBefore + 1, statistics.getQueryPlanCacheHitCount(),
+                "Second search with the same conditions should reuse the cached query plan");
+    }
+
     /**
      * Вспомогательный метод для создания тестового пользователя.
      * Создает пользователя с уникальными данными для избежания конфликтов.
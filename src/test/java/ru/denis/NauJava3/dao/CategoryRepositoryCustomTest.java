@@ -95,4 +95,39 @@ class CategoryRepositoryCustomTest {
         );
         assertTrue(notFound.isEmpty(), "No categories should be found based on non-existent criteria");
     }
+
+    /**
+     * Тестирует поиск по части названия без учета регистра
+     * и буквальный поиск спецсимволов шаблона LIKE.
+     */
+    @Test
+    void testFindByNamePartIgnoreCaseAndEscaped() {
+        Category category = new Category();
+        category.setName("Discount 100% Shop");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#0000FF");
+        categoryRepository.save(category);
+
+        List<Category> foundIgnoreCase = categoryRepository.findByTypeAndColorCodeAndNameContainingCriteria(
+                OperationType.EXPENSE,
+                "#0000FF",
+                "DISCOUNT"
+        );
+        assertTrue(foundIgnoreCase.stream().anyMatch(c -> c.getId().equals(category.getId())),
+                "Search by name part should ignore case");
+
+        List<Category> foundPercent = categoryRepository.findByTypeAndColorCodeAndNameContainingCriteria(
+                OperationType.EXPENSE,
+                "#0000FF",
+                "100% s"
+        );
+        assertEquals(1, foundPercent.size(), "Percent sign should be matched literally");
+
+        List<Category> notFound = categoryRepository.findByTypeAndColorCodeAndNameContainingCriteria(
+                OperationType.EXPENSE,
+                "#0000FF",
+                "Disc_unt"
+        );
+        assertTrue(notFound.isEmpty(), "Underscore should not match an arbitrary character");
+    }
 }
@@ -0,0 +1,326 @@
+package ru.denis.NauJava3.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.denis.NauJava3.dto.DataGenerationSettings;
+import ru.denis.NauJava3.entity.enums.ReportStatus;
+import ru.denis.NauJava3.service.DataGeneratorService;
+import ru.denis.NauJava3.service.ReportService;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест REST API на запущенном локально приложении.
+ * База данных заполняется {@link DataGeneratorService}, каждый поток работает
+ * в своей сессии, полученной входом через форму /login.
+ * Эндпоинты нагружаются по очереди: после прогрева в течение заданного времени
+ * замеряются время ответа и пропускная способность. Сводка выводится в журнал
+ * и сохраняется в CSV; тест падает, если p95, p99 или доля ошибок превышают SLO.
+ *
+ * <p>Тест помечен тегом {@code load} и запускается только профилем Maven:
+ * {@code mvn -P load-test test -Dload.duration=PT30S -Dload.slo.p95-ms=150}.
+ * SLO можно задать для отдельного эндпоинта, например {@code -Dload.slo.budget-status.p95-ms=50}.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.show-sql=false", "spring.jpa.properties.hibernate.format_sql=false"})
+class ApiLoadTest {
+
+    private static final String USERNAME_PREFIX = "load_user_";
+    private static final String PASSWORD = "password";
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DataGeneratorService dataGeneratorService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${load.users:500}")
+    private int users;
+
+    @Value("${load.transactions:200000}")
+    private long transactions;
+
+    @Value("${load.sessions:16}")
+    private int sessions;
+
+    @Value("${load.warmup:PT3S}")
+    private Duration warmup;
+
+    @Value("${load.duration:PT10S}")
+    private Duration duration;
+
+    @Value("${load.report-file:target/load-test-report.csv}")
+    private Path reportFile;
+
+    private List<Session> userSessions;
+    private Session adminSession;
+    private List<CategoryKey> categoryKeys;
+    private long reportId;
+
+    /**
+     * Нагружает эндпоинты и проверяет SLO по каждому из них.
+     */
+    @Test
+    void testEndpointsMeetSlo() throws Exception {
+        prepareData();
+
+        List<Endpoint> endpoints = List.of(
+                new Endpoint("budgets", false, (session, random) -> "/api/budgets"),
+                new Endpoint("budget-status", false, (session, random) ->
+                        "/api/budgets/" + session.budgetIds().get(random.nextInt(session.budgetIds().size())) + "/status"),
+                new Endpoint("report", true, (session, random) -> "/api/reports/" + reportId),
+                new Endpoint("accounts-search", false, (session, random) ->
+                        "/api/accounts/search/byEmailAndBalance?userEmail=" + encode(session.email())
+                                + "&minBalance=0&maxBalance=1000000000"),
+                new Endpoint("accounts-search-criteria", false, (session, random) ->
+                        "/api/accounts/search/byEmailAndBalanceUsedCriteria?userEmail=" + encode(session.email())),
+                new Endpoint("categories-search", false, (session, random) ->
+                        categoriesPath("/api/categories/search/byTypeAndColorAndName", random)),
+                new Endpoint("categories-search-criteria", false, (session, random) ->
+                        categoriesPath("/api/categories/search/byTypeAndColorAndNameUsedCriteria", random)));
+
+        List<LatencyRecorder.Summary> summaries = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(sessions);
+        try {
+            for (Endpoint endpoint : endpoints) {
+                probe(endpoint);
+                run(executor, endpoint, warmup);
+                summaries.add(run(executor, endpoint, duration));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        writeReport(summaries);
+
+        List<Executable> checks = new ArrayList<>();
+        for (LatencyRecorder.Summary summary : summaries) {
+            String name = summary.endpoint();
+            double p95 = slo(name, "p95-ms", 500);
+            double p99 = slo(name, "p99-ms", 1000);
+            double maxErrorRate = slo(name, "max-error-rate", 0);
+            checks.add(() -> assertTrue(summary.requests() > 0, name + ": no requests completed"));
+            checks.add(() -> assertTrue(summary.p95() <= p95, name + ": p95 " + summary.p95() + " ms > SLO " + p95 + " ms"));
+            checks.add(() -> assertTrue(summary.p99() <= p99, name + ": p99 " + summary.p99() + " ms > SLO " + p99 + " ms"));
+            checks.add(() -> assertTrue(summary.errorRate() <= maxErrorRate,
+                    name + ": error rate " + summary.errorRate() + " > SLO " + maxErrorRate));
+        }
+        assertAll(checks);
+    }
+
+    /**
+     * Заполняет БД, назначает первому пользователю роль администратора,
+     * формирует отчет и открывает сессии пользователей.
+     */
+    private void prepareData() throws Exception {
+        DataGenerationSettings settings = new DataGenerationSettings();
+        settings.setUsers(users);
+        settings.setTransactions(transactions);
+        settings.setUsernamePrefix(USERNAME_PREFIX);
+        settings.setPassword(PASSWORD);
+        dataGeneratorService.generate(settings);
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT id, username, email FROM users WHERE username LIKE 'load\\_user\\_%' ORDER BY id LIMIT ?",
+                sessions);
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, roles) VALUES (?, 'ADMIN')", rows.getFirst().get("id"));
+
+        userSessions = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            List<Long> budgetIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM budgets WHERE user_id = ?", Long.class, row.get("id"));
+            userSessions.add(login((String) row.get("username"), (String) row.get("email"), budgetIds));
+        }
+        adminSession = userSessions.getFirst();
+
+        categoryKeys = jdbcTemplate.query(
+                "SELECT type, color_code, name FROM categories WHERE name LIKE 'Gen %'",
+                (rs, rowNum) -> new CategoryKey(rs.getString("type"), rs.getString("color_code"), rs.getString("name")));
+
+        reportId = reportService.createReport();
+        reportService.generateReportAsync(reportId);
+        long deadline = System.nanoTime() + Duration.ofMinutes(2).toNanos();
+        while (reportService.getReportStatus(reportId).getStatus() != ReportStatus.COMPLETED) {
+            assertTrue(System.nanoTime() < deadline, "Report was not generated in time");
+            Thread.sleep(200);
+        }
+    }
+
+    /**
+     * Выполняет вход через форму и возвращает сессию с cookie авторизованного пользователя.
+     */
+    private Session login(String username, String email, List<Long> budgetIds) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        HttpResponse<String> loginPage = client.send(
+                HttpRequest.newBuilder(uri("/login")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        Matcher csrf = CSRF_TOKEN.matcher(loginPage.body());
+        assertTrue(csrf.find(), "Login page has no CSRF token");
+
+        String form = "username=" + encode(username) + "&password=" + encode(PASSWORD) + "&_csrf=" + encode(csrf.group(1));
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(uri("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        assertEquals(302, response.statusCode());
+        assertFalse(location.contains("error"), "Login failed for " + username);
+
+        return new Session(client, email, budgetIds);
+    }
+
+    /**
+     * Проверяет одиночным запросом, что эндпоинт отвечает успешно, до начала нагрузки.
+     */
+    private void probe(Endpoint endpoint) throws IOException, InterruptedException {
+        Session session = endpoint.admin() ? adminSession : userSessions.getFirst();
+        HttpResponse<String> response = session.client().send(
+                HttpRequest.newBuilder(uri(endpoint.path().apply(session, ThreadLocalRandom.current()))).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), endpoint.name() + ": " + response.body());
+    }
+
+    /**
+     * Нагружает эндпоинт из всех сессий в течение заданного времени.
+     */
+    private LatencyRecorder.Summary run(ExecutorService executor, Endpoint endpoint, Duration period) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + period.toNanos();
+        List<Future<LatencyRecorder>> futures = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            Session session = endpoint.admin() ? adminSession : userSessions.get(i % userSessions.size());
+            futures.add(executor.submit(() -> {
+                LatencyRecorder recorder = new LatencyRecorder();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(uri(endpoint.path().apply(session, random)))
+                            .timeout(Duration.ofSeconds(30))
+                            .GET()
+                            .build();
+                    long requestStart = System.nanoTime();
+                    boolean success;
+                    try {
+                        success = session.client().send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                    } catch (IOException e) {
+                        success = false;
+                    }
+                    recorder.record(System.nanoTime() - requestStart, success);
+                }
+                return recorder;
+            }));
+        }
+
+        List<LatencyRecorder> recorders = new ArrayList<>();
+        for (Future<LatencyRecorder> future : futures) {
+            recorders.add(future.get());
+        }
+        return LatencyRecorder.summarize(endpoint.name(), recorders, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Выводит сводку в журнал и сохраняет ее в CSV.
+     */
+    private void writeReport(List<LatencyRecorder.Summary> summaries) throws IOException {
+        for (LatencyRecorder.Summary s : summaries) {
+            log.info(String.format(Locale.ROOT,
+                    "%s: requests=%d, errors=%d, req/s=%.1f, p50=%.2f ms, p95=%.2f ms, p99=%.2f ms, max=%.2f ms",
+                    s.endpoint(), s.requests(), s.errors(), s.throughput(), s.p50(), s.p95(), s.p99(), s.max()));
+        }
+
+        Files.createDirectories(reportFile.toAbsolutePath().getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8))) {
+            writer.println("endpoint,requests,errors,throughput,p50_ms,p95_ms,p99_ms,max_ms");
+            for (LatencyRecorder.Summary s : summaries) {
+                writer.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f%n",
+                        s.endpoint(), s.requests(), s.errors(), s.throughput(), s.p50(), s.p95(), s.p99(), s.max());
+            }
+        }
+    }
+
+    /**
+     * Значение SLO для эндпоинта: load.slo.&lt;endpoint&gt;.&lt;metric&gt;,
+     * затем общее load.slo.&lt;metric&gt;, затем значение по умолчанию.
+     */
+    private double slo(String endpoint, String metric, double defaultValue) {
+        Double common = environment.getProperty("load.slo." + metric, Double.class, defaultValue);
+        return environment.getProperty("load.slo." + endpoint + "." + metric, Double.class, common);
+    }
+
+    private String categoriesPath(String path, ThreadLocalRandom random) {
+        CategoryKey key = categoryKeys.get(random.nextInt(categoryKeys.size()));
+        return path + "?type=" + key.type() + "&colorCode=" + encode(key.colorCode()) + "&namePart=" + encode(key.name());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Сессия пользователя: HTTP-клиент с cookie, email и бюджеты пользователя.
+     */
+    private record Session(HttpClient client, String email, List<Long> budgetIds) {
+    }
+
+    /**
+     * Нагружаемый эндпоинт: название для отчета и SLO, признак запроса от администратора
+     * и построитель пути запроса.
+     */
+    private record Endpoint(String name, boolean admin, BiFunction<Session, ThreadLocalRandom, String> path) {
+    }
+
+    private record CategoryKey(String type, String colorCode, String name) {
+    }
+}
@@ -0,0 +1,86 @@
+package ru.denis.NauJava3.load;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Накопитель времени ответов одного потока нагрузочного теста.
+ * Экземпляр используется только своим потоком, результаты потоков объединяются
+ * после завершения замера в {@link Summary}.
+ */
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+
+    /**
+     * Сохраняет время ответа.
+     *
+     * @param nanos время ответа в наносекундах
+     * @param success true, если запрос выполнен успешно
+     */
+    void record(long nanos, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * Объединяет результаты потоков.
+     *
+     * @param endpoint название проверяемого эндпоинта
+     * @param recorders накопители всех потоков
+     * @param elapsed длительность замера
+     * @return сводка по эндпоинту
+     */
+    static Summary summarize(String endpoint, List<LatencyRecorder> recorders, Duration elapsed) {
+        int total = recorders.stream().mapToInt(recorder -> recorder.count).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        int errors = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, all, offset, recorder.count);
+            offset += recorder.count;
+            errors += recorder.errors;
+        }
+        Arrays.sort(all);
+
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        return new Summary(endpoint, total, errors, total / seconds,
+                percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99),
+                total == 0 ? 0 : toMillis(all[total - 1]));
+    }
+
+    /**
+     * Перцентиль по методу ближайшего ранга.
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return toMillis(sorted[Math.max(rank, 1) - 1]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Сводка замера эндпоинта: количество запросов и ошибок, пропускная способность
+     * в запросах в секунду и перцентили времени ответа в миллисекундах.
+     */
+    record Summary(String endpoint, int requests, int errors, double throughput,
+                   double p50, double p95, double p99, double max) {
+
+        double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+}
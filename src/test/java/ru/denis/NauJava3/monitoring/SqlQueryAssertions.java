@@ -0,0 +1,69 @@
+package ru.denis.NauJava3.monitoring;
+
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Проверки количества SQL-запросов, выполняемых Hibernate.
+ * Подсчет ведется {@link SqlStatementCounter} в текущем потоке, поэтому проверяемое действие
+ * должно выполняться в потоке теста (например, запрос через MockMvc).
+ * Чтобы учитывались загрузки ленивых связей, контекст персистентности перед проверкой
+ * нужно очистить.
+ */
+public final class SqlQueryAssertions {
+
+    private SqlQueryAssertions() {
+    }
+
+    /**
+     * Выполняет действие и возвращает подсчитанные SQL-запросы.
+     *
+     * @param action проверяемое действие
+     * @return область подсчета с количеством запросов
+     */
+    public static SqlStatementCounter.Scope countQueries(Executable action) {
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.start()) {
+            try {
+                action.execute();
+            } catch (Throwable e) {
+                fail("Action failed while counting SQL queries", e);
+            }
+            return scope;
+        }
+    }
+
+    /**
+     * Проверяет, что действие выполняет не больше заданного количества SQL-запросов.
+     *
+     * @param max допустимое количество запросов
+     * @param action проверяемое действие
+     */
+    public static void assertMaxQueries(int max, Executable action) {
+        SqlStatementCounter.Scope scope = countQueries(action);
+        if (scope.getCount() > max) {
+            fail("Expected at most " + max + " SQL queries but was " + scope.getCount() + ":\n" + describe(scope));
+        }
+    }
+
+    /**
+     * Проверяет, что действие выполняет ровно заданное количество SQL-запросов.
+     *
+     * @param expected ожидаемое количество запросов
+     * @param action проверяемое действие
+     */
+    public static void assertQueryCount(int expected, Executable action) {
+        SqlStatementCounter.Scope scope = countQueries(action);
+        if (scope.getCount() != expected) {
+            fail("Expected " + expected + " SQL queries but was " + scope.getCount() + ":\n" + describe(scope));
+        }
+    }
+
+    private static String describe(SqlStatementCounter.Scope scope) {
+        return scope.getStatements().entrySet().stream()
+                .map(entry -> entry.getValue() + " x " + entry.getKey())
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -88,4 +88,30 @@ class CategoryRepositoryTest {
 
         assertTrue(foundCategories.isEmpty(), "Should not find categories with wrong type");
     }
-}
\ No newline at end of file
+
+    /**
+     * Тестирует поиск категории по части имени без учета регистра
+     * и буквальный поиск спецсимволов шаблона LIKE.
+     */
+    @Test
+    void testFindByTypeAndColorCodeAndNameContainingIgnoreCase() {
+        Category category = new Category();
+        category.setName("Coffee_Shop");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#00FF00");
+        Category savedCategory = categoryRepository.save(category);
+
+        List<Category> foundCategories = categoryRepository.findByTypeAndColorCodeAndNameContaining(
+                OperationType.EXPENSE,
+                "#00FF00",
+                "coffee_"
+        );
+
+        assertEquals(1, foundCategories.size(), "Search should ignore case");
+        assertEquals(savedCategory.getId(), foundCategories.getFirst().getId());
+
+        assertTrue(categoryRepository.findByTypeAndColorCodeAndNameContaining(
+                        OperationType.EXPENSE, "#00FF00", "Coffee%Shop").isEmpty(),
+                "Percent sign should be matched literally");
+    }
+}
@@ -0,0 +1,134 @@
+package ru.denis.NauJava3.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тест обновления миграциями БД, схема которой создавалась Hibernate до перехода на Flyway.
+ * Такая схема создается в отдельной схеме тестовой БД, отмечается версией 1 так же,
+ * как в приложении (baseline-on-migrate), и обновляется всеми миграциями; результат
+ * сравнивается со схемой, созданной миграциями с нуля.
+ */
+@SpringBootTest
+class PreFlywaySchemaMigrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private String schema;
+    private DriverManagerDataSource legacyDataSource;
+    private JdbcTemplate legacy;
+
+    @BeforeEach
+    void setUp() {
+        schema = "pre_flyway_" + UUID.randomUUID().toString().replace("-", "");
+        jdbcTemplate.execute("CREATE SCHEMA " + schema);
+
+        legacyDataSource = new DriverManagerDataSource(url + "?currentSchema=" + schema + ",public", username, password);
+        new ResourceDatabasePopulator(new ClassPathResource("db/pre-flyway-schema.sql")).execute(legacyDataSource);
+        legacy = new JdbcTemplate(legacyDataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA " + schema + " CASCADE");
+    }
+
+    /**
+     * Проверяет, что после миграций схема содержит все таблицы и колонки схемы,
+     * созданной миграциями с нуля, отчеты принимают статусы очереди, содержимое готовых отчетов
+     * перенесено в сжатые фрагменты, а дневные агрегаты заполнены по существующим транзакциям.
+     */
+    @Test
+    void testMigratePreFlywaySchema() throws IOException {
+        Flyway.configure()
+                .dataSource(legacyDataSource)
+                .schemas(schema)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        Set<String> missing = new HashSet<>(columns("public"));
+        missing.removeAll(columns(schema));
+        assertEquals(Set.of(), missing, "Migrated schema should contain every column of a fresh schema");
+
+        legacy.update("INSERT INTO reports (id, status) VALUES (2, 'QUEUED')");
+        legacy.update("UPDATE reports SET status = 'RUNNING' WHERE id = 2");
+        legacy.update("UPDATE reports SET status = 'CANCELLED' WHERE id = 2");
+        assertThrows(RuntimeException.class,
+                () -> legacy.update("UPDATE reports SET status = 'UNKNOWN' WHERE id = 2"));
+
+        assertEquals("COMPLETED", legacy.queryForObject("SELECT status FROM reports WHERE id = 1", String.class),
+                "Legacy report should stay completed");
+        assertNotNull(legacy.queryForObject("SELECT content_etag FROM reports WHERE id = 1", String.class));
+        assertEquals("<html>Legacy report</html>", legacyReportContent(1L),
+                "Legacy report content should be moved to compressed chunks");
+        assertEquals(0, new BigDecimal("150.00").compareTo(legacy.queryForObject(
+                "SELECT amount FROM daily_spendings WHERE user_id = 1 AND category_id = 1 "
+                        + "AND spending_date = DATE '2024-03-01'", BigDecimal.class)));
+        assertEquals(0, new BigDecimal("850.00").compareTo(legacy.queryForObject(
+                "SELECT SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END) "
+                        + "FROM ledger_entries WHERE account_id = 1", BigDecimal.class)));
+    }
+
+    /**
+     * @return HTML отчета, собранный из сжатых фрагментов
+     */
+    private String legacyReportContent(Long reportId) throws IOException {
+        ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
+        for (byte[] chunk : legacy.queryForList("SELECT data FROM report_content_chunks "
+                + "WHERE report_id = ? ORDER BY seq", byte[].class, reportId)) {
+            compressedContent.write(chunk);
+        }
+        assertEquals(compressedContent.size(), legacy.queryForObject(
+                "SELECT content_size FROM reports WHERE id = ?", Long.class, reportId));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressedContent.toByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return колонки таблиц схемы в виде "таблица.колонка тип null/not null"
+     */
+    private Set<String> columns(String schemaName) {
+        List<String> columns = jdbcTemplate.queryForList(
+                "SELECT table_name || '.' || column_name || ' ' || data_type || ' ' || is_nullable "
+                        + "FROM information_schema.columns "
+                        + "WHERE table_schema = ? AND table_name <> 'flyway_schema_history'",
+                String.class, schemaName);
+        return new HashSet<>(columns);
+    }
+}
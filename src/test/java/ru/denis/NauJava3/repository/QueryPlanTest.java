@@ -0,0 +1,127 @@
+package ru.denis.NauJava3.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка планов выполнения основных запросов репозиториев.
+ * Условия запросов повторяют условия методов репозиториев. Таблицы заполняются
+ * тестовыми данными и анализируются, чтобы планировщик учитывал селективность условий;
+ * последовательное сканирование отключается, так как на небольших таблицах оно
+ * всегда дешевле, и проверяется, что для условия выбирается индекс из миграций.
+ * Все изменения, включая статистику, откатываются вместе с транзакцией теста.
+ */
+@SpringBootTest
+@Transactional
+class QueryPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long userId;
+    private long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, registration_date) " +
+                "SELECT 'plan_user_' || g, 'plan_user_' || g || '@test.com', 'password', now() " +
+                "FROM generate_series(1, 20) g");
+        jdbcTemplate.update("INSERT INTO accounts (name, balance, currency, account_type, user_id) " +
+                "SELECT 'Plan', 1000, 'RUB', 'CARD', id FROM users WHERE username LIKE 'plan_user_%'");
+        jdbcTemplate.update("INSERT INTO categories (name, type, color_code) " +
+                "SELECT 'Plan category ' || g, 'EXPENSE', '#00000' || (g % 10) FROM generate_series(1, 50) g");
+        jdbcTemplate.update("INSERT INTO transactions (id, amount, date, type, user_id, account_id, category_id) " +
+                "SELECT -g, 10, now() - g * interval '1 hour', 'EXPENSE', a.user_id, a.id, c.id " +
+                "FROM generate_series(1, 20000) g " +
+                "JOIN (SELECT id, user_id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                "      FROM accounts WHERE name = 'Plan') a ON a.n = g % 20 " +
+                "JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 AS n " +
+                "      FROM categories WHERE name LIKE 'Plan category %') c ON c.n = g % 50");
+        jdbcTemplate.execute("ANALYZE users, accounts, categories, transactions");
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        userId = jdbcTemplate.queryForObject("SELECT min(user_id) FROM transactions", Long.class);
+        categoryId = jdbcTemplate.queryForObject(
+                "SELECT min(category_id) FROM transactions WHERE user_id = ?", Long.class, userId);
+    }
+
+    /**
+     * {@link TransactionRepository#findByUserAndCategoryAndDateBetween}
+     */
+    @Test
+    void testTransactionsByUserCategoryAndPeriodUseIndex() {
+        assertPlanUsesIndex("idx_transactions_user_category_date",
+                "SELECT * FROM transactions WHERE user_id = ? AND category_id = ? AND date BETWEEN ? AND ?",
+                userId, categoryId, Timestamp.valueOf(LocalDateTime.now().minusMonths(1)),
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * {@link TransactionRepository#findPageByUserAfter}: чтение по индексу с позиции курсора без сортировки
+     */
+    @Test
+    void testTransactionKeysetPageUsesIndex() {
+        String plan = assertPlanUsesIndex("idx_transactions_user_date_id",
+                "SELECT id, amount, date FROM transactions WHERE user_id = ? AND (date, id) < (?, ?) " +
+                        "ORDER BY date DESC, id DESC LIMIT 20",
+                userId, Timestamp.valueOf(LocalDateTime.now().minusDays(30)), 0L);
+        assertFalse(plan.contains("Sort"), "Keyset page should not sort, plan:\n" + plan);
+    }
+
+    /**
+     * {@link AccountRepository#findUserAccountsByEmailAndBalanceRange}
+     */
+    @Test
+    void testAccountsByEmailAndBalanceUseIndex() {
+        assertPlanUsesIndex("idx_accounts_user_balance",
+                "SELECT a.* FROM accounts a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.email = ? AND a.balance BETWEEN ? AND ?",
+                "plan_user_1@test.com", BigDecimal.ZERO, new BigDecimal("1000"));
+    }
+
+    /**
+     * {@link UserRepository#findByUsername}
+     */
+    @Test
+    void testUserByUsernameUsesIndex() {
+        assertPlanUsesIndex("idx_users_username",
+                "SELECT * FROM users WHERE username = ?", "plan_user_1");
+    }
+
+    /**
+     * {@link CategoryRepository#findByTypeAndColorCodeAndNameContaining}
+     */
+    @Test
+    void testCategoriesByTypeColorAndNameUseIndex() {
+        assertPlanUsesIndex("idx_categories_type_color_name",
+                "SELECT * FROM categories WHERE type = ? AND color_code = ? AND lower(name) LIKE ?",
+                "EXPENSE", "#000001", "%category 1%");
+    }
+
+    /**
+     * {@link ru.denis.NauJava3.dao.CategoryRepositoryCustom#findByTypeAndColorCodeAndNameContainingCriteria}
+     * только по части названия: подстрока ищется по триграммному индексу
+     */
+    @Test
+    void testCategoriesByNamePartUseTrigramIndex() {
+        assertPlanUsesIndex("idx_categories_name_trgm",
+                "SELECT * FROM categories WHERE lower(name) LIKE ?", "%category 1%");
+    }
+
+    private String assertPlanUsesIndex(String indexName, String sql, Object... args) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+        assertTrue(plan.contains(indexName), "Plan should use " + indexName + ", plan:\n" + plan);
+        return plan;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.denis.NauJava3.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.denis.NauJava3.config.CachingConfig;
+import ru.denis.NauJava3.dto.CategoryInfoDto;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты кэширования категорий и пользователей.
+ * Класс не транзакционный: запись в кэш выполняется только после фиксации транзакции БД.
+ */
+@SpringBootTest
+class RepositoryCacheTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> userIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        categoryIds.forEach(categoryRepository::deleteById);
+        userIds.forEach(userRepository::deleteById);
+    }
+
+    /**
+     * Проверяет, что сведения о категории кэшируются при поиске по ID и удаляются из кэша при изменении.
+     */
+    @Test
+    void testCategoryCachedAndEvictedOnSave() {
+        Category category = createTestCategory();
+        Cache cache = cacheManager.getCache(CachingConfig.CATEGORIES);
+
+        categoryRepository.findInfoById(category.getId());
+        assertNotNull(cache.get(category.getId(), CategoryInfoDto.class), "Category should be cached after lookup");
+
+        category.setName("Renamed");
+        categoryRepository.save(category);
+        assertNull(cache.get(category.getId()), "Category should be evicted after save");
+
+        assertEquals("Renamed", categoryRepository.findInfoById(category.getId()).orElseThrow().getName());
+    }
+
+    /**
+     * Проверяет, что изменение сущности категории, которое не удалось сохранить,
+     * не попадает в кэш: кэшируются неизменяемые сведения, а не сущность.
+     */
+    @Test
+    void testUnsavedCategoryChangeNotCached() {
+        Category category = createTestCategory();
+        categoryRepository.findInfoById(category.getId());
+
+        Category loaded = categoryRepository.findById(category.getId()).orElseThrow();
+        loaded.setName(null);
+        assertThrows(RuntimeException.class, () -> categoryRepository.save(loaded));
+
+        assertEquals("Cached Category", categoryRepository.findInfoById(category.getId()).orElseThrow().getName());
+        assertEquals("Cached Category", categoryRepository.findById(category.getId()).orElseThrow().getName());
+    }
+
+    /**
+     * Проверяет, что отсутствующая категория не кэшируется.
+     */
+    @Test
+    void testMissingCategoryNotCached() {
+        assertTrue(categoryRepository.findInfoById(-1L).isEmpty());
+        assertNull(cacheManager.getCache(CachingConfig.CATEGORIES).get(-1L));
+    }
+
+    /**
+     * Проверяет, что значение, прочитанное в откатанной транзакции, не попадает в кэш.
+     */
+    @Test
+    void testCategoryNotCachedOnRollback() {
+        Category category = createTestCategory();
+        Cache cache = cacheManager.getCache(CachingConfig.CATEGORIES);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            categoryRepository.findInfoById(category.getId());
+            status.setRollbackOnly();
+        });
+
+        assertNull(cache.get(category.getId()), "Cache should be written only after commit");
+    }
+
+    /**
+     * Проверяет, что пользователь кэшируется по имени вместе с ролями
+     * и удаляется из кэша при изменении пользователей.
+     */
+    @Test
+    void testUserCachedByUsername() {
+        User user = createTestUser();
+        Cache cache = cacheManager.getCache(CachingConfig.USERS_BY_USERNAME);
+
+        User found = userRepository.findByUsername(user.getUsername()).orElseThrow();
+        User cached = cache.get(user.getUsername(), User.class);
+        assertNotNull(cached, "User should be cached after lookup");
+        assertEquals(found.getId(), cached.getId());
+        assertNotNull(cached.getRoles(), "Roles should be cached with the user");
+
+        user.setEmail("changed_" + user.getEmail());
+        userRepository.save(user);
+        assertNull(cache.get(user.getUsername()), "User cache should be cleared after save");
+    }
+
+    private Category createTestCategory() {
+        Category category = new Category();
+        category.setName("Cached Category");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#00FF00");
+        Category saved = categoryRepository.save(category);
+        categoryIds.add(saved.getId());
+        return saved;
+    }
+
+    private User createTestUser() {
+        String uniqueId = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername("cachedUser_" + uniqueId);
+        user.setEmail("cached_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        User saved = userRepository.save(user);
+        userIds.add(saved.getId());
+        return saved;
+    }
+}
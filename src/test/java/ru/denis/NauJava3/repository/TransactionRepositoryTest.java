@@ -0,0 +1,171 @@
+package ru.denis.NauJava3.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.ReportTotalDto;
+import ru.denis.NauJava3.dto.TransactionDto;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для агрегирующих запросов {@link TransactionRepository},
+ * используемых при формировании отчетов, и для просмотра транзакций по курсору.
+ */
+@SpringBootTest
+@Transactional
+class TransactionRepositoryTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private Account account;
+    private Category salary;
+    private Category groceries;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+
+        String uniqueId = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername("testUser_" + uniqueId);
+        user.setEmail("test_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        userRepository.save(user);
+
+        account = new Account();
+        account.setName("Main");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        accountRepository.save(account);
+
+        salary = createCategory("Salary", OperationType.INCOME);
+        groceries = createCategory("Groceries", OperationType.EXPENSE);
+
+        createTransaction(salary, "500.00", LocalDateTime.of(2024, 1, 10, 9, 0));
+        createTransaction(groceries, "120.00", LocalDateTime.of(2024, 1, 15, 18, 0));
+        createTransaction(groceries, "80.00", LocalDateTime.of(2024, 2, 3, 12, 0));
+    }
+
+    /**
+     * Проверяет итоги по категориям: доходы и расходы разделяются по типу операции.
+     */
+    @Test
+    void testSumByCategory() {
+        List<ReportTotalDto> totals = transactionRepository.sumByCategory();
+
+        assertEquals(2, totals.size());
+        ReportTotalDto groceriesTotal = totals.get(0);
+        assertEquals("Groceries", groceriesTotal.getLabel());
+        assertEquals(2L, groceriesTotal.getTransactionCount());
+        assertEquals(0, new BigDecimal("200.00").compareTo(groceriesTotal.getExpense()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(groceriesTotal.getIncome()));
+
+        ReportTotalDto salaryTotal = totals.get(1);
+        assertEquals("Salary", salaryTotal.getLabel());
+        assertEquals(0, new BigDecimal("500.00").compareTo(salaryTotal.getIncome()));
+    }
+
+    /**
+     * Проверяет итоги по счетам и ограничение количества счетов в результате.
+     */
+    @Test
+    void testSumByAccount() {
+        List<ReportTotalDto> totals = transactionRepository.sumByAccount(PageRequest.of(0, 1));
+
+        assertEquals(1, totals.size());
+        assertEquals("Main #" + account.getId(), totals.getFirst().getLabel());
+        assertEquals(3L, totals.getFirst().getTransactionCount());
+    }
+
+    /**
+     * Проверяет итоги по месяцам в хронологическом порядке.
+     */
+    @Test
+    void testSumByMonth() {
+        List<ReportTotalDto> totals = transactionRepository.sumByMonth();
+
+        assertEquals(2, totals.size());
+        assertEquals("2024-01", totals.get(0).getLabel());
+        assertEquals(2L, totals.get(0).getTransactionCount());
+        assertEquals("2024-02", totals.get(1).getLabel());
+        assertEquals(0, new BigDecimal("80.00").compareTo(totals.get(1).getExpense()));
+    }
+
+    /**
+     * Проверяет просмотр по курсору (date, id): транзакции с одинаковой датой
+     * упорядочиваются по ID и не теряются на границе страниц.
+     */
+    @Test
+    void testKeysetPagination() {
+        LocalDateTime sameDate = LocalDateTime.of(2024, 3, 1, 10, 0);
+        createTransaction(groceries, "10.00", sameDate);
+        createTransaction(groceries, "20.00", sameDate);
+        createTransaction(groceries, "30.00", sameDate);
+        Long userId = account.getUser().getId();
+
+        List<TransactionDto> firstPage = transactionRepository.findPageByUser(userId, PageRequest.of(0, 2));
+        assertEquals(2, firstPage.size());
+        assertEquals(sameDate, firstPage.get(0).getDate());
+        assertTrue(firstPage.get(0).getId() > firstPage.get(1).getId(), "Ties should be ordered by ID descending");
+
+        TransactionDto last = firstPage.getLast();
+        List<TransactionDto> secondPage = transactionRepository.findPageByUserAfter(
+                userId, last.getDate(), last.getId(), PageRequest.of(0, 2));
+        assertEquals(2, secondPage.size());
+        assertEquals(sameDate, secondPage.get(0).getDate(), "Third transaction with the same date should not be skipped");
+        assertEquals(LocalDateTime.of(2024, 2, 3, 12, 0), secondPage.get(1).getDate());
+
+        TransactionDto secondLast = secondPage.getLast();
+        List<TransactionDto> thirdPage = transactionRepository.findPageByUserAfter(
+                userId, secondLast.getDate(), secondLast.getId(), PageRequest.of(0, 10));
+        assertEquals(2, thirdPage.size());
+        assertEquals(account.getId(), thirdPage.getFirst().getAccountId());
+    }
+
+    private Category createCategory(String name, OperationType type) {
+        Category category = new Category();
+        category.setName(name);
+        category.setType(type);
+        category.setColorCode("#FF0000");
+        return categoryRepository.save(category);
+    }
+
+    private void createTransaction(Category category, String amount, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setAccount(account);
+        transaction.setCategory(category);
+        transaction.setUser(account.getUser());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setDescription("Test");
+        transaction.setDate(date);
+        transaction.setType(category.getType());
+        transactionRepository.save(transaction);
+    }
+}
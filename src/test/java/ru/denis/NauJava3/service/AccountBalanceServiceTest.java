@@ -0,0 +1,264 @@
+package ru.denis.NauJava3.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.AccountBalanceDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.AccountBalanceSnapshot;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
+import ru.denis.NauJava3.repository.AccountBalanceSnapshotRepository;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.TransactionRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для {@link AccountBalanceService}.
+ * Счет с начальным балансом 1000 получает доход 200 десять дней назад,
+ * расход 50 пять дней назад и расход 30 вчера; история баланса должна совпадать
+ * с контрольными точками и без них и учитывать записи задним числом.
+ */
+@SpringBootTest
+@Transactional
+class AccountBalanceServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionImportService transactionImportService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    private User user;
+    private Account account;
+    private Category income;
+    private Category expense;
+
+    @BeforeEach
+    void setUp() {
+        user = createTestUser();
+        account = createTestAccount(user);
+        income = createTestCategory(OperationType.INCOME);
+        expense = createTestCategory(OperationType.EXPENSE);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        transactionImportService.importTransactions(List.of(
+                request(income, "200.00", 10),
+                request(expense, "50.00", 5),
+                request(expense, "30.00", 1)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Проверяет историю баланса без контрольных точек: баланс восстанавливается
+     * от текущего баланса счета.
+     */
+    @Test
+    void testBalanceHistoryWithoutSnapshots() {
+        List<AccountBalanceDto> history = accountBalanceService.getBalanceHistory(
+                account.getId(), TODAY.minusDays(11), TODAY);
+
+        assertEquals(12, history.size(), "History should contain every day of the period");
+        assertBalance("1000.00", history, 11);
+        assertBalance("1200.00", history, 10);
+        assertBalance("1200.00", history, 6);
+        assertBalance("1150.00", history, 5);
+        assertBalance("1120.00", history, 1);
+        assertBalance("1120.00", history, 0);
+    }
+
+    /**
+     * Проверяет, что контрольные точки записываются только за дни с транзакциями
+     * и история баланса с ними совпадает с историей без них.
+     */
+    @Test
+    void testSnapshotsMatchHistory() {
+        List<AccountBalanceDto> expected = accountBalanceService.getBalanceHistory(
+                account.getId(), TODAY.minusDays(11), TODAY);
+
+        accountBalanceService.createSnapshots(TODAY.minusDays(11), TODAY.minusDays(1));
+
+        assertSnapshot("1200.00", 10);
+        assertSnapshot("1150.00", 5);
+        assertSnapshot("1120.00", 1);
+        assertTrue(snapshotRepository.findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+                        account.getId(), TODAY.minusDays(11)).isEmpty(),
+                "No snapshot should be written for days without transactions");
+
+        assertEquals(expected, accountBalanceService.getBalanceHistory(
+                account.getId(), TODAY.minusDays(11), TODAY));
+        assertEquals(expected.subList(3, 8), accountBalanceService.getBalanceHistory(
+                account.getId(), TODAY.minusDays(8), TODAY.minusDays(4)),
+                "History starting between snapshots should use the nearest snapshot");
+    }
+
+    /**
+     * Проверяет, что импорт и удаление транзакции задним числом корректируют
+     * все последующие контрольные точки.
+     */
+    @Test
+    void testBackdatedWritesAdjustSnapshots() {
+        accountBalanceService.createSnapshots(TODAY.minusDays(11), TODAY.minusDays(1));
+
+        transactionImportService.importTransactions(List.of(request(expense, "100.00", 7)));
+
+        assertSnapshot("1200.00", 10);
+        assertSnapshot("1050.00", 5);
+        assertSnapshot("1020.00", 1);
+        List<AccountBalanceDto> history = accountBalanceService.getBalanceHistory(
+                account.getId(), TODAY.minusDays(8), TODAY);
+        assertBalance("1200.00", history, 8);
+        assertBalance("1100.00", history, 7);
+        assertBalance("1020.00", history, 0);
+
+        Transaction backdated = transactionRepository.findByUserAndCategoryAndDateBetween(user, expense,
+                TODAY.minusDays(7).atStartOfDay(), TODAY.minusDays(6).atStartOfDay()).getFirst();
+        transactionService.deleteTransaction(backdated.getId());
+
+        assertSnapshot("1150.00", 5);
+        assertSnapshot("1120.00", 1);
+    }
+
+    /**
+     * Проверяет отклонение чужого счета и некорректного периода.
+     */
+    @Test
+    void testBalanceHistoryInvalidRequest() {
+        Account foreignAccount = createTestAccount(createTestUser());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> accountBalanceService.getBalanceHistory(foreignAccount.getId(), TODAY, TODAY));
+        assertThrows(BadRequestException.class,
+                () -> accountBalanceService.getBalanceHistory(account.getId(), TODAY, TODAY.minusDays(1)));
+        assertThrows(BadRequestException.class,
+                () -> accountBalanceService.getBalanceHistory(account.getId(), TODAY.minusYears(2), TODAY));
+    }
+
+    private void assertBalance(String expected, List<AccountBalanceDto> history, int daysAgo) {
+        AccountBalanceDto balance = history.stream()
+                .filter(item -> item.getDate().equals(TODAY.minusDays(daysAgo)))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0, new BigDecimal(expected).compareTo(balance.getBalance()),
+                "Unexpected balance " + daysAgo + " days ago: " + balance.getBalance());
+    }
+
+    /**
+     * Проверяет контрольную точку, прочитанную из БД: контрольные точки изменяются
+     * UPDATE-запросами в обход контекста персистентности.
+     */
+    private void assertSnapshot(String expected, int daysAgo) {
+        entityManager.clear();
+        AccountBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByAccountIdAndSnapshotDateLessThanEqualOrderBySnapshotDateDesc(
+                        account.getId(), TODAY.minusDays(daysAgo))
+                .orElseThrow();
+        assertEquals(TODAY.minusDays(daysAgo), snapshot.getSnapshotDate());
+        assertEquals(0, new BigDecimal(expected).compareTo(snapshot.getBalance()),
+                "Unexpected snapshot " + daysAgo + " days ago: " + snapshot.getBalance());
+    }
+
+    /**
+     * Создает строку импорта, датированную полуднем указанного количества дней назад.
+     */
+    private TransactionRequest request(Category category, String amount, int daysAgo) {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountId(account.getId());
+        request.setCategoryId(category.getId());
+        request.setAmount(new BigDecimal(amount));
+        request.setType(category.getType());
+        request.setDate(TODAY.minusDays(daysAgo).atTime(12, 0));
+        return request;
+    }
+
+    /**
+     * Создает тестового пользователя с уникальными данными.
+     * @return сохраненный в базе данных пользователь
+     */
+    private User createTestUser() {
+        String uniqueId = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername("testUser_" + uniqueId);
+        user.setEmail("test_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        return userRepository.save(user);
+    }
+
+    /**
+     * Создает тестовый счет с балансом 1000 для указанного пользователя.
+     * @param user пользователь, которому принадлежит счет
+     * @return сохраненный в базе данных счет
+     */
+    private Account createTestAccount(User user) {
+        Account account = new Account();
+        account.setName("Test Account");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+
+    /**
+     * Создает тестовую категорию указанного типа.
+     * @param type тип операции (доход/расход)
+     * @return сохраненная в базе данных категория
+     */
+    private Category createTestCategory(OperationType type) {
+        Category category = new Category();
+        category.setName("Test Category");
+        category.setType(type);
+        category.setColorCode("#FF0000");
+        return categoryRepository.save(category);
+    }
+}
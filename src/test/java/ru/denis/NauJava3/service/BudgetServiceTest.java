@@ -1,33 +1,31 @@
 package ru.denis.NauJava3.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 import ru.denis.NauJava3.dto.BudgetDto;
+import ru.denis.NauJava3.dto.BudgetStatusDto;
 import ru.denis.NauJava3.entity.Budget;
 import ru.denis.NauJava3.entity.Category;
-import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.User;
 import ru.denis.NauJava3.exception.ResourceNotFoundException;
 import ru.denis.NauJava3.repository.BudgetRepository;
 import ru.denis.NauJava3.repository.CategoryRepository;
-import ru.denis.NauJava3.repository.TransactionRepository;
-import ru.denis.NauJava3.repository.UserRepository;
 import ru.denis.NauJava3.service.impl.BudgetServiceImpl;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,19 +45,16 @@ public class BudgetServiceTest {
     private BudgetRepository budgetRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private CurrentUserService currentUserService;
 
     @Mock
     private CategoryRepository categoryRepository;
 
     @Mock
-    private TransactionRepository transactionRepository;
+    private SpendingAggregateService spendingAggregateService;
 
-    @Mock
-    private Authentication authentication;
-
-    @Mock
-    private SecurityContext securityContext;
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private BudgetServiceImpl budgetService;
@@ -68,20 +63,16 @@ public class BudgetServiceTest {
     private Category testCategory;
     private Budget testBudget;
     private BudgetDto testBudgetDto;
-    private Transaction testTransaction;
 
     /**
      * Настраивает тестовое окружение перед каждым тестом.
      */
     @BeforeEach
     void setUp() {
-        when(securityContext.getAuthentication()).thenReturn(authentication);
-        SecurityContextHolder.setContext(securityContext);
-        when(authentication.getName()).thenReturn("testuser");
-
         testUser = new User();
         testUser.setId(1L);
         testUser.setUsername("testuser");
+        when(currentUserService.getCurrentUser()).thenReturn(testUser);
 
         testCategory = new Category();
         testCategory.setId(1L);
@@ -102,13 +93,6 @@ public class BudgetServiceTest {
         testBudgetDto.setPeriodStart(LocalDate.of(2023, 10, 1));
         testBudgetDto.setPeriodEnd(LocalDate.of(2023, 10, 31));
         testBudgetDto.setCategoryId(1L);
-
-        testTransaction = new Transaction();
-        testTransaction.setId(1L);
-        testTransaction.setAmount(new BigDecimal("150.00"));
-        testTransaction.setUser(testUser);
-        testTransaction.setCategory(testCategory);
-        testTransaction.setDate(LocalDateTime.of(2023, 10, 15, 12, 0));
     }
 
     /**
@@ -116,7 +100,6 @@ public class BudgetServiceTest {
      */
     @Test
     void createBudget_SuccessfulCreation() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(testCategory));
         when(budgetRepository.save(any(Budget.class))).thenReturn(testBudget);
 
@@ -134,7 +117,6 @@ public class BudgetServiceTest {
      */
     @Test
     void getBudgetById_SuccessfulRetrieval() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(1L)).thenReturn(Optional.of(testBudget));
 
         Budget result = budgetService.getBudgetById(1L);
@@ -149,7 +131,6 @@ public class BudgetServiceTest {
      */
     @Test
     void getCurrentUserBudgets_SuccessfulRetrieval() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findByUser(testUser)).thenReturn(List.of(testBudget));
 
         List<Budget> results = budgetService.getCurrentUserBudgets();
@@ -165,44 +146,38 @@ public class BudgetServiceTest {
      */
     @Test
     void isBudgetExceeded_WithinBudget_ReturnsFalse() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(1L)).thenReturn(Optional.of(testBudget));
-        when(transactionRepository.findByUserAndCategoryAndDateBetween(
-                eq(testUser),
-                eq(testCategory),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)))
-                .thenReturn(List.of(testTransaction));
+        when(spendingAggregateService.getSpentAmount(
+                testUser,
+                testCategory,
+                LocalDate.of(2023, 10, 1),
+                LocalDate.of(2023, 10, 31)))
+                .thenReturn(new BigDecimal("150.00"));
 
         boolean result = budgetService.isBudgetExceeded(1L);
 
         assertFalse(result);
+        assertEquals(0, meterRegistry.counter("budget.exceeded").count());
     }
 
     /**
-     * Проверяет, что метод возвращает true, когда расходы превышают бюджет.
+     * Проверяет, что метод возвращает true, когда расходы превышают бюджет,
+     * и превышение учитывается в метрике budget.exceeded.
      */
     @Test
     void isBudgetExceeded_OverBudget_ReturnsTrue() {
-        Transaction largeTransaction = new Transaction();
-        largeTransaction.setId(2L);
-        largeTransaction.setAmount(new BigDecimal("600.00"));
-        largeTransaction.setUser(testUser);
-        largeTransaction.setCategory(testCategory);
-        largeTransaction.setDate(LocalDateTime.of(2023, 10, 20, 12, 0));
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(1L)).thenReturn(Optional.of(testBudget));
-        when(transactionRepository.findByUserAndCategoryAndDateBetween(
+        when(spendingAggregateService.getSpentAmount(
                 eq(testUser),
                 eq(testCategory),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)))
-                .thenReturn(List.of(largeTransaction));
+                any(LocalDate.class),
+                any(LocalDate.class)))
+                .thenReturn(new BigDecimal("600.00"));
 
         boolean result = budgetService.isBudgetExceeded(1L);
 
         assertTrue(result);
+        assertEquals(1, meterRegistry.counter("budget.exceeded").count());
     }
 
     /**
@@ -210,7 +185,6 @@ public class BudgetServiceTest {
      */
     @Test
     void createBudget_CategoryNotFound_ThrowsException() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(categoryRepository.findById(1L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
@@ -225,7 +199,6 @@ public class BudgetServiceTest {
      */
     @Test
     void getBudgetById_BudgetNotFound_ThrowsException() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
@@ -247,7 +220,6 @@ public class BudgetServiceTest {
         otherUserBudget.setName("Other user's budget");
         otherUserBudget.setUser(otherUser);
 
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(2L)).thenReturn(Optional.of(otherUserBudget));
 
         assertThrows(ResourceNotFoundException.class, () -> {
@@ -260,7 +232,6 @@ public class BudgetServiceTest {
      */
     @Test
     void getCurrentUserBudgets_UserWithNoBudgets_ReturnsEmptyList() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findByUser(testUser)).thenReturn(Collections.emptyList());
 
         List<Budget> results = budgetService.getCurrentUserBudgets();
@@ -274,7 +245,6 @@ public class BudgetServiceTest {
      */
     @Test
     void isBudgetExceeded_BudgetNotFound_ThrowsException() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class, () -> {
@@ -287,18 +257,62 @@ public class BudgetServiceTest {
      */
     @Test
     void isBudgetExceeded_NoTransactions_ReturnsFalse() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(budgetRepository.findById(1L)).thenReturn(Optional.of(testBudget));
-        when(transactionRepository.findByUserAndCategoryAndDateBetween(
+        when(spendingAggregateService.getSpentAmount(
                 eq(testUser),
                 eq(testCategory),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class)))
-                .thenReturn(Collections.emptyList());
+                any(LocalDate.class),
+                any(LocalDate.class)))
+                .thenReturn(BigDecimal.ZERO);
 
         boolean result = budgetService.isBudgetExceeded(1L);
 
         assertFalse(result);
+        assertEquals(0, meterRegistry.counter("budget.exceeded").count());
+    }
+
+    /**
+     * Проверяет вычисление состояния всех бюджетов пользователя по агрегированным суммам.
+     */
+    @Test
+    void getCurrentUserBudgetStatuses_ComputesSpentRemainingAndExceeded() {
+        Budget exceededBudget = new Budget();
+        exceededBudget.setId(2L);
+        exceededBudget.setName("Exceeded budget");
+        exceededBudget.setAmountLimit(new BigDecimal("100.00"));
+        exceededBudget.setUser(testUser);
+        exceededBudget.setCategory(testCategory);
+
+        when(budgetRepository.findByUser(testUser)).thenReturn(List.of(testBudget, exceededBudget));
+        when(spendingAggregateService.getSpentAmountsByBudget(testUser))
+                .thenReturn(Map.of(1L, new BigDecimal("150.00"), 2L, new BigDecimal("120.00")));
+
+        List<BudgetStatusDto> results = budgetService.getCurrentUserBudgetStatuses();
+
+        assertEquals(2, results.size());
+        assertEquals(new BigDecimal("150.00"), results.get(0).getSpentAmount());
+        assertEquals(new BigDecimal("350.00"), results.get(0).getRemainingAmount());
+        assertFalse(results.get(0).isExceeded());
+        assertEquals(new BigDecimal("-20.00"), results.get(1).getRemainingAmount());
+        assertTrue(results.get(1).isExceeded());
+        verify(spendingAggregateService, times(1)).getSpentAmountsByBudget(testUser);
+        verify(budgetRepository, never()).findById(any());
+    }
+
+    /**
+     * Проверяет, что бюджет без транзакций за период считается неизрасходованным.
+     */
+    @Test
+    void getCurrentUserBudgetStatuses_BudgetWithoutSpending_ReturnsZeroSpent() {
+        when(budgetRepository.findByUser(testUser)).thenReturn(List.of(testBudget));
+        when(spendingAggregateService.getSpentAmountsByBudget(testUser)).thenReturn(Map.of());
+
+        List<BudgetStatusDto> results = budgetService.getCurrentUserBudgetStatuses();
+
+        assertEquals(1, results.size());
+        assertEquals(BigDecimal.ZERO, results.getFirst().getSpentAmount());
+        assertEquals(testBudget.getAmountLimit(), results.getFirst().getRemainingAmount());
+        assertFalse(results.getFirst().isExceeded());
     }
 
     /**
@@ -306,11 +320,13 @@ public class BudgetServiceTest {
      */
     @Test
     void allMethods_UserNotFound_ThrowException() {
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(currentUserService.getCurrentUser())
+                .thenThrow(new ResourceNotFoundException("Пользователь не найден: testuser"));
 
         assertThrows(ResourceNotFoundException.class, () -> budgetService.createBudget(testBudgetDto));
         assertThrows(ResourceNotFoundException.class, () -> budgetService.getBudgetById(1L));
         assertThrows(ResourceNotFoundException.class, () -> budgetService.getCurrentUserBudgets());
         assertThrows(ResourceNotFoundException.class, () -> budgetService.isBudgetExceeded(1L));
+        assertThrows(ResourceNotFoundException.class, () -> budgetService.getCurrentUserBudgetStatuses());
     }
 }
\ No newline at end of file
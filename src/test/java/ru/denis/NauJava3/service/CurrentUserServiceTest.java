@@ -0,0 +1,114 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
+import ru.denis.NauJava3.repository.UserRepository;
+import ru.denis.NauJava3.service.impl.CurrentUserServiceImpl;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тестовый класс для {@link CurrentUserServiceImpl}.
+ * Проверяет, что текущий пользователь определяется без повторных запросов к БД.
+ */
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private CurrentUserServiceImpl currentUserService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * Проверяет, что принципал-пользователь возвращается без обращения к репозиторию.
+     */
+    @Test
+    void getCurrentUser_PrincipalIsUser_NoQuery() {
+        User user = createUser("testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        assertSame(user, currentUserService.getCurrentUser());
+        assertSame(user, currentUserService.getCurrentUser());
+        verifyNoInteractions(userRepository);
+    }
+
+    /**
+     * Проверяет, что пользователь загружается по имени не более одного раза за HTTP-запрос.
+     */
+    @Test
+    void getCurrentUser_PrincipalIsName_OneQueryPerRequest() {
+        User user = createUser("testuser");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserService.getCurrentUser();
+        currentUserService.getCurrentUser();
+        assertSame(user, currentUserService.getCurrentUser());
+        verify(userRepository, times(1)).findByUsername("testuser");
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUserService.getCurrentUser();
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    /**
+     * Проверяет, что вне HTTP-запроса пользователь загружается при каждом вызове.
+     */
+    @Test
+    void getCurrentUser_NoRequest_LoadsEachTime() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("testuser", null, List.of()));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(createUser("testuser")));
+
+        currentUserService.getCurrentUser();
+        currentUserService.getCurrentUser();
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    /**
+     * Проверяет исключения для отсутствующего пользователя и отсутствующей аутентификации.
+     */
+    @Test
+    void getCurrentUser_NotFound_ThrowsException() {
+        assertThrows(ResourceNotFoundException.class, () -> currentUserService.getCurrentUser());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("unknown", null, List.of()));
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> currentUserService.getCurrentUser());
+    }
+
+    private User createUser(String username) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(username);
+        return user;
+    }
+}
@@ -0,0 +1,144 @@
+package ru.denis.NauJava3.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.DataGenerationResultDto;
+import ru.denis.NauJava3.dto.DataGenerationSettings;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.enums.OperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для {@link DataGeneratorService}.
+ * Проверяет размеры набора данных, неравномерность распределения транзакций,
+ * воспроизводимость по seed и совместимость идентификаторов с приложением.
+ */
+@SpringBootTest
+@Transactional
+class DataGeneratorServiceTest {
+
+    @Autowired
+    private DataGeneratorService dataGeneratorService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Проверяет количество созданных записей и степенное распределение транзакций по пользователям.
+     */
+    @Test
+    void testGenerate() {
+        DataGenerationSettings settings = settings("gen_test_");
+
+        DataGenerationResultDto result = dataGeneratorService.generate(settings);
+
+        assertEquals(50, result.getUsers());
+        assertEquals(10, result.getCategories());
+        assertEquals(5000, result.getTransactions());
+        assertEquals(100, result.getBudgets());
+        assertTrue(result.getAccounts() >= 50 && result.getAccounts() <= 150);
+
+        List<Integer> perUser = jdbcTemplate.queryForList(
+                "SELECT count(*) FROM transactions t JOIN users u ON u.id = t.user_id " +
+                        "WHERE u.username LIKE 'gen\\_test\\_%' GROUP BY t.user_id ORDER BY count(*) DESC",
+                Integer.class);
+        assertEquals(5000, perUser.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(perUser.getFirst() > 5 * perUser.get(perUser.size() / 2),
+                "Transactions should be concentrated on the most active users: " + perUser);
+
+        Integer outOfPeriod = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM transactions t JOIN users u ON u.id = t.user_id " +
+                        "WHERE u.username LIKE 'gen\\_test\\_%' AND (t.date < ? OR t.date >= ?)",
+                Integer.class, LocalDate.of(2024, 1, 1), LocalDate.of(2025, 1, 1));
+        assertEquals(0, outOfPeriod);
+
+        Integer offJournal = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM accounts a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.username LIKE 'gen\\_test\\_%' AND a.balance <> (SELECT SUM(CASE " +
+                        "WHEN e.entry_type = 'CREDIT' THEN e.amount ELSE -e.amount END) " +
+                        "FROM ledger_entries e WHERE e.account_id = a.id)",
+                Integer.class);
+        assertEquals(0, offJournal, "Generated balances should match the ledger journal");
+
+        assertThrows(IllegalStateException.class, () -> dataGeneratorService.generate(settings),
+                "Second generation with the same prefix should be rejected");
+    }
+
+    /**
+     * Проверяет, что одинаковые параметры формируют одинаковые данные.
+     */
+    @Test
+    void testGenerateIsDeterministic() {
+        dataGeneratorService.generate(settings("gen_first_"));
+        dataGeneratorService.generate(settings("gen_second_"));
+
+        assertEquals(fingerprint("gen_first_"), fingerprint("gen_second_"));
+    }
+
+    /**
+     * Проверяет, что транзакции, создаваемые приложением после генерации,
+     * получают идентификаторы вне диапазона сгенерированных.
+     * Идентификатор может быть и меньше диапазона, если Hibernate зарезервировал его блок раньше.
+     */
+    @Test
+    void testApplicationTransactionsAfterGenerate() {
+        dataGeneratorService.generate(settings("gen_ids_"));
+        Long accountId = jdbcTemplate.queryForObject(
+                "SELECT min(a.id) FROM accounts a JOIN users u ON u.id = a.user_id " +
+                        "WHERE u.username LIKE 'gen\\_ids\\_%'", Long.class);
+        Long categoryId = jdbcTemplate.queryForObject(
+                "SELECT min(id) FROM categories WHERE type = 'INCOME' AND name LIKE 'Gen income %'", Long.class);
+
+        Transaction transaction = transactionService.createTransaction(
+                accountId, categoryId, BigDecimal.TEN, "After generation", OperationType.INCOME);
+        entityManager.flush();
+
+        Integer overlapping = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM (SELECT min(t.id) AS first_id, max(t.id) AS last_id FROM transactions t " +
+                        "JOIN users u ON u.id = t.user_id WHERE u.username LIKE 'gen\\_ids\\_%' AND t.id <> ?) g " +
+                        "WHERE ? BETWEEN g.first_id AND g.last_id",
+                Integer.class, transaction.getId(), transaction.getId());
+        assertEquals(0, overlapping);
+    }
+
+    private DataGenerationSettings settings(String usernamePrefix) {
+        DataGenerationSettings settings = new DataGenerationSettings();
+        settings.setSeed(7);
+        settings.setUsers(50);
+        settings.setCategories(10);
+        settings.setTransactions(5000);
+        settings.setBudgetsPerUser(2);
+        settings.setDays(366);
+        settings.setEndDate(LocalDate.of(2024, 12, 31));
+        settings.setUsernamePrefix(usernamePrefix);
+        return settings;
+    }
+
+    private String fingerprint(String usernamePrefix) {
+        return jdbcTemplate.queryForObject(
+                "SELECT md5(string_agg(substr(u.username, length(?) + 1) || '|' || a.name || '|' || c.name " +
+                        "|| '|' || t.amount || '|' || t.date || '|' || t.type, ',' ORDER BY t.id)) " +
+                        "FROM transactions t " +
+                        "JOIN users u ON u.id = t.user_id " +
+                        "JOIN accounts a ON a.id = t.account_id " +
+                        "JOIN categories c ON c.id = t.category_id " +
+                        "WHERE u.username LIKE ?",
+                String.class, usernamePrefix, usernamePrefix.replace("_", "\\_") + "%");
+    }
+}
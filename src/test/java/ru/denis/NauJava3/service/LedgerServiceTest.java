@@ -0,0 +1,222 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.denis.NauJava3.dto.LedgerEntryDto;
+import ru.denis.NauJava3.dto.LedgerRebuildResultDto;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.LedgerEntryType;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для {@link LedgerService}.
+ * Пересборка балансов выполняется в отдельных потоках и транзакциях БД,
+ * поэтому тест не транзакционный и сам удаляет созданные данные.
+ */
+@SpringBootTest
+class LedgerServiceTest {
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Account account;
+    private Category incomeCategory;
+    private Category expenseCategory;
+
+    @BeforeEach
+    void setUp() {
+        String uniqueId = UUID.randomUUID().toString();
+        user = new User();
+        user.setUsername("ledgerUser_" + uniqueId);
+        user.setEmail("ledger_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        account = new Account();
+        account.setName("Ledger Account");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        account = accountRepository.save(account);
+
+        incomeCategory = createCategory(OperationType.INCOME);
+        expenseCategory = createCategory(OperationType.EXPENSE);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        jdbcTemplate.update("DELETE FROM daily_spendings WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE account_id = ?", account.getId());
+        jdbcTemplate.update("DELETE FROM accounts WHERE id = ?", account.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id IN (?, ?)", incomeCategory.getId(), expenseCategory.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    /**
+     * Проверяет, что журнал начинается с начального баланса счета, транзакции добавляют
+     * проводки, а удаление транзакции добавляет сторнирующую проводку вместо удаления.
+     */
+    @Test
+    void testJournalRecordsTransactionsAndReversals() {
+        transactionService.createTransaction(account.getId(), incomeCategory.getId(),
+                new BigDecimal("200.00"), "Salary", OperationType.INCOME);
+        Transaction expense = transactionService.createTransaction(account.getId(), expenseCategory.getId(),
+                new BigDecimal("50.00"), "Coffee", OperationType.EXPENSE);
+        transactionService.deleteTransaction(expense.getId());
+
+        List<LedgerEntryDto> entries = ledgerService.getAccountEntries(account.getId(), 0, 10);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), entries.stream().map(LedgerEntryDto::getSeq).toList());
+        assertEntry(entries.get(0), LedgerEntryType.CREDIT, "1000.00", null);
+        assertEntry(entries.get(1), LedgerEntryType.CREDIT, "200.00", null);
+        assertEntry(entries.get(2), LedgerEntryType.DEBIT, "50.00", null);
+        assertEntry(entries.get(3), LedgerEntryType.CREDIT, "50.00", expense.getId());
+        assertNotNull(entries.get(3).getReversalOf(), "Reversal should reference the reversed entry");
+        assertEquals(0, journalBalance().compareTo(currentBalance()),
+                "Journal should add up to the account balance");
+
+        assertEquals(entries.subList(2, 4), ledgerService.getAccountEntries(account.getId(), 2, 10),
+                "Page should start after the given sequence number");
+    }
+
+    /**
+     * Проверяет, что проводки нельзя изменить или удалить.
+     */
+    @Test
+    void testJournalIsAppendOnly() {
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.update(
+                "UPDATE ledger_entries SET amount = 0 WHERE account_id = ?", account.getId()));
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.update(
+                "DELETE FROM ledger_entries WHERE account_id = ?", account.getId()));
+    }
+
+    /**
+     * Проверяет, что при параллельной записи проводки счета нумеруются без пропусков и повторов.
+     */
+    @Test
+    void testConcurrentWritesKeepSequenceDense() throws Exception {
+        int operations = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                boolean income = i % 2 == 0;
+                futures.add(executor.submit(() -> transactionService.createTransaction(account.getId(),
+                        income ? incomeCategory.getId() : expenseCategory.getId(),
+                        new BigDecimal("10.00"), "Concurrent",
+                        income ? OperationType.INCOME : OperationType.EXPENSE)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Long> seqs = jdbcTemplate.queryForList(
+                "SELECT seq FROM ledger_entries WHERE account_id = ? ORDER BY seq", Long.class, account.getId());
+        assertEquals(operations + 1, seqs.size());
+        for (int i = 0; i < seqs.size(); i++) {
+            assertEquals(i + 1, seqs.get(i), "Sequence numbers should have no gaps");
+        }
+        assertEquals(0, journalBalance().compareTo(currentBalance()),
+                "Journal should add up to the account balance");
+    }
+
+    /**
+     * Проверяет, что пересборка восстанавливает баланс, измененный в обход журнала,
+     * как от снимка проекции, так и от проводок после него.
+     */
+    @Test
+    void testRebuildRestoresBalanceFromJournal() {
+        transactionService.createTransaction(account.getId(), incomeCategory.getId(),
+                new BigDecimal("200.00"), "Before snapshot", OperationType.INCOME);
+        ledgerService.createSnapshots();
+        transactionService.createTransaction(account.getId(), expenseCategory.getId(),
+                new BigDecimal("75.00"), "After snapshot", OperationType.EXPENSE);
+
+        jdbcTemplate.update("UPDATE accounts SET balance = 0 WHERE id = ?", account.getId());
+
+        LedgerRebuildResultDto result = ledgerService.rebuildBalances();
+
+        assertTrue(result.getAccounts() >= 1);
+        assertTrue(result.getCorrected() >= 1, "Corrupted balance should be reported as corrected");
+        assertEquals(0, new BigDecimal("1125.00").compareTo(currentBalance()),
+                "Balance should be restored from the journal");
+
+        ledgerService.rebuildBalances();
+        assertEquals(0, new BigDecimal("1125.00").compareTo(currentBalance()),
+                "Repeated rebuild should keep the restored balance");
+    }
+
+    private void assertEntry(LedgerEntryDto entry, LedgerEntryType type, String amount, Long transactionId) {
+        assertEquals(type, entry.getEntryType());
+        assertEquals(0, new BigDecimal(amount).compareTo(entry.getAmount()));
+        if (transactionId != null) {
+            assertEquals(transactionId, entry.getTransactionId());
+        }
+    }
+
+    private BigDecimal journalBalance() {
+        return jdbcTemplate.queryForObject("SELECT SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END) " +
+                "FROM ledger_entries WHERE account_id = ?", BigDecimal.class, account.getId());
+    }
+
+    private BigDecimal currentBalance() {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?",
+                BigDecimal.class, account.getId());
+    }
+
+    private Category createCategory(OperationType type) {
+        Category category = new Category();
+        category.setName("Ledger " + type);
+        category.setType(type);
+        category.setColorCode("#00FF00");
+        return categoryRepository.save(category);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.denis.NauJava3.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.denis.NauJava3.service.impl.ReportContentCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для кэша содержимого отчетов {@link ReportContentCache}.
+ * Проверяет вытеснение по количеству записей и суммарному размеру, а также счетчики.
+ */
+class ReportContentCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportContentCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ReportContentCache(meterRegistry, 2, DataSize.ofBytes(100), DataSize.ofBytes(60));
+    }
+
+    /**
+     * Проверяет вытеснение давно не использованного отчета при превышении количества записей.
+     */
+    @Test
+    void put_TooManyEntries_ShouldEvictLeastRecentlyUsed() {
+        cache.put(1L, "e1", new byte[10]);
+        cache.put(2L, "e2", new byte[10]);
+        cache.get(1L);
+        cache.put(3L, "e3", new byte[10]);
+
+        assertTrue(cache.peek(1L).isPresent());
+        assertTrue(cache.peek(2L).isEmpty());
+        assertTrue(cache.peek(3L).isPresent());
+        assertEquals(1.0, meterRegistry.get("report.cache.evictions").counter().count());
+    }
+
+    /**
+     * Проверяет вытеснение при превышении суммарного размера содержимого.
+     */
+    @Test
+    void put_TooManyBytes_ShouldEvictUntilWithinLimit() {
+        cache.put(1L, "e1", new byte[50]);
+        cache.put(2L, "e2", new byte[60]);
+
+        assertTrue(cache.peek(1L).isEmpty());
+        assertEquals(1, cache.size());
+        assertEquals(60, cache.bytes());
+    }
+
+    /**
+     * Проверяет, что отчет, превышающий ограничение на одну запись, не кэшируется.
+     */
+    @Test
+    void put_OversizedEntry_ShouldBeIgnored() {
+        cache.put(1L, "e1", new byte[61]);
+
+        assertFalse(cache.accepts(61));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Проверяет учет попаданий и промахов.
+     */
+    @Test
+    void get_ShouldCountHitsAndMisses() {
+        cache.put(1L, "e1", new byte[10]);
+
+        assertEquals("e1", cache.get(1L).orElseThrow().getEtag());
+        assertTrue(cache.get(2L).isEmpty());
+
+        assertEquals(1.0, meterRegistry.get("report.cache.hits").counter().count());
+        assertEquals(1.0, meterRegistry.get("report.cache.misses").counter().count());
+        assertEquals(1.0, meterRegistry.get("report.cache.size").gauge().value());
+    }
+}
@@ -0,0 +1,208 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.entity.Report;
+import ru.denis.NauJava3.entity.enums.ReportStatus;
+import ru.denis.NauJava3.repository.ReportRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для очереди заданий на формирование отчетов {@link ReportJobQueue}.
+ * Проверяет выдачу аренды, повторные попытки, подбор брошенных заданий и отмену.
+ */
+@SpringBootTest
+@Transactional
+class ReportJobQueueTest {
+
+    @Autowired
+    private ReportJobQueue reportJobQueue;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportContentService reportContentService;
+
+    /**
+     * Проверяет, что отчет из очереди выдается в аренду только один раз.
+     */
+    @Test
+    void testClaimQueuedReport() {
+        Report report = createReport(ReportStatus.QUEUED);
+
+        assertTrue(reportJobQueue.claim(report.getId()));
+        assertFalse(reportJobQueue.claim(report.getId()));
+
+        Report claimed = reportRepository.findById(report.getId()).orElseThrow();
+        assertEquals(ReportStatus.RUNNING, claimed.getStatus());
+        assertEquals(1, claimed.getAttempts());
+        assertNotNull(claimed.getLeaseOwner());
+        assertNotNull(claimed.getLeaseExpiresAt());
+        assertTrue(reportJobQueue.renewLease(report.getId()));
+    }
+
+    /**
+     * Проверяет сохранение результата владельцем аренды: содержимое делится на сжатые
+     * фрагменты и отдается потоком как в сжатом, так и в распакованном виде.
+     */
+    @Test
+    void testCompleteReport() throws IOException {
+        Report report = createReport(ReportStatus.QUEUED);
+        reportJobQueue.claim(report.getId());
+
+        StringBuilder html = new StringBuilder("<html>");
+        for (int i = 0; i < 10_000; i++) {
+            html.append("<p>").append(UUID.randomUUID()).append("</p>");
+        }
+        html.append("</html>");
+        byte[] compressed = gzip(html.toString());
+
+        assertTrue(reportJobQueue.complete(report.getId(), compressed, 42L));
+
+        Report completed = reportRepository.findById(report.getId()).orElseThrow();
+        assertEquals(ReportStatus.COMPLETED, completed.getStatus());
+        assertEquals(compressed.length, completed.getContentSize());
+        assertEquals(32, completed.getContentEtag().length());
+        assertEquals(42L, completed.getCreationTime());
+        assertNull(completed.getLeaseOwner());
+        assertFalse(reportJobQueue.renewLease(report.getId()));
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        reportContentService.writeContent(report.getId(), raw, false);
+        assertArrayEquals(compressed, raw.toByteArray());
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        reportContentService.writeContent(report.getId(), decompressed, true);
+        assertEquals(html.toString(), decompressed.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Проверяет, что после неудачной попытки отчет возвращается в очередь с задержкой,
+     * а после исчерпания попыток получает статус ERROR.
+     */
+    @Test
+    void testFailRetriesWithBackoffThenErrors() {
+        Report report = createReport(ReportStatus.QUEUED);
+        reportJobQueue.claim(report.getId());
+
+        reportJobQueue.fail(report.getId(), "Ошибка при формировании отчета: timeout");
+
+        Report retried = reportRepository.findById(report.getId()).orElseThrow();
+        assertEquals(ReportStatus.QUEUED, retried.getStatus());
+        assertNotNull(retried.getNextAttemptAt());
+        assertFalse(reportJobQueue.claimBatch(100).contains(report.getId()));
+
+        Report lastAttempt = createReport(ReportStatus.QUEUED);
+        lastAttempt.setAttempts(2);
+        reportRepository.saveAndFlush(lastAttempt);
+        reportJobQueue.claim(lastAttempt.getId());
+
+        reportJobQueue.fail(lastAttempt.getId(), "Ошибка при формировании отчета: timeout");
+
+        Report failed = reportRepository.findById(lastAttempt.getId()).orElseThrow();
+        assertEquals(ReportStatus.ERROR, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+    }
+
+    /**
+     * Проверяет, что прерванное формирование завершает отчет ошибкой без возврата в очередь,
+     * даже если попытки не исчерпаны.
+     */
+    @Test
+    void testAbortErrorsWithoutRetry() {
+        Report report = createReport(ReportStatus.QUEUED);
+        reportJobQueue.claim(report.getId());
+
+        reportJobQueue.abort(report.getId(), "Ошибка при формировании отчета: превышено время формирования");
+
+        Report failed = reportRepository.findById(report.getId()).orElseThrow();
+        assertEquals(ReportStatus.ERROR, failed.getStatus());
+        assertEquals("Ошибка при формировании отчета: превышено время формирования", failed.getErrorMessage());
+        assertFalse(reportJobQueue.claimBatch(100).contains(report.getId()));
+    }
+
+    /**
+     * Проверяет, что отчет с истекшей арендой другого экземпляра подбирается повторно.
+     */
+    @Test
+    void testClaimBatchRecoversExpiredLease() {
+        Report orphan = createReport(ReportStatus.RUNNING);
+        orphan.setAttempts(1);
+        orphan.setLeaseOwner("crashed-instance");
+        orphan.setLeaseExpiresAt(LocalDateTime.now().minusHours(1));
+        reportRepository.saveAndFlush(orphan);
+
+        Report alive = createReport(ReportStatus.RUNNING);
+        alive.setAttempts(1);
+        alive.setLeaseOwner("alive-instance");
+        alive.setLeaseExpiresAt(LocalDateTime.now().plusHours(1));
+        reportRepository.saveAndFlush(alive);
+
+        assertTrue(reportJobQueue.claimBatch(100).contains(orphan.getId()));
+
+        Report recovered = reportRepository.findById(orphan.getId()).orElseThrow();
+        assertEquals(2, recovered.getAttempts());
+        assertNotEquals("crashed-instance", recovered.getLeaseOwner());
+        assertEquals("alive-instance", reportRepository.findById(alive.getId()).orElseThrow().getLeaseOwner());
+    }
+
+    /**
+     * Проверяет, что отчет с истекшей арендой, исчерпавший попытки, не выдается
+     * в аренду повторно, а получает статус ERROR.
+     */
+    @Test
+    void testClaimBatchFailsExpiredLeaseWithoutAttempts() {
+        Report orphan = createReport(ReportStatus.RUNNING);
+        orphan.setAttempts(3);
+        orphan.setLeaseOwner("crashed-instance");
+        orphan.setLeaseExpiresAt(LocalDateTime.now().minusHours(1));
+        reportRepository.saveAndFlush(orphan);
+
+        assertFalse(reportJobQueue.claim(orphan.getId()));
+        assertFalse(reportJobQueue.claimBatch(100).contains(orphan.getId()));
+
+        Report failed = reportRepository.findById(orphan.getId()).orElseThrow();
+        assertEquals(ReportStatus.ERROR, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+        assertNull(failed.getLeaseOwner());
+        assertNotNull(failed.getErrorMessage());
+    }
+
+    /**
+     * Проверяет отмену отчета и невозможность отменить его повторно.
+     */
+    @Test
+    void testCancelReport() {
+        Report report = createReport(ReportStatus.QUEUED);
+
+        assertTrue(reportJobQueue.cancel(report.getId(), "Формирование отчета отменено"));
+        assertFalse(reportJobQueue.cancel(report.getId(), "Формирование отчета отменено"));
+        assertFalse(reportJobQueue.claim(report.getId()));
+        assertEquals(ReportStatus.CANCELLED, reportRepository.findById(report.getId()).orElseThrow().getStatus());
+    }
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer.toByteArray();
+    }
+
+    private Report createReport(ReportStatus status) {
+        Report report = new Report();
+        report.setStatus(status);
+        return reportRepository.saveAndFlush(report);
+    }
+}
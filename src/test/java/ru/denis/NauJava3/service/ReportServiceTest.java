@@ -5,26 +5,47 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.util.unit.DataSize;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
+import ru.denis.NauJava3.dto.ReportStatusDto;
+import ru.denis.NauJava3.dto.ReportTotalDto;
 import ru.denis.NauJava3.entity.Report;
-import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.enums.ReportStatus;
+import ru.denis.NauJava3.exception.BadRequestException;
 import ru.denis.NauJava3.repository.ReportRepository;
 import ru.denis.NauJava3.repository.TransactionRepository;
 import ru.denis.NauJava3.repository.UserRepository;
+import ru.denis.NauJava3.service.impl.ReportContentCache;
 import ru.denis.NauJava3.service.impl.ReportServiceImpl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -52,19 +73,37 @@ public class ReportServiceTest {
     @Mock
     private TemplateEngine templateEngine;
 
-    @InjectMocks
+    @Mock
+    private ReportJobQueue reportJobQueue;
+
+    @Mock
+    private ReportContentService reportContentService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReportContentCache reportContentCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private ReportServiceImpl reportService;
 
     private Report testReport;
 
     /**
      * Инициализация тестовых данных перед каждым тестом.
+     * Сервис использует исполнитель, запускающий задачу в вызывающем потоке.
      */
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reportContentCache = new ReportContentCache(new SimpleMeterRegistry(), 10,
+                DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        reportService = createService(Runnable::run, Duration.ofMinutes(5));
+
         testReport = new Report();
         testReport.setId(1L);
-        testReport.setStatus(ReportStatus.CREATED);
+        testReport.setStatus(ReportStatus.QUEUED);
     }
 
     /**
@@ -78,7 +117,7 @@ public class ReportServiceTest {
 
         assertNotNull(result);
         assertEquals(1L, result.getId());
-        assertEquals(ReportStatus.CREATED, result.getStatus());
+        assertEquals(ReportStatus.QUEUED, result.getStatus());
         verify(reportRepository, times(1)).findById(1L);
     }
 
@@ -94,174 +133,323 @@ public class ReportServiceTest {
     }
 
     /**
-     * Проверяет создание нового отчета и возврат его идентификатора.
+     * Проверяет создание нового отчета в статусе QUEUED и возврат его идентификатора.
      */
     @Test
     void createReport_ShouldReturnNewReportId() {
         Report savedReport = new Report();
         savedReport.setId(1L);
-        savedReport.setStatus(ReportStatus.CREATED);
+        savedReport.setStatus(ReportStatus.QUEUED);
 
-        when(reportRepository.save(any(Report.class))).thenReturn(savedReport);
+        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
+        when(reportRepository.save(reportCaptor.capture())).thenReturn(savedReport);
 
         Long reportId = reportService.createReport();
 
         assertEquals(1L, reportId);
+        assertEquals(ReportStatus.QUEUED, reportCaptor.getValue().getStatus());
         verify(reportRepository, times(1)).save(any(Report.class));
     }
 
     /**
      * Проверяет успешный сценарий асинхронной генерации отчета.
-     * Отчет должен быть обновлен и получить статус COMPLETED.
+     * Результат должен быть сохранен через очередь заданий в сжатом виде.
      */
     @Test
-    void generateReportAsync_SuccessfulReport_ShouldUpdateReportStatus() throws InterruptedException, ExecutionException, TimeoutException {
-        when(reportRepository.findById(1L)).thenReturn(Optional.of(testReport));
+    void generateReportAsync_SuccessfulReport_ShouldCompleteJob() throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        when(reportJobQueue.claim(1L)).thenReturn(true);
         when(userRepository.count()).thenReturn(5L);
+        when(transactionRepository.count()).thenReturn(2L);
 
-        List<Transaction> transactions = new ArrayList<>();
-        transactions.add(new Transaction());
-        transactions.add(new Transaction());
-        when(transactionRepository.findAll()).thenReturn(transactions);
-
-        when(templateEngine.process(eq("report-template"), any(Context.class))).thenReturn("<html>Test Report</html>");
+        List<ReportTotalDto> categoryTotals = List.of(
+                new ReportTotalDto("Groceries", 2L, BigDecimal.ZERO, new BigDecimal("150.00")));
+        when(transactionRepository.sumByCategory()).thenReturn(categoryTotals);
 
-        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
-        when(reportRepository.save(reportCaptor.capture())).thenReturn(testReport);
+        ArgumentCaptor<Context> contextCaptor = ArgumentCaptor.forClass(Context.class);
+        doAnswer(invocation -> {
+            invocation.<Writer>getArgument(2).write("<html>Test Report</html>");
+            return null;
+        }).when(templateEngine).process(eq("report-template"), contextCaptor.capture(), any(Writer.class));
 
         CompletableFuture<Void> future = reportService.generateReportAsync(1L);
         future.get(5, TimeUnit.SECONDS);
 
-        verify(reportRepository, times(1)).findById(1L);
         verify(userRepository, times(1)).count();
-        verify(transactionRepository, times(1)).findAll();
-        verify(templateEngine, times(1)).process(eq("report-template"), any(Context.class));
-        verify(reportRepository, times(1)).save(any(Report.class));
-
-        Report savedReport = reportCaptor.getValue();
-        assertEquals(ReportStatus.COMPLETED, savedReport.getStatus());
-        assertEquals("<html>Test Report</html>", savedReport.getContent());
+        verify(transactionRepository, times(1)).count();
+        verify(transactionRepository, times(1)).sumByCategory();
+        verify(transactionRepository, times(1)).sumByAccount(any(Pageable.class));
+        verify(transactionRepository, times(1)).sumByMonth();
+        verify(transactionRepository, never()).findAll();
+        verify(templateEngine, times(1)).process(eq("report-template"), any(Context.class), any(Writer.class));
+        ArgumentCaptor<byte[]> contentCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(reportJobQueue).complete(eq(1L), contentCaptor.capture(), anyLong());
+        assertEquals("<html>Test Report</html>", gunzip(contentCaptor.getValue()));
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+
+        Context context = contextCaptor.getValue();
+        assertEquals(2L, context.getVariable("transactionCount"));
+        assertEquals(categoryTotals, context.getVariable("categoryTotals"));
     }
 
     /**
      * Проверяет обработку ошибки при получении количества пользователей.
-     * Отчет должен быть обновлен со статусом ERROR и содержать информацию об ошибке.
+     * Попытка формирования должна быть зафиксирована как неудачная с информацией об ошибке.
      */
     @Test
-    void generateReportAsync_ExceptionInUserCount_ShouldUpdateReportWithErrorStatus() throws InterruptedException {
-        when(reportRepository.findById(1L)).thenReturn(Optional.of(testReport));
+    void generateReportAsync_ExceptionInUserCount_ShouldFailJob() {
+        when(reportJobQueue.claim(1L)).thenReturn(true);
         doThrow(new RuntimeException("Database error")).when(userRepository).count();
 
-        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
-        doAnswer(invocation -> {
-            Report report = invocation.getArgument(0);
-            reportCaptor.capture();
-            return report;
-        }).when(reportRepository).save(any(Report.class));
-
         reportService.generateReportAsync(1L);
 
-        Thread.sleep(500);
-
-        verify(reportRepository, atLeastOnce()).findById(1L);
         verify(userRepository, times(1)).count();
-        verify(reportRepository, atLeastOnce()).save(any(Report.class));
+        verify(reportJobQueue).fail(eq(1L), contains("Database error"));
+        verify(reportJobQueue, never()).complete(anyLong(), any(byte[].class), anyLong());
+        assertEquals(1, meterRegistry.counter("report.errors", "reason", "error").count());
+        assertEquals(1, meterRegistry.timer("report.generation", "outcome", "error").count());
+    }
 
-        if (!reportCaptor.getAllValues().isEmpty()) {
-            Report savedReport = reportCaptor.getValue();
-            assertEquals(ReportStatus.ERROR, savedReport.getStatus());
-            assertTrue(savedReport.getContent().contains("Database error"));
-        }
+    /**
+     * Проверяет обработку ошибки при получении статистики транзакций.
+     * Шаблон не должен обрабатываться, а попытка должна быть зафиксирована как неудачная.
+     */
+    @Test
+    void generateReportAsync_ExceptionInTransactionList_ShouldFailJob() {
+        when(reportJobQueue.claim(1L)).thenReturn(true);
+        when(userRepository.count()).thenReturn(5L);
+        doThrow(new RuntimeException("Transaction error")).when(transactionRepository).count();
+
+        reportService.generateReportAsync(1L);
+
+        verify(userRepository, times(1)).count();
+        verify(transactionRepository, times(1)).count();
+        verify(templateEngine, never()).process(anyString(), any(Context.class), any(Writer.class));
+        verify(reportJobQueue).fail(eq(1L), contains("Transaction error"));
     }
 
     /**
-     * Проверяет обработку ошибки при получении списка транзакций.
-     * Отчет должен быть обновлен со статусом ERROR и содержать информацию об ошибке.
+     * Проверяет обработку ошибки при обработке шаблона.
+     * Попытка должна быть зафиксирована как неудачная с информацией об ошибке.
      */
     @Test
-    void generateReportAsync_ExceptionInTransactionList_ShouldUpdateReportWithErrorStatus() throws InterruptedException {
-        when(reportRepository.findById(1L)).thenReturn(Optional.of(testReport));
+    void generateReportAsync_ExceptionInTemplateProcessing_ShouldFailJob() {
+        when(reportJobQueue.claim(1L)).thenReturn(true);
         when(userRepository.count()).thenReturn(5L);
-        doThrow(new RuntimeException("Transaction error")).when(transactionRepository).findAll();
+        when(transactionRepository.count()).thenReturn(1L);
 
-        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
-        doAnswer(invocation -> {
-            Report report = invocation.getArgument(0);
-            reportCaptor.capture();
-            return report;
-        }).when(reportRepository).save(any(Report.class));
+        doThrow(new RuntimeException("Template processing error")).when(templateEngine).process(eq("report-template"), any(Context.class), any(Writer.class));
 
         reportService.generateReportAsync(1L);
 
-        Thread.sleep(500);
+        verify(templateEngine, times(1)).process(eq("report-template"), any(Context.class), any(Writer.class));
+        verify(reportJobQueue).fail(eq(1L), contains("Template processing error"));
+    }
 
-        verify(reportRepository, atLeastOnce()).findById(1L);
-        verify(userRepository, times(1)).count();
-        verify(transactionRepository, times(1)).findAll();
-        verify(reportRepository, atLeastOnce()).save(any(Report.class));
+    /**
+     * Проверяет, что отчет, не полученный в аренду (не найден или уже формируется
+     * другим экземпляром), не формируется.
+     */
+    @Test
+    void generateReportAsync_NotClaimed_ShouldSkipGeneration() {
+        when(reportJobQueue.claim(999L)).thenReturn(false);
 
-        if (!reportCaptor.getAllValues().isEmpty()) {
-            Report savedReport = reportCaptor.getValue();
-            assertEquals(ReportStatus.ERROR, savedReport.getStatus());
-            assertTrue(savedReport.getContent().contains("Transaction error"));
-        }
+        reportService.generateReportAsync(999L);
+
+        verify(userRepository, never()).count();
+        verify(transactionRepository, never()).count();
+        verify(templateEngine, never()).process(anyString(), any(Context.class), any(Writer.class));
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+        verify(reportJobQueue, never()).complete(anyLong(), any(byte[].class), anyLong());
     }
 
     /**
-     * Проверяет обработку ошибки при обработке шаблона.
-     * Отчет должен быть обновлен со статусом ERROR и содержать информацию об ошибке.
+     * Проверяет, что при переполнении пула аренда возвращается,
+     * и отчет остается в очереди для последующего формирования.
      */
     @Test
-    void generateReportAsync_ExceptionInTemplateProcessing_ShouldUpdateReportWithErrorStatus() throws InterruptedException {
-        when(reportRepository.findById(1L)).thenReturn(Optional.of(testReport));
-        when(userRepository.count()).thenReturn(5L);
+    void generateReportAsync_ExecutorFull_ShouldReleaseJob() {
+        reportService = createService(task -> {
+            throw new TaskRejectedException("Очередь формирования отчетов переполнена");
+        }, Duration.ofMinutes(5));
+        when(reportJobQueue.claim(1L)).thenReturn(true);
 
-        List<Transaction> transactions = new ArrayList<>();
-        transactions.add(new Transaction());
-        when(transactionRepository.findAll()).thenReturn(transactions);
+        CompletableFuture<Void> future = reportService.generateReportAsync(1L);
 
-        doThrow(new RuntimeException("Template processing error")).when(templateEngine).process(eq("report-template"), any(Context.class));
+        assertTrue(future.isDone());
+        verify(reportJobQueue).release(1L);
+        verify(userRepository, never()).count();
+    }
 
-        ArgumentCaptor<Report> reportCaptor = ArgumentCaptor.forClass(Report.class);
-        doAnswer(invocation -> {
-            Report report = invocation.getArgument(0);
-            reportCaptor.capture();
-            return report;
-        }).when(reportRepository).save(any(Report.class));
+    /**
+     * Проверяет отмену отчета, ожидающего в пуле потоков.
+     * Запросы к БД после отмены не выполняются, а результат не сохраняется.
+     */
+    @Test
+    void cancelReport_QueuedReport_ShouldSkipGeneration() throws Exception {
+        List<Runnable> queue = new ArrayList<>();
+        reportService = createService(queue::add, Duration.ofMinutes(5));
+        when(reportJobQueue.claim(1L)).thenReturn(true);
+        when(reportJobQueue.cancel(eq(1L), anyString())).thenReturn(true);
+
+        CompletableFuture<Void> future = reportService.generateReportAsync(1L);
+        reportService.cancelReport(1L);
+        queue.forEach(Runnable::run);
+
+        future.get(5, TimeUnit.SECONDS);
+        verify(userRepository, never()).count();
+        verify(reportJobQueue, never()).complete(anyLong(), any(byte[].class), anyLong());
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+    }
+
+    /**
+     * Проверяет, что при превышении времени формирования отчет завершается ошибкой
+     * без повторных попыток с сообщением о превышении времени.
+     */
+    @Test
+    void generateReportAsync_Timeout_ShouldAbortJob() {
+        reportService = createService(Runnable::run, Duration.ofMillis(50));
+        when(reportJobQueue.claim(1L)).thenReturn(true);
+        when(userRepository.count()).thenAnswer(invocation -> {
+            Thread.sleep(100);
+            return 5L;
+        });
 
         reportService.generateReportAsync(1L);
 
-        Thread.sleep(500);
+        verify(reportJobQueue).abort(eq(1L), contains("превышено время"));
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+        verify(transactionRepository, never()).count();
+        assertEquals(1, meterRegistry.counter("report.errors", "reason", "timeout").count());
+    }
 
-        verify(reportRepository, atLeastOnce()).findById(1L);
-        verify(userRepository, times(1)).count();
-        verify(transactionRepository, times(1)).findAll();
-        verify(templateEngine, times(1)).process(eq("report-template"), any(Context.class));
-        verify(reportRepository, atLeastOnce()).save(any(Report.class));
-
-        if (!reportCaptor.getAllValues().isEmpty()) {
-            Report savedReport = reportCaptor.getValue();
-            assertEquals(ReportStatus.ERROR, savedReport.getStatus());
-            assertTrue(savedReport.getContent().contains("Template processing error"));
-        }
+    /**
+     * Проверяет, что запросы этапов выполняются в транзакции только для чтения с таймаутом
+     * по оставшемуся времени, а прерванный по таймауту запрос завершает отчет ошибкой
+     * без повторных попыток.
+     */
+    @Test
+    void generateReportAsync_QueryTimeout_ShouldAbortJob() {
+        reportService = createService(Runnable::run, Duration.ofSeconds(30));
+        when(reportJobQueue.claim(1L)).thenReturn(true);
+        when(userRepository.count()).thenReturn(5L);
+        when(transactionRepository.count())
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        reportService.generateReportAsync(1L);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertTrue(definition.getValue().getTimeout() > 0 && definition.getValue().getTimeout() <= 30,
+                "Transaction timeout should be the remaining report time: " + definition.getValue().getTimeout());
+        verify(transactionManager).rollback(any());
+        verify(reportJobQueue).abort(eq(1L), contains("превышено время"));
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+        assertEquals(1, meterRegistry.counter("report.errors", "reason", "timeout").count());
     }
 
     /**
-     * Проверяет корректную обработку ситуации, когда отчет не найден.
-     * В этом случае никакие дополнительные методы не должны вызываться.
+     * Проверяет, что отмена отчета, который не формируется, отклоняется.
      */
     @Test
-    void generateReportAsync_ReportNotFound_ShouldHandleException() throws InterruptedException {
-        when(reportRepository.findById(999L)).thenReturn(Optional.empty());
+    void cancelReport_NotActive_ShouldThrowBadRequestException() {
+        when(reportJobQueue.cancel(eq(42L), anyString())).thenReturn(false);
 
-        reportService.generateReportAsync(999L);
+        assertThrows(BadRequestException.class, () -> reportService.cancelReport(42L));
+    }
 
-        Thread.sleep(500);
+    /**
+     * Проверяет, что опрос очереди запускает формирование полученных отчетов.
+     */
+    @Test
+    void pollQueue_ShouldGenerateClaimedReports() {
+        when(reportJobQueue.claimBatch(4)).thenReturn(List.of(1L));
+
+        reportService.pollQueue();
+
+        verify(templateEngine).process(eq("report-template"), any(Context.class), any(Writer.class));
+        verify(reportJobQueue).complete(eq(1L), any(byte[].class), anyLong());
+    }
+
+    /**
+     * Проверяет, что при утрате аренды формирование отчета прекращается без записи результата.
+     */
+    @Test
+    void renewLeases_LostLease_ShouldStopGeneration() {
+        List<Runnable> queue = new ArrayList<>();
+        reportService = createService(queue::add, Duration.ofMinutes(5));
+        when(reportJobQueue.claim(1L)).thenReturn(true);
+        when(reportJobQueue.renewLease(1L)).thenReturn(false);
+
+        reportService.generateReportAsync(1L);
+        reportService.renewLeases();
+        queue.forEach(Runnable::run);
 
-        verify(reportRepository, atLeastOnce()).findById(999L);
         verify(userRepository, never()).count();
-        verify(transactionRepository, never()).findAll();
-        verify(templateEngine, never()).process(anyString(), any(Context.class));
-        verify(reportRepository, never()).save(any(Report.class));
+        verify(reportJobQueue, never()).complete(anyLong(), any(byte[].class), anyLong());
+        verify(reportJobQueue, never()).fail(anyLong(), anyString());
+    }
+
+    /**
+     * Проверяет, что небольшой отчет при первой выдаче помещается в кэш,
+     * после чего его состояние и содержимое отдаются без обращения к БД.
+     */
+    @Test
+    void writeReportContent_SmallReport_ShouldBeServedFromCache() throws IOException {
+        byte[] compressed = gzip("<html>Cached</html>");
+        ReportStatusDto status = new ReportStatusDto(1L, ReportStatus.COMPLETED, null, (long) compressed.length, "etag1");
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(compressed);
+            return null;
+        }).when(reportContentService).writeContent(eq(1L), any(OutputStream.class), eq(false));
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        reportService.writeReportContent(status, first, true);
+
+        ReportStatusDto cachedStatus = reportService.getReportStatus(1L);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        reportService.writeReportContent(cachedStatus, second, false);
+
+        assertEquals("<html>Cached</html>", first.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(compressed, second.toByteArray());
+        assertEquals(ReportStatus.COMPLETED, cachedStatus.getStatus());
+        assertEquals("etag1", cachedStatus.getContentEtag());
+        verify(reportContentService, times(1)).writeContent(anyLong(), any(OutputStream.class), anyBoolean());
+        verify(reportRepository, never()).findStatusById(anyLong());
+    }
+
+    /**
+     * Проверяет, что отчет, превышающий ограничение кэша, передается потоком из БД.
+     */
+    @Test
+    void writeReportContent_LargeReport_ShouldStreamFromDatabase() throws IOException {
+        ReportStatusDto status = new ReportStatusDto(1L, ReportStatus.COMPLETED, null,
+                DataSize.ofMegabytes(10).toBytes(), "etag1");
+        OutputStream out = new ByteArrayOutputStream();
+
+        reportService.writeReportContent(status, out, true);
+
+        verify(reportContentService).writeContent(1L, out, true);
+        assertEquals(0, reportContentCache.size());
+    }
+
+    private byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer.toByteArray();
+    }
+
+    private ReportServiceImpl createService(Executor executor, Duration timeout) {
+        return new ReportServiceImpl(reportRepository, userRepository, transactionRepository,
+                templateEngine, reportJobQueue, reportContentService, reportContentCache, meterRegistry,
+                transactionManager, executor, timeout, 20, 4);
+    }
+
+    private String gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Budget;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.BudgetRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для {@link SpendingAggregateService}.
+ * Проверяет, что дневные агрегаты поддерживаются при создании и удалении транзакций
+ * и совпадают с результатом пересборки по таблице транзакций.
+ */
+@SpringBootTest
+@Transactional
+class SpendingAggregateServiceTest {
+
+    @Autowired
+    private SpendingAggregateService spendingAggregateService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    /**
+     * Проверяет, что создание и удаление транзакций изменяют агрегат за текущий день.
+     */
+    @Test
+    void testAggregateFollowsCreateAndDelete() {
+        User user = createTestUser();
+        Account account = createTestAccount(user);
+        Category category = createTestCategory();
+        LocalDate today = LocalDate.now();
+
+        transactionService.createTransaction(account.getId(), category.getId(),
+                new BigDecimal("100.00"), "First", OperationType.EXPENSE);
+        Transaction second = transactionService.createTransaction(account.getId(), category.getId(),
+                new BigDecimal("50.00"), "Second", OperationType.EXPENSE);
+
+        assertEquals(0, new BigDecimal("150.00").compareTo(
+                spendingAggregateService.getSpentAmount(user, category, today, today)),
+                "Aggregate should contain both transactions");
+
+        transactionService.deleteTransaction(second.getId());
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                spendingAggregateService.getSpentAmount(user, category, today, today)),
+                "Aggregate should exclude the deleted transaction");
+    }
+
+    /**
+     * Проверяет, что пересборка агрегатов дает тот же результат, что и инкрементальное обновление.
+     */
+    @Test
+    void testRebuildMatchesIncrementalAggregates() {
+        User user = createTestUser();
+        Account account = createTestAccount(user);
+        Category category = createTestCategory();
+        LocalDate today = LocalDate.now();
+
+        transactionService.createTransaction(account.getId(), category.getId(),
+                new BigDecimal("70.00"), "Expense", OperationType.EXPENSE);
+        BigDecimal incremental = spendingAggregateService.getSpentAmount(user, category, today, today);
+
+        assertTrue(spendingAggregateService.rebuildAggregates() > 0, "Rebuild should write aggregates");
+
+        assertEquals(0, incremental.compareTo(
+                spendingAggregateService.getSpentAmount(user, category, today, today)),
+                "Rebuilt aggregate should match the incremental one");
+    }
+
+    /**
+     * Проверяет, что для периода без транзакций возвращается ноль.
+     */
+    @Test
+    void testEmptyPeriodReturnsZero() {
+        User user = createTestUser();
+        Category category = createTestCategory();
+
+        BigDecimal spent = spendingAggregateService.getSpentAmount(user, category,
+                LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 31));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(spent));
+    }
+
+    /**
+     * Проверяет групповой подсчет сумм по бюджетам: учитываются только транзакции
+     * категории бюджета за период его действия.
+     */
+    @Test
+    void testSpentAmountsByBudget() {
+        User user = createTestUser();
+        Account account = createTestAccount(user);
+        Category category = createTestCategory();
+        Category otherCategory = createTestCategory();
+        LocalDate today = LocalDate.now();
+
+        transactionService.createTransaction(account.getId(), category.getId(),
+                new BigDecimal("40.00"), "In budget", OperationType.EXPENSE);
+        transactionService.createTransaction(account.getId(), otherCategory.getId(),
+                new BigDecimal("25.00"), "Other category", OperationType.EXPENSE);
+
+        Budget current = createTestBudget(user, category, today.minusDays(1), today.plusDays(1));
+        Budget past = createTestBudget(user, category, today.minusDays(30), today.minusDays(10));
+
+        Map<Long, BigDecimal> spent = spendingAggregateService.getSpentAmountsByBudget(user);
+
+        assertEquals(2, spent.size(), "Every budget of the user should be present");
+        assertEquals(0, new BigDecimal("40.00").compareTo(spent.get(current.getId())));
+        assertEquals(0, BigDecimal.ZERO.compareTo(spent.get(past.getId())));
+    }
+
+    private Budget createTestBudget(User user, Category category, LocalDate start, LocalDate end) {
+        Budget budget = new Budget();
+        budget.setName("Test Budget");
+        budget.setAmountLimit(new BigDecimal("100.00"));
+        budget.setPeriodStart(start);
+        budget.setPeriodEnd(end);
+        budget.setUser(user);
+        budget.setCategory(category);
+        return budgetRepository.save(budget);
+    }
+
+    private User createTestUser() {
+        String uniqueId = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername("testUser_" + uniqueId);
+        user.setEmail("test_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        return userRepository.save(user);
+    }
+
+    private Account createTestAccount(User user) {
+        Account account = new Account();
+        account.setName("Test Account");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+
+    private Category createTestCategory() {
+        Category category = new Category();
+        category.setName("Test Category");
+        category.setType(OperationType.EXPENSE);
+        category.setColorCode("#FF0000");
+        return categoryRepository.save(category);
+    }
+}
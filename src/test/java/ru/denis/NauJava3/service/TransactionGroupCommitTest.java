@@ -0,0 +1,208 @@
+package ru.denis.NauJava3.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тест групповой записи транзакций в {@link TransactionService}.
+ * Параллельные запросы записываются группами в отдельном потоке, поэтому тест
+ * не транзакционный и сам удаляет созданные данные.
+ */
+@SpringBootTest(properties = {
+        "app.transactions.group-commit.enabled=true",
+        "app.transactions.group-commit.max-delay=PT0.005S"
+})
+class TransactionGroupCommitTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+    private Account account;
+    private Category incomeCategory;
+    private Category expenseCategory;
+
+    @BeforeEach
+    void setUp() {
+        String uniqueId = UUID.randomUUID().toString();
+        user = new User();
+        user.setUsername("groupCommitUser_" + uniqueId);
+        user.setEmail("group_commit_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        account = new Account();
+        account.setName("Group Commit Account");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        account = accountRepository.save(account);
+
+        incomeCategory = createCategory(OperationType.INCOME);
+        expenseCategory = createCategory(OperationType.EXPENSE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM daily_spendings WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM accounts WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id IN (?, ?)", incomeCategory.getId(), expenseCategory.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    /**
+     * Проверяет, что при групповой записи параллельных списаний, превышающих баланс,
+     * проходит ровно столько операций, сколько покрывает баланс, запросы записываются
+     * группами, а баланс совпадает с операциями и журналом по счету.
+     */
+    @Test
+    void testGroupedWithdrawalsNeverOverdraw() throws Exception {
+        DistributionSummary batchSizes = meterRegistry.summary("transaction.group.commit.size");
+        double maxBatchBefore = batchSizes.max();
+        BigDecimal amount = new BigDecimal("10.00");
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(200, i -> {
+            try {
+                Transaction transaction = transactionService.createTransaction(account.getId(),
+                        expenseCategory.getId(), amount, "Grouped expense", OperationType.EXPENSE);
+                assertNotNull(transaction.getId());
+                assertEquals(account.getId(), transaction.getAccount().getId());
+                succeeded.incrementAndGet();
+            } catch (BadRequestException e) {
+                assertEquals("Недостаточно средств на счете", e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, succeeded.get());
+        assertEquals(100, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(currentBalance()));
+        assertEquals(100, countTransactions());
+        BigDecimal journal = jdbcTemplate.queryForObject(
+                "SELECT SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END) "
+                        + "FROM ledger_entries WHERE account_id = ?", BigDecimal.class, account.getId());
+        assertEquals(0, BigDecimal.ZERO.compareTo(journal), "Balance should match the ledger journal");
+        assertTrue(Math.max(batchSizes.max(), maxBatchBefore) > 1, "Concurrent requests should be grouped");
+    }
+
+    /**
+     * Проверяет, что ошибочный запрос отклоняется отдельно,
+     * а параллельные корректные запросы записываются.
+     */
+    @Test
+    void testInvalidRequestFailsOnlyItsCaller() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(40, i -> {
+            if (i % 10 == 0) {
+                BadRequestException e = assertThrows(BadRequestException.class, () -> transactionService.createTransaction(
+                        account.getId(), incomeCategory.getId(), new BigDecimal("5.00"),
+                        "Wrong category", OperationType.EXPENSE));
+                assertEquals("Тип операции не соответствует категории", e.getMessage());
+                rejected.incrementAndGet();
+            } else {
+                transactionService.createTransaction(account.getId(), incomeCategory.getId(),
+                        new BigDecimal("5.00"), "Grouped income", OperationType.INCOME);
+            }
+        });
+
+        assertEquals(4, rejected.get());
+        assertEquals(36, countTransactions());
+        assertEquals(0, new BigDecimal("1180.00").compareTo(currentBalance()));
+    }
+
+    private void runConcurrently(int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    operation.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BigDecimal currentBalance() {
+        return accountRepository.findById(account.getId()).orElseThrow().getBalance();
+    }
+
+    private long countTransactions() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE account_id = ?", Long.class, account.getId());
+    }
+
+    private Category createCategory(OperationType type) {
+        Category category = new Category();
+        category.setName("Group commit " + type);
+        category.setType(type);
+        category.setColorCode("#00FF00");
+        return categoryRepository.save(category);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index);
+    }
+}
@@ -0,0 +1,151 @@
+package ru.denis.NauJava3.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Transaction;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.ConflictException;
+import ru.denis.NauJava3.exception.ServiceUnavailableException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.service.impl.TransactionBatchWriter;
+import ru.denis.NauJava3.service.impl.TransactionGroupCommitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Модульные тесты потока групповой записи {@link TransactionGroupCommitter}:
+ * запросы не должны оставаться без результата при ошибках записи и остановке.
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionGroupCommitterTest {
+
+    @Mock
+    private TransactionBatchWriter batchWriter;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionGroupCommitter committer;
+
+    @BeforeEach
+    void setUp() {
+        committer = new TransactionGroupCommitter(batchWriter, accountRepository, transactionManager,
+                new SimpleMeterRegistry(), true, 10, Duration.ofMillis(1), 100, Duration.ofMillis(200));
+        committer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.stop();
+    }
+
+    /**
+     * Проверяет, что {@link Error} при записи группы завершает запрос группы ошибкой,
+     * а поток записи продолжает принимать запросы.
+     */
+    @Test
+    void testErrorFailsBatchAndWriterSurvives() throws Exception {
+        Account account = new Account();
+        account.setId(1L);
+        account.setBalance(new BigDecimal("100.00"));
+        Transaction saved = new Transaction();
+        when(batchWriter.findErrors(anyList()))
+                .thenThrow(new StackOverflowError("boom"))
+                .thenReturn(Arrays.asList((String) null));
+        when(accountRepository.lockAllById(any())).thenReturn(List.of(account));
+        when(batchWriter.write(anyList())).thenReturn(List.of(saved));
+
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> committer.submitAndWait(request()));
+        assertInstanceOf(StackOverflowError.class, exception.getCause());
+
+        assertSame(saved, committer.submitAndWait(request()));
+    }
+
+    /**
+     * Проверяет, что ожидание записи ограничено по времени: запрос, который уже записывается,
+     * получает ошибку о неизвестном результате, а запрос, оставшийся в очереди, - ошибку
+     * о том, что он не записан, вместо бесконечного ожидания.
+     */
+    @Test
+    void testSubmitAndWaitTimesOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchWriter.findErrors(anyList())).thenAnswer(invocation -> {
+            release.await();
+            throw new IllegalStateException("stalled");
+        });
+
+        ConflictException inProgress = assertThrows(ConflictException.class,
+                () -> committer.submitAndWait(request()));
+        assertTrue(inProgress.getMessage().contains("Результат записи транзакции неизвестен"),
+                inProgress.getMessage());
+
+        ServiceUnavailableException queued = assertThrows(ServiceUnavailableException.class,
+                () -> committer.submitAndWait(request()));
+        assertTrue(queued.getMessage().contains("Транзакция не записана"), queued.getMessage());
+
+        release.countDown();
+    }
+
+    /**
+     * Проверяет, что результат запроса, который уже записывается, ожидается и после
+     * истечения времени ожидания, а не отклоняется ошибкой, допускающей повтор.
+     */
+    @Test
+    void testInProgressRequestAwaitedPastTimeout() throws Exception {
+        Account account = new Account();
+        account.setId(1L);
+        account.setBalance(new BigDecimal("100.00"));
+        Transaction saved = new Transaction();
+        when(batchWriter.findErrors(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return Arrays.asList((String) null);
+        });
+        when(accountRepository.lockAllById(any())).thenReturn(List.of(account));
+        when(batchWriter.write(anyList())).thenReturn(List.of(saved));
+
+        assertSame(saved, committer.submitAndWait(request()));
+    }
+
+    /**
+     * Проверяет, что после остановки записи новые запросы отклоняются сразу.
+     */
+    @Test
+    void testSubmitAfterStopRejected() throws Exception {
+        committer.stop();
+
+        assertThrows(ServiceUnavailableException.class, () -> committer.submitAndWait(request()));
+    }
+
+    private TransactionRequest request() {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountId(1L);
+        request.setCategoryId(1L);
+        request.setAmount(new BigDecimal("10.00"));
+        request.setType(OperationType.INCOME);
+        request.setDate(LocalDateTime.now());
+        return request;
+    }
+}
@@ -0,0 +1,255 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.TransactionImportResultDto;
+import ru.denis.NauJava3.dto.TransactionRequest;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.TransactionRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Интеграционные тесты для {@link TransactionImportService}.
+ * Проверяет разбор CSV, разбиение на порции, применение чистого изменения баланса
+ * и отказ от записи при некорректных строках.
+ */
+@SpringBootTest(properties = "app.transactions.import.chunk-size=2")
+@Transactional
+class TransactionImportServiceTest {
+
+    @Autowired
+    private TransactionImportService transactionImportService;
+
+    @Autowired
+    private SpendingAggregateService spendingAggregateService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * Проверяет импорт CSV: строки сохраняются порциями, баланс счета
+     * изменяется на чистую сумму, а дневные агрегаты учитывают даты из файла.
+     */
+    @Test
+    void testImportCsv() throws Exception {
+        User user = createTestUser();
+        Account account = createTestAccount(user, "100.00");
+        Category expense = createTestCategory(OperationType.EXPENSE);
+        Category income = createTestCategory(OperationType.INCOME);
+        long transactionsBefore = transactionRepository.count();
+
+        String csv = "accountId,categoryId,amount,type,date,description\n"
+                + account.getId() + "," + expense.getId() + ",150.00,EXPENSE,2024-03-01T10:00:00,\"Food, market\"\n"
+                + account.getId() + "," + income.getId() + ",500.00,INCOME,2024-03-01T12:00:00,Salary\n"
+                + account.getId() + "," + expense.getId() + ",50.00,EXPENSE,2024-03-02T09:30:00,\n";
+
+        TransactionImportResultDto result = transactionImportService.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getChunks(), "3 rows with chunk size 2 should be written in 2 chunks");
+        assertEquals(1, result.getAccounts());
+        assertEquals(transactionsBefore + 3, transactionRepository.count());
+
+        Account updated = accountRepository.findById(account.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("400.00").compareTo(updated.getBalance()),
+                "Balance should change by the net amount 100 - 150 + 500 - 50");
+
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        assertEquals(0, new BigDecimal("150.00").compareTo(
+                spendingAggregateService.getSpentAmount(user, expense, day, day)));
+        assertEquals(0, new BigDecimal("200.00").compareTo(
+                spendingAggregateService.getSpentAmount(user, expense, day, day.plusDays(1))));
+    }
+
+    /**
+     * Проверяет импорт строк по нескольким счетам, разбитых на множество порций.
+     */
+    @Test
+    void testImportManyRows() {
+        User user = createTestUser();
+        Account first = createTestAccount(user, "0.00");
+        Account second = createTestAccount(user, "0.00");
+        Category income = createTestCategory(OperationType.INCOME);
+
+        List<TransactionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            requests.add(request(i % 2 == 0 ? first : second, income, "10.00", OperationType.INCOME));
+        }
+
+        TransactionImportResultDto result = transactionImportService.importTransactions(requests);
+
+        assertEquals(25, result.getImported());
+        assertEquals(13, result.getChunks());
+        assertEquals(2, result.getAccounts());
+        assertEquals(0, new BigDecimal("130.00").compareTo(
+                accountRepository.findById(first.getId()).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("120.00").compareTo(
+                accountRepository.findById(second.getId()).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Проверяет, что некорректная строка отклоняет весь импорт до начала записи.
+     */
+    @Test
+    void testInvalidRowRejectsWholeImport() {
+        User user = createTestUser();
+        Account account = createTestAccount(user, "100.00");
+        Category expense = createTestCategory(OperationType.EXPENSE);
+        long transactionsBefore = transactionRepository.count();
+
+        List<TransactionRequest> requests = List.of(
+                request(account, expense, "10.00", OperationType.EXPENSE),
+                request(account, expense, "10.00", OperationType.EXPENSE),
+                request(account, expense, "10.00", OperationType.INCOME));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> transactionImportService.importTransactions(requests));
+
+        assertTrue(exception.getMessage().startsWith("Строка 3"));
+        assertEquals(transactionsBefore, transactionRepository.count());
+        assertEquals(0, new BigDecimal("100.00").compareTo(
+                accountRepository.findById(account.getId()).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Проверяет, что нехватка средств для порции приводит к ошибке.
+     * Тест выполняется в транзакции, поэтому порции записываются в ней и ошибка отменяет весь импорт.
+     */
+    @Test
+    void testInsufficientFunds() {
+        User user = createTestUser();
+        Account account = createTestAccount(user, "100.00");
+        Category expense = createTestCategory(OperationType.EXPENSE);
+
+        List<TransactionRequest> requests = List.of(
+                request(account, expense, "60.00", OperationType.EXPENSE),
+                request(account, expense, "60.00", OperationType.EXPENSE));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> transactionImportService.importTransactions(requests));
+
+        assertTrue(exception.getMessage().contains("Недостаточно средств"));
+        assertTrue(exception.getMessage().contains("Импорт отменен, строки не сохранены"));
+    }
+
+    /**
+     * Проверяет, что импорт по счету другого пользователя отклоняется как по несуществующему счету
+     * и не изменяет его баланс.
+     */
+    @Test
+    void testImportIntoForeignAccountRejected() {
+        User victim = createTestUser();
+        Account foreign = createTestAccount(victim, "1000.00");
+        Category expense = createTestCategory(OperationType.EXPENSE);
+        User user = createTestUser();
+        Account own = createTestAccount(user, "100.00");
+        long transactionsBefore = transactionRepository.count();
+
+        List<TransactionRequest> requests = List.of(
+                request(own, expense, "10.00", OperationType.EXPENSE),
+                request(foreign, expense, "1000.00", OperationType.EXPENSE));
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> transactionImportService.importTransactions(requests));
+
+        assertEquals("Строка 2: счет не найден", exception.getMessage());
+        assertEquals(transactionsBefore, transactionRepository.count());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(
+                accountRepository.findById(foreign.getId()).orElseThrow().getBalance()));
+    }
+
+    /**
+     * Проверяет, что синтаксическая ошибка CSV сообщает номер строки.
+     */
+    @Test
+    void testMalformedCsv() {
+        String csv = "accountId,categoryId,amount,type\n1,1,abc,EXPENSE\n";
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> transactionImportService.importCsv(
+                        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+
+        assertTrue(exception.getMessage().startsWith("Строка 1"));
+    }
+
+    private TransactionRequest request(Account account, Category category, String amount, OperationType type) {
+        TransactionRequest request = new TransactionRequest();
+        request.setAccountId(account.getId());
+        request.setCategoryId(category.getId());
+        request.setAmount(new BigDecimal(amount));
+        request.setType(type);
+        return request;
+    }
+
+    /**
+     * Создает пользователя и делает его текущим: импорт выполняется по его счетам.
+     */
+    private User createTestUser() {
+        String uniqueId = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername("testUser_" + uniqueId);
+        user.setEmail("test_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        user = userRepository.save(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+        return user;
+    }
+
+    private Account createTestAccount(User user, String balance) {
+        Account account = new Account();
+        account.setName("Test Account");
+        account.setBalance(new BigDecimal(balance));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+
+    private Category createTestCategory(OperationType type) {
+        Category category = new Category();
+        category.setName("Test Category");
+        category.setType(type);
+        category.setColorCode("#FF0000");
+        return categoryRepository.save(category);
+    }
+}
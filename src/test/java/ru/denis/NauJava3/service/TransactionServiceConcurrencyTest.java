@@ -0,0 +1,261 @@
+package ru.denis.NauJava3.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ru.denis.NauJava3.entity.Account;
+import ru.denis.NauJava3.entity.Category;
+import ru.denis.NauJava3.entity.User;
+import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.repository.AccountRepository;
+import ru.denis.NauJava3.repository.CategoryRepository;
+import ru.denis.NauJava3.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочный тест конкурентного изменения баланса в {@link TransactionService}.
+ * Операции выполняются параллельно в отдельных транзакциях БД, поэтому тест
+ * не транзакционный и сам удаляет созданные данные.
+ */
+@SpringBootTest
+class TransactionServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private Account account;
+    private Category incomeCategory;
+    private Category expenseCategory;
+
+    @BeforeEach
+    void setUp() {
+        String uniqueId = UUID.randomUUID().toString();
+        user = new User();
+        user.setUsername("concurrentUser_" + uniqueId);
+        user.setEmail("concurrent_" + uniqueId + "@test.com");
+        user.setPassword("password");
+        user.setRegistrationDate(LocalDateTime.now());
+        user = userRepository.save(user);
+
+        account = new Account();
+        account.setName("Concurrent Account");
+        account.setBalance(new BigDecimal("1000.00"));
+        account.setCurrency("RUB");
+        account.setAccountType(Account.AccountType.CARD);
+        account.setUser(user);
+        account = accountRepository.save(account);
+
+        incomeCategory = createCategory(OperationType.INCOME);
+        expenseCategory = createCategory(OperationType.EXPENSE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM daily_spendings WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM transfers WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM accounts WHERE user_id = ?", user.getId());
+        jdbcTemplate.update("DELETE FROM categories WHERE id IN (?, ?)", incomeCategory.getId(), expenseCategory.getId());
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    /**
+     * Проверяет, что при параллельных списаниях, превышающих баланс,
+     * проходит ровно столько операций, сколько покрывает баланс, и баланс не уходит в минус.
+     */
+    @Test
+    void testConcurrentWithdrawalsNeverOverdraw() throws Exception {
+        BigDecimal amount = new BigDecimal("10.00");
+        int attempts = 200;
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(attempts, i -> {
+            try {
+                transactionService.createTransaction(account.getId(), expenseCategory.getId(),
+                        amount, "Concurrent expense", OperationType.EXPENSE);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("Недостаточно средств на счете"), e.getMessage());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, succeeded.get());
+        assertEquals(100, rejected.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(currentBalance()));
+        assertEquals(100, countTransactions());
+    }
+
+    /**
+     * Проверяет отсутствие расхождения баланса при параллельных доходах и расходах:
+     * итоговый баланс равен начальному плюс сумма всех проведенных операций.
+     */
+    @Test
+    void testConcurrentMixedOperationsHaveNoDrift() throws Exception {
+        int operations = 400;
+
+        runConcurrently(operations, i -> {
+            if (i % 2 == 0) {
+                transactionService.createTransaction(account.getId(), incomeCategory.getId(),
+                        new BigDecimal("5.00"), "Concurrent income", OperationType.INCOME);
+            } else {
+                transactionService.createTransaction(account.getId(), expenseCategory.getId(),
+                        new BigDecimal("3.00"), "Concurrent expense", OperationType.EXPENSE);
+            }
+        });
+
+        BigDecimal expected = new BigDecimal("1000.00")
+                .add(new BigDecimal("5.00").multiply(BigDecimal.valueOf(operations / 2)))
+                .subtract(new BigDecimal("3.00").multiply(BigDecimal.valueOf(operations / 2)));
+        assertEquals(0, expected.compareTo(currentBalance()));
+
+        BigDecimal ledgerBalance = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(CASE WHEN type = 'INCOME' THEN amount ELSE -amount END), 0) "
+                        + "FROM transactions WHERE account_id = ?", BigDecimal.class, account.getId());
+        assertEquals(0, expected.subtract(new BigDecimal("1000.00")).compareTo(ledgerBalance));
+        assertEquals(operations, countTransactions());
+    }
+
+    /**
+     * Проверяет встречные параллельные переводы между несколькими счетами:
+     * переводы не приводят к взаимоблокировкам, сумма балансов сохраняется,
+     * балансы не уходят в минус и совпадают с операциями и журналом по каждому счету.
+     */
+    @Test
+    void testConcurrentCrossingTransfersConserveTotal() throws Exception {
+        List<Account> accounts = new ArrayList<>(List.of(account));
+        for (int i = 1; i < 4; i++) {
+            Account extra = new Account();
+            extra.setName("Concurrent Account " + i);
+            extra.setBalance(new BigDecimal("1000.00"));
+            extra.setCurrency("RUB");
+            extra.setAccountType(Account.AccountType.CARD);
+            extra.setUser(user);
+            accounts.add(accountRepository.save(extra));
+        }
+        BigDecimal amount = new BigDecimal("70.00");
+        int transfers = 400;
+        AtomicInteger succeeded = new AtomicInteger();
+
+        runConcurrently(transfers, i -> {
+            Account from = accounts.get(i % accounts.size());
+            Account to = accounts.get((i + 1 + (i / accounts.size()) % (accounts.size() - 1)) % accounts.size());
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(user, null, List.of()));
+            try {
+                transactionService.createTransfer(from.getId(), to.getId(), amount, "Concurrent transfer");
+                succeeded.incrementAndGet();
+            } catch (BadRequestException e) {
+                assertTrue(e.getMessage().contains("Недостаточно средств на счете"), e.getMessage());
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        });
+
+        assertTrue(succeeded.get() > 0);
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account item : accounts) {
+            BigDecimal balance = accountRepository.findById(item.getId()).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0, "Balance should never become negative: " + balance);
+            total = total.add(balance);
+
+            BigDecimal operations = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(CASE WHEN type = 'INCOME' THEN amount ELSE -amount END), 0) "
+                            + "FROM transactions WHERE account_id = ?", BigDecimal.class, item.getId());
+            assertEquals(0, new BigDecimal("1000.00").add(operations).compareTo(balance),
+                    "Balance should match transfer operations of the account");
+            BigDecimal journal = jdbcTemplate.queryForObject(
+                    "SELECT SUM(CASE WHEN entry_type = 'CREDIT' THEN amount ELSE -amount END) "
+                            + "FROM ledger_entries WHERE account_id = ?", BigDecimal.class, item.getId());
+            assertEquals(0, journal.compareTo(balance), "Balance should match the ledger journal");
+        }
+        assertEquals(0, new BigDecimal("4000.00").compareTo(total), "Transfers should conserve the total");
+        assertEquals(succeeded.get(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transfers WHERE user_id = ?", Integer.class, user.getId()));
+        assertEquals(2L * succeeded.get(), countTransactions(accounts));
+    }
+
+    private void runConcurrently(int operations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < operations; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    operation.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BigDecimal currentBalance() {
+        return accountRepository.findById(account.getId()).orElseThrow().getBalance();
+    }
+
+    private long countTransactions() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE account_id = ?", Long.class, account.getId());
+    }
+
+    private long countTransactions(List<Account> accounts) {
+        return accounts.stream().mapToLong(item -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE account_id = ?", Long.class, item.getId())).sum();
+    }
+
+    private Category createCategory(OperationType type) {
+        Category category = new Category();
+        category.setName("Concurrent " + type);
+        category.setType(type);
+        category.setColorCode("#00FF00");
+        return categoryRepository.save(category);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        void run(int index);
+    }
+}
@@ -1,15 +1,24 @@
 package ru.denis.NauJava3.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Transactional;
+import ru.denis.NauJava3.dto.TransactionDto;
+import ru.denis.NauJava3.dto.TransactionPageDto;
+import ru.denis.NauJava3.dto.TransferDto;
 import ru.denis.NauJava3.entity.Account;
 import ru.denis.NauJava3.entity.Category;
 import ru.denis.NauJava3.entity.Transaction;
 import ru.denis.NauJava3.entity.User;
 import ru.denis.NauJava3.entity.enums.OperationType;
+import ru.denis.NauJava3.exception.BadRequestException;
+import ru.denis.NauJava3.exception.ResourceNotFoundException;
 import ru.denis.NauJava3.repository.AccountRepository;
 import ru.denis.NauJava3.repository.CategoryRepository;
 import ru.denis.NauJava3.repository.TransactionRepository;
@@ -30,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Проверку баланса счета после операций
  * - Обработку ошибочных ситуаций
  * - Удаление транзакций и восстановление баланса
+ * - Переводы между счетами пользователя
  */
 @SpringBootTest
 @Transactional
@@ -50,6 +60,14 @@ class TransactionServiceTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @BeforeEach
     void setUp() {
         transactionRepository.deleteAll();
@@ -105,6 +123,7 @@ class TransactionServiceTest {
 
         BigDecimal initialBalance = account.getBalance();
         BigDecimal tooLargeAmount = initialBalance.add(new BigDecimal("1000.00"));
+        double insufficientFunds = meterRegistry.counter("transaction.insufficient.funds").count();
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
             transactionService.createTransaction(
@@ -118,6 +137,8 @@ class TransactionServiceTest {
 
         assertTrue(exception.getMessage().contains("Недостаточно средств на счете"),
                 "Exception message should indicate insufficient funds");
+        assertEquals(insufficientFunds + 1, meterRegistry.counter("transaction.insufficient.funds").count(),
+                "Rejected expense should be counted");
 
         Account unchangedAccount = accountRepository.findById(account.getId()).orElseThrow();
         assertEquals(initialBalance, unchangedAccount.getBalance(),
@@ -328,6 +349,116 @@ class TransactionServiceTest {
                 "Balance should be restored after expense deletion");
     }
 
+    /**
+     * Проверяет постраничный просмотр транзакций текущего пользователя по курсору:
+     * страницы не пересекаются, идут от новых к старым, у последней страницы нет курсора.
+     */
+    @Test
+    void testGetCurrentUserTransactionsByCursor() {
+        User user = createTestUser();
+        Account account = createTestAccount(user);
+        Category category = createTestCategory(OperationType.INCOME);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        List<Long> createdIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            createdIds.add(transactionService.createTransaction(account.getId(), category.getId(),
+                    new BigDecimal("10.00"), "Income " + i, OperationType.INCOME).getId());
+        }
+
+        List<Long> pagedIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            TransactionPageDto page = transactionService.getCurrentUserTransactions(cursor, 2);
+            page.getItems().forEach(item -> pagedIds.add(item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages, "5 transactions with page size 2 should take 3 pages");
+        assertEquals(createdIds.reversed(), pagedIds, "Pages should list transactions from newest to oldest");
+    }
+
+    /**
+     * Проверяет отклонение поврежденного курсора и недопустимого размера страницы.
+     */
+    @Test
+    void testGetCurrentUserTransactionsInvalidRequest() {
+        User user = createTestUser();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        assertThrows(BadRequestException.class,
+                () -> transactionService.getCurrentUserTransactions("not-a-cursor", 10));
+        assertThrows(BadRequestException.class,
+                () -> transactionService.getCurrentUserTransactions(null, 0));
+        assertThrows(BadRequestException.class,
+                () -> transactionService.getCurrentUserTransactions(null, 1000));
+    }
+
+    /**
+     * Проверяет, что перевод изменяет балансы обоих счетов и записывается
+     * двумя операциями без категории, которые нельзя удалить по отдельности.
+     */
+    @Test
+    void testCreateTransfer() {
+        User user = createTestUser();
+        Account from = createTestAccount(user);
+        Account to = createTestAccount(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        TransferDto transfer = transactionService.createTransfer(
+                from.getId(), to.getId(), new BigDecimal("250.00"), "Savings");
+
+        assertEquals(0, new BigDecimal("750.00").compareTo(
+                accountRepository.findById(from.getId()).orElseThrow().getBalance()));
+        assertEquals(0, new BigDecimal("1250.00").compareTo(
+                accountRepository.findById(to.getId()).orElseThrow().getBalance()));
+
+        List<TransactionDto> legs = transactionService.getCurrentUserTransactions(null, 10).getItems();
+        assertEquals(2, legs.size(), "Transfer should be recorded as two operations");
+        for (TransactionDto leg : legs) {
+            assertEquals(transfer.getId(), leg.getTransferId());
+            assertNull(leg.getCategoryId(), "Transfer operations should have no category");
+            assertEquals(leg.getAccountId().equals(from.getId()) ? OperationType.EXPENSE : OperationType.INCOME,
+                    leg.getType());
+        }
+
+        Exception exception = assertThrows(RuntimeException.class,
+                () -> transactionService.deleteTransaction(legs.getFirst().getId()));
+        assertTrue(exception.getMessage().contains("Операция перевода не может быть удалена отдельно"));
+    }
+
+    /**
+     * Проверяет отклонение перевода на тот же счет, со счета другого пользователя
+     * и при недостатке средств.
+     */
+    @Test
+    void testCreateTransferInvalidRequest() {
+        User user = createTestUser();
+        Account from = createTestAccount(user);
+        Account to = createTestAccount(user);
+        Account foreign = createTestAccount(createTestUser());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, List.of()));
+
+        assertThrows(BadRequestException.class, () -> transactionService.createTransfer(
+                from.getId(), from.getId(), BigDecimal.TEN, null));
+        assertThrows(BadRequestException.class, () -> transactionService.createTransfer(
+                from.getId(), to.getId(), BigDecimal.ZERO, null));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.createTransfer(
+                foreign.getId(), to.getId(), BigDecimal.TEN, null));
+        assertThrows(ResourceNotFoundException.class, () -> transactionService.createTransfer(
+                from.getId(), foreign.getId(), BigDecimal.TEN, null));
+
+        Exception exception = assertThrows(BadRequestException.class, () -> transactionService.createTransfer(
+                from.getId(), to.getId(), new BigDecimal("1000.01"), null));
+        assertTrue(exception.getMessage().contains("Недостаточно средств на счете"));
+    }
+
     /**
      * Создает тестового пользователя с уникальными данными.
      * @return сохраненный в базе данных пользователь
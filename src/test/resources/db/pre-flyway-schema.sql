@@ -0,0 +1,26 @@
+-- Схема, которую Hibernate (ddl-auto=update) создавал по сущностям до перехода на Flyway,
+-- с минимальным набором данных. Используется для проверки обновления таких БД миграциями.
+
+create table users (id bigint generated by default as identity, registration_date timestamp(6) not null, email varchar(255) not null unique, password varchar(255) not null, username varchar(255) not null, primary key (id));
+create table user_roles (user_id bigint not null, roles varchar(255) check (roles in ('USER','ADMIN')));
+create table categories (id bigint generated by default as identity, color_code varchar(255), description varchar(255), name varchar(255) not null, type varchar(255) not null check (type in ('INCOME','EXPENSE')), primary key (id));
+create table accounts (balance numeric(38,2) not null, id bigint generated by default as identity, user_id bigint not null, account_type varchar(255) not null check (account_type in ('CASH','CARD','DEPOSIT')), currency varchar(255) not null, name varchar(255) not null, primary key (id));
+create table budgets (amount_limit numeric(38,2) not null, period_end date not null, period_start date not null, category_id bigint not null, id bigint generated by default as identity, user_id bigint not null, name varchar(255) not null, primary key (id));
+create table transactions (amount numeric(38,2) not null, account_id bigint not null, category_id bigint not null, date timestamp(6) not null, id bigint generated by default as identity, user_id bigint not null, description varchar(255), type varchar(255) not null check (type in ('INCOME','EXPENSE')), primary key (id));
+create table reports (creation_time bigint, id bigint generated by default as identity, content TEXT, status varchar(255) not null check (status in ('CREATED','COMPLETED','ERROR')), primary key (id));
+alter table if exists user_roles add constraint FKhfh9dx7w3ubf1co1vdev94g3f foreign key (user_id) references users;
+alter table if exists accounts add constraint FKnjuop33mo69pd79ctplkck40n foreign key (user_id) references users;
+alter table if exists budgets add constraint FK6ogcfdsjdm7yqmxwhx9cqlx8y foreign key (category_id) references categories;
+alter table if exists budgets add constraint FKsoeidlecgpbs2gwgi6rd0xpjk foreign key (user_id) references users;
+alter table if exists transactions add constraint FK20w7wsg13u9srbq3bd7chfxdh foreign key (account_id) references accounts;
+alter table if exists transactions add constraint FKlhn2k2w6ifj6uogh8eyyq39eq foreign key (category_id) references categories;
+alter table if exists transactions add constraint FKqwv7rmvc8va8rep7piikrojds foreign key (user_id) references users;
+
+insert into users (id, registration_date, email, password, username) values (1, '2024-01-01 00:00:00', 'legacy@test.com', 'password', 'legacy');
+insert into user_roles (user_id, roles) values (1, 'USER');
+insert into categories (id, name, type) values (1, 'Legacy food', 'EXPENSE');
+insert into accounts (balance, id, user_id, account_type, currency, name) values (850.00, 1, 1, 'CARD', 'RUB', 'Legacy card');
+insert into transactions (amount, account_id, category_id, date, id, user_id, description, type) values
+    (100.00, 1, 1, '2024-03-01 10:00:00', 1, 1, 'Market', 'EXPENSE'),
+    (50.00, 1, 1, '2024-03-01 18:00:00', 2, 1, 'Cafe', 'EXPENSE');
+insert into reports (id, status, content, creation_time) values (1, 'COMPLETED', '<html>Legacy report</html>', 42);